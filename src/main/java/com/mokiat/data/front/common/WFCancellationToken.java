@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.common;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mokiat.data.front.error.WFCancelledException;
+
+/**
+ * The {@link WFCancellationToken} class can be used to stop
+ * the scanning or parsing of WaveFront resources early.
+ * <p>
+ * A token is either cancelled explicitly through {@link #cancel()}
+ * or expires once its deadline passes. Scanners check tokens
+ * between lines, though only every so many lines, so that the
+ * check does not affect throughput, and fail with a
+ * {@link WFCancelledException} once the token fires.
+ * <p>
+ * A single token can be shared by multiple scanners and parsers,
+ * for example by all the loads that serve a single request, and
+ * can be cancelled from any thread.
+ * 
+ * @author Momchil Atanasov
+ *
+ */
+public class WFCancellationToken {
+
+	private final boolean hasDeadline;
+	private final long deadline;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates a new {@link WFCancellationToken} that has
+	 * no deadline and only fires once cancelled.
+	 */
+	public WFCancellationToken() {
+		this.hasDeadline = false;
+		this.deadline = 0L;
+	}
+
+	/**
+	 * Creates a new {@link WFCancellationToken} that fires
+	 * once cancelled or once the specified amount of time
+	 * has passed, whichever happens first.
+	 * @param timeout time after which the token expires
+	 * @param unit unit of the timeout
+	 * @throws IllegalArgumentException if the timeout is negative
+	 */
+	public WFCancellationToken(long timeout, TimeUnit unit) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Timeout must not be negative.");
+		}
+		this.hasDeadline = true;
+		this.deadline = System.nanoTime() + unit.toNanos(timeout);
+	}
+
+	/**
+	 * Cancels this token.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns whether this token was cancelled.
+	 * @return <code>true</code> if {@link #cancel()} was
+	 * called, <code>false</code> otherwise
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns whether this token has a deadline.
+	 * @return <code>true</code> if this token expires at some
+	 * point, <code>false</code> otherwise
+	 */
+	public boolean hasDeadline() {
+		return hasDeadline;
+	}
+
+	/**
+	 * Returns whether the deadline of this token has passed.
+	 * @return <code>true</code> if the token has a deadline
+	 * and it has passed, <code>false</code> otherwise
+	 */
+	public boolean isExpired() {
+		return hasDeadline && (System.nanoTime() - deadline >= 0);
+	}
+
+	/**
+	 * Throws a {@link WFCancelledException} if this token was
+	 * cancelled or has expired.
+	 * @throws WFCancelledException if the token has fired
+	 */
+	public void check() throws WFCancelledException {
+		if (cancelled) {
+			throw new WFCancelledException("Processing was cancelled.");
+		}
+		if (isExpired()) {
+			throw new WFCancelledException("Processing deadline has passed.");
+		}
+	}
+
+}
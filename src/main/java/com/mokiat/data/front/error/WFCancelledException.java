@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.error;
+
+/**
+ * This exception is used to indicate that the processing of a
+ * WaveFront resource was stopped before it completed, either
+ * because it was cancelled or because its deadline passed.
+ *
+ * @author Momchil Atanasov
+ * 
+ */
+public class WFCancelledException extends WFException {
+
+	private static final long serialVersionUID = 1L;
+	
+	public WFCancelledException() {
+		super();
+	}
+	
+	public WFCancelledException(String message) {
+		super(message);
+	}
+
+	public WFCancelledException(Throwable ex) {
+		super(ex);
+	}
+
+	public WFCancelledException(String message, Throwable ex) {
+		super(message, ex);
+	}
+
+}
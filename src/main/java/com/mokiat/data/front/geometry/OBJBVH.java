@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import com.mokiat.data.front.parser.OBJMesh;
+
+/**
+ * A bounding volume hierarchy over the triangles of {@link OBJMesh}
+ * instances, as built by an {@link OBJBVHBuilder}.
+ * <p>
+ * Nodes are stored in depth-first order in flat arrays. Each node has
+ * {@link #NODE_BOUNDS_STRIDE} floats of bounds (minimum X, Y and Z,
+ * followed by maximum X, Y and Z) and {@link #NODE_DATA_STRIDE} ints of
+ * data. For leaf nodes, the data is the index of the first triangle and
+ * the number of triangles, which is always positive. For inner nodes, it
+ * is the index of the second child and zero, while the first child
+ * directly follows its parent. The first node is the root.
+ * <p>
+ * Triangles are reordered so that the triangles of each leaf are
+ * adjacent. Each has {@link #TRIANGLE_STRIDE} floats, i.e. the
+ * positions of its three corners, and remembers the mesh and face
+ * that it came from.
+ * <p>
+ * Instances are immutable, so queries can be run from multiple
+ * threads at the same time, as long as each uses its own
+ * {@link OBJRay}.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJBVH {
+
+	/**
+	 * Number of floats per node in the node bounds array.
+	 */
+	public static final int NODE_BOUNDS_STRIDE = 6;
+
+	/**
+	 * Number of ints per node in the node data array.
+	 */
+	public static final int NODE_DATA_STRIDE = 2;
+
+	/**
+	 * Number of floats per triangle in the triangle data array.
+	 */
+	public static final int TRIANGLE_STRIDE = 9;
+
+	private static final float EPSILON = 1e-12f;
+
+	private final int nodeCount;
+	private final float[] nodeBounds;
+	private final int[] nodeData;
+	private final int depth;
+	private final int triangleCount;
+	private final float[] triangleData;
+	private final int[] triangleMeshes;
+	private final int[] triangleFaces;
+
+	OBJBVH(int nodeCount, float[] nodeBounds, int[] nodeData, int depth, int triangleCount, float[] triangleData, int[] triangleMeshes, int[] triangleFaces) {
+		this.nodeCount = nodeCount;
+		this.nodeBounds = nodeBounds;
+		this.nodeData = nodeData;
+		this.depth = depth;
+		this.triangleCount = triangleCount;
+		this.triangleData = triangleData;
+		this.triangleMeshes = triangleMeshes;
+		this.triangleFaces = triangleFaces;
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 * @return node count
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the array that holds the bounds of all nodes.
+	 * <p>
+	 * The array must not be modified.
+	 * @return the node bounds array
+	 */
+	public float[] getNodeBounds() {
+		return nodeBounds;
+	}
+
+	/**
+	 * Returns the array that holds the data of all nodes.
+	 * <p>
+	 * The array must not be modified.
+	 * @return the node data array
+	 */
+	public int[] getNodeData() {
+		return nodeData;
+	}
+
+	/**
+	 * Returns the number of edges on the longest path
+	 * from the root to a leaf.
+	 * @return the depth of the hierarchy
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns whether the node at the specified index is a leaf.
+	 * @param node index of the node
+	 * @return <code>true</code> if the node is a leaf,
+	 * <code>false</code> otherwise
+	 */
+	public boolean isLeaf(int node) {
+		return (nodeData[node * NODE_DATA_STRIDE + 1] != 0);
+	}
+
+	/**
+	 * Returns the number of triangles.
+	 * @return triangle count
+	 */
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * Returns the array that holds the corner positions of all
+	 * triangles, in hierarchy order.
+	 * <p>
+	 * The array must not be modified.
+	 * @return the triangle data array
+	 */
+	public float[] getTriangleData() {
+		return triangleData;
+	}
+
+	/**
+	 * Returns the index of the mesh, among the meshes that the
+	 * hierarchy was built from, of the specified triangle.
+	 * @param triangle index of the triangle
+	 * @return index of the mesh
+	 */
+	public int getMesh(int triangle) {
+		return triangleMeshes[triangle];
+	}
+
+	/**
+	 * Returns the index of the face, within its mesh, of
+	 * the specified triangle.
+	 * @param triangle index of the triangle
+	 * @return index of the face
+	 */
+	public int getFace(int triangle) {
+		return triangleFaces[triangle];
+	}
+
+	/**
+	 * Finds the closest triangle that the specified ray hits.
+	 * <p>
+	 * Triangles are hit from both sides. The hit, if any, is stored
+	 * in the {@link OBJRay#distance}, {@link OBJRay#u}, {@link OBJRay#v}
+	 * and {@link OBJRay#triangle} fields of the ray.
+	 * @param ray the ray to be cast
+	 * @return <code>true</code> if a triangle was hit,
+	 * <code>false</code> otherwise
+	 */
+	public boolean intersectClosest(OBJRay ray) {
+		return intersect(ray, false);
+	}
+
+	/**
+	 * Checks whether the specified ray hits any triangle.
+	 * <p>
+	 * Traversal stops at the first hit that is found, which is not
+	 * necessarily the closest one. This is the cheaper query for
+	 * occlusion tests. The hit, if any, is stored in the ray in the
+	 * same way as for {@link #intersectClosest(OBJRay)}.
+	 * @param ray the ray to be cast
+	 * @return <code>true</code> if a triangle was hit,
+	 * <code>false</code> otherwise
+	 */
+	public boolean intersectAny(OBJRay ray) {
+		return intersect(ray, true);
+	}
+
+	private boolean intersect(OBJRay ray, boolean any) {
+		ray.triangle = OBJRay.NO_HIT;
+		ray.distance = Float.POSITIVE_INFINITY;
+		if (nodeCount == 0) {
+			return false;
+		}
+		ray.ensureStackCapacity(depth + 2);
+		final int[] nodeStack = ray.nodeStack;
+		final float[] distanceStack = ray.distanceStack;
+		final float inverseX = 1.0f / ray.directionX;
+		final float inverseY = 1.0f / ray.directionY;
+		final float inverseZ = 1.0f / ray.directionZ;
+		float closest = ray.maxDistance;
+
+		final float rootDistance = enterNode(0, ray, inverseX, inverseY, inverseZ, closest);
+		if (rootDistance == Float.POSITIVE_INFINITY) {
+			return false;
+		}
+		nodeStack[0] = 0;
+		distanceStack[0] = rootDistance;
+		int stackSize = 1;
+		while (stackSize > 0) {
+			stackSize--;
+			if (distanceStack[stackSize] > closest) {
+				continue;
+			}
+			final int node = nodeStack[stackSize];
+			final int count = nodeData[node * NODE_DATA_STRIDE + 1];
+			if (count != 0) {
+				final int first = nodeData[node * NODE_DATA_STRIDE];
+				for (int triangle = first; triangle < first + count; ++triangle) {
+					if (intersectTriangle(triangle, ray, closest)) {
+						closest = ray.distance;
+						if (any) {
+							return true;
+						}
+					}
+				}
+				continue;
+			}
+			final int left = node + 1;
+			final int right = nodeData[node * NODE_DATA_STRIDE];
+			final float leftDistance = enterNode(left, ray, inverseX, inverseY, inverseZ, closest);
+			final float rightDistance = enterNode(right, ray, inverseX, inverseY, inverseZ, closest);
+			// Push the nearer child last, so that it is visited first
+			if (leftDistance <= rightDistance) {
+				if (rightDistance != Float.POSITIVE_INFINITY) {
+					nodeStack[stackSize] = right;
+					distanceStack[stackSize++] = rightDistance;
+				}
+				if (leftDistance != Float.POSITIVE_INFINITY) {
+					nodeStack[stackSize] = left;
+					distanceStack[stackSize++] = leftDistance;
+				}
+			} else {
+				if (leftDistance != Float.POSITIVE_INFINITY) {
+					nodeStack[stackSize] = left;
+					distanceStack[stackSize++] = leftDistance;
+				}
+				nodeStack[stackSize] = right;
+				distanceStack[stackSize++] = rightDistance;
+			}
+		}
+		return ray.hasHit();
+	}
+
+	/*
+	 * Returns the distance at which the ray enters the bounds of the
+	 * node, or positive infinity if it misses them within the limit.
+	 * Comparisons are written so that NaN values, which occur for
+	 * rays that are parallel to a slab and start on its plane, don't
+	 * narrow the interval.
+	 */
+	private float enterNode(int node, OBJRay ray, float inverseX, float inverseY, float inverseZ, float limit) {
+		final int offset = node * NODE_BOUNDS_STRIDE;
+		float near = 0.0f;
+		float far = limit;
+
+		float t1 = (nodeBounds[offset] - ray.originX) * inverseX;
+		float t2 = (nodeBounds[offset + 3] - ray.originX) * inverseX;
+		if (t1 > t2) {
+			final float swap = t1;
+			t1 = t2;
+			t2 = swap;
+		}
+		if (t1 > near) {
+			near = t1;
+		}
+		if (t2 < far) {
+			far = t2;
+		}
+
+		t1 = (nodeBounds[offset + 1] - ray.originY) * inverseY;
+		t2 = (nodeBounds[offset + 4] - ray.originY) * inverseY;
+		if (t1 > t2) {
+			final float swap = t1;
+			t1 = t2;
+			t2 = swap;
+		}
+		if (t1 > near) {
+			near = t1;
+		}
+		if (t2 < far) {
+			far = t2;
+		}
+
+		t1 = (nodeBounds[offset + 2] - ray.originZ) * inverseZ;
+		t2 = (nodeBounds[offset + 5] - ray.originZ) * inverseZ;
+		if (t1 > t2) {
+			final float swap = t1;
+			t1 = t2;
+			t2 = swap;
+		}
+		if (t1 > near) {
+			near = t1;
+		}
+		if (t2 < far) {
+			far = t2;
+		}
+		return (near <= far) ? near : Float.POSITIVE_INFINITY;
+	}
+
+	/*
+	 * Moller-Trumbore intersection. Stores the hit in the
+	 * ray if it is closer than the limit.
+	 */
+	private boolean intersectTriangle(int triangle, OBJRay ray, float limit) {
+		final int offset = triangle * TRIANGLE_STRIDE;
+		final float x0 = triangleData[offset];
+		final float y0 = triangleData[offset + 1];
+		final float z0 = triangleData[offset + 2];
+		final float edge1X = triangleData[offset + 3] - x0;
+		final float edge1Y = triangleData[offset + 4] - y0;
+		final float edge1Z = triangleData[offset + 5] - z0;
+		final float edge2X = triangleData[offset + 6] - x0;
+		final float edge2Y = triangleData[offset + 7] - y0;
+		final float edge2Z = triangleData[offset + 8] - z0;
+
+		final float pX = ray.directionY * edge2Z - ray.directionZ * edge2Y;
+		final float pY = ray.directionZ * edge2X - ray.directionX * edge2Z;
+		final float pZ = ray.directionX * edge2Y - ray.directionY * edge2X;
+		final float determinant = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+		if (Math.abs(determinant) < EPSILON) {
+			return false;
+		}
+		final float inverse = 1.0f / determinant;
+		final float sX = ray.originX - x0;
+		final float sY = ray.originY - y0;
+		final float sZ = ray.originZ - z0;
+		final float u = (sX * pX + sY * pY + sZ * pZ) * inverse;
+		if ((u < 0.0f) || (u > 1.0f)) {
+			return false;
+		}
+		final float qX = sY * edge1Z - sZ * edge1Y;
+		final float qY = sZ * edge1X - sX * edge1Z;
+		final float qZ = sX * edge1Y - sY * edge1X;
+		final float v = (ray.directionX * qX + ray.directionY * qY + ray.directionZ * qZ) * inverse;
+		if ((v < 0.0f) || (u + v > 1.0f)) {
+			return false;
+		}
+		final float distance = (edge2X * qX + edge2Y * qY + edge2Z * qZ) * inverse;
+		if ((distance < 0.0f) || (distance > limit)) {
+			return false;
+		}
+		ray.distance = distance;
+		ray.u = u;
+		ray.v = v;
+		ray.triangle = triangle;
+		return true;
+	}
+
+}
@@ -0,0 +1,849 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+
+/**
+ * Builds {@link OBJBVH} instances over the triangles of
+ * {@link OBJMesh} instances.
+ * <p>
+ * Faces are split into triangles by an {@link OBJTriangulator}. The
+ * hierarchy is built top-down and each node is split where the surface
+ * area heuristic, evaluated over a fixed number of bins along each axis,
+ * predicts the cheapest traversal. Nodes with at most the maximum leaf
+ * size of triangles become leaves.
+ * <p>
+ * Large nodes are binned in parallel over primitive ranges and their
+ * children are built in parallel. Subtrees that are below the range size
+ * are built sequentially into compact local arrays, which are finally
+ * copied into the flat arrays of the hierarchy in depth-first order. The
+ * split decisions don't depend on the number of threads, so neither does
+ * the result.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJBVHBuilder {
+
+	/**
+	 * The default number of triangles below which a subtree
+	 * is built by a single task.
+	 */
+	public static final int DEFAULT_RANGE_SIZE = 8192;
+
+	/**
+	 * The default number of bins per axis.
+	 */
+	public static final int DEFAULT_BIN_COUNT = 16;
+
+	/**
+	 * The default maximum number of triangles per leaf.
+	 */
+	public static final int DEFAULT_MAX_LEAF_SIZE = 4;
+
+	private static final int BOUNDS_SIZE = OBJBVH.NODE_BOUNDS_STRIDE;
+	private static final int RANGE_BOUNDS_SIZE = BOUNDS_SIZE * 2;
+	private static final int TRIANGLE_STRIDE = OBJBVH.TRIANGLE_STRIDE;
+	private static final int AXIS_COUNT = 3;
+	private static final int NO_SPLIT = -1;
+
+	private final int rangeSize;
+	private int binCount = DEFAULT_BIN_COUNT;
+	private int maxLeafSize = DEFAULT_MAX_LEAF_SIZE;
+	private OBJTriangulator triangulator = new OBJTriangulator();
+
+	/**
+	 * Creates a new {@link OBJBVHBuilder} that uses the
+	 * default range size.
+	 */
+	public OBJBVHBuilder() {
+		this(DEFAULT_RANGE_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link OBJBVHBuilder} that builds subtrees
+	 * of up to the specified number of triangles sequentially.
+	 * @param rangeSize number of triangles per parallel task
+	 */
+	public OBJBVHBuilder(int rangeSize) {
+		if (rangeSize <= 0) {
+			throw new IllegalArgumentException("Range size must be positive.");
+		}
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Sets the number of bins per axis in which split positions are
+	 * evaluated. More bins find better splits at a higher build cost.
+	 * The default is {@link #DEFAULT_BIN_COUNT}.
+	 * @param binCount number of bins, at least two
+	 */
+	public void setBinCount(int binCount) {
+		if (binCount < 2) {
+			throw new IllegalArgumentException("Bin count must be at least two.");
+		}
+		this.binCount = binCount;
+	}
+
+	/**
+	 * Returns the number of bins per axis.
+	 * @return bin count
+	 */
+	public int getBinCount() {
+		return binCount;
+	}
+
+	/**
+	 * Sets the maximum number of triangles per leaf. The
+	 * default is {@link #DEFAULT_MAX_LEAF_SIZE}.
+	 * @param maxLeafSize maximum leaf size, at least one
+	 */
+	public void setMaxLeafSize(int maxLeafSize) {
+		if (maxLeafSize < 1) {
+			throw new IllegalArgumentException("Max leaf size must be positive.");
+		}
+		this.maxLeafSize = maxLeafSize;
+	}
+
+	/**
+	 * Returns the maximum number of triangles per leaf.
+	 * @return maximum leaf size
+	 */
+	public int getMaxLeafSize() {
+		return maxLeafSize;
+	}
+
+	/**
+	 * Sets the triangulator that is used to split faces into triangles.
+	 * @param triangulator the triangulator to be used
+	 */
+	public void setTriangulator(OBJTriangulator triangulator) {
+		this.triangulator = triangulator;
+	}
+
+	/**
+	 * Returns the triangulator that is used to split faces into triangles.
+	 * @return the triangulator
+	 */
+	public OBJTriangulator getTriangulator() {
+		return triangulator;
+	}
+
+	/**
+	 * Builds a hierarchy over a single mesh on the calling thread.
+	 * @param model the model that holds the vertex data
+	 * @param mesh the mesh whose triangles should be included
+	 * @return the new hierarchy
+	 * @throws IndexOutOfBoundsException if a data reference of the
+	 * mesh points to a vertex that does not exist
+	 */
+	public OBJBVH build(OBJModel model, OBJMesh mesh) {
+		return build(model, Collections.singletonList(mesh), null);
+	}
+
+	/**
+	 * Builds a single hierarchy over all meshes of all objects of
+	 * the specified model, in parallel.
+	 * @param model the model whose triangles should be included
+	 * @param pool pool on which the hierarchy will be built
+	 * @return the new hierarchy, whose mesh indices count the meshes
+	 * in object and mesh order
+	 * @throws IndexOutOfBoundsException if a data reference
+	 * points to a vertex that does not exist
+	 */
+	public OBJBVH build(OBJModel model, ForkJoinPool pool) {
+		final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+		for (OBJObject object : model.getObjects()) {
+			meshes.addAll(object.getMeshes());
+		}
+		return build(model, meshes, pool);
+	}
+
+	/**
+	 * Builds a single hierarchy over the specified meshes, in parallel.
+	 * @param model the model that holds the vertex data
+	 * @param meshes the meshes whose triangles should be included
+	 * @param pool pool on which the hierarchy will be built, or
+	 * <code>null</code> to build it on the calling thread
+	 * @return the new hierarchy, whose mesh indices are positions
+	 * in the specified list
+	 * @throws IndexOutOfBoundsException if a data reference
+	 * points to a vertex that does not exist
+	 */
+	public OBJBVH build(OBJModel model, List<OBJMesh> meshes, ForkJoinPool pool) {
+		final OBJModelData modelData = OBJModelData.of(model);
+		final List<OBJMeshData> meshData = new ArrayList<OBJMeshData>(meshes.size());
+		for (OBJMesh mesh : meshes) {
+			meshData.add(OBJMeshData.of(mesh));
+		}
+		final List<int[]> triangles = triangulator.triangulate(modelData, meshData, pool);
+		final int[] meshOffsets = new int[meshes.size() + 1];
+		for (int i = 0; i < meshes.size(); ++i) {
+			meshOffsets[i + 1] = meshOffsets[i] + triangles.get(i).length / 3;
+		}
+		final int triangleCount = meshOffsets[meshes.size()];
+		final Primitives primitives = new Primitives(triangleCount);
+		load(modelData, meshData, triangles, meshOffsets, primitives, pool);
+		if (triangleCount == 0) {
+			return new OBJBVH(0, new float[0], new int[0], 0, 0, new float[0], new int[0], new int[0]);
+		}
+
+		final Subtree root;
+		if (pool != null) {
+			root = pool.invoke(new NodeTask(primitives, 0, triangleCount));
+		} else {
+			root = new LocalBuilder(primitives).build(0, triangleCount);
+		}
+		final float[] nodeBounds = new float[root.nodeCount * BOUNDS_SIZE];
+		final int[] nodeData = new int[root.nodeCount * OBJBVH.NODE_DATA_STRIDE];
+		write(root, 0, nodeBounds, nodeData);
+
+		final float[] triangleData = new float[triangleCount * TRIANGLE_STRIDE];
+		final int[] triangleMeshes = new int[triangleCount];
+		final int[] triangleFaces = new int[triangleCount];
+		final GatherTask gatherTask = new GatherTask(primitives, triangleData, triangleMeshes, triangleFaces, 0, triangleCount);
+		if (pool != null) {
+			pool.invoke(gatherTask);
+		} else {
+			gatherTask.gather(0, triangleCount);
+		}
+		return new OBJBVH(root.nodeCount, nodeBounds, nodeData, root.depth, triangleCount, triangleData, triangleMeshes, triangleFaces);
+	}
+
+	private void load(OBJModelData modelData, List<OBJMeshData> meshData, List<int[]> triangles, int[] meshOffsets, Primitives primitives, ForkJoinPool pool) {
+		final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(meshData.size());
+		for (int i = 0; i < meshData.size(); ++i) {
+			final OBJMeshData mesh = meshData.get(i);
+			final LoadTask task = new LoadTask(modelData, mesh, OBJTriangulator.getTriangleOffsets(mesh),
+					triangles.get(i), i, meshOffsets[i], primitives, 0, mesh.faceCount);
+			if (pool != null) {
+				tasks.add(pool.submit(task));
+			} else {
+				task.load(0, mesh.faceCount);
+			}
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+	/*
+	 * Copies a subtree into the flat node arrays, starting at the
+	 * specified node. Subtrees that were built locally use indices
+	 * relative to their root, which have to be shifted.
+	 */
+	private static void write(Subtree subtree, int node, float[] nodeBounds, int[] nodeData) {
+		if (subtree.left == null) {
+			System.arraycopy(subtree.nodeBounds, 0, nodeBounds, node * BOUNDS_SIZE, subtree.nodeCount * BOUNDS_SIZE);
+			for (int i = 0; i < subtree.nodeCount; ++i) {
+				final int offset = (node + i) * OBJBVH.NODE_DATA_STRIDE;
+				final int first = subtree.nodeData[i * OBJBVH.NODE_DATA_STRIDE];
+				final int count = subtree.nodeData[i * OBJBVH.NODE_DATA_STRIDE + 1];
+				nodeData[offset] = (count != 0) ? first : first + node;
+				nodeData[offset + 1] = count;
+			}
+			return;
+		}
+		final int right = node + 1 + subtree.left.nodeCount;
+		System.arraycopy(subtree.nodeBounds, 0, nodeBounds, node * BOUNDS_SIZE, BOUNDS_SIZE);
+		nodeData[node * OBJBVH.NODE_DATA_STRIDE] = right;
+		nodeData[node * OBJBVH.NODE_DATA_STRIDE + 1] = 0;
+		write(subtree.left, node + 1, nodeBounds, nodeData);
+		write(subtree.right, right, nodeBounds, nodeData);
+	}
+
+	/*
+	 * Extends range bounds, i.e. node bounds followed by centroid
+	 * bounds, with the triangles of the specified range. Centroids
+	 * are the centers of the triangle bounds.
+	 */
+	private static void extendRangeBounds(Primitives primitives, int begin, int end, float[] rangeBounds) {
+		final float[] boxes = primitives.boxes;
+		for (int i = begin; i < end; ++i) {
+			final int offset = i * BOUNDS_SIZE;
+			for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+				final float min = boxes[offset + axis];
+				final float max = boxes[offset + axis + 3];
+				final float centroid = (min + max) * 0.5f;
+				if (min < rangeBounds[axis]) {
+					rangeBounds[axis] = min;
+				}
+				if (max > rangeBounds[axis + 3]) {
+					rangeBounds[axis + 3] = max;
+				}
+				if (centroid < rangeBounds[BOUNDS_SIZE + axis]) {
+					rangeBounds[BOUNDS_SIZE + axis] = centroid;
+				}
+				if (centroid > rangeBounds[BOUNDS_SIZE + axis + 3]) {
+					rangeBounds[BOUNDS_SIZE + axis + 3] = centroid;
+				}
+			}
+		}
+	}
+
+	private static void extend(float[] bounds, int boundsOffset, float[] other, int otherOffset) {
+		for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+			if (other[otherOffset + axis] < bounds[boundsOffset + axis]) {
+				bounds[boundsOffset + axis] = other[otherOffset + axis];
+			}
+			if (other[otherOffset + axis + 3] > bounds[boundsOffset + axis + 3]) {
+				bounds[boundsOffset + axis + 3] = other[otherOffset + axis + 3];
+			}
+		}
+	}
+
+	private static void extendPoint(float[] bounds, int boundsOffset, float[] point, int pointOffset) {
+		for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+			final float value = point[pointOffset + axis];
+			if (value < bounds[boundsOffset + axis]) {
+				bounds[boundsOffset + axis] = value;
+			}
+			if (value > bounds[boundsOffset + axis + 3]) {
+				bounds[boundsOffset + axis + 3] = value;
+			}
+		}
+	}
+
+	private static void resetBounds(float[] bounds, int offset) {
+		for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+			bounds[offset + axis] = Float.POSITIVE_INFINITY;
+			bounds[offset + axis + 3] = Float.NEGATIVE_INFINITY;
+		}
+	}
+
+	private static float halfArea(float[] bounds, int offset) {
+		final float extentX = bounds[offset + 3] - bounds[offset];
+		final float extentY = bounds[offset + 4] - bounds[offset + 1];
+		final float extentZ = bounds[offset + 5] - bounds[offset + 2];
+		return extentX * extentY + extentY * extentZ + extentZ * extentX;
+	}
+
+	private static float[] newRangeBounds() {
+		final float[] rangeBounds = new float[RANGE_BOUNDS_SIZE];
+		resetBounds(rangeBounds, 0);
+		resetBounds(rangeBounds, BOUNDS_SIZE);
+		return rangeBounds;
+	}
+
+	/*
+	 * Reorders the range so that the primitives of the chosen split
+	 * come first and returns the index of the first other primitive.
+	 * If there is no valid split, the range is split in half.
+	 */
+	private int partition(Primitives primitives, int begin, int end, float[] rangeBounds, Bins bins) {
+		final int split = bins.findSplit();
+		if (split == NO_SPLIT) {
+			return (begin + end) >>> 1;
+		}
+		final int axis = split / binCount;
+		final int lastLeftBin = split % binCount;
+		final float[] boxes = primitives.boxes;
+		int left = begin;
+		int right = end - 1;
+		while (left <= right) {
+			final int offset = left * BOUNDS_SIZE + axis;
+			if (bins.getBin(axis, (boxes[offset] + boxes[offset + 3]) * 0.5f) <= lastLeftBin) {
+				left++;
+			} else {
+				primitives.swap(left, right);
+				right--;
+			}
+		}
+		return left;
+	}
+
+	/*
+	 * Holds the corners, meshes and faces of the triangles in their
+	 * original order. The bounds of the triangles, along with their
+	 * original indices, are reordered as the hierarchy is built, so
+	 * that each node covers a contiguous range of them.
+	 */
+	private static final class Primitives {
+
+		public final float[] vertices;
+		public final int[] meshes;
+		public final int[] faces;
+		public final float[] boxes;
+		public final int[] order;
+
+		public Primitives(int count) {
+			this.vertices = new float[count * TRIANGLE_STRIDE];
+			this.meshes = new int[count];
+			this.faces = new int[count];
+			this.boxes = new float[count * BOUNDS_SIZE];
+			this.order = new int[count];
+		}
+
+		public void swap(int first, int second) {
+			final int swap = order[first];
+			order[first] = order[second];
+			order[second] = swap;
+			final int firstOffset = first * BOUNDS_SIZE;
+			final int secondOffset = second * BOUNDS_SIZE;
+			for (int i = 0; i < BOUNDS_SIZE; ++i) {
+				final float value = boxes[firstOffset + i];
+				boxes[firstOffset + i] = boxes[secondOffset + i];
+				boxes[secondOffset + i] = value;
+			}
+		}
+
+	}
+
+	/*
+	 * A part of the hierarchy. It is either a single split node with
+	 * two subtrees, or a subtree that was built into local arrays.
+	 */
+	private static final class Subtree {
+
+		public final float[] nodeBounds;
+		public final int[] nodeData;
+		public final int nodeCount;
+		public final int depth;
+		public final Subtree left;
+		public final Subtree right;
+
+		public Subtree(float[] nodeBounds, int[] nodeData, int nodeCount, int depth) {
+			this.nodeBounds = nodeBounds;
+			this.nodeData = nodeData;
+			this.nodeCount = nodeCount;
+			this.depth = depth;
+			this.left = null;
+			this.right = null;
+		}
+
+		public Subtree(float[] nodeBounds, Subtree left, Subtree right) {
+			this.nodeBounds = nodeBounds;
+			this.nodeData = null;
+			this.nodeCount = 1 + left.nodeCount + right.nodeCount;
+			this.depth = 1 + Math.max(left.depth, right.depth);
+			this.left = left;
+			this.right = right;
+		}
+
+	}
+
+	/*
+	 * Primitive counts and bounds of each bin along each axis. Ranges
+	 * with fewer primitives than the bin count use fewer bins.
+	 */
+	private final class Bins {
+
+		private final float[] scales = new float[AXIS_COUNT];
+		private final int[] counts = new int[AXIS_COUNT * binCount];
+		private final float[] bounds = new float[AXIS_COUNT * binCount * BOUNDS_SIZE];
+		private final float[] sweepAreas = new float[binCount];
+		private final int[] sweepCounts = new int[binCount];
+		private final float[] sweepBounds = new float[BOUNDS_SIZE];
+
+		private float[] rangeBounds;
+		private int size;
+
+		public Bins(float[] rangeBounds, int primitiveCount) {
+			reset(rangeBounds, primitiveCount);
+		}
+
+		/*
+		 * Empties all bins and prepares them for a range with the
+		 * specified range bounds and number of primitives. Axes
+		 * without any extent get a zero scale and are not binned.
+		 */
+		public void reset(float[] rangeBounds, int primitiveCount) {
+			this.rangeBounds = rangeBounds;
+			this.size = Math.min(binCount, primitiveCount);
+			for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+				final float extent = rangeBounds[BOUNDS_SIZE + axis + 3] - rangeBounds[BOUNDS_SIZE + axis];
+				scales[axis] = (extent > 0.0f) ? size / extent : 0.0f;
+				final int firstBin = axis * binCount;
+				Arrays.fill(counts, firstBin, firstBin + size, 0);
+				for (int bin = firstBin; bin < firstBin + size; ++bin) {
+					resetBounds(bounds, bin * BOUNDS_SIZE);
+				}
+			}
+		}
+
+		public int getBin(int axis, float centroid) {
+			final int bin = (int) ((centroid - rangeBounds[BOUNDS_SIZE + axis]) * scales[axis]);
+			return (bin < size) ? bin : size - 1;
+		}
+
+		public void accumulate(Primitives primitives, int begin, int end) {
+			final float[] boxes = primitives.boxes;
+			for (int i = begin; i < end; ++i) {
+				final int offset = i * BOUNDS_SIZE;
+				for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+					if (scales[axis] == 0.0f) {
+						continue;
+					}
+					final float centroid = (boxes[offset + axis] + boxes[offset + axis + 3]) * 0.5f;
+					final int bin = axis * binCount + getBin(axis, centroid);
+					counts[bin]++;
+					extend(bounds, bin * BOUNDS_SIZE, boxes, offset);
+				}
+			}
+		}
+
+		public void merge(Bins other) {
+			for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+				for (int bin = axis * binCount; bin < axis * binCount + size; ++bin) {
+					if (other.counts[bin] == 0) {
+						continue;
+					}
+					counts[bin] += other.counts[bin];
+					extend(bounds, bin * BOUNDS_SIZE, other.bounds, bin * BOUNDS_SIZE);
+				}
+			}
+		}
+
+		/*
+		 * Returns the split with the lowest surface area heuristic cost,
+		 * encoded as the axis times the bin count plus the last bin of
+		 * the first child, or NO_SPLIT if no split has primitives on
+		 * both sides.
+		 */
+		public int findSplit() {
+			int bestSplit = NO_SPLIT;
+			float bestCost = Float.POSITIVE_INFINITY;
+			for (int axis = 0; axis < AXIS_COUNT; ++axis) {
+				if (scales[axis] == 0.0f) {
+					continue;
+				}
+				final int firstBin = axis * binCount;
+				resetBounds(sweepBounds, 0);
+				int count = 0;
+				for (int bin = 0; bin < size - 1; ++bin) {
+					count += counts[firstBin + bin];
+					extendBounds(firstBin + bin);
+					sweepCounts[bin] = count;
+					sweepAreas[bin] = (count > 0) ? halfArea(sweepBounds, 0) : 0.0f;
+				}
+				resetBounds(sweepBounds, 0);
+				count = 0;
+				for (int bin = size - 1; bin > 0; --bin) {
+					count += counts[firstBin + bin];
+					extendBounds(firstBin + bin);
+					if ((count == 0) || (sweepCounts[bin - 1] == 0)) {
+						continue;
+					}
+					final float cost = sweepCounts[bin - 1] * sweepAreas[bin - 1] + count * halfArea(sweepBounds, 0);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestSplit = firstBin + bin - 1;
+					}
+				}
+			}
+			return bestSplit;
+		}
+
+		private void extendBounds(int bin) {
+			if (counts[bin] == 0) {
+				return;
+			}
+			extend(sweepBounds, 0, bounds, bin * BOUNDS_SIZE);
+		}
+
+	}
+
+	/*
+	 * Builds a subtree sequentially into local arrays, where
+	 * child indices are relative to the root of the subtree.
+	 */
+	private final class LocalBuilder {
+
+		private final Primitives primitives;
+		private final float[] rangeBounds = newRangeBounds();
+		private final Bins bins = new Bins(rangeBounds, binCount);
+		private float[] nodeBounds = new float[16 * BOUNDS_SIZE];
+		private int[] nodeData = new int[16 * OBJBVH.NODE_DATA_STRIDE];
+		private int nodeCount = 0;
+		private int depth = 0;
+
+		public LocalBuilder(Primitives primitives) {
+			this.primitives = primitives;
+		}
+
+		public Subtree build(int begin, int end) {
+			buildNode(begin, end, 0);
+			return new Subtree(
+					Arrays.copyOf(nodeBounds, nodeCount * BOUNDS_SIZE),
+					Arrays.copyOf(nodeData, nodeCount * OBJBVH.NODE_DATA_STRIDE),
+					nodeCount, depth);
+		}
+
+		private void buildNode(int begin, int end, int level) {
+			final int node = allocateNode();
+			resetBounds(rangeBounds, 0);
+			resetBounds(rangeBounds, BOUNDS_SIZE);
+			extendRangeBounds(primitives, begin, end, rangeBounds);
+			System.arraycopy(rangeBounds, 0, nodeBounds, node * BOUNDS_SIZE, BOUNDS_SIZE);
+			if (end - begin <= maxLeafSize) {
+				nodeData[node * OBJBVH.NODE_DATA_STRIDE] = begin;
+				nodeData[node * OBJBVH.NODE_DATA_STRIDE + 1] = end - begin;
+				depth = Math.max(depth, level);
+				return;
+			}
+			bins.reset(rangeBounds, end - begin);
+			bins.accumulate(primitives, begin, end);
+			final int middle = partition(primitives, begin, end, rangeBounds, bins);
+			buildNode(begin, middle, level + 1);
+			final int right = nodeCount;
+			buildNode(middle, end, level + 1);
+			nodeData[node * OBJBVH.NODE_DATA_STRIDE] = right;
+			nodeData[node * OBJBVH.NODE_DATA_STRIDE + 1] = 0;
+		}
+
+		private int allocateNode() {
+			if (nodeCount * BOUNDS_SIZE == nodeBounds.length) {
+				nodeBounds = Arrays.copyOf(nodeBounds, nodeBounds.length * 2);
+				nodeData = Arrays.copyOf(nodeData, nodeData.length * 2);
+			}
+			return nodeCount++;
+		}
+
+	}
+
+	/*
+	 * Builds the subtree of a range of primitives. Ranges above the
+	 * range size are binned in parallel and their children are built
+	 * in parallel.
+	 */
+	private final class NodeTask extends RecursiveTask<Subtree> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Primitives primitives;
+		private final int begin;
+		private final int end;
+
+		public NodeTask(Primitives primitives, int begin, int end) {
+			this.primitives = primitives;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected Subtree compute() {
+			if (end - begin <= rangeSize) {
+				return new LocalBuilder(primitives).build(begin, end);
+			}
+			final float[] rangeBounds = new RangeBoundsTask(primitives, begin, end).compute();
+			final Bins bins = new BinTask(primitives, rangeBounds, end - begin, begin, end).compute();
+			final int middle = partition(primitives, begin, end, rangeBounds, bins);
+			final NodeTask left = new NodeTask(primitives, begin, middle);
+			final NodeTask right = new NodeTask(primitives, middle, end);
+			invokeAll(left, right);
+			return new Subtree(Arrays.copyOf(rangeBounds, BOUNDS_SIZE), left.join(), right.join());
+		}
+
+	}
+
+	private final class RangeBoundsTask extends RecursiveTask<float[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Primitives primitives;
+		private final int begin;
+		private final int end;
+
+		public RangeBoundsTask(Primitives primitives, int begin, int end) {
+			this.primitives = primitives;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected float[] compute() {
+			if (end - begin <= rangeSize) {
+				final float[] rangeBounds = newRangeBounds();
+				extendRangeBounds(primitives, begin, end, rangeBounds);
+				return rangeBounds;
+			}
+			final int middle = (begin + end) >>> 1;
+			final RangeBoundsTask left = new RangeBoundsTask(primitives, begin, middle);
+			final RangeBoundsTask right = new RangeBoundsTask(primitives, middle, end);
+			invokeAll(left, right);
+			final float[] rangeBounds = left.join();
+			extend(rangeBounds, 0, right.join(), 0);
+			extend(rangeBounds, BOUNDS_SIZE, right.join(), BOUNDS_SIZE);
+			return rangeBounds;
+		}
+
+	}
+
+	private final class BinTask extends RecursiveTask<Bins> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Primitives primitives;
+		private final float[] rangeBounds;
+		private final int primitiveCount;
+		private final int begin;
+		private final int end;
+
+		public BinTask(Primitives primitives, float[] rangeBounds, int primitiveCount, int begin, int end) {
+			this.primitives = primitives;
+			this.rangeBounds = rangeBounds;
+			this.primitiveCount = primitiveCount;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected Bins compute() {
+			if (end - begin <= rangeSize) {
+				final Bins bins = new Bins(rangeBounds, primitiveCount);
+				bins.accumulate(primitives, begin, end);
+				return bins;
+			}
+			final int middle = (begin + end) >>> 1;
+			final BinTask left = new BinTask(primitives, rangeBounds, primitiveCount, begin, middle);
+			final BinTask right = new BinTask(primitives, rangeBounds, primitiveCount, middle, end);
+			invokeAll(left, right);
+			final Bins bins = left.join();
+			bins.merge(right.join());
+			return bins;
+		}
+
+	}
+
+	/*
+	 * Copies the corner positions of the triangles of a range
+	 * of faces and computes their bounds.
+	 */
+	private final class LoadTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final OBJModelData modelData;
+		private final OBJMeshData meshData;
+		private final int[] triangleOffsets;
+		private final int[] triangles;
+		private final int mesh;
+		private final int firstPrimitive;
+		private final Primitives primitives;
+		private final int firstFace;
+		private final int lastFace;
+
+		public LoadTask(OBJModelData modelData, OBJMeshData meshData, int[] triangleOffsets, int[] triangles, int mesh, int firstPrimitive, Primitives primitives, int firstFace, int lastFace) {
+			this.modelData = modelData;
+			this.meshData = meshData;
+			this.triangleOffsets = triangleOffsets;
+			this.triangles = triangles;
+			this.mesh = mesh;
+			this.firstPrimitive = firstPrimitive;
+			this.primitives = primitives;
+			this.firstFace = firstFace;
+			this.lastFace = lastFace;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastFace - firstFace <= rangeSize) {
+				load(firstFace, lastFace);
+				return;
+			}
+			final int middleFace = (firstFace + lastFace) >>> 1;
+			invokeAll(
+					new LoadTask(modelData, meshData, triangleOffsets, triangles, mesh, firstPrimitive, primitives, firstFace, middleFace),
+					new LoadTask(modelData, meshData, triangleOffsets, triangles, mesh, firstPrimitive, primitives, middleFace, lastFace));
+		}
+
+		public void load(int firstFace, int lastFace) {
+			final float[] vertices = primitives.vertices;
+			final float[] boxes = primitives.boxes;
+			for (int face = firstFace; face < lastFace; ++face) {
+				for (int triangle = triangleOffsets[face]; triangle < triangleOffsets[face + 1]; ++triangle) {
+					final int primitive = firstPrimitive + triangle;
+					resetBounds(boxes, primitive * BOUNDS_SIZE);
+					for (int corner = 0; corner < 3; ++corner) {
+						final int vertexIndex = meshData.vertexIndices[triangles[triangle * 3 + corner]];
+						if ((vertexIndex < 0) || (vertexIndex >= modelData.vertexCount)) {
+							throw new IndexOutOfBoundsException("Index: " + vertexIndex + ", Size: " + modelData.vertexCount);
+						}
+						final int output = primitive * TRIANGLE_STRIDE + corner * 3;
+						vertices[output] = modelData.vertices[vertexIndex * OBJModelData.STRIDE];
+						vertices[output + 1] = modelData.vertices[vertexIndex * OBJModelData.STRIDE + 1];
+						vertices[output + 2] = modelData.vertices[vertexIndex * OBJModelData.STRIDE + 2];
+						extendPoint(boxes, primitive * BOUNDS_SIZE, vertices, output);
+					}
+					primitives.meshes[primitive] = mesh;
+					primitives.faces[primitive] = face;
+					primitives.order[primitive] = primitive;
+				}
+			}
+		}
+
+	}
+
+	/*
+	 * Copies the triangles into the order of the hierarchy.
+	 */
+	private final class GatherTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Primitives primitives;
+		private final float[] triangleData;
+		private final int[] triangleMeshes;
+		private final int[] triangleFaces;
+		private final int begin;
+		private final int end;
+
+		public GatherTask(Primitives primitives, float[] triangleData, int[] triangleMeshes, int[] triangleFaces, int begin, int end) {
+			this.primitives = primitives;
+			this.triangleData = triangleData;
+			this.triangleMeshes = triangleMeshes;
+			this.triangleFaces = triangleFaces;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - begin <= rangeSize) {
+				gather(begin, end);
+				return;
+			}
+			final int middle = (begin + end) >>> 1;
+			invokeAll(
+					new GatherTask(primitives, triangleData, triangleMeshes, triangleFaces, begin, middle),
+					new GatherTask(primitives, triangleData, triangleMeshes, triangleFaces, middle, end));
+		}
+
+		public void gather(int begin, int end) {
+			for (int i = begin; i < end; ++i) {
+				final int primitive = primitives.order[i];
+				System.arraycopy(primitives.vertices, primitive * TRIANGLE_STRIDE, triangleData, i * TRIANGLE_STRIDE, TRIANGLE_STRIDE);
+				triangleMeshes[i] = primitives.meshes[primitive];
+				triangleFaces[i] = primitives.faces[primitive];
+			}
+		}
+
+	}
+
+}
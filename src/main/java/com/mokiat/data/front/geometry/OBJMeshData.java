@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJFace;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+
+/**
+ * Internal class that provides the faces of an {@link OBJMesh} in
+ * compressed sparse row form, i.e. as face offsets into flat vertex,
+ * texture coordinate and normal index streams, along with the
+ * smoothing group of each face.
+ * <p>
+ * The arrays of an {@link OBJPackedMesh} are used directly, while
+ * the faces of other meshes are flattened once.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class OBJMeshData {
+
+	public final int faceCount;
+	public final int[] faceOffsets;
+	public final int[] vertexIndices;
+	public final int[] texCoordIndices;
+	public final int[] normalIndices;
+	public final int[] smoothingGroups;
+
+	private OBJMeshData(int faceCount, int[] faceOffsets, int[] vertexIndices, int[] texCoordIndices, int[] normalIndices, int[] smoothingGroups) {
+		this.faceCount = faceCount;
+		this.faceOffsets = faceOffsets;
+		this.vertexIndices = vertexIndices;
+		this.texCoordIndices = texCoordIndices;
+		this.normalIndices = normalIndices;
+		this.smoothingGroups = smoothingGroups;
+	}
+
+	public int getReferenceCount() {
+		return faceOffsets[faceCount];
+	}
+
+	public int getTexCoordIndex(int reference) {
+		return (texCoordIndices != null) ? texCoordIndices[reference] : OBJDataReference.UNDEFINED_INDEX;
+	}
+
+	public int getNormalIndex(int reference) {
+		return (normalIndices != null) ? normalIndices[reference] : OBJDataReference.UNDEFINED_INDEX;
+	}
+
+	public int getSmoothingGroup(int face) {
+		return (smoothingGroups != null) ? smoothingGroups[face] : OBJFace.SMOOTHING_GROUP_OFF;
+	}
+
+	public static OBJMeshData of(OBJMesh mesh) {
+		if (mesh instanceof OBJPackedMesh) {
+			final OBJPackedMesh packedMesh = (OBJPackedMesh) mesh;
+			return new OBJMeshData(
+					packedMesh.getFaceCount(),
+					packedMesh.getFaceOffsets(),
+					packedMesh.getVertexIndices(),
+					packedMesh.getTexCoordIndices(),
+					packedMesh.getNormalIndices(),
+					packedMesh.getSmoothingGroups());
+		}
+		final List<OBJFace> faces = mesh.getFaces();
+		final int[] faceOffsets = new int[faces.size() + 1];
+		for (int i = 0; i < faces.size(); ++i) {
+			faceOffsets[i + 1] = faceOffsets[i] + faces.get(i).getReferences().size();
+		}
+		final int referenceCount = faceOffsets[faces.size()];
+		final int[] vertexIndices = new int[referenceCount];
+		int[] texCoordIndices = null;
+		int[] normalIndices = null;
+		int[] smoothingGroups = null;
+		int position = 0;
+		for (int i = 0; i < faces.size(); ++i) {
+			final OBJFace face = faces.get(i);
+			if (face.getSmoothingGroup() != OBJFace.SMOOTHING_GROUP_OFF) {
+				if (smoothingGroups == null) {
+					smoothingGroups = new int[faces.size()];
+				}
+				smoothingGroups[i] = face.getSmoothingGroup();
+			}
+			for (OBJDataReference reference : face.getReferences()) {
+				vertexIndices[position] = reference.vertexIndex;
+				if (reference.hasTexCoordIndex()) {
+					if (texCoordIndices == null) {
+						texCoordIndices = newIndexStream(referenceCount);
+					}
+					texCoordIndices[position] = reference.texCoordIndex;
+				}
+				if (reference.hasNormalIndex()) {
+					if (normalIndices == null) {
+						normalIndices = newIndexStream(referenceCount);
+					}
+					normalIndices[position] = reference.normalIndex;
+				}
+				position++;
+			}
+		}
+		return new OBJMeshData(faces.size(), faceOffsets, vertexIndices, texCoordIndices, normalIndices, smoothingGroups);
+	}
+
+	private static int[] newIndexStream(int length) {
+		final int[] result = new int[length];
+		Arrays.fill(result, OBJDataReference.UNDEFINED_INDEX);
+		return result;
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.List;
+
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJNormal;
+import com.mokiat.data.front.parser.OBJPackedModel;
+import com.mokiat.data.front.parser.OBJTexCoord;
+import com.mokiat.data.front.parser.OBJVertex;
+
+/**
+ * Internal class that provides the vertices, texture coordinates
+ * and normals of an {@link OBJModel} as packed float arrays with
+ * a stride of three.
+ * <p>
+ * The arrays of an {@link OBJPackedModel} are used directly, while
+ * those of other models are copied once, so that the geometry stages
+ * don't have to go through the element objects.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class OBJModelData {
+
+	public static final int STRIDE = 3;
+
+	public final float[] vertices;
+	public final int vertexCount;
+	public final float[] texCoords;
+	public final int texCoordCount;
+	public final float[] normals;
+	public final int normalCount;
+
+	private OBJModelData(float[] vertices, int vertexCount, float[] texCoords, int texCoordCount, float[] normals, int normalCount) {
+		this.vertices = vertices;
+		this.vertexCount = vertexCount;
+		this.texCoords = texCoords;
+		this.texCoordCount = texCoordCount;
+		this.normals = normals;
+		this.normalCount = normalCount;
+	}
+
+	public static OBJModelData of(OBJModel model) {
+		if (model instanceof OBJPackedModel) {
+			final OBJPackedModel packedModel = (OBJPackedModel) model;
+			return new OBJModelData(
+					packedModel.getVertexData(), packedModel.getVertexCount(),
+					packedModel.getTexCoordData(), packedModel.getTexCoordCount(),
+					packedModel.getNormalData(), packedModel.getNormalCount());
+		}
+		final List<OBJVertex> vertexList = model.getVertices();
+		final float[] vertices = new float[vertexList.size() * STRIDE];
+		for (int i = 0; i < vertexList.size(); ++i) {
+			final OBJVertex vertex = vertexList.get(i);
+			vertices[i * STRIDE] = vertex.x;
+			vertices[i * STRIDE + 1] = vertex.y;
+			vertices[i * STRIDE + 2] = vertex.z;
+		}
+		final List<OBJTexCoord> texCoordList = model.getTexCoords();
+		final float[] texCoords = new float[texCoordList.size() * STRIDE];
+		for (int i = 0; i < texCoordList.size(); ++i) {
+			final OBJTexCoord texCoord = texCoordList.get(i);
+			texCoords[i * STRIDE] = texCoord.u;
+			texCoords[i * STRIDE + 1] = texCoord.v;
+			texCoords[i * STRIDE + 2] = texCoord.w;
+		}
+		final List<OBJNormal> normalList = model.getNormals();
+		final float[] normals = new float[normalList.size() * STRIDE];
+		for (int i = 0; i < normalList.size(); ++i) {
+			final OBJNormal normal = normalList.get(i);
+			normals[i * STRIDE] = normal.x;
+			normals[i * STRIDE + 1] = normal.y;
+			normals[i * STRIDE + 2] = normal.z;
+		}
+		return new OBJModelData(
+				vertices, vertexList.size(),
+				texCoords, texCoordList.size(),
+				normals, normalList.size());
+	}
+
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJFace;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJNormal;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+
+/**
+ * Generates vertex normals for the faces of {@link OBJMesh} instances,
+ * honouring their smoothing groups.
+ * <p>
+ * Corners of faces that share a smoothing group and reference the same
+ * vertex share a single normal, which is the weighted average of the
+ * normals of those faces. Faces whose smoothing is off get a single flat
+ * normal for all their corners. Generated normals are appended to the
+ * normal pool of the model and the normal indices of all data references
+ * of the processed meshes are replaced. Normals that were previously
+ * referenced stay in the pool.
+ * <p>
+ * Face normals are computed through Newell's method, so polygons and
+ * slightly non-planar faces are supported. They are weighted either by
+ * face area or by the angle of the face at the respective corner.
+ * Normals of vertices whose faces are all degenerate are zero. All
+ * vertex indices are validated before the model is changed.
+ * <p>
+ * The weighted face normals are computed in parallel over face ranges.
+ * The corners of each shared normal are then grouped and summed in
+ * parallel over normal ranges, always in the same order, so the result
+ * does not depend on the number of threads.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJNormalGenerator {
+
+	/**
+	 * The default number of faces, or normals, that are
+	 * processed by a single task.
+	 */
+	public static final int DEFAULT_RANGE_SIZE = 8192;
+
+	/**
+	 * Specifies how face normals are weighted when they are
+	 * averaged into a vertex normal.
+	 */
+	public enum Weighting {
+
+		/**
+		 * Faces are weighted by their area. This is the
+		 * cheapest option.
+		 */
+		AREA,
+
+		/**
+		 * Faces are weighted by their angle at the vertex, which
+		 * makes the result independent of how the surface around
+		 * the vertex is tessellated.
+		 */
+		ANGLE
+
+	}
+
+	private final int rangeSize;
+	private Weighting weighting = Weighting.AREA;
+
+	/**
+	 * Creates a new {@link OBJNormalGenerator} that uses the
+	 * default range size.
+	 */
+	public OBJNormalGenerator() {
+		this(DEFAULT_RANGE_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link OBJNormalGenerator} that splits work
+	 * into ranges of the specified size.
+	 * @param rangeSize number of faces, or normals, per parallel task
+	 */
+	public OBJNormalGenerator(int rangeSize) {
+		if (rangeSize <= 0) {
+			throw new IllegalArgumentException("Range size must be positive.");
+		}
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Sets how face normals are weighted. The default
+	 * is {@link Weighting#AREA}.
+	 * @param weighting the weighting to use
+	 */
+	public void setWeighting(Weighting weighting) {
+		if (weighting == null) {
+			throw new IllegalArgumentException("Weighting must not be null.");
+		}
+		this.weighting = weighting;
+	}
+
+	/**
+	 * Returns how face normals are weighted.
+	 * @return the weighting
+	 */
+	public Weighting getWeighting() {
+		return weighting;
+	}
+
+	/**
+	 * Generates normals for a single mesh on the calling thread.
+	 * @param model the model that holds the vertex data and
+	 * which will receive the normals
+	 * @param mesh the mesh whose data references will be updated
+	 * @return the number of normals that were appended to the model
+	 * @throws IndexOutOfBoundsException if a data reference points
+	 * to a vertex that does not exist
+	 */
+	public int generate(OBJModel model, OBJMesh mesh) {
+		return generate(model, Collections.singletonList(mesh), null);
+	}
+
+	/**
+	 * Generates normals for all meshes of all objects of
+	 * the specified model, in parallel.
+	 * @param model the model whose normals should be generated
+	 * @param pool pool on which normals will be computed
+	 * @return the number of normals that were appended to the model
+	 * @throws IndexOutOfBoundsException if a data reference points
+	 * to a vertex that does not exist
+	 */
+	public int generate(OBJModel model, ForkJoinPool pool) {
+		final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+		for (OBJObject object : model.getObjects()) {
+			meshes.addAll(object.getMeshes());
+		}
+		return generate(model, meshes, pool);
+	}
+
+	/**
+	 * Generates normals for the specified meshes, in parallel.
+	 * Vertices are shared across meshes, so faces of different
+	 * meshes with the same smoothing group are smoothed together.
+	 * @param model the model that holds the vertex data and
+	 * which will receive the normals
+	 * @param meshes the meshes whose data references will be updated
+	 * @param pool pool on which normals will be computed, or
+	 * <code>null</code> to compute them on the calling thread
+	 * @return the number of normals that were appended to the model
+	 * @throws IndexOutOfBoundsException if a data reference points
+	 * to a vertex that does not exist
+	 */
+	public int generate(OBJModel model, List<OBJMesh> meshes, ForkJoinPool pool) {
+		final OBJModelData modelData = OBJModelData.of(model);
+		final OBJMeshData[] meshData = new OBJMeshData[meshes.size()];
+		final int[] cornerOffsets = new int[meshes.size() + 1];
+		for (int i = 0; i < meshData.length; ++i) {
+			meshData[i] = OBJMeshData.of(meshes.get(i));
+			cornerOffsets[i + 1] = cornerOffsets[i] + meshData[i].getReferenceCount();
+		}
+		final float[] contributions = new float[cornerOffsets[meshData.length] * 3];
+		computeContributions(modelData, meshData, cornerOffsets, contributions, pool);
+
+		final int[] cornerNormals = new int[cornerOffsets[meshData.length]];
+		final int normalCount = assignNormals(meshData, cornerOffsets, cornerNormals);
+		final int[] normalOffsets = new int[normalCount + 1];
+		final int[] normalCorners = new int[cornerNormals.length];
+		groupCorners(cornerNormals, normalOffsets, normalCorners);
+
+		final float[] normals = new float[normalCount * 3];
+		final NormalRangeTask task = new NormalRangeTask(contributions, normalOffsets, normalCorners, normals, 0, normalCount);
+		if (pool != null) {
+			pool.invoke(task);
+		} else {
+			task.sum(0, normalCount);
+		}
+		apply(model, meshes, cornerOffsets, cornerNormals, normals, normalCount);
+		return normalCount;
+	}
+
+	private void computeContributions(OBJModelData modelData, OBJMeshData[] meshData, int[] cornerOffsets, float[] contributions, ForkJoinPool pool) {
+		if (pool == null) {
+			for (int i = 0; i < meshData.length; ++i) {
+				new FaceRangeTask(modelData, meshData[i], cornerOffsets[i], contributions, 0, meshData[i].faceCount)
+						.accumulate(0, meshData[i].faceCount);
+			}
+			return;
+		}
+		final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(meshData.length);
+		for (int i = 0; i < meshData.length; ++i) {
+			tasks.add(pool.submit(new FaceRangeTask(modelData, meshData[i], cornerOffsets[i], contributions, 0, meshData[i].faceCount)));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+	}
+
+	/*
+	 * Assigns a normal to each corner, in order of first use. Smoothed
+	 * corners are keyed by vertex and smoothing group, while all corners
+	 * of a flat face are keyed by the face itself, through a negative
+	 * vertex index that no data reference can have.
+	 */
+	private static int assignNormals(OBJMeshData[] meshData, int[] cornerOffsets, int[] cornerNormals) {
+		final OBJVertexWeldMap weldMap = new OBJVertexWeldMap(cornerNormals.length / 3);
+		int faceKey = -1;
+		for (int i = 0; i < meshData.length; ++i) {
+			final OBJMeshData mesh = meshData[i];
+			int corner = cornerOffsets[i];
+			for (int face = 0; face < mesh.faceCount; ++face) {
+				final int smoothingGroup = mesh.getSmoothingGroup(face);
+				final int end = mesh.faceOffsets[face + 1];
+				if (smoothingGroup == OBJFace.SMOOTHING_GROUP_OFF) {
+					final int normal = weldMap.weld(faceKey--, OBJFace.SMOOTHING_GROUP_OFF, 0);
+					for (int reference = mesh.faceOffsets[face]; reference < end; ++reference) {
+						cornerNormals[corner++] = normal;
+					}
+				} else {
+					for (int reference = mesh.faceOffsets[face]; reference < end; ++reference) {
+						cornerNormals[corner++] = weldMap.weld(mesh.vertexIndices[reference], smoothingGroup, 0);
+					}
+				}
+			}
+		}
+		return weldMap.size();
+	}
+
+	/*
+	 * Sorts the corners by their normal, keeping their order
+	 * otherwise, in compressed sparse row form.
+	 */
+	private static void groupCorners(int[] cornerNormals, int[] normalOffsets, int[] normalCorners) {
+		for (int corner = 0; corner < cornerNormals.length; ++corner) {
+			normalOffsets[cornerNormals[corner] + 1]++;
+		}
+		for (int normal = 1; normal < normalOffsets.length; ++normal) {
+			normalOffsets[normal] += normalOffsets[normal - 1];
+		}
+		final int[] positions = normalOffsets.clone();
+		for (int corner = 0; corner < cornerNormals.length; ++corner) {
+			normalCorners[positions[cornerNormals[corner]]++] = corner;
+		}
+	}
+
+	private static void apply(OBJModel model, List<OBJMesh> meshes, int[] cornerOffsets, int[] cornerNormals, float[] normals, int normalCount) {
+		final int firstNormal = model.getNormals().size();
+		if (model instanceof OBJPackedModel) {
+			final OBJPackedModel packedModel = (OBJPackedModel) model;
+			for (int i = 0; i < normalCount; ++i) {
+				packedModel.addNormal(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]);
+			}
+		} else {
+			final List<OBJNormal> normalList = model.getNormals();
+			for (int i = 0; i < normalCount; ++i) {
+				normalList.add(new OBJNormal(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]));
+			}
+		}
+		for (int i = 0; i < meshes.size(); ++i) {
+			final OBJMesh mesh = meshes.get(i);
+			int corner = cornerOffsets[i];
+			if (mesh instanceof OBJPackedMesh) {
+				final OBJPackedMesh packedMesh = (OBJPackedMesh) mesh;
+				for (int reference = 0; reference < packedMesh.getReferenceCount(); ++reference) {
+					packedMesh.setNormalIndex(reference, firstNormal + cornerNormals[corner++]);
+				}
+				continue;
+			}
+			for (OBJFace face : mesh.getFaces()) {
+				for (OBJDataReference reference : face.getReferences()) {
+					reference.normalIndex = firstNormal + cornerNormals[corner++];
+				}
+			}
+		}
+	}
+
+	/*
+	 * Computes the weighted face normal of each corner of a range
+	 * of faces of a single mesh.
+	 */
+	private class FaceRangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final OBJModelData modelData;
+		private final OBJMeshData meshData;
+		private final int firstCorner;
+		private final float[] contributions;
+		private final int firstFace;
+		private final int lastFace;
+
+		public FaceRangeTask(OBJModelData modelData, OBJMeshData meshData, int firstCorner, float[] contributions, int firstFace, int lastFace) {
+			this.modelData = modelData;
+			this.meshData = meshData;
+			this.firstCorner = firstCorner;
+			this.contributions = contributions;
+			this.firstFace = firstFace;
+			this.lastFace = lastFace;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastFace - firstFace <= rangeSize) {
+				accumulate(firstFace, lastFace);
+				return;
+			}
+			final int middleFace = (firstFace + lastFace) >>> 1;
+			invokeAll(
+					new FaceRangeTask(modelData, meshData, firstCorner, contributions, firstFace, middleFace),
+					new FaceRangeTask(modelData, meshData, firstCorner, contributions, middleFace, lastFace));
+		}
+
+		public void accumulate(int firstFace, int lastFace) {
+			final float[] vertices = modelData.vertices;
+			final int[] vertexIndices = meshData.vertexIndices;
+			final boolean angleWeighted = (weighting == Weighting.ANGLE);
+			for (int face = firstFace; face < lastFace; ++face) {
+				final int start = meshData.faceOffsets[face];
+				final int size = meshData.faceOffsets[face + 1] - start;
+				checkVertices(start, size);
+				if (size < 3) {
+					continue;
+				}
+				// Newell's method, which yields twice the area as length
+				float normalX = 0.0f;
+				float normalY = 0.0f;
+				float normalZ = 0.0f;
+				for (int i = 0; i < size; ++i) {
+					final int current = vertexIndices[start + i] * OBJModelData.STRIDE;
+					final int following = vertexIndices[start + (i + 1) % size] * OBJModelData.STRIDE;
+					normalX += (vertices[current + 1] - vertices[following + 1]) * (vertices[current + 2] + vertices[following + 2]);
+					normalY += (vertices[current + 2] - vertices[following + 2]) * (vertices[current] + vertices[following]);
+					normalZ += (vertices[current] - vertices[following]) * (vertices[current + 1] + vertices[following + 1]);
+				}
+				int output = (firstCorner + start) * 3;
+				if (!angleWeighted) {
+					for (int i = 0; i < size; ++i) {
+						contributions[output++] = normalX;
+						contributions[output++] = normalY;
+						contributions[output++] = normalZ;
+					}
+					continue;
+				}
+				final float length = (float) Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+				if (length == 0.0f) {
+					continue;
+				}
+				normalX /= length;
+				normalY /= length;
+				normalZ /= length;
+				for (int i = 0; i < size; ++i) {
+					final int current = vertexIndices[start + i] * OBJModelData.STRIDE;
+					final int before = vertexIndices[start + (i + size - 1) % size] * OBJModelData.STRIDE;
+					final int after = vertexIndices[start + (i + 1) % size] * OBJModelData.STRIDE;
+					final float angle = getAngle(vertices, current, before, after);
+					contributions[output++] = normalX * angle;
+					contributions[output++] = normalY * angle;
+					contributions[output++] = normalZ * angle;
+				}
+			}
+		}
+
+		private void checkVertices(int start, int size) {
+			final int vertexCount = modelData.vertexCount;
+			for (int i = start; i < start + size; ++i) {
+				final int vertexIndex = meshData.vertexIndices[i];
+				if ((vertexIndex < 0) || (vertexIndex >= vertexCount)) {
+					throw new IndexOutOfBoundsException("Index: " + vertexIndex + ", Size: " + vertexCount);
+				}
+			}
+		}
+
+		private float getAngle(float[] vertices, int current, int before, int after) {
+			final float aX = vertices[before] - vertices[current];
+			final float aY = vertices[before + 1] - vertices[current + 1];
+			final float aZ = vertices[before + 2] - vertices[current + 2];
+			final float bX = vertices[after] - vertices[current];
+			final float bY = vertices[after + 1] - vertices[current + 1];
+			final float bZ = vertices[after + 2] - vertices[current + 2];
+			final float crossX = aY * bZ - aZ * bY;
+			final float crossY = aZ * bX - aX * bZ;
+			final float crossZ = aX * bY - aY * bX;
+			final double sine = Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+			final double cosine = aX * bX + aY * bY + aZ * bZ;
+			return (float) Math.atan2(sine, cosine);
+		}
+
+	}
+
+	/*
+	 * Sums and normalizes the contributions of the corners
+	 * of a range of normals.
+	 */
+	private class NormalRangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[] contributions;
+		private final int[] normalOffsets;
+		private final int[] normalCorners;
+		private final float[] normals;
+		private final int firstNormal;
+		private final int lastNormal;
+
+		public NormalRangeTask(float[] contributions, int[] normalOffsets, int[] normalCorners, float[] normals, int firstNormal, int lastNormal) {
+			this.contributions = contributions;
+			this.normalOffsets = normalOffsets;
+			this.normalCorners = normalCorners;
+			this.normals = normals;
+			this.firstNormal = firstNormal;
+			this.lastNormal = lastNormal;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastNormal - firstNormal <= rangeSize) {
+				sum(firstNormal, lastNormal);
+				return;
+			}
+			final int middleNormal = (firstNormal + lastNormal) >>> 1;
+			invokeAll(
+					new NormalRangeTask(contributions, normalOffsets, normalCorners, normals, firstNormal, middleNormal),
+					new NormalRangeTask(contributions, normalOffsets, normalCorners, normals, middleNormal, lastNormal));
+		}
+
+		public void sum(int firstNormal, int lastNormal) {
+			for (int normal = firstNormal; normal < lastNormal; ++normal) {
+				float x = 0.0f;
+				float y = 0.0f;
+				float z = 0.0f;
+				for (int i = normalOffsets[normal]; i < normalOffsets[normal + 1]; ++i) {
+					final int offset = normalCorners[i] * 3;
+					x += contributions[offset];
+					y += contributions[offset + 1];
+					z += contributions[offset + 2];
+				}
+				final float length = (float) Math.sqrt(x * x + y * y + z * z);
+				if (length > 0.0f) {
+					x /= length;
+					y /= length;
+					z /= length;
+				}
+				normals[normal * 3] = x;
+				normals[normal * 3 + 1] = y;
+				normals[normal * 3 + 2] = z;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+/**
+ * Represents a ray that is cast against an {@link OBJBVH}, along
+ * with the result of the last query.
+ * <p>
+ * Points along the ray are <code>origin + t * direction</code>, where
+ * <code>t</code> is between zero and {@link #maxDistance}. The direction
+ * does not need to be normalized, in which case distances are measured
+ * in multiples of its length.
+ * <p>
+ * Instances hold the scratch memory of the traversal, so that queries
+ * don't allocate. A single instance must not be used by multiple threads
+ * at the same time, though it can be reused for any number of queries.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJRay {
+
+	/**
+	 * The value of {@link #triangle} when the last query
+	 * did not hit anything.
+	 */
+	public static final int NO_HIT = -1;
+
+	private static final int INITIAL_STACK_CAPACITY = 64;
+
+	/**
+	 * Specifies the X coordinate of the origin.
+	 */
+	public float originX = 0.0f;
+
+	/**
+	 * Specifies the Y coordinate of the origin.
+	 */
+	public float originY = 0.0f;
+
+	/**
+	 * Specifies the Z coordinate of the origin.
+	 */
+	public float originZ = 0.0f;
+
+	/**
+	 * Specifies the X coordinate of the direction.
+	 */
+	public float directionX = 0.0f;
+
+	/**
+	 * Specifies the Y coordinate of the direction.
+	 */
+	public float directionY = 0.0f;
+
+	/**
+	 * Specifies the Z coordinate of the direction.
+	 */
+	public float directionZ = 1.0f;
+
+	/**
+	 * Specifies the largest distance at which hits are reported.
+	 */
+	public float maxDistance = Float.POSITIVE_INFINITY;
+
+	/**
+	 * The distance of the hit of the last query.
+	 */
+	public float distance = Float.POSITIVE_INFINITY;
+
+	/**
+	 * The barycentric coordinate of the hit point with respect
+	 * to the second vertex of the hit triangle.
+	 */
+	public float u = 0.0f;
+
+	/**
+	 * The barycentric coordinate of the hit point with respect
+	 * to the third vertex of the hit triangle.
+	 */
+	public float v = 0.0f;
+
+	/**
+	 * The index of the hit triangle within the {@link OBJBVH},
+	 * or {@link #NO_HIT} if the last query did not hit anything.
+	 */
+	public int triangle = NO_HIT;
+
+	int[] nodeStack = new int[INITIAL_STACK_CAPACITY];
+	float[] distanceStack = new float[INITIAL_STACK_CAPACITY];
+
+	/**
+	 * Creates a new {@link OBJRay} that starts at the center of
+	 * the coordinate system and points along the Z axis.
+	 */
+	public OBJRay() {
+		super();
+	}
+
+	/**
+	 * Creates a new {@link OBJRay} with the specified origin
+	 * and direction.
+	 * @param originX the X coordinate of the origin
+	 * @param originY the Y coordinate of the origin
+	 * @param originZ the Z coordinate of the origin
+	 * @param directionX the X coordinate of the direction
+	 * @param directionY the Y coordinate of the direction
+	 * @param directionZ the Z coordinate of the direction
+	 */
+	public OBJRay(float originX, float originY, float originZ, float directionX, float directionY, float directionZ) {
+		set(originX, originY, originZ, directionX, directionY, directionZ);
+	}
+
+	/**
+	 * Changes the origin and direction of this ray and resets
+	 * its maximum distance.
+	 * @param originX the X coordinate of the origin
+	 * @param originY the Y coordinate of the origin
+	 * @param originZ the Z coordinate of the origin
+	 * @param directionX the X coordinate of the direction
+	 * @param directionY the Y coordinate of the direction
+	 * @param directionZ the Z coordinate of the direction
+	 */
+	public void set(float originX, float originY, float originZ, float directionX, float directionY, float directionZ) {
+		this.originX = originX;
+		this.originY = originY;
+		this.originZ = originZ;
+		this.directionX = directionX;
+		this.directionY = directionY;
+		this.directionZ = directionZ;
+		this.maxDistance = Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns whether the last query hit a triangle.
+	 * @return <code>true</code> if there was a hit,
+	 * <code>false</code> otherwise
+	 */
+	public boolean hasHit() {
+		return (triangle != NO_HIT);
+	}
+
+	void ensureStackCapacity(int capacity) {
+		if (nodeStack.length < capacity) {
+			nodeStack = new int[capacity];
+			distanceStack = new float[capacity];
+		}
+	}
+
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+
+/**
+ * Generates per vertex tangents for normal mapping out of the vertex,
+ * texture coordinate and normal indices of {@link OBJMesh} instances.
+ * <p>
+ * Tangents are produced for the same unique vertices, and in the same
+ * order, as the vertices of the {@link OBJVertexBuffer} that an
+ * {@link OBJVertexBufferBuilder} builds for the mesh. Each tangent
+ * consists of {@link #TANGENT_SIZE} floats. The first three are the unit
+ * tangent, which is orthogonal to the vertex normal, and the fourth is
+ * the handedness (<code>1</code> or <code>-1</code>) of the tangent
+ * space. The bitangent is <code>w * cross(normal, tangent)</code>.
+ * <p>
+ * Tangent directions are derived per triangle from the texture
+ * coordinate gradients and are averaged over all triangles of a vertex.
+ * Vertices without a usable texture mapping get an arbitrary tangent
+ * that is orthogonal to their normal.
+ * <p>
+ * Triangle directions are computed in parallel over triangle ranges.
+ * The triangles of each vertex are then grouped and summed in parallel
+ * over vertex ranges, always in the same order, so the result does not
+ * depend on the number of threads.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJTangentGenerator {
+
+	/**
+	 * Number of floats per tangent (x, y, z, handedness).
+	 */
+	public static final int TANGENT_SIZE = 4;
+
+	/**
+	 * The default number of triangles, or vertices, that are
+	 * processed by a single task.
+	 */
+	public static final int DEFAULT_RANGE_SIZE = 8192;
+
+	private static final int DIRECTION_SIZE = 6;
+	private static final float EPSILON = 1e-20f;
+
+	private final int rangeSize;
+	private OBJTriangulator triangulator = new OBJTriangulator();
+
+	/**
+	 * Creates a new {@link OBJTangentGenerator} that uses the
+	 * default range size.
+	 */
+	public OBJTangentGenerator() {
+		this(DEFAULT_RANGE_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link OBJTangentGenerator} that splits large
+	 * meshes into ranges of the specified size.
+	 * @param rangeSize number of triangles, or vertices, per parallel task
+	 */
+	public OBJTangentGenerator(int rangeSize) {
+		if (rangeSize <= 0) {
+			throw new IllegalArgumentException("Range size must be positive.");
+		}
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Sets the triangulator that is used to split faces into triangles.
+	 * It should be configured the same way as the one of the
+	 * {@link OBJVertexBufferBuilder} whose buffers are used.
+	 * @param triangulator the triangulator to be used
+	 */
+	public void setTriangulator(OBJTriangulator triangulator) {
+		this.triangulator = triangulator;
+	}
+
+	/**
+	 * Returns the triangulator that is used to split faces into triangles.
+	 * @return the triangulator
+	 */
+	public OBJTriangulator getTriangulator() {
+		return triangulator;
+	}
+
+	/**
+	 * Generates the tangents of a single mesh on the calling thread.
+	 * @param model the model that holds the vertex data
+	 * @param mesh the mesh whose tangents should be generated
+	 * @return {@link #TANGENT_SIZE} floats per unique vertex
+	 */
+	public float[] generate(OBJModel model, OBJMesh mesh) {
+		final MeshTangents tangents = new MeshTangents(OBJModelData.of(model), OBJMeshData.of(mesh));
+		tangents.computeDirections(0, tangents.triangleCount);
+		tangents.groupCorners();
+		tangents.sumVertices(0, tangents.vertexCount);
+		return tangents.result;
+	}
+
+	/**
+	 * Generates the tangents of all meshes of all objects
+	 * of the specified model, in parallel.
+	 * @param model the model whose tangents should be generated
+	 * @param pool pool on which tangents will be computed
+	 * @return tangent arrays, in object and mesh order
+	 */
+	public List<float[]> generate(OBJModel model, ForkJoinPool pool) {
+		final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+		for (OBJObject object : model.getObjects()) {
+			meshes.addAll(object.getMeshes());
+		}
+		return generate(model, meshes, pool);
+	}
+
+	/**
+	 * Generates the tangents of the specified meshes, in parallel.
+	 * @param model the model that holds the vertex data
+	 * @param meshes the meshes whose tangents should be generated
+	 * @param pool pool on which tangents will be computed
+	 * @return tangent arrays, in the order of the meshes
+	 */
+	public List<float[]> generate(OBJModel model, List<OBJMesh> meshes, ForkJoinPool pool) {
+		final OBJModelData modelData = OBJModelData.of(model);
+		final List<ForkJoinTask<float[]>> tasks = new ArrayList<ForkJoinTask<float[]>>(meshes.size());
+		for (OBJMesh mesh : meshes) {
+			tasks.add(pool.submit(new MeshTask(modelData, mesh)));
+		}
+		final List<float[]> result = new ArrayList<float[]>(meshes.size());
+		for (ForkJoinTask<float[]> task : tasks) {
+			result.add(task.join());
+		}
+		return result;
+	}
+
+	/*
+	 * Holds the intermediate state of the tangent generation of
+	 * a single mesh. The range methods can be called concurrently
+	 * for disjoint ranges.
+	 */
+	private class MeshTangents {
+
+		private final OBJModelData modelData;
+		private final OBJMeshData meshData;
+		private final OBJWeldedVertices welded;
+		private final int[] triangles;
+		private final float[] directions;
+		private final int triangleCount;
+		private final int vertexCount;
+		private final int[] vertexOffsets;
+		private final int[] vertexCorners;
+		private final float[] result;
+
+		public MeshTangents(OBJModelData modelData, OBJMeshData meshData) {
+			this.modelData = modelData;
+			this.meshData = meshData;
+			this.welded = OBJWeldedVertices.of(modelData, meshData);
+			this.triangles = triangulator.triangulate(modelData, meshData);
+			this.triangleCount = triangles.length / 3;
+			this.directions = new float[triangleCount * DIRECTION_SIZE];
+			this.vertexCount = welded.vertexCount;
+			this.vertexOffsets = new int[vertexCount + 1];
+			this.vertexCorners = new int[triangles.length];
+			this.result = new float[vertexCount * TANGENT_SIZE];
+		}
+
+		/*
+		 * Computes the directions in which the U and V texture
+		 * coordinates grow along each triangle.
+		 */
+		public void computeDirections(int firstTriangle, int lastTriangle) {
+			final float[] vertices = modelData.vertices;
+			final float[] texCoords = modelData.texCoords;
+			for (int triangle = firstTriangle; triangle < lastTriangle; ++triangle) {
+				final int reference0 = triangles[triangle * 3];
+				final int reference1 = triangles[triangle * 3 + 1];
+				final int reference2 = triangles[triangle * 3 + 2];
+				final int texCoord0 = meshData.getTexCoordIndex(reference0);
+				final int texCoord1 = meshData.getTexCoordIndex(reference1);
+				final int texCoord2 = meshData.getTexCoordIndex(reference2);
+				if ((texCoord0 == OBJDataReference.UNDEFINED_INDEX)
+						|| (texCoord1 == OBJDataReference.UNDEFINED_INDEX)
+						|| (texCoord2 == OBJDataReference.UNDEFINED_INDEX)) {
+					continue;
+				}
+				final int vertex0 = meshData.vertexIndices[reference0] * OBJModelData.STRIDE;
+				final int vertex1 = meshData.vertexIndices[reference1] * OBJModelData.STRIDE;
+				final int vertex2 = meshData.vertexIndices[reference2] * OBJModelData.STRIDE;
+				final float edge1X = vertices[vertex1] - vertices[vertex0];
+				final float edge1Y = vertices[vertex1 + 1] - vertices[vertex0 + 1];
+				final float edge1Z = vertices[vertex1 + 2] - vertices[vertex0 + 2];
+				final float edge2X = vertices[vertex2] - vertices[vertex0];
+				final float edge2Y = vertices[vertex2 + 1] - vertices[vertex0 + 1];
+				final float edge2Z = vertices[vertex2 + 2] - vertices[vertex0 + 2];
+				final float deltaU1 = texCoords[texCoord1 * OBJModelData.STRIDE] - texCoords[texCoord0 * OBJModelData.STRIDE];
+				final float deltaV1 = texCoords[texCoord1 * OBJModelData.STRIDE + 1] - texCoords[texCoord0 * OBJModelData.STRIDE + 1];
+				final float deltaU2 = texCoords[texCoord2 * OBJModelData.STRIDE] - texCoords[texCoord0 * OBJModelData.STRIDE];
+				final float deltaV2 = texCoords[texCoord2 * OBJModelData.STRIDE + 1] - texCoords[texCoord0 * OBJModelData.STRIDE + 1];
+				final float determinant = deltaU1 * deltaV2 - deltaU2 * deltaV1;
+				if (Math.abs(determinant) <= EPSILON) {
+					continue;
+				}
+				final float scale = 1.0f / determinant;
+				final int output = triangle * DIRECTION_SIZE;
+				directions[output] = (edge1X * deltaV2 - edge2X * deltaV1) * scale;
+				directions[output + 1] = (edge1Y * deltaV2 - edge2Y * deltaV1) * scale;
+				directions[output + 2] = (edge1Z * deltaV2 - edge2Z * deltaV1) * scale;
+				directions[output + 3] = (edge2X * deltaU1 - edge1X * deltaU2) * scale;
+				directions[output + 4] = (edge2Y * deltaU1 - edge1Y * deltaU2) * scale;
+				directions[output + 5] = (edge2Z * deltaU1 - edge1Z * deltaU2) * scale;
+			}
+		}
+
+		/*
+		 * Sorts the triangle corners by their vertex, keeping their
+		 * order otherwise, in compressed sparse row form.
+		 */
+		public void groupCorners() {
+			final int[] referenceVertices = welded.referenceVertices;
+			for (int corner = 0; corner < triangles.length; ++corner) {
+				vertexOffsets[referenceVertices[triangles[corner]] + 1]++;
+			}
+			for (int vertex = 1; vertex <= vertexCount; ++vertex) {
+				vertexOffsets[vertex] += vertexOffsets[vertex - 1];
+			}
+			final int[] positions = vertexOffsets.clone();
+			for (int corner = 0; corner < triangles.length; ++corner) {
+				vertexCorners[positions[referenceVertices[triangles[corner]]]++] = corner;
+			}
+		}
+
+		/*
+		 * Sums the directions of the triangles of each vertex and
+		 * orthonormalizes the result against the vertex normal.
+		 */
+		public void sumVertices(int firstVertex, int lastVertex) {
+			for (int vertex = firstVertex; vertex < lastVertex; ++vertex) {
+				float tangentX = 0.0f;
+				float tangentY = 0.0f;
+				float tangentZ = 0.0f;
+				float bitangentX = 0.0f;
+				float bitangentY = 0.0f;
+				float bitangentZ = 0.0f;
+				for (int i = vertexOffsets[vertex]; i < vertexOffsets[vertex + 1]; ++i) {
+					final int offset = (vertexCorners[i] / 3) * DIRECTION_SIZE;
+					tangentX += directions[offset];
+					tangentY += directions[offset + 1];
+					tangentZ += directions[offset + 2];
+					bitangentX += directions[offset + 3];
+					bitangentY += directions[offset + 4];
+					bitangentZ += directions[offset + 5];
+				}
+
+				float normalX = 0.0f;
+				float normalY = 0.0f;
+				float normalZ = 0.0f;
+				final int normalIndex = meshData.getNormalIndex(welded.firstReferences[vertex]);
+				if (normalIndex != OBJDataReference.UNDEFINED_INDEX) {
+					normalX = modelData.normals[normalIndex * OBJModelData.STRIDE];
+					normalY = modelData.normals[normalIndex * OBJModelData.STRIDE + 1];
+					normalZ = modelData.normals[normalIndex * OBJModelData.STRIDE + 2];
+					final float normalLength = (float) Math.sqrt(normalX * normalX + normalY * normalY + normalZ * normalZ);
+					if (normalLength > 0.0f) {
+						normalX /= normalLength;
+						normalY /= normalLength;
+						normalZ /= normalLength;
+					}
+				}
+
+				// Gram-Schmidt orthogonalization against the normal
+				final float projection = normalX * tangentX + normalY * tangentY + normalZ * tangentZ;
+				tangentX -= normalX * projection;
+				tangentY -= normalY * projection;
+				tangentZ -= normalZ * projection;
+				float length = (float) Math.sqrt(tangentX * tangentX + tangentY * tangentY + tangentZ * tangentZ);
+				if (length <= EPSILON) {
+					// Any direction orthogonal to the normal will do
+					if (Math.abs(normalX) < 0.9f) {
+						tangentX = 1.0f - normalX * normalX;
+						tangentY = -normalX * normalY;
+						tangentZ = -normalX * normalZ;
+					} else {
+						tangentX = -normalY * normalX;
+						tangentY = 1.0f - normalY * normalY;
+						tangentZ = -normalY * normalZ;
+					}
+					length = (float) Math.sqrt(tangentX * tangentX + tangentY * tangentY + tangentZ * tangentZ);
+				}
+				tangentX /= length;
+				tangentY /= length;
+				tangentZ /= length;
+
+				final float crossX = normalY * tangentZ - normalZ * tangentY;
+				final float crossY = normalZ * tangentX - normalX * tangentZ;
+				final float crossZ = normalX * tangentY - normalY * tangentX;
+				final float handedness = (crossX * bitangentX + crossY * bitangentY + crossZ * bitangentZ < 0.0f) ? -1.0f : 1.0f;
+
+				final int output = vertex * TANGENT_SIZE;
+				result[output] = tangentX;
+				result[output + 1] = tangentY;
+				result[output + 2] = tangentZ;
+				result[output + 3] = handedness;
+			}
+		}
+
+	}
+
+	private class MeshTask extends RecursiveTask<float[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final OBJModelData modelData;
+		private final OBJMesh mesh;
+
+		public MeshTask(OBJModelData modelData, OBJMesh mesh) {
+			this.modelData = modelData;
+			this.mesh = mesh;
+		}
+
+		@Override
+		protected float[] compute() {
+			final MeshTangents tangents = new MeshTangents(modelData, OBJMeshData.of(mesh));
+			new TriangleRangeTask(tangents, 0, tangents.triangleCount).invoke();
+			tangents.groupCorners();
+			new VertexRangeTask(tangents, 0, tangents.vertexCount).invoke();
+			return tangents.result;
+		}
+
+	}
+
+	private class TriangleRangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final MeshTangents tangents;
+		private final int firstTriangle;
+		private final int lastTriangle;
+
+		public TriangleRangeTask(MeshTangents tangents, int firstTriangle, int lastTriangle) {
+			this.tangents = tangents;
+			this.firstTriangle = firstTriangle;
+			this.lastTriangle = lastTriangle;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastTriangle - firstTriangle <= rangeSize) {
+				tangents.computeDirections(firstTriangle, lastTriangle);
+				return;
+			}
+			final int middleTriangle = (firstTriangle + lastTriangle) >>> 1;
+			invokeAll(
+					new TriangleRangeTask(tangents, firstTriangle, middleTriangle),
+					new TriangleRangeTask(tangents, middleTriangle, lastTriangle));
+		}
+
+	}
+
+	private class VertexRangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final MeshTangents tangents;
+		private final int firstVertex;
+		private final int lastVertex;
+
+		public VertexRangeTask(MeshTangents tangents, int firstVertex, int lastVertex) {
+			this.tangents = tangents;
+			this.firstVertex = firstVertex;
+			this.lastVertex = lastVertex;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastVertex - firstVertex <= rangeSize) {
+				tangents.sumVertices(firstVertex, lastVertex);
+				return;
+			}
+			final int middleVertex = (firstVertex + lastVertex) >>> 1;
+			invokeAll(
+					new VertexRangeTask(tangents, firstVertex, middleVertex),
+					new VertexRangeTask(tangents, middleVertex, lastVertex));
+		}
+
+	}
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+
+/**
+ * Converts the faces of {@link OBJMesh} instances into triangles.
+ * <p>
+ * The result of a triangulation is an index stream where every three
+ * consecutive values form a triangle. The values are positions of data
+ * references within the mesh, counting the references of all faces in
+ * order (i.e. the same positions that {@link OBJPackedMesh} uses).
+ * <p>
+ * Convex faces are split into triangle fans. Concave faces, as well as
+ * non-planar ones, are projected onto the plane that best fits them and
+ * are split through ear clipping. Each face with <code>n</code> data
+ * references always produces <code>n - 2</code> triangles, which keep
+ * the winding order of the face.
+ * <p>
+ * Large meshes are split into face ranges that are triangulated in
+ * parallel. Since the output position of each face is known upfront,
+ * the result does not depend on the number of threads.
+ * <p>
+ * The vertex index of every data reference is validated against the
+ * vertices of the model, regardless of whether the face needs to be
+ * projected, so that invalid meshes fail the same way with and
+ * without ear clipping.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJTriangulator {
+
+	/**
+	 * The default number of faces that are triangulated by
+	 * a single task.
+	 */
+	public static final int DEFAULT_RANGE_SIZE = 8192;
+
+	private static final float EPSILON = 1e-12f;
+
+	private final int rangeSize;
+	private boolean earClipping = true;
+
+	/**
+	 * Creates a new {@link OBJTriangulator} that uses the
+	 * default range size.
+	 */
+	public OBJTriangulator() {
+		this(DEFAULT_RANGE_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link OBJTriangulator} that splits large
+	 * meshes into ranges of the specified number of faces.
+	 * @param rangeSize number of faces per parallel task
+	 */
+	public OBJTriangulator(int rangeSize) {
+		if (rangeSize <= 0) {
+			throw new IllegalArgumentException("Range size must be positive.");
+		}
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Sets whether concave and non-planar faces should be split through
+	 * ear clipping. If <code>false</code> is specified, all faces are split
+	 * into triangle fans. The default is <code>true</code>.
+	 * @param earClipping <code>true</code> to use ear clipping
+	 */
+	public void setEarClipping(boolean earClipping) {
+		this.earClipping = earClipping;
+	}
+
+	/**
+	 * Returns whether concave and non-planar faces are split
+	 * through ear clipping.
+	 * @return <code>true</code> if ear clipping is used
+	 */
+	public boolean isEarClipping() {
+		return earClipping;
+	}
+
+	/**
+	 * Triangulates the faces of a single mesh on the calling thread.
+	 * @param model the model that holds the vertex data
+	 * @param mesh the mesh to be triangulated
+	 * @return triangle index stream of data reference positions
+	 * @throws IndexOutOfBoundsException if a data reference points
+	 * to a vertex that does not exist
+	 */
+	public int[] triangulate(OBJModel model, OBJMesh mesh) {
+		return triangulate(OBJModelData.of(model), OBJMeshData.of(mesh));
+	}
+
+	/**
+	 * Triangulates the faces of all meshes of all objects
+	 * of the specified model, in parallel.
+	 * @param model the model whose meshes should be triangulated
+	 * @param pool pool on which triangulation will be performed
+	 * @return triangle index streams, in object and mesh order
+	 * @throws IndexOutOfBoundsException if a data reference points
+	 * to a vertex that does not exist
+	 */
+	public List<int[]> triangulate(OBJModel model, ForkJoinPool pool) {
+		final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+		for (OBJObject object : model.getObjects()) {
+			meshes.addAll(object.getMeshes());
+		}
+		return triangulate(model, meshes, pool);
+	}
+
+	/**
+	 * Triangulates the faces of the specified meshes, in parallel.
+	 * @param model the model that holds the vertex data
+	 * @param meshes the meshes that should be triangulated
+	 * @param pool pool on which triangulation will be performed
+	 * @return triangle index streams, in the order of the meshes
+	 * @throws IndexOutOfBoundsException if a data reference points
+	 * to a vertex that does not exist
+	 */
+	public List<int[]> triangulate(OBJModel model, List<OBJMesh> meshes, ForkJoinPool pool) {
+		final List<OBJMeshData> meshData = new ArrayList<OBJMeshData>(meshes.size());
+		for (OBJMesh mesh : meshes) {
+			meshData.add(OBJMeshData.of(mesh));
+		}
+		return triangulate(OBJModelData.of(model), meshData, pool);
+	}
+
+	/*
+	 * Triangulates the specified meshes on the specified pool or,
+	 * if it is null, on the calling thread.
+	 */
+	List<int[]> triangulate(OBJModelData modelData, List<OBJMeshData> meshes, ForkJoinPool pool) {
+		final List<int[]> result = new ArrayList<int[]>(meshes.size());
+		if (pool == null) {
+			for (OBJMeshData meshData : meshes) {
+				result.add(triangulate(modelData, meshData));
+			}
+			return result;
+		}
+		final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(meshes.size());
+		for (OBJMeshData meshData : meshes) {
+			final int[] triangleOffsets = getTriangleOffsets(meshData);
+			final int[] triangles = new int[triangleOffsets[meshData.faceCount] * 3];
+			tasks.add(pool.submit(new RangeTask(modelData, meshData, triangleOffsets, triangles, 0, meshData.faceCount)));
+			result.add(triangles);
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		return result;
+	}
+
+	int[] triangulate(OBJModelData modelData, OBJMeshData meshData) {
+		final int[] triangleOffsets = getTriangleOffsets(meshData);
+		final int[] triangles = new int[triangleOffsets[meshData.faceCount] * 3];
+		new FaceSplitter(modelData, meshData).split(triangleOffsets, triangles, 0, meshData.faceCount);
+		return triangles;
+	}
+
+	/*
+	 * Returns the index of the first triangle of each face, followed
+	 * by the total triangle count.
+	 */
+	static int[] getTriangleOffsets(OBJMeshData meshData) {
+		final int[] triangleOffsets = new int[meshData.faceCount + 1];
+		for (int i = 0; i < meshData.faceCount; ++i) {
+			final int faceSize = meshData.faceOffsets[i + 1] - meshData.faceOffsets[i];
+			triangleOffsets[i + 1] = triangleOffsets[i] + Math.max(0, faceSize - 2);
+		}
+		return triangleOffsets;
+	}
+
+	private class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final OBJModelData modelData;
+		private final OBJMeshData meshData;
+		private final int[] triangleOffsets;
+		private final int[] triangles;
+		private final int firstFace;
+		private final int lastFace;
+
+		public RangeTask(OBJModelData modelData, OBJMeshData meshData, int[] triangleOffsets, int[] triangles, int firstFace, int lastFace) {
+			this.modelData = modelData;
+			this.meshData = meshData;
+			this.triangleOffsets = triangleOffsets;
+			this.triangles = triangles;
+			this.firstFace = firstFace;
+			this.lastFace = lastFace;
+		}
+
+		@Override
+		protected void compute() {
+			if (lastFace - firstFace <= rangeSize) {
+				new FaceSplitter(modelData, meshData).split(triangleOffsets, triangles, firstFace, lastFace);
+				return;
+			}
+			final int middleFace = (firstFace + lastFace) >>> 1;
+			invokeAll(
+					new RangeTask(modelData, meshData, triangleOffsets, triangles, firstFace, middleFace),
+					new RangeTask(modelData, meshData, triangleOffsets, triangles, middleFace, lastFace));
+		}
+
+	}
+
+	/*
+	 * Triangulates faces of a single mesh. Instances hold scratch
+	 * buffers and must not be shared between threads.
+	 */
+	private class FaceSplitter {
+
+		private final OBJModelData modelData;
+		private final OBJMeshData meshData;
+		private float[] xs = new float[16];
+		private float[] ys = new float[16];
+		private int[] previous = new int[16];
+		private int[] next = new int[16];
+
+		public FaceSplitter(OBJModelData modelData, OBJMeshData meshData) {
+			this.modelData = modelData;
+			this.meshData = meshData;
+		}
+
+		public void split(int[] triangleOffsets, int[] triangles, int firstFace, int lastFace) {
+			for (int i = firstFace; i < lastFace; ++i) {
+				final int start = meshData.faceOffsets[i];
+				final int size = meshData.faceOffsets[i + 1] - start;
+				final int output = triangleOffsets[i] * 3;
+				checkVertices(start, size);
+				if (size < 3) {
+					continue;
+				}
+				if ((size == 3) || !earClipping || !project(start, size) || isConvex(size)) {
+					splitFan(triangles, output, start, size);
+				} else {
+					splitEars(triangles, output, start, size);
+				}
+			}
+		}
+
+		private void checkVertices(int start, int size) {
+			final int vertexCount = modelData.vertexCount;
+			for (int i = start; i < start + size; ++i) {
+				final int vertexIndex = meshData.vertexIndices[i];
+				if ((vertexIndex < 0) || (vertexIndex >= vertexCount)) {
+					throw new IndexOutOfBoundsException("Index: " + vertexIndex + ", Size: " + vertexCount);
+				}
+			}
+		}
+
+		private void splitFan(int[] triangles, int output, int start, int size) {
+			for (int corner = 1; corner < size - 1; ++corner) {
+				triangles[output++] = start;
+				triangles[output++] = start + corner;
+				triangles[output++] = start + corner + 1;
+			}
+		}
+
+		/*
+		 * Projects the face onto the coordinate plane that is most
+		 * perpendicular to its Newell normal, flipping it if needed
+		 * so that the projected polygon is counter-clockwise. Returns
+		 * false if the face is degenerate.
+		 */
+		private boolean project(int start, int size) {
+			ensureCapacity(size);
+			final float[] vertices = modelData.vertices;
+			float normalX = 0.0f;
+			float normalY = 0.0f;
+			float normalZ = 0.0f;
+			for (int i = 0; i < size; ++i) {
+				final int current = meshData.vertexIndices[start + i] * OBJModelData.STRIDE;
+				final int following = meshData.vertexIndices[start + (i + 1) % size] * OBJModelData.STRIDE;
+				normalX += (vertices[current + 1] - vertices[following + 1]) * (vertices[current + 2] + vertices[following + 2]);
+				normalY += (vertices[current + 2] - vertices[following + 2]) * (vertices[current] + vertices[following]);
+				normalZ += (vertices[current] - vertices[following]) * (vertices[current + 1] + vertices[following + 1]);
+			}
+			final float absX = Math.abs(normalX);
+			final float absY = Math.abs(normalY);
+			final float absZ = Math.abs(normalZ);
+			final int axisX;
+			final int axisY;
+			final float sign;
+			if ((absX >= absY) && (absX >= absZ)) {
+				axisX = 1;
+				axisY = 2;
+				sign = normalX;
+			} else if (absY >= absZ) {
+				axisX = 2;
+				axisY = 0;
+				sign = normalY;
+			} else {
+				axisX = 0;
+				axisY = 1;
+				sign = normalZ;
+			}
+			if (Math.abs(sign) <= EPSILON) {
+				return false;
+			}
+			for (int i = 0; i < size; ++i) {
+				final int vertex = meshData.vertexIndices[start + i] * OBJModelData.STRIDE;
+				xs[i] = vertices[vertex + axisX];
+				ys[i] = (sign > 0.0f) ? vertices[vertex + axisY] : -vertices[vertex + axisY];
+			}
+			return true;
+		}
+
+		private boolean isConvex(int size) {
+			for (int i = 0; i < size; ++i) {
+				final int before = (i + size - 1) % size;
+				final int after = (i + 1) % size;
+				if (cross(before, i, after) < 0.0f) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void splitEars(int[] triangles, int output, int start, int size) {
+			for (int i = 0; i < size; ++i) {
+				previous[i] = (i + size - 1) % size;
+				next[i] = (i + 1) % size;
+			}
+			int remaining = size;
+			int current = 0;
+			int attempts = 0;
+			while (remaining > 3) {
+				final int before = previous[current];
+				final int after = next[current];
+				if ((attempts >= remaining) || isEar(before, current, after)) {
+					// Should no ear be found (e.g. self-intersecting face),
+					// the current corner is clipped regardless.
+					triangles[output++] = start + before;
+					triangles[output++] = start + current;
+					triangles[output++] = start + after;
+					next[before] = after;
+					previous[after] = before;
+					remaining--;
+					attempts = 0;
+					current = after;
+				} else {
+					attempts++;
+					current = after;
+				}
+			}
+			triangles[output++] = start + previous[current];
+			triangles[output++] = start + current;
+			triangles[output] = start + next[current];
+		}
+
+		private boolean isEar(int before, int current, int after) {
+			if (cross(before, current, after) <= 0.0f) {
+				return false;
+			}
+			for (int i = next[after]; i != before; i = next[i]) {
+				if (isInside(i, before, current, after)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean isInside(int point, int a, int b, int c) {
+			if (((xs[point] == xs[a]) && (ys[point] == ys[a]))
+					|| ((xs[point] == xs[b]) && (ys[point] == ys[b]))
+					|| ((xs[point] == xs[c]) && (ys[point] == ys[c]))) {
+				return false;
+			}
+			return (cross(a, b, point) >= 0.0f)
+					&& (cross(b, c, point) >= 0.0f)
+					&& (cross(c, a, point) >= 0.0f);
+		}
+
+		private float cross(int a, int b, int c) {
+			return (xs[b] - xs[a]) * (ys[c] - ys[a]) - (ys[b] - ys[a]) * (xs[c] - xs[a]);
+		}
+
+		private void ensureCapacity(int size) {
+			if (xs.length < size) {
+				final int capacity = Math.max(size, xs.length * 2);
+				xs = new float[capacity];
+				ys = new float[capacity];
+				previous = new int[capacity];
+				next = new int[capacity];
+			}
+		}
+
+	}
+
+}
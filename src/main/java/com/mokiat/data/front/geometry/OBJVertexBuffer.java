@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * The {@link OBJVertexBuffer} class holds the unique vertices
+ * of a mesh together with a triangle index buffer, in a form
+ * that can be uploaded directly to the GPU.
+ * <p>
+ * All buffers are direct and use the native byte order.
+ * <p>
+ * Depending on the settings of the {@link OBJVertexBufferBuilder},
+ * vertex attributes are either interleaved into a single buffer (see
+ * {@link #getInterleavedData()}, {@link #getStride()} and the offset
+ * methods) or stored in separate buffers (see {@link #getPositions()},
+ * {@link #getTexCoords()} and {@link #getNormals()}).
+ * <p>
+ * Indices are stored as 16 bit values if all vertices can be addressed
+ * that way and as 32 bit values otherwise. 16 bit indices are
+ * to be interpreted as unsigned.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJVertexBuffer {
+
+	/**
+	 * Number of components of a vertex position (x, y, z).
+	 */
+	public static final int POSITION_SIZE = 3;
+
+	/**
+	 * Number of components of a texture coordinate (u, v).
+	 */
+	public static final int TEXCOORD_SIZE = 2;
+
+	/**
+	 * Number of components of a normal (x, y, z).
+	 */
+	public static final int NORMAL_SIZE = 3;
+
+	/**
+	 * The largest number of vertices that can be addressed
+	 * with 16 bit indices.
+	 */
+	public static final int MAX_SHORT_INDEX_VERTEX_COUNT = 1 << 16;
+
+	private final int vertexCount;
+	private final boolean texCoords;
+	private final boolean normals;
+	private final boolean interleaved;
+	private final FloatBuffer interleavedData;
+	private final FloatBuffer positionData;
+	private final FloatBuffer texCoordData;
+	private final FloatBuffer normalData;
+	private final Buffer indices;
+
+	OBJVertexBuffer(int vertexCount, boolean texCoords, boolean normals, FloatBuffer interleavedData, Buffer indices) {
+		this.vertexCount = vertexCount;
+		this.texCoords = texCoords;
+		this.normals = normals;
+		this.interleaved = true;
+		this.interleavedData = interleavedData;
+		this.positionData = null;
+		this.texCoordData = null;
+		this.normalData = null;
+		this.indices = indices;
+	}
+
+	OBJVertexBuffer(int vertexCount, FloatBuffer positionData, FloatBuffer texCoordData, FloatBuffer normalData, Buffer indices) {
+		this.vertexCount = vertexCount;
+		this.texCoords = (texCoordData != null);
+		this.normals = (normalData != null);
+		this.interleaved = false;
+		this.interleavedData = null;
+		this.positionData = positionData;
+		this.texCoordData = texCoordData;
+		this.normalData = normalData;
+		this.indices = indices;
+	}
+
+	/**
+	 * Returns the number of unique vertices.
+	 * @return vertex count
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns the number of indices. Every three consecutive
+	 * indices form a triangle.
+	 * @return index count
+	 */
+	public int getIndexCount() {
+		return indices.limit();
+	}
+
+	/**
+	 * Returns whether vertices have texture coordinates.
+	 * @return <code>true</code> if texture coordinates are available
+	 */
+	public boolean hasTexCoords() {
+		return texCoords;
+	}
+
+	/**
+	 * Returns whether vertices have normals.
+	 * @return <code>true</code> if normals are available
+	 */
+	public boolean hasNormals() {
+		return normals;
+	}
+
+	/**
+	 * Returns whether vertex attributes are interleaved
+	 * into a single buffer.
+	 * @return <code>true</code> if interleaved
+	 */
+	public boolean isInterleaved() {
+		return interleaved;
+	}
+
+	/**
+	 * Returns the number of floats per vertex.
+	 * @return vertex stride in floats
+	 */
+	public int getStride() {
+		return getStride(texCoords, normals);
+	}
+
+	static int getStride(boolean texCoords, boolean normals) {
+		int stride = POSITION_SIZE;
+		if (texCoords) {
+			stride += TEXCOORD_SIZE;
+		}
+		if (normals) {
+			stride += NORMAL_SIZE;
+		}
+		return stride;
+	}
+
+	/**
+	 * Returns the offset in floats of the position
+	 * within an interleaved vertex.
+	 * @return position offset
+	 */
+	public int getPositionOffset() {
+		return 0;
+	}
+
+	/**
+	 * Returns the offset in floats of the texture coordinate
+	 * within an interleaved vertex.
+	 * @return texture coordinate offset or <code>-1</code> if
+	 * vertices have no texture coordinates
+	 */
+	public int getTexCoordOffset() {
+		return texCoords ? POSITION_SIZE : -1;
+	}
+
+	/**
+	 * Returns the offset in floats of the normal
+	 * within an interleaved vertex.
+	 * @return normal offset or <code>-1</code> if
+	 * vertices have no normals
+	 */
+	public int getNormalOffset() {
+		if (!normals) {
+			return -1;
+		}
+		return texCoords ? POSITION_SIZE + TEXCOORD_SIZE : POSITION_SIZE;
+	}
+
+	/**
+	 * Returns the interleaved vertex data.
+	 * @return the interleaved vertex buffer or <code>null</code>
+	 * if attributes are not interleaved
+	 */
+	public FloatBuffer getInterleavedData() {
+		return interleavedData;
+	}
+
+	/**
+	 * Returns the vertex positions.
+	 * @return the position buffer or <code>null</code>
+	 * if attributes are interleaved
+	 */
+	public FloatBuffer getPositions() {
+		return positionData;
+	}
+
+	/**
+	 * Returns the vertex texture coordinates.
+	 * @return the texture coordinate buffer or <code>null</code>
+	 * if attributes are interleaved or not available
+	 */
+	public FloatBuffer getTexCoords() {
+		return texCoordData;
+	}
+
+	/**
+	 * Returns the vertex normals.
+	 * @return the normal buffer or <code>null</code>
+	 * if attributes are interleaved or not available
+	 */
+	public FloatBuffer getNormals() {
+		return normalData;
+	}
+
+	/**
+	 * Returns whether indices are stored as 16 bit values.
+	 * @return <code>true</code> if {@link #getShortIndices()}
+	 * should be used, <code>false</code> if {@link #getIntIndices()}
+	 * should be used
+	 */
+	public boolean isShortIndices() {
+		return (indices instanceof ShortBuffer);
+	}
+
+	/**
+	 * Returns the index buffer, which is either
+	 * a {@link ShortBuffer} or an {@link IntBuffer}.
+	 * @return index buffer
+	 */
+	public Buffer getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Returns the 16 bit index buffer.
+	 * @return index buffer or <code>null</code> if
+	 * indices are stored as 32 bit values
+	 */
+	public ShortBuffer getShortIndices() {
+		return isShortIndices() ? (ShortBuffer) indices : null;
+	}
+
+	/**
+	 * Returns the 32 bit index buffer.
+	 * @return index buffer or <code>null</code> if
+	 * indices are stored as 16 bit values
+	 */
+	public IntBuffer getIntIndices() {
+		return isShortIndices() ? null : (IntBuffer) indices;
+	}
+
+	/**
+	 * Returns the vertex index at the specified position
+	 * of the index buffer, regardless of its format.
+	 * @param position position within the index buffer
+	 * @return vertex index
+	 */
+	public int getIndex(int position) {
+		if (indices instanceof ShortBuffer) {
+			return ((ShortBuffer) indices).get(position) & 0xFFFF;
+		}
+		return ((IntBuffer) indices).get(position);
+	}
+
+}
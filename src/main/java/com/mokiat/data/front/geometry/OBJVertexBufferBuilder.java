@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+
+/**
+ * Builds {@link OBJVertexBuffer} instances out of the meshes
+ * of an {@link OBJModel}.
+ * <p>
+ * Every unique combination of vertex, texture coordinate and normal
+ * index that is referenced by the faces of a mesh becomes a single
+ * vertex of the buffer, and faces are converted to triangles that
+ * reference those vertices. Polygons are split into triangles by an
+ * {@link OBJTriangulator}.
+ * <p>
+ * Texture coordinates and normals are only included if at least one
+ * face of the mesh references them. Data references that lack them
+ * get zero values.
+ * <p>
+ * <strong>Example:</strong>
+ * <pre>
+ * final OBJVertexBufferBuilder builder = new OBJVertexBufferBuilder();
+ * final List&lt;OBJVertexBuffer&gt; buffers = builder.build(model, ForkJoinPool.commonPool());
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJVertexBufferBuilder {
+
+	private static final int FLOAT_SIZE = 4;
+	private static final int SHORT_SIZE = 2;
+	private static final int INT_SIZE = 4;
+
+	private boolean interleaved = true;
+	private OBJTriangulator triangulator = new OBJTriangulator();
+
+	/**
+	 * Creates a new {@link OBJVertexBufferBuilder} that
+	 * produces interleaved vertex buffers.
+	 */
+	public OBJVertexBufferBuilder() {
+		super();
+	}
+
+	/**
+	 * Sets whether vertex attributes should be interleaved into a
+	 * single buffer or stored in separate buffers.
+	 * The default is <code>true</code>.
+	 * @param interleaved <code>true</code> for interleaved buffers
+	 */
+	public void setInterleaved(boolean interleaved) {
+		this.interleaved = interleaved;
+	}
+
+	/**
+	 * Returns whether vertex attributes are interleaved
+	 * into a single buffer.
+	 * @return <code>true</code> for interleaved buffers
+	 */
+	public boolean isInterleaved() {
+		return interleaved;
+	}
+
+	/**
+	 * Sets the triangulator that is used to split faces into triangles.
+	 * @param triangulator the triangulator to be used
+	 */
+	public void setTriangulator(OBJTriangulator triangulator) {
+		this.triangulator = triangulator;
+	}
+
+	/**
+	 * Returns the triangulator that is used to split faces into triangles.
+	 * @return the triangulator
+	 */
+	public OBJTriangulator getTriangulator() {
+		return triangulator;
+	}
+
+	/**
+	 * Builds the vertex buffer of a single mesh.
+	 * @param model the model that holds the vertex data
+	 * @param mesh the mesh whose faces should be converted
+	 * @return the vertex buffer
+	 */
+	public OBJVertexBuffer build(OBJModel model, OBJMesh mesh) {
+		return build(OBJModelData.of(model), OBJMeshData.of(mesh));
+	}
+
+	/**
+	 * Builds the vertex buffers of all meshes of all objects
+	 * of the specified model, in parallel.
+	 * @param model the model whose meshes should be converted
+	 * @param pool pool on which meshes will be converted
+	 * @return the vertex buffers, in object and mesh order
+	 */
+	public List<OBJVertexBuffer> build(OBJModel model, ForkJoinPool pool) {
+		final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+		for (OBJObject object : model.getObjects()) {
+			meshes.addAll(object.getMeshes());
+		}
+		return build(model, meshes, pool);
+	}
+
+	/**
+	 * Builds the vertex buffers of the specified meshes, in parallel.
+	 * @param model the model that holds the vertex data
+	 * @param meshes the meshes that should be converted
+	 * @param pool pool on which meshes will be converted
+	 * @return the vertex buffers, in the order of the meshes
+	 */
+	public List<OBJVertexBuffer> build(OBJModel model, List<OBJMesh> meshes, ForkJoinPool pool) {
+		final OBJModelData modelData = OBJModelData.of(model);
+		final List<ForkJoinTask<OBJVertexBuffer>> tasks = new ArrayList<ForkJoinTask<OBJVertexBuffer>>(meshes.size());
+		for (OBJMesh mesh : meshes) {
+			tasks.add(pool.submit(new MeshTask(modelData, mesh)));
+		}
+		final List<OBJVertexBuffer> result = new ArrayList<OBJVertexBuffer>(meshes.size());
+		for (ForkJoinTask<OBJVertexBuffer> task : tasks) {
+			result.add(task.join());
+		}
+		return result;
+	}
+
+	private OBJVertexBuffer build(OBJModelData modelData, OBJMeshData meshData) {
+		final boolean texCoords = (meshData.texCoordIndices != null);
+		final boolean normals = (meshData.normalIndices != null);
+
+		final OBJWeldedVertices welded = OBJWeldedVertices.of(modelData, meshData);
+		final int vertexCount = welded.vertexCount;
+		final int[] firstReferences = welded.firstReferences;
+
+		final int[] triangles = triangulator.triangulate(modelData, meshData);
+		final Buffer indices = createIndices(triangles, welded.referenceVertices, vertexCount);
+		if (interleaved) {
+			final int stride = OBJVertexBuffer.getStride(texCoords, normals);
+			final FloatBuffer data = allocateFloats(vertexCount * stride);
+			for (int i = 0; i < vertexCount; ++i) {
+				final int reference = firstReferences[i];
+				int offset = i * stride;
+				putPosition(data, offset, modelData, meshData.vertexIndices[reference]);
+				offset += OBJVertexBuffer.POSITION_SIZE;
+				if (texCoords) {
+					putTexCoord(data, offset, modelData, meshData.texCoordIndices[reference]);
+					offset += OBJVertexBuffer.TEXCOORD_SIZE;
+				}
+				if (normals) {
+					putNormal(data, offset, modelData, meshData.normalIndices[reference]);
+				}
+			}
+			return new OBJVertexBuffer(vertexCount, texCoords, normals, data, indices);
+		}
+		final FloatBuffer positionData = allocateFloats(vertexCount * OBJVertexBuffer.POSITION_SIZE);
+		final FloatBuffer texCoordData = texCoords ? allocateFloats(vertexCount * OBJVertexBuffer.TEXCOORD_SIZE) : null;
+		final FloatBuffer normalData = normals ? allocateFloats(vertexCount * OBJVertexBuffer.NORMAL_SIZE) : null;
+		for (int i = 0; i < vertexCount; ++i) {
+			final int reference = firstReferences[i];
+			putPosition(positionData, i * OBJVertexBuffer.POSITION_SIZE, modelData, meshData.vertexIndices[reference]);
+			if (texCoords) {
+				putTexCoord(texCoordData, i * OBJVertexBuffer.TEXCOORD_SIZE, modelData, meshData.texCoordIndices[reference]);
+			}
+			if (normals) {
+				putNormal(normalData, i * OBJVertexBuffer.NORMAL_SIZE, modelData, meshData.normalIndices[reference]);
+			}
+		}
+		return new OBJVertexBuffer(vertexCount, positionData, texCoordData, normalData, indices);
+	}
+
+	private static Buffer createIndices(int[] triangles, int[] referenceVertices, int vertexCount) {
+		if (vertexCount <= OBJVertexBuffer.MAX_SHORT_INDEX_VERTEX_COUNT) {
+			final ShortBuffer indices = allocate(triangles.length * SHORT_SIZE).asShortBuffer();
+			for (int i = 0; i < triangles.length; ++i) {
+				indices.put(i, (short) referenceVertices[triangles[i]]);
+			}
+			return indices;
+		}
+		final IntBuffer indices = allocate(triangles.length * INT_SIZE).asIntBuffer();
+		for (int i = 0; i < triangles.length; ++i) {
+			indices.put(i, referenceVertices[triangles[i]]);
+		}
+		return indices;
+	}
+
+	private static void putPosition(FloatBuffer buffer, int offset, OBJModelData modelData, int index) {
+		final int source = index * OBJModelData.STRIDE;
+		buffer.put(offset, modelData.vertices[source]);
+		buffer.put(offset + 1, modelData.vertices[source + 1]);
+		buffer.put(offset + 2, modelData.vertices[source + 2]);
+	}
+
+	private static void putTexCoord(FloatBuffer buffer, int offset, OBJModelData modelData, int index) {
+		if (index == OBJDataReference.UNDEFINED_INDEX) {
+			return;
+		}
+		final int source = index * OBJModelData.STRIDE;
+		buffer.put(offset, modelData.texCoords[source]);
+		buffer.put(offset + 1, modelData.texCoords[source + 1]);
+	}
+
+	private static void putNormal(FloatBuffer buffer, int offset, OBJModelData modelData, int index) {
+		if (index == OBJDataReference.UNDEFINED_INDEX) {
+			return;
+		}
+		final int source = index * OBJModelData.STRIDE;
+		buffer.put(offset, modelData.normals[source]);
+		buffer.put(offset + 1, modelData.normals[source + 1]);
+		buffer.put(offset + 2, modelData.normals[source + 2]);
+	}
+
+	private static FloatBuffer allocateFloats(int count) {
+		return allocate(count * FLOAT_SIZE).asFloatBuffer();
+	}
+
+	private static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+	}
+
+	private class MeshTask extends RecursiveTask<OBJVertexBuffer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final OBJModelData modelData;
+		private final OBJMesh mesh;
+
+		public MeshTask(OBJModelData modelData, OBJMesh mesh) {
+			this.modelData = modelData;
+			this.mesh = mesh;
+		}
+
+		@Override
+		protected OBJVertexBuffer compute() {
+			return build(modelData, OBJMeshData.of(mesh));
+		}
+
+	}
+
+}
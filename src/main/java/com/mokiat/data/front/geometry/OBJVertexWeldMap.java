@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+/**
+ * Internal class that assigns consecutive indices to unique
+ * (vertex, texture coordinate, normal) index triples.
+ * <p>
+ * This is an open-addressing hash map with linear probing. Each slot
+ * stores the three key indices and the assigned index next to each
+ * other in a single primitive array, so that a lookup touches a single
+ * cache line and no objects are allocated.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class OBJVertexWeldMap {
+
+	private static final int SLOT_SIZE = 4;
+	private static final int MIN_CAPACITY = 16;
+
+	/*
+	 * Slots hold the assigned index plus one, so that
+	 * zero (the default array value) marks an empty slot.
+	 */
+	private int[] slots;
+	private int mask;
+	private int size;
+
+	public OBJVertexWeldMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * Returns the index of the specified triple. Triples that have
+	 * not been seen before are assigned the current size of the map.
+	 */
+	public int weld(int vertexIndex, int texCoordIndex, int normalIndex) {
+		final int[] slots = this.slots;
+		int slot = hash(vertexIndex, texCoordIndex, normalIndex) & mask;
+		while (true) {
+			final int offset = slot * SLOT_SIZE;
+			final int value = slots[offset + 3];
+			if (value == 0) {
+				break;
+			}
+			if ((slots[offset] == vertexIndex)
+					&& (slots[offset + 1] == texCoordIndex)
+					&& (slots[offset + 2] == normalIndex)) {
+				return value - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		final int index = size++;
+		store(slot, vertexIndex, texCoordIndex, normalIndex, index + 1);
+		if (size * 2 > mask + 1) {
+			rehash();
+		}
+		return index;
+	}
+
+	private void allocate(int capacity) {
+		slots = new int[capacity * SLOT_SIZE];
+		mask = capacity - 1;
+	}
+
+	private void store(int slot, int vertexIndex, int texCoordIndex, int normalIndex, int value) {
+		final int offset = slot * SLOT_SIZE;
+		slots[offset] = vertexIndex;
+		slots[offset + 1] = texCoordIndex;
+		slots[offset + 2] = normalIndex;
+		slots[offset + 3] = value;
+	}
+
+	private void rehash() {
+		final int[] oldSlots = slots;
+		allocate((mask + 1) * 2);
+		for (int offset = 0; offset < oldSlots.length; offset += SLOT_SIZE) {
+			final int value = oldSlots[offset + 3];
+			if (value == 0) {
+				continue;
+			}
+			final int vertexIndex = oldSlots[offset];
+			final int texCoordIndex = oldSlots[offset + 1];
+			final int normalIndex = oldSlots[offset + 2];
+			int slot = hash(vertexIndex, texCoordIndex, normalIndex) & mask;
+			while (slots[slot * SLOT_SIZE + 3] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			store(slot, vertexIndex, texCoordIndex, normalIndex, value);
+		}
+	}
+
+	/*
+	 * Spreads each index with a different odd multiplier and passes the
+	 * combination through the MurmurHash3 finalizer, so that all bits of
+	 * the hash depend on all three indices. Keeping the vertex index in
+	 * order within the hash would place all combinations of a single
+	 * position in neighbouring slots, which turns linear probing
+	 * quadratic for flat shaded meshes, where a position is referenced
+	 * with many normals.
+	 */
+	private static int hash(int vertexIndex, int texCoordIndex, int normalIndex) {
+		int hash = (vertexIndex * 0x9E3779B1) ^ (texCoordIndex * 0x85EBCA77) ^ (normalIndex * 0xC2B2AE3D);
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+}
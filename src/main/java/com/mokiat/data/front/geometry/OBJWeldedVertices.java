@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+
+/**
+ * Internal class that welds the data references of a mesh into unique
+ * vertices, i.e. unique (vertex, texture coordinate, normal) index
+ * triples, numbered in order of first use.
+ * <p>
+ * All stages that produce per vertex data for an {@link OBJVertexBuffer}
+ * use this class, so that their output is aligned with its vertices.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class OBJWeldedVertices {
+
+	public final int vertexCount;
+	public final int[] referenceVertices;
+	public final int[] firstReferences;
+
+	private OBJWeldedVertices(int vertexCount, int[] referenceVertices, int[] firstReferences) {
+		this.vertexCount = vertexCount;
+		this.referenceVertices = referenceVertices;
+		this.firstReferences = firstReferences;
+	}
+
+	/*
+	 * Assigns a vertex to every data reference, remembering the
+	 * first reference of each unique vertex.
+	 */
+	public static OBJWeldedVertices of(OBJModelData modelData, OBJMeshData meshData) {
+		final int referenceCount = meshData.getReferenceCount();
+		final OBJVertexWeldMap weldMap = new OBJVertexWeldMap(referenceCount / 4);
+		final int[] referenceVertices = new int[referenceCount];
+		int[] firstReferences = new int[Math.max(16, referenceCount / 4)];
+		for (int i = 0; i < referenceCount; ++i) {
+			final int vertexIndex = checkIndex(meshData.vertexIndices[i], modelData.vertexCount);
+			final int texCoordIndex = checkIndex(meshData.getTexCoordIndex(i), modelData.texCoordCount);
+			final int normalIndex = checkIndex(meshData.getNormalIndex(i), modelData.normalCount);
+			final int size = weldMap.size();
+			final int index = weldMap.weld(vertexIndex, texCoordIndex, normalIndex);
+			if (index == size) {
+				if (size == firstReferences.length) {
+					final int[] newFirstReferences = new int[size * 2];
+					System.arraycopy(firstReferences, 0, newFirstReferences, 0, size);
+					firstReferences = newFirstReferences;
+				}
+				firstReferences[size] = i;
+			}
+			referenceVertices[i] = index;
+		}
+		return new OBJWeldedVertices(weldMap.size(), referenceVertices, firstReferences);
+	}
+
+	private static int checkIndex(int index, int count) {
+		if ((index != OBJDataReference.UNDEFINED_INDEX) && ((index < 0) || (index >= count))) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+		}
+		return index;
+	}
+
+}
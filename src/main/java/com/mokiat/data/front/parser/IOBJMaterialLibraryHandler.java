@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Internal interface that is used to receive the material library
+ * references of an OBJ resource as soon as each of them is parsed,
+ * rather than once the whole resource has been parsed.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+interface IOBJMaterialLibraryHandler {
+
+	/**
+	 * Called when a material library reference has been parsed.
+	 * @param model the model that is being parsed
+	 * @param libraryFilename the material library reference
+	 * @throws WFException if the handler wants to abort parsing
+	 */
+	public void onMaterialLibrary(OBJModel model, String libraryFilename) throws WFException;
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * The {@link IOBJObjectHandler} interface is used to receive the
+ * objects of an OBJ resource one at a time, as soon as each of them
+ * has been parsed completely.
+ * <p>
+ * An object is complete once the next object statement or the end of
+ * the resource is reached. After the handler returns, the parser no
+ * longer references the object, so it can be garbage collected unless
+ * the handler retains it.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public interface IOBJObjectHandler {
+
+	/**
+	 * Called when an object and all of its meshes have been parsed.
+	 * <p>
+	 * The model provides access to the vertices, texture coordinates,
+	 * normals and material libraries that have been parsed so far, which
+	 * include all of the data the object references.
+	 * @param model the model that holds the shared data
+	 * @param object the parsed object
+	 * @throws WFException if the handler wants to abort parsing
+	 */
+	public void onObject(OBJModel model, OBJObject object) throws WFException;
+
+}
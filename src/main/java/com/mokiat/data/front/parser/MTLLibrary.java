@@ -17,6 +17,7 @@
 package com.mokiat.data.front.parser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -31,38 +32,79 @@ import java.util.List;
  */
 public class MTLLibrary {
 	
-	private final List<MTLMaterial> materials = new ArrayList<MTLMaterial>();
+	private final MaterialList materials;
+	private final List<MTLMaterial> exposedMaterials;
 	
 	/**
 	 * Creates a new {@link MTLLibrary} instance.
 	 */
 	public MTLLibrary() {
-		super();
+		this.materials = new MaterialList();
+		this.exposedMaterials = materials;
+	}
+
+	/*
+	 * Creates a library whose material list is a read-only
+	 * copy of the specified list, holding read-only copies
+	 * of the specified materials.
+	 */
+	MTLLibrary(List<MTLMaterial> materials) {
+		final List<MTLMaterial> copies = new ArrayList<MTLMaterial>(materials.size());
+		for (MTLMaterial material : materials) {
+			copies.add(new MTLReadOnlyMaterial(material));
+		}
+		this.materials = new MaterialList(copies);
+		this.exposedMaterials = Collections.unmodifiableList(this.materials);
 	}
 	
 	/**
 	 * Returns a list of materials in this library.
+	 * <p>
+	 * Libraries that are shared through an {@link MTLLibraryCache}
+	 * return a read-only list of read-only materials.
 	 * @return non-null writable list of {@link MTLMaterial} 
 	 * instances.
 	 */
 	public List<MTLMaterial> getMaterials() {
-		return materials;
+		return exposedMaterials;
 	}
 	
 	/**
 	 * A helper method that returns the material in this library
 	 * with the specified name.
+	 * <p>
+	 * Should there be multiple materials with that name, the
+	 * first one is returned. Lookups go through a name index
+	 * that is built on first use and is rebuilt whenever the
+	 * material list or a material name changes.
 	 * @param name name of the requested material
 	 * @return an instance of {@link MTLMaterial}, or <code>null</code>
 	 * if the material could not be found.
 	 */
 	public MTLMaterial getMaterial(String name) {
-		for (MTLMaterial material : materials) {
-			if (name.equals(material.getName())) {
-				return material;
-			}
+		return materials.find(name);
+	}
+
+	private static final class MaterialList extends WFNamedList<MTLMaterial> {
+
+		public MaterialList() {
+			super();
+		}
+
+		public MaterialList(List<MTLMaterial> materials) {
+			super(materials);
+		}
+
+		@Override
+		protected String getName(MTLMaterial material) {
+			return material.getName();
+		}
+
+		@Override
+		protected Owners getOwners(MTLMaterial material) {
+			return material.getOwners();
 		}
-		return null;
+
 	}
 
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * A thread-safe cache of parsed material libraries, which can
+ * be shared by all models that reference the same MTL resources.
+ * <p>
+ * Libraries are keyed by the real path of their file and are parsed
+ * again once the size or the last modification time of the file
+ * changes. Concurrent requests for a library that is not cached yet
+ * wait for a single parse, which runs on the thread that requested
+ * the library first. Failed parses are not cached. Should that thread
+ * be interrupted or its parse be cancelled, the waiting requests do
+ * not fail but parse the library anew.
+ * <p>
+ * The weight of a library is the size of its file in bytes. Once the
+ * total weight exceeds the maximum weight, the least recently used
+ * libraries are evicted, though the library that was requested last
+ * is always kept.
+ * <p>
+ * Cached libraries are shared, so they hold read-only copies of the
+ * parsed materials in a read-only list. Setters of these materials
+ * throw an {@link UnsupportedOperationException} and their colors are
+ * returned as copies.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class MTLLibraryCache {
+
+	/**
+	 * The default maximum weight, which is the total
+	 * size in bytes of the cached files.
+	 */
+	public static final long DEFAULT_MAX_WEIGHT = 1L << 26;
+
+	private final IMTLParser parser;
+	private final long maxWeight;
+	private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<Path, Entry>(16, 0.75f, true);
+	private long weight = 0L;
+	private long hitCount = 0L;
+	private long missCount = 0L;
+	private long evictionCount = 0L;
+
+	/**
+	 * Creates a new {@link MTLLibraryCache} that uses a default
+	 * {@link MTLParser} and the default maximum weight.
+	 */
+	public MTLLibraryCache() {
+		this(new MTLParser(), DEFAULT_MAX_WEIGHT);
+	}
+
+	/**
+	 * Creates a new {@link MTLLibraryCache} that uses the
+	 * specified parser and maximum weight.
+	 * <p>
+	 * The parser is used concurrently by all threads that
+	 * request libraries that are not cached.
+	 * @param parser parser for the MTL resources
+	 * @param maxWeight the maximum total size in bytes of the cached files
+	 * @throws IllegalArgumentException if the maximum weight is negative
+	 */
+	public MTLLibraryCache(IMTLParser parser, long maxWeight) {
+		if (maxWeight < 0L) {
+			throw new IllegalArgumentException("Max weight must not be negative.");
+		}
+		this.parser = parser;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Returns the maximum weight of this cache.
+	 * @return the maximum total size in bytes of the cached files
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Returns the library of the MTL resource at the specified path,
+	 * parsing it only if it is not cached or if the file has changed.
+	 * @param path path of the MTL resource
+	 * @return a shared {@link MTLLibrary} with read-only materials
+	 * @throws WFException if an error occurs during resource parsing
+	 * @throws IOException if an I/O error occurs
+	 */
+	public MTLLibrary load(Path path) throws WFException, IOException {
+		final Path key = path.toRealPath();
+		final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+		while (true) {
+			final Entry entry;
+			boolean owner = false;
+			synchronized (this) {
+				final Entry cachedEntry = entries.get(key);
+				if ((cachedEntry != null) && cachedEntry.matches(attributes) && !cachedEntry.task.isAborted()) {
+					hitCount++;
+					entry = cachedEntry;
+				} else {
+					missCount++;
+					if (cachedEntry != null) {
+						remove(key, cachedEntry);
+					}
+					entry = new Entry(key, attributes);
+					entries.put(key, entry);
+					weight += entry.size;
+					evict(key);
+					owner = true;
+				}
+			}
+			if (owner) {
+				return loadOwned(key, entry);
+			}
+			try {
+				return entry.task.await();
+			} catch (IOException ex) {
+				// Only the owner discards entries. An aborted entry is
+				// replaced by the next request instead, while a wait
+				// that was interrupted itself leaves the entry loading.
+				if (!entry.task.isAborted() || Thread.currentThread().isInterrupted()) {
+					throw ex;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the library of the MTL resource at the specified
+	 * path from this cache, if it is cached.
+	 * @param path path of the MTL resource
+	 * @throws IOException if the real path of the file cannot be determined
+	 */
+	public synchronized void invalidate(Path path) throws IOException {
+		final Path key = path.toRealPath();
+		final Entry entry = entries.get(key);
+		if (entry != null) {
+			remove(key, entry);
+		}
+	}
+
+	/**
+	 * Removes all libraries from this cache.
+	 * <p>
+	 * The counters are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0L;
+	}
+
+	/**
+	 * Returns the number of cached libraries, including
+	 * the ones that are still being parsed.
+	 * @return library count
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the total weight of the cached libraries.
+	 * @return the total size in bytes of the cached files
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns the number of requests that were served
+	 * by a cached library.
+	 * @return hit count
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of requests that required
+	 * a library to be parsed.
+	 * @return miss count
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of libraries that were evicted
+	 * because the maximum weight was exceeded.
+	 * @return eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	private void evict(Path keep) {
+		final Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+		while ((weight > maxWeight) && iterator.hasNext()) {
+			final Map.Entry<Path, Entry> eldest = iterator.next();
+			if (eldest.getKey().equals(keep)) {
+				continue;
+			}
+			iterator.remove();
+			weight -= eldest.getValue().size;
+			evictionCount++;
+		}
+	}
+
+	private void remove(Path key, Entry entry) {
+		entries.remove(key);
+		weight -= entry.size;
+	}
+
+	/*
+	 * Parses the library of an entry that was created by the calling
+	 * thread, discarding the entry should parsing fail in any way.
+	 */
+	private MTLLibrary loadOwned(Path key, Entry entry) throws IOException {
+		entry.task.run();
+		try {
+			return entry.task.await();
+		} catch (IOException ex) {
+			discard(key, entry);
+			throw ex;
+		} catch (RuntimeException ex) {
+			discard(key, entry);
+			throw ex;
+		}
+	}
+
+	private synchronized void discard(Path key, Entry entry) {
+		if (entries.get(key) == entry) {
+			remove(key, entry);
+		}
+	}
+
+	private final class Entry {
+
+		public final long size;
+		public final long modified;
+		public final MTLLibraryTask task;
+
+		public Entry(final Path path, BasicFileAttributes attributes) {
+			this.size = attributes.size();
+			this.modified = attributes.lastModifiedTime().toMillis();
+			this.task = new MTLLibraryTask(new Callable<MTLLibrary>() {
+
+				@Override
+				public MTLLibrary call() throws IOException {
+					final MTLLibrary library = MTLLibraryTask.parse(parser, path);
+					return new MTLLibrary(library.getMaterials());
+				}
+			});
+		}
+
+		public boolean matches(BasicFileAttributes attributes) {
+			return (size == attributes.size()) && (modified == attributes.lastModifiedTime().toMillis());
+		}
+
+	}
+
+}
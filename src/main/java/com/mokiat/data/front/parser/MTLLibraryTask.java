@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.mokiat.data.front.error.WFCancelledException;
+
+/**
+ * Internal class that represents the pending result of
+ * loading a material library.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class MTLLibraryTask extends FutureTask<MTLLibrary> {
+
+	private volatile boolean aborted = false;
+
+	public MTLLibraryTask(Callable<MTLLibrary> callable) {
+		super(callable);
+	}
+
+	/*
+	 * Returns whether loading stopped because the loading thread was
+	 * interrupted or its work was cancelled, as opposed to failing
+	 * because of the library itself.
+	 */
+	public boolean isAborted() {
+		return aborted || isCancelled();
+	}
+
+	@Override
+	protected void setException(Throwable t) {
+		aborted = (t instanceof InterruptedIOException)
+				|| (t instanceof ClosedByInterruptException)
+				|| (t instanceof WFCancelledException);
+		super.setException(t);
+	}
+
+	public static MTLLibrary parse(IMTLParser parser, Path path) throws IOException {
+		final InputStream in = Files.newInputStream(path);
+		try {
+			return parser.parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/*
+	 * Waits for the library and rethrows the exception
+	 * of a failed load as it was thrown.
+	 */
+	public MTLLibrary await() throws IOException {
+		try {
+			return get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a material library.");
+		} catch (CancellationException ex) {
+			throw new IOException("Material library loading was cancelled.", ex);
+		} catch (ExecutionException ex) {
+			final Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+}
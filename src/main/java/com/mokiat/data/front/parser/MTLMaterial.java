@@ -36,6 +36,7 @@ public class MTLMaterial {
 	private String specularTexture;
 	private String specularExponentTexture;
 	private String dissolveTexture;
+	private final WFNamedList.Owners owners = new WFNamedList.Owners();
 	
 	
 	/**
@@ -67,6 +68,7 @@ public class MTLMaterial {
 	 * @param other material to copy
 	 */
 	public MTLMaterial(MTLMaterial other) {
+		this.name = other.name;
 		this.ambientColor.setTo(other.ambientColor);
 		this.diffuseColor.setTo(other.diffuseColor);
 		this.specularColor.setTo(other.specularColor);
@@ -74,7 +76,7 @@ public class MTLMaterial {
 		this.specularExponent = other.specularExponent;
 		this.dissolve = other.dissolve;
 		this.ambientTexture = other.ambientTexture;
-		this.diffuseTexture = other.dissolveTexture;
+		this.diffuseTexture = other.diffuseTexture;
 		this.specularTexture = other.specularTexture;
 		this.specularExponentTexture = other.specularExponentTexture;
 		this.dissolveTexture = other.dissolveTexture;
@@ -89,6 +91,7 @@ public class MTLMaterial {
 	 */
 	public void setName(String name) {
 		this.name = name;
+		owners.onRenamed();
 	}
 	
 	/**
@@ -313,4 +316,12 @@ public class MTLMaterial {
 		return dissolveTexture;
 	}
 
+	/*
+	 * Returns the lists that hold this material, so that
+	 * they can be notified when its name changes.
+	 */
+	WFNamedList.Owners getOwners() {
+		return owners;
+	}
+
 }
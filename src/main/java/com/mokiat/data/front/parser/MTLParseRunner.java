@@ -26,7 +26,6 @@ import com.mokiat.data.front.error.WFException;
 import com.mokiat.data.front.scanner.IMTLScanner;
 import com.mokiat.data.front.scanner.IMTLScannerHandler;
 import com.mokiat.data.front.scanner.MTLLimitingScannerHandler;
-import com.mokiat.data.front.scanner.MTLScanner;
 
 /**
  * Internal class that helps in the MTL resource
@@ -44,10 +43,9 @@ class MTLParseRunner implements IMTLScannerHandler {
 		super();
 	}
 	
-	public MTLLibrary run(BufferedReader reader, MTLLimits limits) throws WFException, IOException {
+	public MTLLibrary run(BufferedReader reader, IMTLScanner scanner, MTLLimits limits) throws WFException, IOException {
 		currentMaterial = null;
 		library = new MTLLibrary();
-		final IMTLScanner scanner = new MTLScanner();
 		if (limits == null) {
 			scanner.scan(reader, this);
 		} else {
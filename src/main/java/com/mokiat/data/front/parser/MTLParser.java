@@ -21,9 +21,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import com.mokiat.data.front.common.MTLLimits;
+import com.mokiat.data.front.common.WFCancellationToken;
+import com.mokiat.data.front.error.WFCancelledException;
 import com.mokiat.data.front.error.WFException;
+import com.mokiat.data.front.scanner.MTLScanner;
 
 /**
  * Default implementation of the {@link IMTLParser}
@@ -35,6 +42,7 @@ import com.mokiat.data.front.error.WFException;
 public class MTLParser implements IMTLParser {
 	
 	private MTLLimits limits;
+	private WFCancellationToken cancellationToken;
 	
 	/**
 	 * Creates a new {@link MTLParser} instance.
@@ -53,6 +61,29 @@ public class MTLParser implements IMTLParser {
 		return limits;
 	}
 
+	/**
+	 * Sets the {@link WFCancellationToken} that is checked while
+	 * resources are parsed.
+	 * <p>
+	 * Once the token is cancelled or its deadline passes, parsing
+	 * stops between two lines shortly afterwards and fails with a
+	 * {@link WFCancelledException}. The default is <code>null</code>.
+	 * @param cancellationToken token to check or <code>null</code>
+	 * if parsing should not be stopped
+	 */
+	public void setCancellationToken(WFCancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
+
+	/**
+	 * Returns the {@link WFCancellationToken} that is checked
+	 * while resources are parsed.
+	 * @return the token or <code>null</code> if there is none
+	 */
+	public WFCancellationToken getCancellationToken() {
+		return cancellationToken;
+	}
+
 	@Override
 	public MTLLibrary parse(InputStream in) throws WFException, IOException {
 		final Reader reader = new InputStreamReader(in);
@@ -62,7 +93,57 @@ public class MTLParser implements IMTLParser {
 	@Override
 	public MTLLibrary parse(BufferedReader reader) throws WFException, IOException {
 		final MTLParseRunner runner = new MTLParseRunner();
-		return runner.run(reader, getLimits());
+		return runner.run(reader, new MTLScanner(cancellationToken), getLimits());
+	}
+
+	/**
+	 * Parses the file at the specified path on the specified
+	 * {@link Executor}.
+	 * <p>
+	 * Failures are reported through the
+	 * {@link java.util.concurrent.ExecutionException} of the returned
+	 * {@link Future}. Cancelling the {@link Future} with interruption
+	 * stops the parse between two lines shortly afterwards, after
+	 * which the file is closed.
+	 * @param path path to the MTL file
+	 * @param executor executor on which to parse
+	 * @return the pending {@link MTLLibrary}
+	 */
+	public Future<MTLLibrary> parseAsync(final Path path, Executor executor) {
+		return submit(new Callable<MTLLibrary>() {
+
+			@Override
+			public MTLLibrary call() throws Exception {
+				return MTLLibraryTask.parse(MTLParser.this, path);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Parses an MTL resource from the specified {@link InputStream}
+	 * on the specified {@link Executor}.
+	 * <p>
+	 * The stream is not closed once parsing completes and should not
+	 * be used by the caller until the returned {@link Future} is done.
+	 * Cancellation behaves as with {@link #parseAsync(Path, Executor)}.
+	 * @param in input stream to read from
+	 * @param executor executor on which to parse
+	 * @return the pending {@link MTLLibrary}
+	 */
+	public Future<MTLLibrary> parseAsync(final InputStream in, Executor executor) {
+		return submit(new Callable<MTLLibrary>() {
+
+			@Override
+			public MTLLibrary call() throws Exception {
+				return parse(in);
+			}
+		}, executor);
+	}
+
+	private static Future<MTLLibrary> submit(Callable<MTLLibrary> callable, Executor executor) {
+		final MTLLibraryTask task = new MTLLibraryTask(callable);
+		executor.execute(task);
+		return task;
 	}
 
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+/**
+ * Internal {@link MTLMaterial} that is a read-only copy of
+ * another material, so that it can be shared safely.
+ * <p>
+ * All setters throw an {@link UnsupportedOperationException} and
+ * the color getters return a new copy of the color on each call.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class MTLReadOnlyMaterial extends MTLMaterial {
+
+	public MTLReadOnlyMaterial(MTLMaterial other) {
+		super(other);
+	}
+
+	@Override
+	public void setName(String name) {
+		throw readOnly();
+	}
+
+	@Override
+	public MTLColor getAmbientColor() {
+		return new MTLColor(super.getAmbientColor());
+	}
+
+	@Override
+	public MTLColor getDiffuseColor() {
+		return new MTLColor(super.getDiffuseColor());
+	}
+
+	@Override
+	public MTLColor getSpecularColor() {
+		return new MTLColor(super.getSpecularColor());
+	}
+
+	@Override
+	public MTLColor getTransmissionColor() {
+		return new MTLColor(super.getTransmissionColor());
+	}
+
+	@Override
+	public void setSpecularExponent(float specularExponent) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setDissolve(float dissolve) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setAmbientTexture(String filename) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setDiffuseTexture(String filename) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setSpecularTexture(String filename) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setSpecularExponentTexture(String filename) {
+		throw readOnly();
+	}
+
+	@Override
+	public void setDissolveTexture(String filename) {
+		throw readOnly();
+	}
+
+	private static UnsupportedOperationException readOnly() {
+		return new UnsupportedOperationException("Shared materials are read-only.");
+	}
+
+}
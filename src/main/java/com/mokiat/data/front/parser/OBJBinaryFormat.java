@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Internal class that describes the layout of binary model files.
+ * <p>
+ * All values are little-endian. A file starts with a fixed size header,
+ * followed by the tables, which hold the material libraries, the model
+ * bounds, one entry per object and one entry per mesh. Strings in the
+ * tables are stored as their UTF-8 byte count, or <code>-1</code> for
+ * <code>null</code>, followed by the bytes and padded to four bytes.
+ * <p>
+ * The data sections follow the tables, each starting at an eight byte
+ * boundary, in the following order: vertices, texture coordinates,
+ * texture coordinate types, normals and then the face data of each
+ * mesh. The face data of a mesh consists of its face offsets, its
+ * vertex indices and, only if present, its texture coordinate indices,
+ * normal indices and smoothing groups.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class OBJBinaryFormat {
+
+	public static final int MAGIC = 0x424F4657;
+	public static final int VERSION = 2;
+	public static final int HEADER_SIZE = 104;
+
+	public static final int MESH_TEXCOORDS = 0x01;
+	public static final int MESH_NORMALS = 0x02;
+	public static final int MESH_SMOOTHING_GROUPS = 0x04;
+
+	public static final int BOUNDS_SIZE = 10;
+	public static final int FLOAT_SIZE = 4;
+	public static final int INT_SIZE = 4;
+	public static final int LONG_SIZE = 8;
+	public static final int SECTION_ALIGNMENT = 8;
+	public static final int STRING_ALIGNMENT = 4;
+	public static final int NULL_STRING = -1;
+
+	public static final int OFFSET_MAGIC = 0;
+	public static final int OFFSET_VERSION = 4;
+	public static final int OFFSET_SOURCE_SIZE = 16;
+	public static final int OFFSET_SOURCE_MODIFIED = 24;
+	public static final int OFFSET_VERTEX_COUNT = 32;
+	public static final int OFFSET_TEXCOORD_COUNT = 36;
+	public static final int OFFSET_NORMAL_COUNT = 40;
+	public static final int OFFSET_MATERIAL_LIBRARY_COUNT = 44;
+	public static final int OFFSET_OBJECT_COUNT = 48;
+	public static final int OFFSET_MESH_COUNT = 52;
+	public static final int OFFSET_DATA = 56;
+	public static final int OFFSET_LIMIT_COUNTS = 64;
+
+	public static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private OBJBinaryFormat() {
+	}
+
+	public static long align(long position, int alignment) {
+		return (position + alignment - 1) / alignment * alignment;
+	}
+
+	public static int stringSize(byte[] bytes) {
+		final int length = (bytes != null) ? bytes.length : 0;
+		return (int) align(INT_SIZE + length, STRING_ALIGNMENT);
+	}
+
+	public static byte[] encode(String value) {
+		return (value != null) ? value.getBytes(CHARSET) : null;
+	}
+
+	public static String readString(ByteBuffer buffer) {
+		final int start = buffer.position();
+		final int length = buffer.getInt();
+		if (length == NULL_STRING) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		((Buffer) buffer).position(start + (int) align(INT_SIZE + length, STRING_ALIGNMENT));
+		return new String(bytes, CHARSET);
+	}
+
+	public static void readBounds(ByteBuffer buffer, OBJBounds bounds) {
+		bounds.minX = buffer.getFloat();
+		bounds.minY = buffer.getFloat();
+		bounds.minZ = buffer.getFloat();
+		bounds.maxX = buffer.getFloat();
+		bounds.maxY = buffer.getFloat();
+		bounds.maxZ = buffer.getFloat();
+		bounds.centerX = buffer.getFloat();
+		bounds.centerY = buffer.getFloat();
+		bounds.centerZ = buffer.getFloat();
+		bounds.radius = buffer.getFloat();
+	}
+
+	/*
+	 * Returns the number of bytes, including padding, of the face
+	 * data of a mesh with the specified counts and flags.
+	 */
+	public static long meshDataSize(int faceCount, int referenceCount, int flags) {
+		int referenceStreams = 1;
+		if ((flags & MESH_TEXCOORDS) != 0) {
+			referenceStreams++;
+		}
+		if ((flags & MESH_NORMALS) != 0) {
+			referenceStreams++;
+		}
+		long size = (long) (faceCount + 1) * INT_SIZE;
+		size += (long) referenceCount * referenceStreams * INT_SIZE;
+		if ((flags & MESH_SMOOTHING_GROUPS) != 0) {
+			size += (long) faceCount * INT_SIZE;
+		}
+		return align(size, SECTION_ALIGNMENT);
+	}
+
+}
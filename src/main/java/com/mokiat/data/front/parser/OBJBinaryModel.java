@@ -0,0 +1,611 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.mokiat.data.front.error.WFCorruptException;
+import com.mokiat.data.front.parser.OBJTexCoord.Type;
+
+/**
+ * Represents a binary model file, as written by {@link OBJBinaryWriter},
+ * that has been mapped into memory.
+ * <p>
+ * The vertices, texture coordinates, normals and the faces of each
+ * mesh are exposed as read-only buffer views of the mapped file, so
+ * no data is copied or parsed when a file is opened. The objects and
+ * meshes are identified by their index, where meshes are numbered
+ * across all objects in order. An {@link OBJModel} can be created
+ * from the file through {@link #toModel(boolean)}, which copies each
+ * section in bulk.
+ * <p>
+ * The mapping stays valid until the instance is garbage collected,
+ * even though the file itself is closed as soon as it is mapped.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJBinaryModel {
+
+	private static final Type[] TYPES = Type.values();
+
+	private final ByteBuffer file;
+	private final long sourceSize;
+	private final long sourceModified;
+	private final int vertexCount;
+	private final int texCoordCount;
+	private final int normalCount;
+	private final OBJLimitCounts limitCounts;
+	private final List<String> materialLibraries;
+	private final OBJBounds bounds = new OBJBounds();
+	private final String[] objectNames;
+	private final int[] objectFirstMeshes;
+	private final OBJBounds[] objectBounds;
+	private final String[] meshMaterialNames;
+	private final int[] meshFaceCounts;
+	private final int[] meshReferenceCounts;
+	private final int[] meshFlags;
+	private final OBJBounds[] meshBounds;
+	private final ByteBuffer vertexData;
+	private final ByteBuffer texCoordData;
+	private final ByteBuffer texCoordTypes;
+	private final ByteBuffer normalData;
+	private final ByteBuffer[] meshData;
+
+	/**
+	 * Maps the binary model file at the specified path.
+	 * @param path path of the file
+	 * @return a new {@link OBJBinaryModel} instance
+	 * @throws WFCorruptException if the file is not a binary model
+	 * file or was written by an incompatible version
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static OBJBinaryModel open(Path path) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new OBJBinaryModel(channel);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private OBJBinaryModel(FileChannel channel) throws IOException {
+		final long size = channel.size();
+		if (size < OBJBinaryFormat.HEADER_SIZE) {
+			throw new WFCorruptException("Not a binary model file.");
+		}
+		// Small files are mapped as a whole, while larger files
+		// have each of their sections mapped separately.
+		this.file = (size <= Integer.MAX_VALUE) ? channel.map(MapMode.READ_ONLY, 0L, size) : null;
+
+		final ByteBuffer header = map(channel, 0L, OBJBinaryFormat.HEADER_SIZE);
+		if (header.getInt(OBJBinaryFormat.OFFSET_MAGIC) != OBJBinaryFormat.MAGIC) {
+			throw new WFCorruptException("Not a binary model file.");
+		}
+		final int version = header.getInt(OBJBinaryFormat.OFFSET_VERSION);
+		if (version != OBJBinaryFormat.VERSION) {
+			throw new WFCorruptException("Unsupported binary model version: " + version);
+		}
+		this.sourceSize = header.getLong(OBJBinaryFormat.OFFSET_SOURCE_SIZE);
+		this.sourceModified = header.getLong(OBJBinaryFormat.OFFSET_SOURCE_MODIFIED);
+		this.vertexCount = header.getInt(OBJBinaryFormat.OFFSET_VERTEX_COUNT);
+		this.texCoordCount = header.getInt(OBJBinaryFormat.OFFSET_TEXCOORD_COUNT);
+		this.normalCount = header.getInt(OBJBinaryFormat.OFFSET_NORMAL_COUNT);
+		final int materialLibraryCount = header.getInt(OBJBinaryFormat.OFFSET_MATERIAL_LIBRARY_COUNT);
+		final int objectCount = header.getInt(OBJBinaryFormat.OFFSET_OBJECT_COUNT);
+		final int meshCount = header.getInt(OBJBinaryFormat.OFFSET_MESH_COUNT);
+		final long dataOffset = header.getLong(OBJBinaryFormat.OFFSET_DATA);
+		this.limitCounts = OBJLimitCounts.read(header, OBJBinaryFormat.OFFSET_LIMIT_COUNTS);
+		if ((vertexCount < 0) || (texCoordCount < 0) || (normalCount < 0) || (materialLibraryCount < 0)
+				|| (objectCount < 0) || (meshCount < 0) || (dataOffset < OBJBinaryFormat.HEADER_SIZE) || (dataOffset > size)) {
+			throw new WFCorruptException("Corrupt binary model header.");
+		}
+
+		this.objectNames = new String[objectCount];
+		this.objectFirstMeshes = new int[objectCount + 1];
+		this.objectBounds = new OBJBounds[objectCount];
+		this.meshMaterialNames = new String[meshCount];
+		this.meshFaceCounts = new int[meshCount];
+		this.meshReferenceCounts = new int[meshCount];
+		this.meshFlags = new int[meshCount];
+		this.meshBounds = new OBJBounds[meshCount];
+		final long[] meshOffsets = new long[meshCount];
+		final List<String> materialLibraries = new ArrayList<String>(materialLibraryCount);
+		try {
+			final ByteBuffer tables = map(channel, OBJBinaryFormat.HEADER_SIZE, dataOffset - OBJBinaryFormat.HEADER_SIZE);
+			for (int i = 0; i < materialLibraryCount; ++i) {
+				materialLibraries.add(OBJBinaryFormat.readString(tables));
+			}
+			OBJBinaryFormat.readBounds(tables, bounds);
+			for (int i = 0; i < objectCount; ++i) {
+				objectNames[i] = OBJBinaryFormat.readString(tables);
+				objectFirstMeshes[i + 1] = objectFirstMeshes[i] + tables.getInt();
+				objectBounds[i] = new OBJBounds();
+				OBJBinaryFormat.readBounds(tables, objectBounds[i]);
+			}
+			for (int i = 0; i < meshCount; ++i) {
+				meshMaterialNames[i] = OBJBinaryFormat.readString(tables);
+				meshFaceCounts[i] = tables.getInt();
+				meshReferenceCounts[i] = tables.getInt();
+				meshFlags[i] = tables.getInt();
+				meshOffsets[i] = tables.getLong();
+				meshBounds[i] = new OBJBounds();
+				OBJBinaryFormat.readBounds(tables, meshBounds[i]);
+			}
+		} catch (RuntimeException ex) {
+			throw new WFCorruptException("Corrupt binary model tables.", ex);
+		}
+		if (objectFirstMeshes[objectCount] != meshCount) {
+			throw new WFCorruptException("Corrupt binary model tables.");
+		}
+		this.materialLibraries = Collections.unmodifiableList(materialLibraries);
+
+		long offset = dataOffset;
+		this.vertexData = map(channel, offset, (long) vertexCount * OBJPackedModel.VERTEX_STRIDE * OBJBinaryFormat.FLOAT_SIZE, size);
+		offset = OBJBinaryFormat.align(offset + vertexData.capacity(), OBJBinaryFormat.SECTION_ALIGNMENT);
+		this.texCoordData = map(channel, offset, (long) texCoordCount * OBJPackedModel.TEXCOORD_STRIDE * OBJBinaryFormat.FLOAT_SIZE, size);
+		offset = OBJBinaryFormat.align(offset + texCoordData.capacity(), OBJBinaryFormat.SECTION_ALIGNMENT);
+		this.texCoordTypes = map(channel, offset, texCoordCount, size);
+		offset = OBJBinaryFormat.align(offset + texCoordTypes.capacity(), OBJBinaryFormat.SECTION_ALIGNMENT);
+		this.normalData = map(channel, offset, (long) normalCount * OBJPackedModel.NORMAL_STRIDE * OBJBinaryFormat.FLOAT_SIZE, size);
+		this.meshData = new ByteBuffer[meshCount];
+		for (int i = 0; i < meshCount; ++i) {
+			if ((meshFaceCounts[i] < 0) || (meshReferenceCounts[i] < 0)) {
+				throw new WFCorruptException("Corrupt binary model tables.");
+			}
+			final long meshSize = OBJBinaryFormat.meshDataSize(meshFaceCounts[i], meshReferenceCounts[i], meshFlags[i]);
+			meshData[i] = map(channel, meshOffsets[i], meshSize, size);
+		}
+	}
+
+	/**
+	 * Returns the size of the OBJ resource that this model was
+	 * parsed from, as specified when the file was written.
+	 * @return size of the source in bytes
+	 */
+	public long getSourceSize() {
+		return sourceSize;
+	}
+
+	/**
+	 * Returns the last modification time of the OBJ resource that this
+	 * model was parsed from, as specified when the file was written.
+	 * @return modification time in milliseconds since the epoch
+	 */
+	public long getSourceModified() {
+		return sourceModified;
+	}
+
+	/*
+	 * Returns the limit counts of the parse that produced the model,
+	 * or null if they were not known when the file was written.
+	 */
+	OBJLimitCounts getLimitCounts() {
+		return limitCounts;
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 * @return vertex count
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns a read-only view of the vertices, which holds
+	 * {@link OBJPackedModel#VERTEX_STRIDE} floats per vertex.
+	 * @return a new {@link FloatBuffer} view of the mapped file
+	 */
+	public FloatBuffer getVertexData() {
+		return floats(vertexData);
+	}
+
+	/**
+	 * Returns the number of texture coordinates.
+	 * @return texture coordinate count
+	 */
+	public int getTexCoordCount() {
+		return texCoordCount;
+	}
+
+	/**
+	 * Returns a read-only view of the texture coordinates, which holds
+	 * {@link OBJPackedModel#TEXCOORD_STRIDE} floats per texture coordinate.
+	 * @return a new {@link FloatBuffer} view of the mapped file
+	 */
+	public FloatBuffer getTexCoordData() {
+		return floats(texCoordData);
+	}
+
+	/**
+	 * Returns the type of the texture coordinate at the specified index.
+	 * @param index index of the texture coordinate
+	 * @return the type of the texture coordinate
+	 */
+	public Type getTexCoordType(int index) {
+		return TYPES[texCoordTypes.get(index)];
+	}
+
+	/**
+	 * Returns the number of normals.
+	 * @return normal count
+	 */
+	public int getNormalCount() {
+		return normalCount;
+	}
+
+	/**
+	 * Returns a read-only view of the normals, which holds
+	 * {@link OBJPackedModel#NORMAL_STRIDE} floats per normal.
+	 * @return a new {@link FloatBuffer} view of the mapped file
+	 */
+	public FloatBuffer getNormalData() {
+		return floats(normalData);
+	}
+
+	/**
+	 * Returns the material library references of the model.
+	 * @return non-null read-only list of material library references
+	 */
+	public List<String> getMaterialLibraries() {
+		return materialLibraries;
+	}
+
+	/**
+	 * Returns the bounds of the model.
+	 * @return non-null {@link OBJBounds} instance
+	 */
+	public OBJBounds getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Returns the number of objects.
+	 * @return object count
+	 */
+	public int getObjectCount() {
+		return objectNames.length;
+	}
+
+	/**
+	 * Returns the name of the object at the specified index.
+	 * @param object index of the object
+	 * @return name of the object
+	 */
+	public String getObjectName(int object) {
+		return objectNames[object];
+	}
+
+	/**
+	 * Returns the index of the first mesh of the
+	 * object at the specified index.
+	 * @param object index of the object
+	 * @return index of the first mesh
+	 */
+	public int getObjectFirstMesh(int object) {
+		return objectFirstMeshes[object];
+	}
+
+	/**
+	 * Returns the number of meshes of the object
+	 * at the specified index.
+	 * @param object index of the object
+	 * @return mesh count
+	 */
+	public int getObjectMeshCount(int object) {
+		return objectFirstMeshes[object + 1] - objectFirstMeshes[object];
+	}
+
+	/**
+	 * Returns the bounds of the object at the specified index.
+	 * @param object index of the object
+	 * @return non-null {@link OBJBounds} instance
+	 */
+	public OBJBounds getObjectBounds(int object) {
+		return objectBounds[object];
+	}
+
+	/**
+	 * Returns the number of meshes of all objects.
+	 * @return mesh count
+	 */
+	public int getMeshCount() {
+		return meshMaterialNames.length;
+	}
+
+	/**
+	 * Returns the name of the material of the mesh
+	 * at the specified index.
+	 * @param mesh index of the mesh
+	 * @return name of the material or <code>null</code>
+	 */
+	public String getMaterialName(int mesh) {
+		return meshMaterialNames[mesh];
+	}
+
+	/**
+	 * Returns the bounds of the mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return non-null {@link OBJBounds} instance
+	 */
+	public OBJBounds getMeshBounds(int mesh) {
+		return meshBounds[mesh];
+	}
+
+	/**
+	 * Returns the number of faces of the mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return face count
+	 */
+	public int getFaceCount(int mesh) {
+		return meshFaceCounts[mesh];
+	}
+
+	/**
+	 * Returns the number of data references of the
+	 * mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return reference count
+	 */
+	public int getReferenceCount(int mesh) {
+		return meshReferenceCounts[mesh];
+	}
+
+	/**
+	 * Returns a read-only view of the face offsets of the mesh at the
+	 * specified index, which holds {@link #getFaceCount(int)} + 1 values.
+	 * @param mesh index of the mesh
+	 * @return a new {@link IntBuffer} view of the mapped file
+	 * @see OBJPackedMesh#getFaceOffsets()
+	 */
+	public IntBuffer getFaceOffsets(int mesh) {
+		return ints(mesh, 0, meshFaceCounts[mesh] + 1);
+	}
+
+	/**
+	 * Returns a read-only view of the vertex indices
+	 * of the mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return a new {@link IntBuffer} view of the mapped file
+	 */
+	public IntBuffer getVertexIndices(int mesh) {
+		return ints(mesh, meshFaceCounts[mesh] + 1, meshReferenceCounts[mesh]);
+	}
+
+	/**
+	 * Returns a read-only view of the texture coordinate
+	 * indices of the mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return a new {@link IntBuffer} view of the mapped file or
+	 * <code>null</code> if no face references texture coordinates
+	 */
+	public IntBuffer getTexCoordIndices(int mesh) {
+		if (!hasFlag(mesh, OBJBinaryFormat.MESH_TEXCOORDS)) {
+			return null;
+		}
+		return ints(mesh, meshFaceCounts[mesh] + 1 + meshReferenceCounts[mesh], meshReferenceCounts[mesh]);
+	}
+
+	/**
+	 * Returns a read-only view of the normal indices
+	 * of the mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return a new {@link IntBuffer} view of the mapped file or
+	 * <code>null</code> if no face references normals
+	 */
+	public IntBuffer getNormalIndices(int mesh) {
+		if (!hasFlag(mesh, OBJBinaryFormat.MESH_NORMALS)) {
+			return null;
+		}
+		return ints(mesh, normalIndicesOffset(mesh), meshReferenceCounts[mesh]);
+	}
+
+	/**
+	 * Returns a read-only view of the smoothing groups, one
+	 * per face, of the mesh at the specified index.
+	 * @param mesh index of the mesh
+	 * @return a new {@link IntBuffer} view of the mapped file or
+	 * <code>null</code> if no face is smoothed
+	 */
+	public IntBuffer getSmoothingGroups(int mesh) {
+		if (!hasFlag(mesh, OBJBinaryFormat.MESH_SMOOTHING_GROUPS)) {
+			return null;
+		}
+		int offset = normalIndicesOffset(mesh);
+		if (hasFlag(mesh, OBJBinaryFormat.MESH_NORMALS)) {
+			offset += meshReferenceCounts[mesh];
+		}
+		return ints(mesh, offset, meshFaceCounts[mesh]);
+	}
+
+	/**
+	 * Creates a new {@link OBJModel} with the contents of this file.
+	 * <p>
+	 * If <code>packed</code> is <code>true</code>, an {@link OBJPackedModel}
+	 * with {@link OBJPackedMesh} instances is returned and each section
+	 * is copied into its backing arrays in bulk. Otherwise, a model with
+	 * separate element, face and data reference instances is created.
+	 * @param packed whether to create a packed model
+	 * @return a new {@link OBJModel} instance
+	 */
+	public OBJModel toModel(boolean packed) {
+		final OBJModel model = packed ? createPackedModel() : createModel();
+		model.getMaterialLibraries().addAll(materialLibraries);
+		model.getBounds().extend(bounds);
+		for (int i = 0; i < objectNames.length; ++i) {
+			final OBJObject object = new OBJObject(objectNames[i]);
+			object.getBounds().extend(objectBounds[i]);
+			for (int mesh = objectFirstMeshes[i]; mesh < objectFirstMeshes[i + 1]; ++mesh) {
+				object.getMeshes().add(packed ? createPackedMesh(mesh) : createMesh(mesh));
+			}
+			model.getObjects().add(object);
+		}
+		return model;
+	}
+
+	private OBJPackedModel createPackedModel() {
+		final OBJPackedModel model = new OBJPackedModel();
+		final float[] vertices = new float[vertexCount * OBJPackedModel.VERTEX_STRIDE];
+		getVertexData().get(vertices);
+		final float[] texCoords = new float[texCoordCount * OBJPackedModel.TEXCOORD_STRIDE];
+		getTexCoordData().get(texCoords);
+		final byte[] types = new byte[texCoordCount];
+		texCoordTypes.duplicate().get(types);
+		final float[] normals = new float[normalCount * OBJPackedModel.NORMAL_STRIDE];
+		getNormalData().get(normals);
+		model.setData(vertices, vertexCount, texCoords, types, texCoordCount, normals, normalCount);
+		return model;
+	}
+
+	private OBJModel createModel() {
+		final OBJModel model = new OBJModel();
+		model.ensureCapacity(vertexCount, texCoordCount, normalCount);
+		final FloatBuffer vertices = getVertexData();
+		for (int i = 0; i < vertexCount; ++i) {
+			model.getVertices().add(new OBJVertex(vertices.get(), vertices.get(), vertices.get()));
+		}
+		final FloatBuffer texCoords = getTexCoordData();
+		for (int i = 0; i < texCoordCount; ++i) {
+			final OBJTexCoord texCoord = new OBJTexCoord(texCoords.get(), texCoords.get(), texCoords.get());
+			texCoord.type = getTexCoordType(i);
+			model.getTexCoords().add(texCoord);
+		}
+		final FloatBuffer normals = getNormalData();
+		for (int i = 0; i < normalCount; ++i) {
+			model.getNormals().add(new OBJNormal(normals.get(), normals.get(), normals.get()));
+		}
+		return model;
+	}
+
+	private OBJPackedMesh createPackedMesh(int mesh) {
+		final OBJPackedMesh result = new OBJPackedMesh();
+		result.setMaterialName(meshMaterialNames[mesh]);
+		result.getBounds().extend(meshBounds[mesh]);
+		final int faceCount = meshFaceCounts[mesh];
+		final int referenceCount = meshReferenceCounts[mesh];
+		// The index streams are never empty, so that they can grow
+		final int streamLength = Math.max(referenceCount, 1);
+		final int[] faceOffsets = new int[faceCount + 1];
+		getFaceOffsets(mesh).get(faceOffsets);
+		final int[] vertexIndices = new int[streamLength];
+		getVertexIndices(mesh).get(vertexIndices, 0, referenceCount);
+		final int[] texCoordIndices = copyStream(getTexCoordIndices(mesh), streamLength, referenceCount);
+		final int[] normalIndices = copyStream(getNormalIndices(mesh), streamLength, referenceCount);
+		final int[] smoothingGroups = copyStream(getSmoothingGroups(mesh), faceCount, faceCount);
+		result.setData(faceOffsets, faceCount, vertexIndices, texCoordIndices, normalIndices, referenceCount, smoothingGroups);
+		return result;
+	}
+
+	private OBJMesh createMesh(int mesh) {
+		final OBJMesh result = new OBJMesh();
+		result.setMaterialName(meshMaterialNames[mesh]);
+		result.getBounds().extend(meshBounds[mesh]);
+		final int faceCount = meshFaceCounts[mesh];
+		result.ensureCapacity(faceCount, meshReferenceCounts[mesh]);
+		final IntBuffer faceOffsets = getFaceOffsets(mesh);
+		final IntBuffer vertexIndices = getVertexIndices(mesh);
+		final IntBuffer texCoordIndices = getTexCoordIndices(mesh);
+		final IntBuffer normalIndices = getNormalIndices(mesh);
+		final IntBuffer smoothingGroups = getSmoothingGroups(mesh);
+		for (int i = 0; i < faceCount; ++i) {
+			final OBJFace face = new OBJFace();
+			for (int j = faceOffsets.get(i); j < faceOffsets.get(i + 1); ++j) {
+				final OBJDataReference reference = new OBJDataReference();
+				reference.vertexIndex = vertexIndices.get(j);
+				if (texCoordIndices != null) {
+					reference.texCoordIndex = texCoordIndices.get(j);
+				}
+				if (normalIndices != null) {
+					reference.normalIndex = normalIndices.get(j);
+				}
+				face.getReferences().add(reference);
+			}
+			if (smoothingGroups != null) {
+				face.setSmoothingGroup(smoothingGroups.get(i));
+			}
+			result.getFaces().add(face);
+		}
+		return result;
+	}
+
+	private static int[] copyStream(IntBuffer stream, int length, int count) {
+		if (stream == null) {
+			return null;
+		}
+		final int[] result = new int[length];
+		stream.get(result, 0, count);
+		return result;
+	}
+
+	private boolean hasFlag(int mesh, int flag) {
+		return (meshFlags[mesh] & flag) != 0;
+	}
+
+	private int normalIndicesOffset(int mesh) {
+		int offset = meshFaceCounts[mesh] + 1 + meshReferenceCounts[mesh];
+		if (hasFlag(mesh, OBJBinaryFormat.MESH_TEXCOORDS)) {
+			offset += meshReferenceCounts[mesh];
+		}
+		return offset;
+	}
+
+	private IntBuffer ints(int mesh, int offset, int count) {
+		final IntBuffer buffer = meshData[mesh].duplicate().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		((Buffer) buffer).position(offset);
+		((Buffer) buffer).limit(offset + count);
+		return buffer.slice().asReadOnlyBuffer();
+	}
+
+	private static FloatBuffer floats(ByteBuffer section) {
+		return section.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().asReadOnlyBuffer();
+	}
+
+	private ByteBuffer map(FileChannel channel, long offset, long length, long size) throws IOException {
+		if ((offset < 0L) || (length < 0L) || (offset + length > size)) {
+			throw new WFCorruptException("Binary model section is out of bounds.");
+		}
+		return map(channel, offset, length);
+	}
+
+	private ByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+		if (file != null) {
+			final ByteBuffer section = file.duplicate();
+			((Buffer) section).position((int) offset);
+			((Buffer) section).limit((int) (offset + length));
+			return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Binary model section is too large to be mapped: " + length + " bytes");
+		}
+		return channel.map(MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes {@link OBJModel} instances as binary model files,
+ * which can be mapped back through {@link OBJBinaryModel}.
+ * <p>
+ * Vertices, texture coordinates, normals and the faces of each
+ * mesh are written as raw little-endian sections, so that they can
+ * be loaded back without any parsing. Models of any kind can be
+ * written, though {@link OBJPackedModel} and {@link OBJPackedMesh}
+ * instances are written directly from their backing arrays.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJBinaryWriter {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Creates a new instance of {@link OBJBinaryWriter}.
+	 */
+	public OBJBinaryWriter() {
+		super();
+	}
+
+	/**
+	 * Writes the specified model to the file at the specified path.
+	 * <p>
+	 * The file is created if it does not exist and is
+	 * replaced otherwise.
+	 * @param model the model to write
+	 * @param path path of the file
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void write(OBJModel model, Path path) throws IOException {
+		write(model, path, 0L, 0L);
+	}
+
+	/**
+	 * Writes the specified model to the file at the specified path,
+	 * recording the size and the last modification time of the OBJ
+	 * resource that the model was parsed from.
+	 * @param model the model to write
+	 * @param path path of the file
+	 * @param sourceSize size of the source resource in bytes
+	 * @param sourceModified last modification time of the source
+	 * resource in milliseconds since the epoch
+	 * @throws IOException if an I/O error occurs
+	 * @see OBJBinaryModel#getSourceSize()
+	 * @see OBJBinaryModel#getSourceModified()
+	 */
+	public void write(OBJModel model, Path path, long sourceSize, long sourceModified) throws IOException {
+		write(model, path, sourceSize, sourceModified, null);
+	}
+
+	/*
+	 * Limit counts are recorded as unknown if null is specified.
+	 */
+	void write(OBJModel model, Path path, long sourceSize, long sourceModified, OBJLimitCounts limitCounts) throws IOException {
+		final Layout layout = new Layout(model);
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			final Output output = new Output(channel);
+			writeHeader(output, layout, sourceSize, sourceModified, limitCounts);
+			writeTables(output, layout);
+			output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+			writeElements(output, model);
+			for (MeshEntry entry : layout.meshes) {
+				writeMesh(output, entry);
+			}
+			output.flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void writeHeader(Output output, Layout layout, long sourceSize, long sourceModified,
+			OBJLimitCounts limitCounts) throws IOException {
+		output.putInt(OBJBinaryFormat.MAGIC);
+		output.putInt(OBJBinaryFormat.VERSION);
+		output.putLong(0L);
+		output.putLong(sourceSize);
+		output.putLong(sourceModified);
+		output.putInt(layout.vertexCount);
+		output.putInt(layout.texCoordCount);
+		output.putInt(layout.normalCount);
+		output.putInt(layout.materialLibraries.size());
+		output.putInt(layout.objects.size());
+		output.putInt(layout.meshes.size());
+		output.putLong(layout.dataOffset);
+		writeLimitCounts(output, limitCounts);
+		output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+	}
+
+	private void writeLimitCounts(Output output, OBJLimitCounts limitCounts) throws IOException {
+		if (limitCounts == null) {
+			for (int i = 0; i < OBJLimitCounts.SIZE; i += OBJBinaryFormat.INT_SIZE) {
+				output.putInt(OBJLimitCounts.UNKNOWN);
+			}
+			return;
+		}
+		output.putInt(limitCounts.commentCount);
+		output.putInt(limitCounts.vertexCount);
+		output.putInt(limitCounts.texCoordCount);
+		output.putInt(limitCounts.normalCount);
+		output.putInt(limitCounts.objectCount);
+		output.putInt(limitCounts.faceCount);
+		output.putInt(limitCounts.dataReferenceCount);
+		output.putInt(limitCounts.materialLibraryCount);
+		output.putInt(limitCounts.materialReferenceCount);
+	}
+
+	private void writeTables(Output output, Layout layout) throws IOException {
+		for (byte[] materialLibrary : layout.materialLibraries) {
+			output.putString(materialLibrary);
+		}
+		output.putBounds(layout.model.getBounds());
+		for (ObjectEntry entry : layout.objects) {
+			output.putString(entry.name);
+			output.putInt(entry.object.getMeshes().size());
+			output.putBounds(entry.object.getBounds());
+		}
+		for (MeshEntry entry : layout.meshes) {
+			output.putString(entry.materialName);
+			output.putInt(entry.faceCount);
+			output.putInt(entry.referenceCount);
+			output.putInt(entry.flags);
+			output.putLong(entry.dataOffset);
+			output.putBounds(entry.mesh.getBounds());
+		}
+	}
+
+	private void writeElements(Output output, OBJModel model) throws IOException {
+		if (model instanceof OBJPackedModel) {
+			final OBJPackedModel packedModel = (OBJPackedModel) model;
+			final int texCoordCount = packedModel.getTexCoordCount();
+			output.putFloats(packedModel.getVertexData(), packedModel.getVertexCount() * OBJPackedModel.VERTEX_STRIDE);
+			output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+			output.putFloats(packedModel.getTexCoordData(), texCoordCount * OBJPackedModel.TEXCOORD_STRIDE);
+			output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+			for (int i = 0; i < texCoordCount; ++i) {
+				output.putByte((byte) packedModel.getTexCoordType(i).ordinal());
+			}
+			output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+			output.putFloats(packedModel.getNormalData(), packedModel.getNormalCount() * OBJPackedModel.NORMAL_STRIDE);
+			output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+			return;
+		}
+		for (OBJVertex vertex : model.getVertices()) {
+			output.putFloat(vertex.x);
+			output.putFloat(vertex.y);
+			output.putFloat(vertex.z);
+		}
+		output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+		for (OBJTexCoord texCoord : model.getTexCoords()) {
+			output.putFloat(texCoord.u);
+			output.putFloat(texCoord.v);
+			output.putFloat(texCoord.w);
+		}
+		output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+		for (OBJTexCoord texCoord : model.getTexCoords()) {
+			output.putByte((byte) texCoord.type.ordinal());
+		}
+		output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+		for (OBJNormal normal : model.getNormals()) {
+			output.putFloat(normal.x);
+			output.putFloat(normal.y);
+			output.putFloat(normal.z);
+		}
+		output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+	}
+
+	private void writeMesh(Output output, MeshEntry entry) throws IOException {
+		if (entry.mesh instanceof OBJPackedMesh) {
+			final OBJPackedMesh mesh = (OBJPackedMesh) entry.mesh;
+			output.putInts(mesh.getFaceOffsets(), entry.faceCount + 1);
+			output.putInts(mesh.getVertexIndices(), entry.referenceCount);
+			if ((entry.flags & OBJBinaryFormat.MESH_TEXCOORDS) != 0) {
+				output.putInts(mesh.getTexCoordIndices(), entry.referenceCount);
+			}
+			if ((entry.flags & OBJBinaryFormat.MESH_NORMALS) != 0) {
+				output.putInts(mesh.getNormalIndices(), entry.referenceCount);
+			}
+			if ((entry.flags & OBJBinaryFormat.MESH_SMOOTHING_GROUPS) != 0) {
+				output.putInts(mesh.getSmoothingGroups(), entry.faceCount);
+			}
+			output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+			return;
+		}
+		final List<OBJFace> faces = entry.mesh.getFaces();
+		int offset = 0;
+		output.putInt(offset);
+		for (OBJFace face : faces) {
+			offset += face.getReferences().size();
+			output.putInt(offset);
+		}
+		for (OBJFace face : faces) {
+			for (OBJDataReference reference : face.getReferences()) {
+				output.putInt(reference.vertexIndex);
+			}
+		}
+		if ((entry.flags & OBJBinaryFormat.MESH_TEXCOORDS) != 0) {
+			for (OBJFace face : faces) {
+				for (OBJDataReference reference : face.getReferences()) {
+					output.putInt(reference.texCoordIndex);
+				}
+			}
+		}
+		if ((entry.flags & OBJBinaryFormat.MESH_NORMALS) != 0) {
+			for (OBJFace face : faces) {
+				for (OBJDataReference reference : face.getReferences()) {
+					output.putInt(reference.normalIndex);
+				}
+			}
+		}
+		if ((entry.flags & OBJBinaryFormat.MESH_SMOOTHING_GROUPS) != 0) {
+			for (OBJFace face : faces) {
+				output.putInt(face.getSmoothingGroup());
+			}
+		}
+		output.pad(OBJBinaryFormat.SECTION_ALIGNMENT);
+	}
+
+	/*
+	 * Collects the counts, strings and offsets of a model, so
+	 * that the tables can be written ahead of the data.
+	 */
+	private static final class Layout {
+
+		public final OBJModel model;
+		public final List<byte[]> materialLibraries = new ArrayList<byte[]>();
+		public final List<ObjectEntry> objects = new ArrayList<ObjectEntry>();
+		public final List<MeshEntry> meshes = new ArrayList<MeshEntry>();
+		public final int vertexCount;
+		public final int texCoordCount;
+		public final int normalCount;
+		public final long dataOffset;
+
+		public Layout(OBJModel model) {
+			this.model = model;
+			this.vertexCount = model.getVertices().size();
+			this.texCoordCount = model.getTexCoords().size();
+			this.normalCount = model.getNormals().size();
+
+			long tableSize = OBJBinaryFormat.BOUNDS_SIZE * OBJBinaryFormat.FLOAT_SIZE;
+			for (String materialLibrary : model.getMaterialLibraries()) {
+				final byte[] bytes = OBJBinaryFormat.encode(materialLibrary);
+				materialLibraries.add(bytes);
+				tableSize += OBJBinaryFormat.stringSize(bytes);
+			}
+			for (OBJObject object : model.getObjects()) {
+				final ObjectEntry objectEntry = new ObjectEntry(object);
+				objects.add(objectEntry);
+				tableSize += OBJBinaryFormat.stringSize(objectEntry.name);
+				tableSize += OBJBinaryFormat.INT_SIZE + OBJBinaryFormat.BOUNDS_SIZE * OBJBinaryFormat.FLOAT_SIZE;
+				for (OBJMesh mesh : object.getMeshes()) {
+					final MeshEntry meshEntry = new MeshEntry(mesh);
+					meshes.add(meshEntry);
+					tableSize += OBJBinaryFormat.stringSize(meshEntry.materialName);
+					tableSize += 3 * OBJBinaryFormat.INT_SIZE + OBJBinaryFormat.LONG_SIZE + OBJBinaryFormat.BOUNDS_SIZE * OBJBinaryFormat.FLOAT_SIZE;
+				}
+			}
+			this.dataOffset = OBJBinaryFormat.align(OBJBinaryFormat.HEADER_SIZE + tableSize, OBJBinaryFormat.SECTION_ALIGNMENT);
+
+			long offset = dataOffset;
+			offset += OBJBinaryFormat.align((long) vertexCount * OBJPackedModel.VERTEX_STRIDE * OBJBinaryFormat.FLOAT_SIZE, OBJBinaryFormat.SECTION_ALIGNMENT);
+			offset += OBJBinaryFormat.align((long) texCoordCount * OBJPackedModel.TEXCOORD_STRIDE * OBJBinaryFormat.FLOAT_SIZE, OBJBinaryFormat.SECTION_ALIGNMENT);
+			offset += OBJBinaryFormat.align(texCoordCount, OBJBinaryFormat.SECTION_ALIGNMENT);
+			offset += OBJBinaryFormat.align((long) normalCount * OBJPackedModel.NORMAL_STRIDE * OBJBinaryFormat.FLOAT_SIZE, OBJBinaryFormat.SECTION_ALIGNMENT);
+			for (MeshEntry entry : meshes) {
+				entry.dataOffset = offset;
+				offset += OBJBinaryFormat.meshDataSize(entry.faceCount, entry.referenceCount, entry.flags);
+			}
+		}
+
+	}
+
+	private static final class ObjectEntry {
+
+		public final OBJObject object;
+		public final byte[] name;
+
+		public ObjectEntry(OBJObject object) {
+			this.object = object;
+			this.name = OBJBinaryFormat.encode(object.getName());
+		}
+
+	}
+
+	private static final class MeshEntry {
+
+		public final OBJMesh mesh;
+		public final byte[] materialName;
+		public final int faceCount;
+		public final int referenceCount;
+		public final int flags;
+		public long dataOffset;
+
+		public MeshEntry(OBJMesh mesh) {
+			this.mesh = mesh;
+			this.materialName = OBJBinaryFormat.encode(mesh.getMaterialName());
+			if (mesh instanceof OBJPackedMesh) {
+				final OBJPackedMesh packedMesh = (OBJPackedMesh) mesh;
+				this.faceCount = packedMesh.getFaceCount();
+				this.referenceCount = packedMesh.getReferenceCount();
+				int flags = 0;
+				if (packedMesh.getTexCoordIndices() != null) {
+					flags |= OBJBinaryFormat.MESH_TEXCOORDS;
+				}
+				if (packedMesh.getNormalIndices() != null) {
+					flags |= OBJBinaryFormat.MESH_NORMALS;
+				}
+				if (packedMesh.getSmoothingGroups() != null) {
+					flags |= OBJBinaryFormat.MESH_SMOOTHING_GROUPS;
+				}
+				this.flags = flags;
+				return;
+			}
+			int referenceCount = 0;
+			int flags = 0;
+			for (OBJFace face : mesh.getFaces()) {
+				for (OBJDataReference reference : face.getReferences()) {
+					if (reference.hasTexCoordIndex()) {
+						flags |= OBJBinaryFormat.MESH_TEXCOORDS;
+					}
+					if (reference.hasNormalIndex()) {
+						flags |= OBJBinaryFormat.MESH_NORMALS;
+					}
+				}
+				if (face.getSmoothingGroup() != OBJFace.SMOOTHING_GROUP_OFF) {
+					flags |= OBJBinaryFormat.MESH_SMOOTHING_GROUPS;
+				}
+				referenceCount += face.getReferences().size();
+			}
+			this.faceCount = mesh.getFaces().size();
+			this.referenceCount = referenceCount;
+			this.flags = flags;
+		}
+
+	}
+
+	/*
+	 * Buffers little-endian values and writes them to
+	 * a channel in large blocks.
+	 */
+	private static final class Output {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private long position = 0L;
+
+		public Output(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		public void putByte(byte value) throws IOException {
+			ensureRemaining(1);
+			buffer.put(value);
+			position++;
+		}
+
+		public void putInt(int value) throws IOException {
+			ensureRemaining(OBJBinaryFormat.INT_SIZE);
+			buffer.putInt(value);
+			position += OBJBinaryFormat.INT_SIZE;
+		}
+
+		public void putLong(long value) throws IOException {
+			ensureRemaining(OBJBinaryFormat.LONG_SIZE);
+			buffer.putLong(value);
+			position += OBJBinaryFormat.LONG_SIZE;
+		}
+
+		public void putFloat(float value) throws IOException {
+			ensureRemaining(OBJBinaryFormat.FLOAT_SIZE);
+			buffer.putFloat(value);
+			position += OBJBinaryFormat.FLOAT_SIZE;
+		}
+
+		public void putFloats(float[] values, int length) throws IOException {
+			int offset = 0;
+			while (offset < length) {
+				ensureRemaining(OBJBinaryFormat.FLOAT_SIZE);
+				final int count = Math.min(length - offset, buffer.remaining() / OBJBinaryFormat.FLOAT_SIZE);
+				buffer.asFloatBuffer().put(values, offset, count);
+				((Buffer) buffer).position(buffer.position() + count * OBJBinaryFormat.FLOAT_SIZE);
+				position += (long) count * OBJBinaryFormat.FLOAT_SIZE;
+				offset += count;
+			}
+		}
+
+		public void putInts(int[] values, int length) throws IOException {
+			int offset = 0;
+			while (offset < length) {
+				ensureRemaining(OBJBinaryFormat.INT_SIZE);
+				final int count = Math.min(length - offset, buffer.remaining() / OBJBinaryFormat.INT_SIZE);
+				buffer.asIntBuffer().put(values, offset, count);
+				((Buffer) buffer).position(buffer.position() + count * OBJBinaryFormat.INT_SIZE);
+				position += (long) count * OBJBinaryFormat.INT_SIZE;
+				offset += count;
+			}
+		}
+
+		public void putString(byte[] bytes) throws IOException {
+			if (bytes == null) {
+				putInt(OBJBinaryFormat.NULL_STRING);
+			} else {
+				putInt(bytes.length);
+				for (byte value : bytes) {
+					putByte(value);
+				}
+			}
+			pad(OBJBinaryFormat.STRING_ALIGNMENT);
+		}
+
+		public void putBounds(OBJBounds bounds) throws IOException {
+			putFloat(bounds.minX);
+			putFloat(bounds.minY);
+			putFloat(bounds.minZ);
+			putFloat(bounds.maxX);
+			putFloat(bounds.maxY);
+			putFloat(bounds.maxZ);
+			putFloat(bounds.centerX);
+			putFloat(bounds.centerY);
+			putFloat(bounds.centerZ);
+			putFloat(bounds.radius);
+		}
+
+		public void pad(int alignment) throws IOException {
+			while (position % alignment != 0) {
+				putByte((byte) 0);
+			}
+		}
+
+		public void flush() throws IOException {
+			((Buffer) buffer).flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			((Buffer) buffer).clear();
+		}
+
+		private void ensureRemaining(int size) throws IOException {
+			if (buffer.remaining() < size) {
+				flush();
+			}
+		}
+
+	}
+
+}
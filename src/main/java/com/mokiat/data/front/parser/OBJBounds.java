@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+/**
+ * This class represents the bounding volumes of a set of vertex
+ * positions.
+ * <p>
+ * It holds an axis-aligned bounding box and, optionally, a bounding
+ * sphere. The box is empty until the first position is included, in
+ * which case its minimum values are larger than its maximum values.
+ * The sphere is only available if its radius is not negative.
+ * <p>
+ * The sphere is grown incrementally as positions are included. It
+ * always contains all of them but is, in general, slightly larger
+ * than the minimal enclosing sphere.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJBounds {
+
+    /**
+     * Specifies the minimum X coordinate of the bounding box.
+     */
+    public float minX = Float.POSITIVE_INFINITY;
+
+    /**
+     * Specifies the minimum Y coordinate of the bounding box.
+     */
+    public float minY = Float.POSITIVE_INFINITY;
+
+    /**
+     * Specifies the minimum Z coordinate of the bounding box.
+     */
+    public float minZ = Float.POSITIVE_INFINITY;
+
+    /**
+     * Specifies the maximum X coordinate of the bounding box.
+     */
+    public float maxX = Float.NEGATIVE_INFINITY;
+
+    /**
+     * Specifies the maximum Y coordinate of the bounding box.
+     */
+    public float maxY = Float.NEGATIVE_INFINITY;
+
+    /**
+     * Specifies the maximum Z coordinate of the bounding box.
+     */
+    public float maxZ = Float.NEGATIVE_INFINITY;
+
+    /**
+     * Specifies the X coordinate of the bounding sphere center.
+     */
+    public float centerX = 0.0f;
+
+    /**
+     * Specifies the Y coordinate of the bounding sphere center.
+     */
+    public float centerY = 0.0f;
+
+    /**
+     * Specifies the Z coordinate of the bounding sphere center.
+     */
+    public float centerZ = 0.0f;
+
+    /**
+     * Specifies the radius of the bounding sphere. A negative
+     * value indicates that there is no bounding sphere.
+     */
+    public float radius = -1.0f;
+
+    /**
+     * Creates a new empty {@link OBJBounds}.
+     */
+    public OBJBounds() {
+        super();
+    }
+
+    /**
+     * Returns whether the bounding box is empty.
+     * @return <code>true</code> if no position has been
+     * included, <code>false</code> otherwise
+     */
+    public boolean isEmpty() {
+        return !(minX <= maxX);
+    }
+
+    /**
+     * Returns whether a bounding sphere is available.
+     * @return <code>true</code> if there is a bounding sphere,
+     * <code>false</code> otherwise
+     */
+    public boolean hasSphere() {
+        return (radius >= 0.0f);
+    }
+
+    /**
+     * Extends the bounding box so that it includes
+     * the specified position.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     */
+    public void extend(float x, float y, float z) {
+        if (x < minX) {
+            minX = x;
+        }
+        if (x > maxX) {
+            maxX = x;
+        }
+        if (y < minY) {
+            minY = y;
+        }
+        if (y > maxY) {
+            maxY = y;
+        }
+        if (z < minZ) {
+            minZ = z;
+        }
+        if (z > maxZ) {
+            maxZ = z;
+        }
+    }
+
+    /**
+     * Extends the bounding sphere so that it includes the
+     * specified position. The bounding box is not changed.
+     * <p>
+     * If there is no bounding sphere, one with a zero radius
+     * is created at the specified position.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     */
+    public void extendSphere(float x, float y, float z) {
+        if (radius < 0.0f) {
+            centerX = x;
+            centerY = y;
+            centerZ = z;
+            radius = 0.0f;
+            return;
+        }
+        final float deltaX = x - centerX;
+        final float deltaY = y - centerY;
+        final float deltaZ = z - centerZ;
+        final float distanceSquared = deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ;
+        if (distanceSquared <= radius * radius) {
+            return;
+        }
+        // Move the center towards the position just enough for the
+        // opposite side of the sphere to remain in place.
+        final float distance = (float) Math.sqrt(distanceSquared);
+        final float newRadius = (radius + distance) * 0.5f;
+        final float shift = (newRadius - radius) / distance;
+        centerX += deltaX * shift;
+        centerY += deltaY * shift;
+        centerZ += deltaZ * shift;
+        radius = newRadius;
+    }
+
+    /**
+     * Extends these bounds so that they include the specified
+     * bounds.
+     * <p>
+     * The bounding sphere is only extended if the specified
+     * bounds have one.
+     * @param other the bounds to be included
+     */
+    public void extend(OBJBounds other) {
+        if (!other.isEmpty()) {
+            extend(other.minX, other.minY, other.minZ);
+            extend(other.maxX, other.maxY, other.maxZ);
+        }
+        if (!other.hasSphere()) {
+            return;
+        }
+        if (!hasSphere()) {
+            centerX = other.centerX;
+            centerY = other.centerY;
+            centerZ = other.centerZ;
+            radius = other.radius;
+            return;
+        }
+        final float deltaX = other.centerX - centerX;
+        final float deltaY = other.centerY - centerY;
+        final float deltaZ = other.centerZ - centerZ;
+        final float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ);
+        if (distance + other.radius <= radius) {
+            return;
+        }
+        if (distance + radius <= other.radius) {
+            centerX = other.centerX;
+            centerY = other.centerY;
+            centerZ = other.centerZ;
+            radius = other.radius;
+            return;
+        }
+        final float newRadius = (distance + radius + other.radius) * 0.5f;
+        final float shift = (newRadius - radius) / distance;
+        centerX += deltaX * shift;
+        centerY += deltaY * shift;
+        centerZ += deltaZ * shift;
+        radius = newRadius;
+    }
+
+    /**
+     * Resets these bounds to an empty bounding box
+     * and no bounding sphere.
+     */
+    public void reset() {
+        minX = Float.POSITIVE_INFINITY;
+        minY = Float.POSITIVE_INFINITY;
+        minZ = Float.POSITIVE_INFINITY;
+        maxX = Float.NEGATIVE_INFINITY;
+        maxY = Float.NEGATIVE_INFINITY;
+        maxZ = Float.NEGATIVE_INFINITY;
+        centerX = 0.0f;
+        centerY = 0.0f;
+        centerZ = 0.0f;
+        radius = -1.0f;
+    }
+
+}
@@ -27,7 +27,15 @@ import java.util.List;
  */
 public class OBJFace {
 
-    private final List<OBJDataReference> references = new ArrayList<OBJDataReference>(4);
+    /**
+     * Smoothing group of faces that are not smoothed.
+     */
+    public static final int SMOOTHING_GROUP_OFF = 0;
+
+    static final int DEFAULT_REFERENCE_CAPACITY = 4;
+
+    private final List<OBJDataReference> references;
+    private int smoothingGroup = SMOOTHING_GROUP_OFF;
     
     /**
      * Creates a new default {@link OBJFace}.
@@ -36,7 +44,15 @@ public class OBJFace {
      * as a face should have at least three references to make a triangle.
      */
     public OBJFace() {
-        super();
+        this(DEFAULT_REFERENCE_CAPACITY);
+    }
+
+    /*
+     * Creates a face whose reference list can hold the
+     * specified number of references without growing.
+     */
+    OBJFace(int referenceCapacity) {
+        references = new ArrayList<OBJDataReference>(referenceCapacity);
     }
 
     /**
@@ -50,6 +66,27 @@ public class OBJFace {
     public List<OBJDataReference> getReferences() {
         return references;
     }
+
+    /**
+     * Returns the smoothing group (s) of this face.
+     * <p>
+     * Faces that share a smoothing group should share
+     * normals where they share vertices.
+     * @return the positive smoothing group, or {@link #SMOOTHING_GROUP_OFF}
+     * if this face is not smoothed.
+     */
+    public int getSmoothingGroup() {
+        return smoothingGroup;
+    }
+
+    /**
+     * Sets the smoothing group (s) of this face.
+     * @param smoothingGroup the positive smoothing group, or
+     * {@link #SMOOTHING_GROUP_OFF} if this face is not smoothed.
+     */
+    public void setSmoothingGroup(int smoothingGroup) {
+        this.smoothingGroup = smoothingGroup;
+    }
     
     /**
      * A helper methods that returns whether this face
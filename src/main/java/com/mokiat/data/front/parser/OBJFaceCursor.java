@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+/**
+ * A reusable, allocation-free view of the faces of an {@link OBJPackedMesh}.
+ * <p>
+ * The cursor is positioned on one face at a time, either by iterating
+ * with {@link #next()} or by calling {@link #moveTo(int)}, and provides
+ * access to the indices of that face's data references.
+ * <p>
+ * <strong>Example:</strong>
+ * <pre>
+ * final OBJFaceCursor cursor = mesh.newFaceCursor();
+ * while (cursor.next()) {
+ *     for (int i = 0; i &lt; cursor.getReferenceCount(); ++i) {
+ *         final int vertexIndex = cursor.getVertexIndex(i);
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ * 
+ */
+public class OBJFaceCursor {
+
+    private final OBJPackedMesh mesh;
+    private int face = -1;
+    private int start = 0;
+    private int end = 0;
+
+    /**
+     * Creates a new {@link OBJFaceCursor} positioned before
+     * the first face of the specified mesh.
+     * @param mesh the mesh whose faces will be traversed
+     */
+    public OBJFaceCursor(OBJPackedMesh mesh) {
+        this.mesh = mesh;
+    }
+
+    /**
+     * Moves the cursor to the next face.
+     * @return <code>true</code> if the cursor is positioned on
+     * a face, <code>false</code> if there are no more faces
+     */
+    public boolean next() {
+        if (face + 1 >= mesh.getFaceCount()) {
+            face = mesh.getFaceCount();
+            return false;
+        }
+        moveTo(face + 1);
+        return true;
+    }
+
+    /**
+     * Positions the cursor on the face with the specified index.
+     * @param face index of the face
+     */
+    public void moveTo(int face) {
+        if ((face < 0) || (face >= mesh.getFaceCount())) {
+            throw new IndexOutOfBoundsException("Index: " + face + ", Size: " + mesh.getFaceCount());
+        }
+        final int[] offsets = mesh.getFaceOffsets();
+        this.face = face;
+        this.start = offsets[face];
+        this.end = offsets[face + 1];
+    }
+
+    /**
+     * Positions the cursor before the first face.
+     */
+    public void reset() {
+        face = -1;
+        start = 0;
+        end = 0;
+    }
+
+    /**
+     * Returns the index of the current face.
+     * @return face index
+     */
+    public int getFaceIndex() {
+        return face;
+    }
+
+    /**
+     * Returns the number of data references of the current face.
+     * @return reference count
+     */
+    public int getReferenceCount() {
+        return end - start;
+    }
+
+    /**
+     * Returns the smoothing group of the current face.
+     * @return the smoothing group or {@link OBJFace#SMOOTHING_GROUP_OFF}
+     */
+    public int getSmoothingGroup() {
+        return mesh.getSmoothingGroup(face);
+    }
+
+    /**
+     * Returns the vertex index of a data reference of the current face.
+     * @param corner index of the data reference within the face
+     * @return the vertex index
+     */
+    public int getVertexIndex(int corner) {
+        return mesh.getVertexIndex(start + corner);
+    }
+
+    /**
+     * Returns the texture coordinate index of a data reference
+     * of the current face.
+     * @param corner index of the data reference within the face
+     * @return the texture coordinate index or
+     * {@link OBJDataReference#UNDEFINED_INDEX}
+     */
+    public int getTexCoordIndex(int corner) {
+        return mesh.getTexCoordIndex(start + corner);
+    }
+
+    /**
+     * Returns the normal index of a data reference of the current face.
+     * @param corner index of the data reference within the face
+     * @return the normal index or {@link OBJDataReference#UNDEFINED_INDEX}
+     */
+    public int getNormalIndex(int corner) {
+        return mesh.getNormalIndex(start + corner);
+    }
+
+    /**
+     * Returns whether the current face has texture coordinate data,
+     * based on its first data reference.
+     * @return <code>true</code> if texture coordinates are referenced
+     */
+    public boolean hasTextureCoordinates() {
+        return (end > start) && (getTexCoordIndex(0) != OBJDataReference.UNDEFINED_INDEX);
+    }
+
+    /**
+     * Returns whether the current face has normal data,
+     * based on its first data reference.
+     * @return <code>true</code> if normals are referenced
+     */
+    public boolean hasNormals() {
+        return (end > start) && (getNormalIndex(0) != OBJDataReference.UNDEFINED_INDEX);
+    }
+
+}
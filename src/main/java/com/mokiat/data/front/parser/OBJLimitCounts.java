@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import java.nio.ByteBuffer;
+
+import com.mokiat.data.front.common.OBJLimits;
+
+/**
+ * Internal class that holds the number of events of each kind
+ * that are restricted through {@link OBJLimits}, as seen while
+ * parsing an OBJ resource.
+ * <p>
+ * The counts are recorded in binary model files, so that models
+ * loaded from an {@link OBJModelCache} honor the same limits as
+ * models that are parsed.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class OBJLimitCounts {
+
+	public static final int SIZE = 9 * OBJBinaryFormat.INT_SIZE;
+
+	public static final int UNKNOWN = -1;
+
+	public int commentCount;
+	public int vertexCount;
+	public int texCoordCount;
+	public int normalCount;
+	public int objectCount;
+	public int faceCount;
+	public int dataReferenceCount;
+	public int materialLibraryCount;
+	public int materialReferenceCount;
+
+	/*
+	 * Returns whether a parse with the specified limits
+	 * would have succeeded.
+	 */
+	public boolean fits(OBJLimits limits) {
+		return (commentCount <= limits.maxCommentCount)
+				&& (vertexCount <= limits.maxVertexCount)
+				&& (texCoordCount <= limits.maxTexCoordCount)
+				&& (normalCount <= limits.maxNormalCount)
+				&& (objectCount <= limits.maxObjectCount)
+				&& (faceCount <= limits.maxFaceCount)
+				&& (dataReferenceCount <= limits.maxDataReferenceCount)
+				&& (materialLibraryCount <= limits.maxMaterialLibraryCount)
+				&& (materialReferenceCount <= limits.maxMaterialReferenceCount);
+	}
+
+	/*
+	 * Reads counts that start at the specified offset. Returns null
+	 * if the counts were not known when the file was written.
+	 */
+	public static OBJLimitCounts read(ByteBuffer buffer, int offset) {
+		if (buffer.getInt(offset) == UNKNOWN) {
+			return null;
+		}
+		final OBJLimitCounts counts = new OBJLimitCounts();
+		counts.commentCount = buffer.getInt(offset);
+		counts.vertexCount = buffer.getInt(offset + 4);
+		counts.texCoordCount = buffer.getInt(offset + 8);
+		counts.normalCount = buffer.getInt(offset + 12);
+		counts.objectCount = buffer.getInt(offset + 16);
+		counts.faceCount = buffer.getInt(offset + 20);
+		counts.dataReferenceCount = buffer.getInt(offset + 24);
+		counts.materialLibraryCount = buffer.getInt(offset + 28);
+		counts.materialReferenceCount = buffer.getInt(offset + 32);
+		return counts;
+	}
+
+}
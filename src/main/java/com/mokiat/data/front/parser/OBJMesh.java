@@ -34,7 +34,8 @@ import java.util.List;
  */
 public class OBJMesh {
 
-    private final List<OBJFace> faces = new ArrayList<OBJFace>();
+    private final ArrayList<OBJFace> faces = new ArrayList<OBJFace>();
+    private final OBJBounds bounds = new OBJBounds();
     private String materialName = null;
 
     /**
@@ -74,4 +75,25 @@ public class OBJMesh {
     public List<OBJFace> getFaces() {
         return faces;
     }
+
+    /**
+     * Returns the bounds of all vertices that are referenced by
+     * faces of this mesh.
+     * <p>
+     * Bounds are computed by the parser while faces are read. They are
+     * not updated when the mesh is modified afterwards.
+     * @return non-null writable {@link OBJBounds} instance
+     */
+    public OBJBounds getBounds() {
+        return bounds;
+    }
+
+    /*
+     * Makes sure that the specified number of faces, with the specified
+     * total number of data references, can be added without the storage
+     * having to grow.
+     */
+    void ensureCapacity(int faceCount, int referenceCount) {
+        faces.ensureCapacity(faceCount);
+    }
 }
@@ -29,11 +29,12 @@ import java.util.List;
  */
 public class OBJModel {
 
-    private final List<OBJVertex> vertices = new ArrayList<OBJVertex>();
-    private final List<OBJTexCoord> texCoords = new ArrayList<OBJTexCoord>();
-    private final List<OBJNormal> normals = new ArrayList<OBJNormal>();
-    private final List<OBJObject> objects = new ArrayList<OBJObject>();
+    private final ArrayList<OBJVertex> vertices = new ArrayList<OBJVertex>();
+    private final ArrayList<OBJTexCoord> texCoords = new ArrayList<OBJTexCoord>();
+    private final ArrayList<OBJNormal> normals = new ArrayList<OBJNormal>();
+    private final ObjectList objects = new ObjectList();
     private final List<String> materialLibraries = new ArrayList<String>();
+    private final OBJBounds bounds = new OBJBounds();
 
     /**
      * Creates a new empty {@link OBJModel}.
@@ -60,7 +61,7 @@ public class OBJModel {
      * reference is invalid
      */
     public OBJVertex getVertex(OBJDataReference reference) {
-        return vertices.get(reference.vertexIndex);
+        return getVertices().get(reference.vertexIndex);
     }
 
     /**
@@ -82,7 +83,7 @@ public class OBJModel {
      * index in the reference is invalid
      */
     public OBJTexCoord getTexCoord(OBJDataReference reference) {
-        return texCoords.get(reference.texCoordIndex);
+        return getTexCoords().get(reference.texCoordIndex);
     }
 
     /**
@@ -102,7 +103,7 @@ public class OBJModel {
      * in the reference is invalid
      */
     public OBJNormal getNormal(OBJDataReference reference) {
-        return normals.get(reference.normalIndex);
+        return getNormals().get(reference.normalIndex);
     }
 
     /**
@@ -119,18 +120,18 @@ public class OBJModel {
      * with the specified name.
      * <p>
      * If the requested object cannot be found, 
-     * then <code>null</code> is returned.
+     * then <code>null</code> is returned. Should there be
+     * multiple objects with that name, the first one is returned.
+     * <p>
+     * Lookups go through a name index that is built on first use
+     * and is rebuilt whenever the object list or an object name
+     * changes.
      * @param name name of the requested object
      * @return an instance of {@link OBJObject} or <code>null</code>, 
      * if it cannot be found.
      */
     public OBJObject getObject(String name) {
-        for (OBJObject object : objects) {
-            if (name.equals(object.getName())) {
-                return object;
-            }
-        }
-        return null;
+        return objects.find(name);
     }
 
     /**
@@ -141,4 +142,40 @@ public class OBJModel {
     public List<String> getMaterialLibraries() {
         return materialLibraries;
     }
+
+    /**
+     * Returns the bounds of all vertices that are referenced by
+     * faces of this model.
+     * <p>
+     * Bounds are computed by the parser while faces are read. They are
+     * not updated when the model is modified afterwards.
+     * @return non-null writable {@link OBJBounds} instance
+     */
+    public OBJBounds getBounds() {
+        return bounds;
+    }
+
+    /*
+     * Makes sure that the specified number of elements can be
+     * added without the storage having to grow.
+     */
+    void ensureCapacity(int vertexCount, int texCoordCount, int normalCount) {
+        vertices.ensureCapacity(vertexCount);
+        texCoords.ensureCapacity(texCoordCount);
+        normals.ensureCapacity(normalCount);
+    }
+
+    private static final class ObjectList extends WFNamedList<OBJObject> {
+
+        @Override
+        protected String getName(OBJObject object) {
+            return object.getName();
+        }
+
+        @Override
+        protected Owners getOwners(OBJObject object) {
+            return object.getOwners();
+        }
+
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.mokiat.data.front.error.WFCorruptException;
+
+/**
+ * Stores parsed models as binary model files in a cache directory,
+ * so that they can be loaded without parsing the OBJ resource again.
+ * <p>
+ * Entries are keyed by the absolute path of the OBJ resource and
+ * are only used if the size and the last modification time of the
+ * resource still match the ones recorded when the entry was stored.
+ * Entries are written to a temporary file first and then moved in
+ * place, so concurrent readers never observe partial entries.
+ *
+ * @author Momchil Atanasov
+ *
+ * @see OBJBinaryWriter
+ * @see OBJBinaryModel
+ * @see OBJParser#setModelCache(OBJModelCache)
+ */
+public class OBJModelCache {
+
+	private static final String ENTRY_EXTENSION = ".wfb";
+	private static final String TEMP_EXTENSION = ".tmp";
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Path directory;
+
+	/**
+	 * Creates a new {@link OBJModelCache} that stores its
+	 * entries in the specified directory.
+	 * <p>
+	 * The directory is created when the first entry is stored.
+	 * @param directory the cache directory
+	 */
+	public OBJModelCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the directory in which entries are stored.
+	 * @return the cache directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the path of the entry for the specified
+	 * OBJ resource, whether the entry exists or not.
+	 * @param source path of the OBJ resource
+	 * @return path of the entry file
+	 */
+	public Path getEntry(Path source) {
+		final String key = source.toAbsolutePath().normalize().toString();
+		return directory.resolve(hash(key) + ENTRY_EXTENSION);
+	}
+
+	/**
+	 * Maps the entry of the specified OBJ resource.
+	 * <p>
+	 * If there is no entry, if the entry is stale or if it was written
+	 * by an incompatible version, then <code>null</code> is returned.
+	 * @param source path of the OBJ resource
+	 * @return an {@link OBJBinaryModel} instance or <code>null</code>
+	 * @throws IOException if an I/O error occurs
+	 */
+	public OBJBinaryModel open(Path source) throws IOException {
+		final Path entry = getEntry(source);
+		if (!Files.isRegularFile(entry)) {
+			return null;
+		}
+		final BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+		final OBJBinaryModel model;
+		try {
+			model = OBJBinaryModel.open(entry);
+		} catch (NoSuchFileException ex) {
+			return null;
+		} catch (WFCorruptException ex) {
+			return null;
+		}
+		if ((model.getSourceSize() != attributes.size())
+				|| (model.getSourceModified() != attributes.lastModifiedTime().toMillis())) {
+			return null;
+		}
+		return model;
+	}
+
+	/**
+	 * Loads the entry of the specified OBJ resource as a model.
+	 * @param source path of the OBJ resource
+	 * @param packed whether an {@link OBJPackedModel} should be created
+	 * @return a new {@link OBJModel} or <code>null</code>, if there is
+	 * no valid entry
+	 * @throws IOException if an I/O error occurs
+	 * @see #open(Path)
+	 * @see OBJBinaryModel#toModel(boolean)
+	 */
+	public OBJModel load(Path source, boolean packed) throws IOException {
+		final OBJBinaryModel model = open(source);
+		return (model != null) ? model.toModel(packed) : null;
+	}
+
+	/**
+	 * Stores the specified model as the entry of the specified OBJ
+	 * resource, recording its current size and modification time.
+	 * @param source path of the OBJ resource
+	 * @param model the model that was parsed from the resource
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void store(Path source, OBJModel model) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+		store(source, attributes.size(), attributes.lastModifiedTime().toMillis(), model);
+	}
+
+	/**
+	 * Stores the specified model as the entry of the specified OBJ
+	 * resource, recording the specified size and modification time.
+	 * <p>
+	 * Callers should read the attributes of the resource before parsing
+	 * it, so that changes made during the parse invalidate the entry.
+	 * @param source path of the OBJ resource
+	 * @param sourceSize size of the resource in bytes
+	 * @param sourceModified last modification time of the resource
+	 * in milliseconds since the epoch
+	 * @param model the model that was parsed from the resource
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void store(Path source, long sourceSize, long sourceModified, OBJModel model) throws IOException {
+		store(source, sourceSize, sourceModified, model, null);
+	}
+
+	/*
+	 * Entries stored without limit counts are only used
+	 * by parsers that have no limits.
+	 */
+	void store(Path source, long sourceSize, long sourceModified, OBJModel model, OBJLimitCounts limitCounts) throws IOException {
+		final Path entry = getEntry(source);
+		Files.createDirectories(directory);
+		final Path temp = Files.createTempFile(directory, entry.getFileName().toString(), TEMP_EXTENSION);
+		try {
+			new OBJBinaryWriter().write(model, temp, sourceSize, sourceModified, limitCounts);
+			try {
+				Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException ex) {
+				Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static String hash(String key) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 is not supported.", ex);
+		}
+		final byte[] bytes = digest.digest(key.getBytes(OBJBinaryFormat.CHARSET));
+		final char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; ++i) {
+			chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+			chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+
+}
@@ -36,6 +36,8 @@ import java.util.List;
 public class OBJObject {
 
     private final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+    private final OBJBounds bounds = new OBJBounds();
+    private final WFNamedList.Owners owners = new WFNamedList.Owners();
     private String name;
 
     /**
@@ -69,6 +71,7 @@ public class OBJObject {
      */
     public void setName(String name) {
         this.name = name;
+        owners.onRenamed();
     }
 
     /**
@@ -95,4 +98,24 @@ public class OBJObject {
         return meshes;
     }
 
+    /**
+     * Returns the bounds of all vertices that are referenced by
+     * faces of this object.
+     * <p>
+     * Bounds are computed by the parser while faces are read. They are
+     * not updated when the object is modified afterwards.
+     * @return non-null writable {@link OBJBounds} instance
+     */
+    public OBJBounds getBounds() {
+        return bounds;
+    }
+
+    /*
+     * Returns the lists that hold this object, so that
+     * they can be notified when its name changes.
+     */
+    WFNamedList.Owners getOwners() {
+        return owners;
+    }
+
 }
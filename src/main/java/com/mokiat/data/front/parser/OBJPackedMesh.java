@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Represents a mesh whose faces are stored in a compressed sparse row
+ * layout instead of as {@link OBJFace} and {@link OBJDataReference}
+ * objects.
+ * <p>
+ * The data references of all faces are stored one after the other
+ * in packed <code>int</code> index streams and an offsets array
+ * specifies where the references of each face begin. The references
+ * of face <code>i</code> are those between <code>getFaceOffsets()[i]</code>
+ * (inclusive) and <code>getFaceOffsets()[i + 1]</code> (exclusive).
+ * Index streams for texture coordinates and normals are only allocated
+ * once a face references such an element. Missing indices are
+ * {@link OBJDataReference#UNDEFINED_INDEX}. Likewise, smoothing groups
+ * are only stored, one per face, once a face is smoothed.
+ * <p>
+ * Faces can be traversed without allocations through an
+ * {@link OBJFaceCursor}. The list returned by {@link #getFaces()} is
+ * a view that creates a new {@link OBJFace} on each <code>get</code>.
+ * Changes to such a face are not reflected in the mesh. Faces can be
+ * appended through <code>add</code>, but not replaced or removed.
+ *
+ * @author Momchil Atanasov
+ * 
+ */
+public class OBJPackedMesh extends OBJMesh {
+
+    private static final int INITIAL_FACE_CAPACITY = 16;
+    private static final int INITIAL_REFERENCE_CAPACITY = 64;
+
+    private final List<OBJFace> faceView = new FaceView();
+
+    private int[] faceOffsets = new int[INITIAL_FACE_CAPACITY + 1];
+    private int faceCount = 0;
+    private int[] vertexIndices = new int[INITIAL_REFERENCE_CAPACITY];
+    private int[] texCoordIndices = null;
+    private int[] normalIndices = null;
+    private int referenceCount = 0;
+    private int[] smoothingGroups = null;
+
+    /**
+     * Creates a new empty {@link OBJPackedMesh}.
+     */
+    public OBJPackedMesh() {
+        super();
+    }
+
+    /**
+     * Returns a list view of the faces of this mesh.
+     * @return non-null list view of {@link OBJFace} instances.
+     */
+    @Override
+    public List<OBJFace> getFaces() {
+        return faceView;
+    }
+
+    /**
+     * Returns a new cursor positioned before the first face
+     * of this mesh.
+     * @return a new {@link OBJFaceCursor}
+     */
+    public OBJFaceCursor newFaceCursor() {
+        return new OBJFaceCursor(this);
+    }
+
+    /**
+     * Returns the number of faces in this mesh.
+     * @return face count
+     */
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    /**
+     * Returns the number of data references of the
+     * face at the specified index.
+     * @param face index of the face
+     * @return number of references
+     */
+    public int getFaceSize(int face) {
+        return faceOffsets[face + 1] - faceOffsets[face];
+    }
+
+    /**
+     * Returns the total number of data references
+     * of all faces in this mesh.
+     * @return reference count
+     */
+    public int getReferenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * Returns the vertex index of the data reference at the
+     * specified position in the reference streams.
+     * @param reference position of the reference
+     * @return the vertex index
+     */
+    public int getVertexIndex(int reference) {
+        return vertexIndices[reference];
+    }
+
+    /**
+     * Returns the texture coordinate index of the data reference
+     * at the specified position in the reference streams.
+     * @param reference position of the reference
+     * @return the texture coordinate index or
+     * {@link OBJDataReference#UNDEFINED_INDEX}
+     */
+    public int getTexCoordIndex(int reference) {
+        return (texCoordIndices != null) ? texCoordIndices[reference] : OBJDataReference.UNDEFINED_INDEX;
+    }
+
+    /**
+     * Returns the normal index of the data reference at the
+     * specified position in the reference streams.
+     * @param reference position of the reference
+     * @return the normal index or {@link OBJDataReference#UNDEFINED_INDEX}
+     */
+    public int getNormalIndex(int reference) {
+        return (normalIndices != null) ? normalIndices[reference] : OBJDataReference.UNDEFINED_INDEX;
+    }
+
+    /**
+     * Returns the smoothing group of the face at the specified index.
+     * @param face index of the face
+     * @return the smoothing group or {@link OBJFace#SMOOTHING_GROUP_OFF}
+     */
+    public int getSmoothingGroup(int face) {
+        return (smoothingGroups != null) ? smoothingGroups[face] : OBJFace.SMOOTHING_GROUP_OFF;
+    }
+
+    /**
+     * Sets the smoothing group of the face at the specified index.
+     * @param face index of the face
+     * @param smoothingGroup the smoothing group or
+     * {@link OBJFace#SMOOTHING_GROUP_OFF}
+     */
+    public void setSmoothingGroup(int face, int smoothingGroup) {
+        if ((face < 0) || (face >= faceCount)) {
+            throw new IndexOutOfBoundsException("Index: " + face + ", Size: " + faceCount);
+        }
+        if (smoothingGroups == null) {
+            if (smoothingGroup == OBJFace.SMOOTHING_GROUP_OFF) {
+                return;
+            }
+            smoothingGroups = new int[faceOffsets.length - 1];
+        }
+        smoothingGroups[face] = smoothingGroup;
+    }
+
+    /**
+     * Sets the normal index of the data reference at the
+     * specified position in the reference streams.
+     * @param reference position of the reference
+     * @param normalIndex the normal index or
+     * {@link OBJDataReference#UNDEFINED_INDEX}
+     */
+    public void setNormalIndex(int reference, int normalIndex) {
+        if ((reference < 0) || (reference >= referenceCount)) {
+            throw new IndexOutOfBoundsException("Index: " + reference + ", Size: " + referenceCount);
+        }
+        if (normalIndices == null) {
+            if (normalIndex == OBJDataReference.UNDEFINED_INDEX) {
+                return;
+            }
+            normalIndices = newStream();
+        }
+        normalIndices[reference] = normalIndex;
+    }
+
+    /**
+     * Returns the face offsets array, which holds
+     * {@link #getFaceCount()} + 1 meaningful values.
+     * @return the face offsets array
+     */
+    public int[] getFaceOffsets() {
+        return faceOffsets;
+    }
+
+    /**
+     * Returns the vertex index stream.
+     * @return the vertex index array, which may be longer than needed
+     */
+    public int[] getVertexIndices() {
+        return vertexIndices;
+    }
+
+    /**
+     * Returns the texture coordinate index stream.
+     * @return the texture coordinate index array, which may be longer
+     * than needed, or <code>null</code> if no face references texture
+     * coordinates
+     */
+    public int[] getTexCoordIndices() {
+        return texCoordIndices;
+    }
+
+    /**
+     * Returns the normal index stream.
+     * @return the normal index array, which may be longer than needed,
+     * or <code>null</code> if no face references normals
+     */
+    public int[] getNormalIndices() {
+        return normalIndices;
+    }
+
+    /**
+     * Returns the smoothing group array, which holds one
+     * value per face.
+     * @return the smoothing group array, which may be longer than
+     * needed, or <code>null</code> if no face is smoothed
+     */
+    public int[] getSmoothingGroups() {
+        return smoothingGroups;
+    }
+
+    /**
+     * Starts a new face. Subsequent calls to
+     * {@link #addReference(int, int, int)} add data references to it.
+     */
+    public void beginFace() {
+        if (faceCount + 1 == faceOffsets.length) {
+            faceOffsets = copyOf(faceOffsets, faceOffsets.length * 2);
+            if (smoothingGroups != null) {
+                smoothingGroups = copyOf(smoothingGroups, faceOffsets.length - 1);
+            }
+        }
+        faceCount++;
+        faceOffsets[faceCount] = referenceCount;
+    }
+
+    /**
+     * Adds a data reference to the last started face.
+     * @param vertexIndex the vertex index
+     * @param texCoordIndex the texture coordinate index or
+     * {@link OBJDataReference#UNDEFINED_INDEX}
+     * @param normalIndex the normal index or
+     * {@link OBJDataReference#UNDEFINED_INDEX}
+     */
+    public void addReference(int vertexIndex, int texCoordIndex, int normalIndex) {
+        if (referenceCount == vertexIndices.length) {
+            final int capacity = referenceCount * 2;
+            vertexIndices = copyOf(vertexIndices, capacity);
+            if (texCoordIndices != null) {
+                texCoordIndices = copyOf(texCoordIndices, capacity);
+            }
+            if (normalIndices != null) {
+                normalIndices = copyOf(normalIndices, capacity);
+            }
+        }
+        if ((texCoordIndices == null) && (texCoordIndex != OBJDataReference.UNDEFINED_INDEX)) {
+            texCoordIndices = newStream();
+        }
+        if ((normalIndices == null) && (normalIndex != OBJDataReference.UNDEFINED_INDEX)) {
+            normalIndices = newStream();
+        }
+        vertexIndices[referenceCount] = vertexIndex;
+        if (texCoordIndices != null) {
+            texCoordIndices[referenceCount] = texCoordIndex;
+        }
+        if (normalIndices != null) {
+            normalIndices[referenceCount] = normalIndex;
+        }
+        referenceCount++;
+        faceOffsets[faceCount] = referenceCount;
+    }
+
+    /**
+     * Shrinks the backing arrays so that they are no longer
+     * than needed for the current faces.
+     */
+    public void trimToSize() {
+        faceOffsets = copyOf(faceOffsets, faceCount + 1);
+        if (smoothingGroups != null) {
+            smoothingGroups = copyOf(smoothingGroups, faceCount);
+        }
+        vertexIndices = copyOf(vertexIndices, referenceCount);
+        if (texCoordIndices != null) {
+            texCoordIndices = copyOf(texCoordIndices, referenceCount);
+        }
+        if (normalIndices != null) {
+            normalIndices = copyOf(normalIndices, referenceCount);
+        }
+    }
+
+    @Override
+    void ensureCapacity(int faceCount, int referenceCount) {
+        if (faceOffsets.length < this.faceCount + faceCount + 1) {
+            faceOffsets = copyOf(faceOffsets, this.faceCount + faceCount + 1);
+            if (smoothingGroups != null) {
+                smoothingGroups = copyOf(smoothingGroups, faceOffsets.length - 1);
+            }
+        }
+        final int capacity = this.referenceCount + referenceCount;
+        if (vertexIndices.length < capacity) {
+            vertexIndices = copyOf(vertexIndices, capacity);
+            if (texCoordIndices != null) {
+                texCoordIndices = copyOf(texCoordIndices, capacity);
+            }
+            if (normalIndices != null) {
+                normalIndices = copyOf(normalIndices, capacity);
+            }
+        }
+    }
+
+    /*
+     * Replaces all faces of this mesh with the specified arrays, which
+     * are used without copying. Optional streams may be null, otherwise
+     * they need to have the same length as the vertex index stream.
+     */
+    void setData(int[] faceOffsets, int faceCount, int[] vertexIndices, int[] texCoordIndices,
+            int[] normalIndices, int referenceCount, int[] smoothingGroups) {
+        this.faceOffsets = faceOffsets;
+        this.faceCount = faceCount;
+        this.vertexIndices = vertexIndices;
+        this.texCoordIndices = texCoordIndices;
+        this.normalIndices = normalIndices;
+        this.referenceCount = referenceCount;
+        this.smoothingGroups = smoothingGroups;
+    }
+
+    private int[] newStream() {
+        final int[] stream = new int[vertexIndices.length];
+        for (int i = 0; i < referenceCount; ++i) {
+            stream[i] = OBJDataReference.UNDEFINED_INDEX;
+        }
+        return stream;
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        if (array.length == length) {
+            return array;
+        }
+        final int[] result = new int[Math.max(length, 1)];
+        System.arraycopy(array, 0, result, 0, Math.min(array.length, length));
+        return result;
+    }
+
+    private class FaceView extends AbstractList<OBJFace> implements RandomAccess {
+
+        @Override
+        public OBJFace get(int index) {
+            if ((index < 0) || (index >= faceCount)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + faceCount);
+            }
+            final OBJFace face = new OBJFace();
+            for (int i = faceOffsets[index]; i < faceOffsets[index + 1]; ++i) {
+                final OBJDataReference reference = new OBJDataReference();
+                reference.vertexIndex = getVertexIndex(i);
+                reference.texCoordIndex = getTexCoordIndex(i);
+                reference.normalIndex = getNormalIndex(i);
+                face.getReferences().add(reference);
+            }
+            face.setSmoothingGroup(getSmoothingGroup(index));
+            return face;
+        }
+
+        @Override
+        public boolean add(OBJFace face) {
+            beginFace();
+            for (OBJDataReference reference : face.getReferences()) {
+                addReference(reference.vertexIndex, reference.texCoordIndex, reference.normalIndex);
+            }
+            setSmoothingGroup(faceCount - 1, face.getSmoothingGroup());
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return faceCount;
+        }
+
+    }
+
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.mokiat.data.front.parser.OBJTexCoord.Type;
+
+/**
+ * Represents an OBJ 3D model, where vertices, texture coordinates
+ * and normals are stored in packed <code>float</code> arrays
+ * instead of as separate objects.
+ * <p>
+ * Elements can be accessed through the indexed primitive accessors
+ * or through the backing arrays directly. The lists returned by
+ * {@link #getVertices()}, {@link #getTexCoords()} and {@link #getNormals()}
+ * are views that create a new instance on each <code>get</code>. Changes to
+ * such an instance are not reflected in the model. Elements can be
+ * replaced through <code>set</code> and appended through <code>add</code>,
+ * but not removed.
+ * 
+ * @author Momchil Atanasov
+ * 
+ */
+public class OBJPackedModel extends OBJModel {
+
+    /**
+     * Number of floats per vertex in the vertex data array.
+     */
+    public static final int VERTEX_STRIDE = 3;
+
+    /**
+     * Number of floats per texture coordinate in the texture
+     * coordinate data array.
+     */
+    public static final int TEXCOORD_STRIDE = 3;
+
+    /**
+     * Number of floats per normal in the normal data array.
+     */
+    public static final int NORMAL_STRIDE = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Type[] TYPES = Type.values();
+
+    private final List<OBJVertex> vertexView = new VertexView();
+    private final List<OBJTexCoord> texCoordView = new TexCoordView();
+    private final List<OBJNormal> normalView = new NormalView();
+
+    private float[] vertexData = new float[INITIAL_CAPACITY * VERTEX_STRIDE];
+    private int vertexCount = 0;
+    private float[] texCoordData = new float[INITIAL_CAPACITY * TEXCOORD_STRIDE];
+    private byte[] texCoordTypes = new byte[INITIAL_CAPACITY];
+    private int texCoordCount = 0;
+    private float[] normalData = new float[INITIAL_CAPACITY * NORMAL_STRIDE];
+    private int normalCount = 0;
+
+    /**
+     * Creates a new empty {@link OBJPackedModel}.
+     */
+    public OBJPackedModel() {
+        super();
+    }
+
+    /**
+     * Returns a list view of the vertices.
+     * @return non-null list view of {@link OBJVertex} instances.
+     */
+    @Override
+    public List<OBJVertex> getVertices() {
+        return vertexView;
+    }
+
+    /**
+     * Returns a list view of the texture coordinates.
+     * @return non-null list view of {@link OBJTexCoord} instances.
+     */
+    @Override
+    public List<OBJTexCoord> getTexCoords() {
+        return texCoordView;
+    }
+
+    /**
+     * Returns a list view of the normals.
+     * @return non-null list view of {@link OBJNormal} instances.
+     */
+    @Override
+    public List<OBJNormal> getNormals() {
+        return normalView;
+    }
+
+    /**
+     * Returns the number of vertices.
+     * @return vertex count
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the X coordinate of the vertex at the specified index.
+     * @param index index of the vertex
+     * @return the X coordinate
+     */
+    public float getVertexX(int index) {
+        return vertexData[index * VERTEX_STRIDE];
+    }
+
+    /**
+     * Returns the Y coordinate of the vertex at the specified index.
+     * @param index index of the vertex
+     * @return the Y coordinate
+     */
+    public float getVertexY(int index) {
+        return vertexData[index * VERTEX_STRIDE + 1];
+    }
+
+    /**
+     * Returns the Z coordinate of the vertex at the specified index.
+     * @param index index of the vertex
+     * @return the Z coordinate
+     */
+    public float getVertexZ(int index) {
+        return vertexData[index * VERTEX_STRIDE + 2];
+    }
+
+    /**
+     * Returns the array that backs the vertices.
+     * <p>
+     * The array holds {@link #VERTEX_STRIDE} floats per vertex and may
+     * be longer than needed. It is replaced when the model grows.
+     * @return the vertex data array
+     */
+    public float[] getVertexData() {
+        return vertexData;
+    }
+
+    /**
+     * Appends a vertex to this model.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     */
+    public void addVertex(float x, float y, float z) {
+        if (vertexCount * VERTEX_STRIDE == vertexData.length) {
+            vertexData = grow(vertexData);
+        }
+        final int offset = vertexCount * VERTEX_STRIDE;
+        vertexData[offset] = x;
+        vertexData[offset + 1] = y;
+        vertexData[offset + 2] = z;
+        vertexCount++;
+    }
+
+    /**
+     * Returns the number of texture coordinates.
+     * @return texture coordinate count
+     */
+    public int getTexCoordCount() {
+        return texCoordCount;
+    }
+
+    /**
+     * Returns the U coordinate of the texture coordinate at the specified index.
+     * @param index index of the texture coordinate
+     * @return the U coordinate
+     */
+    public float getTexCoordU(int index) {
+        return texCoordData[index * TEXCOORD_STRIDE];
+    }
+
+    /**
+     * Returns the V coordinate of the texture coordinate at the specified index.
+     * @param index index of the texture coordinate
+     * @return the V coordinate
+     */
+    public float getTexCoordV(int index) {
+        return texCoordData[index * TEXCOORD_STRIDE + 1];
+    }
+
+    /**
+     * Returns the W coordinate of the texture coordinate at the specified index.
+     * @param index index of the texture coordinate
+     * @return the W coordinate
+     */
+    public float getTexCoordW(int index) {
+        return texCoordData[index * TEXCOORD_STRIDE + 2];
+    }
+
+    /**
+     * Returns the type of the texture coordinate at the specified index.
+     * @param index index of the texture coordinate
+     * @return the type of the texture coordinate
+     */
+    public Type getTexCoordType(int index) {
+        return TYPES[texCoordTypes[index]];
+    }
+
+    /**
+     * Returns the array that backs the texture coordinates.
+     * <p>
+     * The array holds {@link #TEXCOORD_STRIDE} floats per texture
+     * coordinate, where unused coordinates are zero, and may be longer
+     * than needed. It is replaced when the model grows.
+     * @return the texture coordinate data array
+     */
+    public float[] getTexCoordData() {
+        return texCoordData;
+    }
+
+    /**
+     * Appends a texture coordinate to this model.
+     * @param u the U coordinate
+     * @param v the V coordinate
+     * @param w the W coordinate
+     * @param type the type of the texture coordinate
+     */
+    public void addTexCoord(float u, float v, float w, Type type) {
+        if (texCoordCount == texCoordTypes.length) {
+            texCoordData = grow(texCoordData);
+            final byte[] newTypes = new byte[texCoordData.length / TEXCOORD_STRIDE];
+            System.arraycopy(texCoordTypes, 0, newTypes, 0, texCoordCount);
+            texCoordTypes = newTypes;
+        }
+        final int offset = texCoordCount * TEXCOORD_STRIDE;
+        texCoordData[offset] = u;
+        texCoordData[offset + 1] = v;
+        texCoordData[offset + 2] = w;
+        texCoordTypes[texCoordCount] = (byte) type.ordinal();
+        texCoordCount++;
+    }
+
+    /**
+     * Returns the number of normals.
+     * @return normal count
+     */
+    public int getNormalCount() {
+        return normalCount;
+    }
+
+    /**
+     * Returns the X coordinate of the normal at the specified index.
+     * @param index index of the normal
+     * @return the X coordinate
+     */
+    public float getNormalX(int index) {
+        return normalData[index * NORMAL_STRIDE];
+    }
+
+    /**
+     * Returns the Y coordinate of the normal at the specified index.
+     * @param index index of the normal
+     * @return the Y coordinate
+     */
+    public float getNormalY(int index) {
+        return normalData[index * NORMAL_STRIDE + 1];
+    }
+
+    /**
+     * Returns the Z coordinate of the normal at the specified index.
+     * @param index index of the normal
+     * @return the Z coordinate
+     */
+    public float getNormalZ(int index) {
+        return normalData[index * NORMAL_STRIDE + 2];
+    }
+
+    /**
+     * Returns the array that backs the normals.
+     * <p>
+     * The array holds {@link #NORMAL_STRIDE} floats per normal and may
+     * be longer than needed. It is replaced when the model grows.
+     * @return the normal data array
+     */
+    public float[] getNormalData() {
+        return normalData;
+    }
+
+    /**
+     * Appends a normal to this model.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     */
+    public void addNormal(float x, float y, float z) {
+        if (normalCount * NORMAL_STRIDE == normalData.length) {
+            normalData = grow(normalData);
+        }
+        final int offset = normalCount * NORMAL_STRIDE;
+        normalData[offset] = x;
+        normalData[offset + 1] = y;
+        normalData[offset + 2] = z;
+        normalCount++;
+    }
+
+    /**
+     * Shrinks the backing arrays so that they are no longer
+     * than needed for the current elements.
+     */
+    public void trimToSize() {
+        vertexData = trim(vertexData, vertexCount * VERTEX_STRIDE);
+        texCoordData = trim(texCoordData, texCoordCount * TEXCOORD_STRIDE);
+        if (texCoordTypes.length != texCoordCount) {
+            final byte[] newTypes = new byte[texCoordCount];
+            System.arraycopy(texCoordTypes, 0, newTypes, 0, texCoordCount);
+            texCoordTypes = newTypes;
+        }
+        normalData = trim(normalData, normalCount * NORMAL_STRIDE);
+    }
+
+    @Override
+    void ensureCapacity(int vertexCount, int texCoordCount, int normalCount) {
+        vertexData = reserve(vertexData, (this.vertexCount + vertexCount) * VERTEX_STRIDE);
+        final int texCoordCapacity = this.texCoordCount + texCoordCount;
+        texCoordData = reserve(texCoordData, texCoordCapacity * TEXCOORD_STRIDE);
+        if (texCoordTypes.length < texCoordCapacity) {
+            final byte[] newTypes = new byte[texCoordCapacity];
+            System.arraycopy(texCoordTypes, 0, newTypes, 0, this.texCoordCount);
+            texCoordTypes = newTypes;
+        }
+        normalData = reserve(normalData, (this.normalCount + normalCount) * NORMAL_STRIDE);
+    }
+
+    /*
+     * Replaces all vertices, texture coordinates and normals of this
+     * model with the specified arrays, which are used without copying.
+     */
+    void setData(float[] vertexData, int vertexCount, float[] texCoordData, byte[] texCoordTypes,
+            int texCoordCount, float[] normalData, int normalCount) {
+        this.vertexData = vertexData;
+        this.vertexCount = vertexCount;
+        this.texCoordData = texCoordData;
+        this.texCoordTypes = texCoordTypes;
+        this.texCoordCount = texCoordCount;
+        this.normalData = normalData;
+        this.normalCount = normalCount;
+    }
+
+    private static float[] reserve(float[] data, int length) {
+        if (data.length >= length) {
+            return data;
+        }
+        final float[] newData = new float[length];
+        System.arraycopy(data, 0, newData, 0, data.length);
+        return newData;
+    }
+
+    private static float[] grow(float[] data) {
+        final float[] newData = new float[Math.max(data.length * 2, INITIAL_CAPACITY * VERTEX_STRIDE)];
+        System.arraycopy(data, 0, newData, 0, data.length);
+        return newData;
+    }
+
+    private static float[] trim(float[] data, int length) {
+        if (data.length == length) {
+            return data;
+        }
+        final float[] newData = new float[length];
+        System.arraycopy(data, 0, newData, 0, length);
+        return newData;
+    }
+
+    private static void checkIndex(int index, int count) {
+        if ((index < 0) || (index >= count)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+
+    private class VertexView extends AbstractList<OBJVertex> implements RandomAccess {
+
+        @Override
+        public OBJVertex get(int index) {
+            checkIndex(index, vertexCount);
+            return new OBJVertex(getVertexX(index), getVertexY(index), getVertexZ(index));
+        }
+
+        @Override
+        public OBJVertex set(int index, OBJVertex vertex) {
+            final OBJVertex previous = get(index);
+            final int offset = index * VERTEX_STRIDE;
+            vertexData[offset] = vertex.x;
+            vertexData[offset + 1] = vertex.y;
+            vertexData[offset + 2] = vertex.z;
+            return previous;
+        }
+
+        @Override
+        public boolean add(OBJVertex vertex) {
+            addVertex(vertex.x, vertex.y, vertex.z);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return vertexCount;
+        }
+
+    }
+
+    private class TexCoordView extends AbstractList<OBJTexCoord> implements RandomAccess {
+
+        @Override
+        public OBJTexCoord get(int index) {
+            checkIndex(index, texCoordCount);
+            final OBJTexCoord texCoord = new OBJTexCoord(getTexCoordU(index), getTexCoordV(index), getTexCoordW(index));
+            texCoord.type = getTexCoordType(index);
+            return texCoord;
+        }
+
+        @Override
+        public OBJTexCoord set(int index, OBJTexCoord texCoord) {
+            final OBJTexCoord previous = get(index);
+            final int offset = index * TEXCOORD_STRIDE;
+            texCoordData[offset] = texCoord.u;
+            texCoordData[offset + 1] = texCoord.v;
+            texCoordData[offset + 2] = texCoord.w;
+            texCoordTypes[index] = (byte) texCoord.type.ordinal();
+            return previous;
+        }
+
+        @Override
+        public boolean add(OBJTexCoord texCoord) {
+            addTexCoord(texCoord.u, texCoord.v, texCoord.w, texCoord.type);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return texCoordCount;
+        }
+
+    }
+
+    private class NormalView extends AbstractList<OBJNormal> implements RandomAccess {
+
+        @Override
+        public OBJNormal get(int index) {
+            checkIndex(index, normalCount);
+            return new OBJNormal(getNormalX(index), getNormalY(index), getNormalZ(index));
+        }
+
+        @Override
+        public OBJNormal set(int index, OBJNormal normal) {
+            final OBJNormal previous = get(index);
+            final int offset = index * NORMAL_STRIDE;
+            normalData[offset] = normal.x;
+            normalData[offset + 1] = normal.y;
+            normalData[offset + 2] = normal.z;
+            return previous;
+        }
+
+        @Override
+        public boolean add(OBJNormal normal) {
+            addNormal(normal.x, normal.y, normal.z);
+            modCount++;
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return normalCount;
+        }
+
+    }
+
+}
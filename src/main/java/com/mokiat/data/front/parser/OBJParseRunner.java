@@ -18,6 +18,7 @@ package com.mokiat.data.front.parser;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.file.Path;
 
 import com.mokiat.data.front.common.IFastFloat;
 import com.mokiat.data.front.common.IFastInt;
@@ -25,68 +26,228 @@ import com.mokiat.data.front.common.OBJLimits;
 import com.mokiat.data.front.error.WFCorruptException;
 import com.mokiat.data.front.error.WFException;
 import com.mokiat.data.front.parser.OBJTexCoord.Type;
+import com.mokiat.data.front.scanner.IOBJFileScanner;
+import com.mokiat.data.front.scanner.IOBJPrimitiveScannerHandler;
 import com.mokiat.data.front.scanner.IOBJScanner;
 import com.mokiat.data.front.scanner.IOBJScannerHandler;
+import com.mokiat.data.front.scanner.IOBJSmoothingGroupScannerHandler;
 import com.mokiat.data.front.scanner.OBJLimitingScannerHandler;
-import com.mokiat.data.front.scanner.OBJScanner;
+import com.mokiat.data.front.scanner.OBJScanCounts;
 
 /**
  * Internal class that helps in the parsing of OBJ
  * resources.
+ * <p>
+ * Events are handled through the {@link IOBJPrimitiveScannerHandler}
+ * interface, which scanners prefer over {@link IOBJScannerHandler}.
  * 
  * @author Momchil Atanasov
  *
  */
-class OBJParseRunner implements IOBJScannerHandler {
+class OBJParseRunner implements IOBJSmoothingGroupScannerHandler, IOBJPrimitiveScannerHandler {
+
+	private static final Type[] TEXCOORD_TYPES = {Type.TYPE_1D, Type.TYPE_2D, Type.TYPE_3D};
+	private static final int MIN_FACE_CAPACITY = 3;
 	
+	private final boolean packed;
+	private final IOBJObjectHandler objectHandler;
+	private final boolean boundingSpheres;
+	private final IOBJMaterialLibraryHandler materialLibraryHandler;
 	private OBJModel model;
+	private OBJPackedModel packedModel;
 	private OBJObject currentObject;
 	private OBJMesh currentMesh;
 	private OBJFace currentFace;
+	private OBJPackedMesh currentPackedMesh;
+	private OBJScanCounts counts;
+	private OBJLimitCounts limitCounts;
+	private int segment;
+	private int faceCapacity;
+	private int smoothingGroup;
 	
 	public OBJParseRunner() {
-		super();
+		this(false);
+	}
+
+	public OBJParseRunner(boolean packed) {
+		this(packed, null);
+	}
+
+	/*
+	 * If an object handler is specified, each object is handed over
+	 * to it once complete and is then removed from the model.
+	 */
+	public OBJParseRunner(boolean packed, IOBJObjectHandler objectHandler) {
+		this(packed, objectHandler, false);
+	}
+
+	/*
+	 * Bounding boxes are always computed, while bounding spheres
+	 * are only computed if requested.
+	 */
+	public OBJParseRunner(boolean packed, IOBJObjectHandler objectHandler, boolean boundingSpheres) {
+		this(packed, objectHandler, boundingSpheres, null);
+	}
+
+	/*
+	 * If a material library handler is specified, each material
+	 * library reference is passed to it as soon as it is parsed.
+	 */
+	public OBJParseRunner(boolean packed, IOBJObjectHandler objectHandler, boolean boundingSpheres,
+			IOBJMaterialLibraryHandler materialLibraryHandler) {
+		this.packed = packed;
+		this.objectHandler = objectHandler;
+		this.boundingSpheres = boundingSpheres;
+		this.materialLibraryHandler = materialLibraryHandler;
 	}
 	
-	public OBJModel run(BufferedReader reader, OBJLimits limits) throws WFException, IOException {
+	public OBJModel run(BufferedReader reader, IOBJScanner scanner, OBJLimits limits) throws WFException, IOException {
+		scanner.scan(reader, prepare(limits));
+		completeObject();
+		return complete();
+	}
+
+	public OBJModel run(Path path, IOBJFileScanner scanner, OBJLimits limits) throws WFException, IOException {
+		return run(path, scanner, limits, null);
+	}
+
+	/*
+	 * If counts are specified, all storage is allocated upfront
+	 * according to them.
+	 */
+	public OBJModel run(Path path, IOBJFileScanner scanner, OBJLimits limits, OBJScanCounts counts) throws WFException, IOException {
+		final IOBJScannerHandler handler = prepare(limits);
+		presize(counts, limits);
+		scanner.scan(path, handler);
+		completeObject();
+		return complete();
+	}
+
+	OBJModel getModel() {
+		return model;
+	}
+
+	/*
+	 * Returns the number of events of each kind that the last run
+	 * has seen, as they would have been counted against limits.
+	 */
+	OBJLimitCounts getLimitCounts() {
+		return limitCounts;
+	}
+
+	private OBJModel complete() {
+		if (packedModel != null) {
+			packedModel.trimToSize();
+			for (OBJObject object : packedModel.getObjects()) {
+				for (OBJMesh mesh : object.getMeshes()) {
+					((OBJPackedMesh) mesh).trimToSize();
+				}
+			}
+		}
+		return model;
+	}
+
+	IOBJScannerHandler prepare(OBJLimits limits) {
 		currentFace = null;
 		currentMesh = null;
+		currentPackedMesh = null;
 		currentObject = null;
-		model = new OBJModel();
-		final IOBJScanner scanner = new OBJScanner();
-		if (limits == null) {
-			scanner.scan(reader, this);
+		counts = null;
+		limitCounts = new OBJLimitCounts();
+		segment = 0;
+		faceCapacity = OBJFace.DEFAULT_REFERENCE_CAPACITY;
+		smoothingGroup = OBJFace.SMOOTHING_GROUP_OFF;
+		if (packed) {
+			packedModel = new OBJPackedModel();
+			model = packedModel;
 		} else {
-			scanner.scan(reader, new OBJLimitingScannerHandler(this, limits));
+			packedModel = null;
+			model = new OBJModel();
 		}
-		return model;
+		if (limits == null) {
+			return this;
+		}
+		return new OBJLimitingScannerHandler(this, limits);
+	}
+
+	/*
+	 * Counts that exceed the limits are ignored, as the parse will
+	 * fail anyway and storage should not be allocated beyond them.
+	 */
+	private void presize(OBJScanCounts counts, OBJLimits limits) {
+		if ((counts == null) || ((limits != null) && exceedsLimits(counts, limits))) {
+			return;
+		}
+		this.counts = counts;
+		model.ensureCapacity(counts.getVertexCount(), counts.getTexCoordCount(), counts.getNormalCount());
+	}
+
+	private static boolean exceedsLimits(OBJScanCounts counts, OBJLimits limits) {
+		return (counts.getVertexCount() > limits.maxVertexCount)
+				|| (counts.getTexCoordCount() > limits.maxTexCoordCount)
+				|| (counts.getNormalCount() > limits.maxNormalCount)
+				|| (counts.getObjectCount() > limits.maxObjectCount)
+				|| (counts.getFaceCount() > limits.maxFaceCount)
+				|| (counts.getReferenceCount() > limits.maxDataReferenceCount);
 	}
 
 	@Override
 	public void onComment(String comment) throws WFException {
+		limitCounts.commentCount++;
 	}
 
 	@Override
 	public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) throws WFException {
-		final OBJVertex vertex = new OBJVertex(x.get(), y.get(), z.get());
+		onVertex(x.get(), y.get(), z.get(), (w != null) ? w.get() : 1.0f, (w != null));
+	}
+
+	@Override
+	public void onVertex(float x, float y, float z, float w, boolean hasW) throws WFException {
+		limitCounts.vertexCount++;
+		if (packedModel != null) {
+			packedModel.addVertex(x, y, z);
+			return;
+		}
+		final OBJVertex vertex = new OBJVertex(x, y, z);
 		model.getVertices().add(vertex);
 	}
 
 	@Override
 	public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) throws WFException {
-		final OBJNormal normal = new OBJNormal(x.get(), y.get(), z.get());
+		onNormal(x.get(), y.get(), z.get());
+	}
+
+	@Override
+	public void onNormal(float x, float y, float z) throws WFException {
+		limitCounts.normalCount++;
+		if (packedModel != null) {
+			packedModel.addNormal(x, y, z);
+			return;
+		}
+		final OBJNormal normal = new OBJNormal(x, y, z);
 		model.getNormals().add(normal);
 	}
 
 	@Override
 	public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) throws WFException {
-		final OBJTexCoord texCoord = new OBJTexCoord(u.get());
-		if (v != null) {
-			texCoord.v = v.get();
+		final int dimensions = (v == null) ? 1 : ((w == null) ? 2 : 3);
+		onTextureCoordinate(u.get(), (v != null) ? v.get() : 0.0f, (w != null) ? w.get() : 0.0f, dimensions);
+	}
+
+	@Override
+	public void onTextureCoordinate(float u, float v, float w, int dimensions) throws WFException {
+		limitCounts.texCoordCount++;
+		if (packedModel != null) {
+			packedModel.addTexCoord(u, (dimensions > 1) ? v : 0.0f, (dimensions > 2) ? w : 0.0f, TEXCOORD_TYPES[dimensions - 1]);
+			return;
+		}
+		final OBJTexCoord texCoord = new OBJTexCoord(u);
+		if (dimensions > 1) {
+			texCoord.v = v;
 			texCoord.type = Type.TYPE_2D;
 		}
-		if (w != null) {
-			texCoord.w = w.get();
+		if (dimensions > 2) {
+			texCoord.w = w;
 			texCoord.type = Type.TYPE_3D;
 		}
 		model.getTexCoords().add(texCoord);
@@ -94,47 +255,159 @@ class OBJParseRunner implements IOBJScannerHandler {
 
 	@Override
 	public void onObject(String objectName) throws WFException {
+		limitCounts.objectCount++;
+		completeObject();
+		segment++;
 		currentMesh = null;
+		currentPackedMesh = null;
 		currentObject = new OBJObject(objectName);
 		model.getObjects().add(currentObject);
 	}
 
 	@Override
 	public void onFaceBegin() throws WFException {
+		limitCounts.faceCount++;
 		assureCurrentMesh();
-		currentFace = new OBJFace();
+		if (currentPackedMesh != null) {
+			currentPackedMesh.beginFace();
+			currentPackedMesh.setSmoothingGroup(currentPackedMesh.getFaceCount() - 1, smoothingGroup);
+			return;
+		}
+		currentFace = new OBJFace(faceCapacity);
+		currentFace.setSmoothingGroup(smoothingGroup);
 		currentMesh.getFaces().add(currentFace);
 	}
 
 	@Override
 	public void onFaceEnd() throws WFException {
-		if (currentFace.getReferences().size() < 3) {
+		final int referenceCount;
+		if (currentPackedMesh != null) {
+			referenceCount = currentPackedMesh.getFaceSize(currentPackedMesh.getFaceCount() - 1);
+		} else {
+			referenceCount = currentFace.getReferences().size();
+		}
+		if (referenceCount < 3) {
 			throw new WFCorruptException("Face does not have at least three vertices.");
 		}
 	}
 
 	@Override
 	public void onDataReference(IFastInt vertexIndex, IFastInt texCoordIndex, IFastInt normalIndex) throws WFException {
+		onDataReference(vertexIndex.get(),
+				(texCoordIndex != null) ? texCoordIndex.get() : NO_INDEX,
+				(normalIndex != null) ? normalIndex.get() : NO_INDEX);
+	}
+
+	@Override
+	public void onDataReference(int vertexIndex, int texCoordIndex, int normalIndex) throws WFException {
+		limitCounts.dataReferenceCount++;
+		final int vertexCount = model.getVertices().size();
+		final int vertex = evaluateIndex(vertexIndex, vertexCount);
+		if ((vertex >= 0) && (vertex < vertexCount)) {
+			extendBounds(vertex);
+		}
+		if (currentPackedMesh != null) {
+			currentPackedMesh.addReference(
+					vertex,
+					evaluateIndex(texCoordIndex, model.getTexCoords().size()),
+					evaluateIndex(normalIndex, model.getNormals().size()));
+			return;
+		}
 		final OBJDataReference reference = new OBJDataReference();
-		reference.vertexIndex = evaluateVertexIndex(vertexIndex);
-		reference.texCoordIndex = evaluateTexCoordIndex(texCoordIndex);
-		reference.normalIndex = evaluateNormalIndex(normalIndex);
+		reference.vertexIndex = vertex;
+		reference.texCoordIndex = evaluateIndex(texCoordIndex, model.getTexCoords().size());
+		reference.normalIndex = evaluateIndex(normalIndex, model.getNormals().size());
 		currentFace.getReferences().add(reference);
 	}
 
 	@Override
 	public void onMaterialLibrary(String libraryFilename) throws WFException {
+		limitCounts.materialLibraryCount++;
 		model.getMaterialLibraries().add(libraryFilename);
+		if (materialLibraryHandler != null) {
+			materialLibraryHandler.onMaterialLibrary(model, libraryFilename);
+		}
 	}
 
 	@Override
 	public void onMaterialReference(String materialName) throws WFException {
+		limitCounts.materialReferenceCount++;
+		segment++;
 		assureCurrentObject();
-		currentMesh = new OBJMesh();
+		currentMesh = newMesh();
 		currentMesh.setMaterialName(materialName);
 		currentObject.getMeshes().add(currentMesh);
 	}
 	
+	@Override
+	public void onSmoothingGroup(int smoothingGroup) throws WFException {
+		this.smoothingGroup = smoothingGroup;
+	}
+
+	/*
+	 * Extends the bounds of the current mesh with the
+	 * position of the referenced vertex.
+	 */
+	private void extendBounds(int vertexIndex) {
+		final float x;
+		final float y;
+		final float z;
+		if (packedModel != null) {
+			final float[] vertexData = packedModel.getVertexData();
+			x = vertexData[vertexIndex * OBJPackedModel.VERTEX_STRIDE];
+			y = vertexData[vertexIndex * OBJPackedModel.VERTEX_STRIDE + 1];
+			z = vertexData[vertexIndex * OBJPackedModel.VERTEX_STRIDE + 2];
+		} else {
+			final OBJVertex vertex = model.getVertices().get(vertexIndex);
+			x = vertex.x;
+			y = vertex.y;
+			z = vertex.z;
+		}
+		final OBJBounds bounds = currentMesh.getBounds();
+		bounds.extend(x, y, z);
+		if (boundingSpheres) {
+			bounds.extendSphere(x, y, z);
+		}
+	}
+
+	/*
+	 * Mesh bounds are maintained as faces are read and are only
+	 * merged into their object and the model once the object
+	 * is complete.
+	 */
+	private void completeBounds(OBJObject object) {
+		for (OBJMesh mesh : object.getMeshes()) {
+			object.getBounds().extend(mesh.getBounds());
+		}
+		model.getBounds().extend(object.getBounds());
+	}
+
+	/*
+	 * Completes the bounds of the current object and hands it over
+	 * to the object handler, if there is one, and releases it.
+	 */
+	private void completeObject() throws WFException {
+		if (currentObject == null) {
+			return;
+		}
+		completeBounds(currentObject);
+		if (objectHandler == null) {
+			return;
+		}
+		final OBJObject object = currentObject;
+		if (packed) {
+			for (OBJMesh mesh : object.getMeshes()) {
+				((OBJPackedMesh) mesh).trimToSize();
+			}
+		}
+		currentFace = null;
+		currentMesh = null;
+		currentPackedMesh = null;
+		currentObject = null;
+		model.getObjects().clear();
+		objectHandler.onObject(model, object);
+	}
+
 	/*
 	 * Makes sure there is a current object available
 	 * even if one wasn't defined in the resource.
@@ -156,40 +429,39 @@ class OBJParseRunner implements IOBJScannerHandler {
 			return;
 		}
 		assureCurrentObject();
-		currentMesh = new OBJMesh();
+		currentMesh = newMesh();
 		currentObject.getMeshes().add(currentMesh);
 	}
-	
-	private int evaluateVertexIndex(IFastInt vertexIndex) {
-		if (vertexIndex == null) {
-			return OBJDataReference.UNDEFINED_INDEX;
-		}
-		if (vertexIndex.get() > 0) {
-			return (vertexIndex.get() - 1);
-		} else {
-			return (model.getVertices().size() + vertexIndex.get());
-		}
-	}
 
-	private int evaluateTexCoordIndex(IFastInt texCoordIndex) {
-		if (texCoordIndex == null) {
-			return OBJDataReference.UNDEFINED_INDEX;
-		}
-		if (texCoordIndex.get() > 0) {
-			return (texCoordIndex.get() - 1);
+	private OBJMesh newMesh() {
+		final OBJMesh mesh;
+		if (packed) {
+			currentPackedMesh = new OBJPackedMesh();
+			mesh = currentPackedMesh;
 		} else {
-			return (model.getTexCoords().size() + texCoordIndex.get());
+			mesh = new OBJMesh();
 		}
+		if ((counts != null) && (segment < counts.getSegmentCount())) {
+			final int faceCount = counts.getSegmentFaceCount(segment);
+			final int referenceCount = counts.getSegmentReferenceCount(segment);
+			mesh.ensureCapacity(faceCount, referenceCount);
+			// Faces of the mesh get room for the average number of
+			// references, which is exact for meshes of uniform faces.
+			faceCapacity = (faceCount > 0)
+					? Math.max(MIN_FACE_CAPACITY, (referenceCount + faceCount - 1) / faceCount)
+					: OBJFace.DEFAULT_REFERENCE_CAPACITY;
+		}
+		return mesh;
 	}
-
-	private int evaluateNormalIndex(IFastInt normalIndex) {
-		if (normalIndex == null) {
+	
+	private int evaluateIndex(int index, int count) {
+		if (index == NO_INDEX) {
 			return OBJDataReference.UNDEFINED_INDEX;
 		}
-		if (normalIndex.get() > 0) {
-			return (normalIndex.get() - 1);
+		if (index > 0) {
+			return (index - 1);
 		} else {
-			return (model.getNormals().size() + normalIndex.get());
+			return (count + index);
 		}
 	}
 	
@@ -21,9 +21,24 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.mokiat.data.front.common.OBJLimits;
+import com.mokiat.data.front.common.WFCancellationToken;
+import com.mokiat.data.front.error.WFCancelledException;
 import com.mokiat.data.front.error.WFException;
+import com.mokiat.data.front.scanner.IOBJFileScanner;
+import com.mokiat.data.front.scanner.OBJParallelScanner;
+import com.mokiat.data.front.scanner.OBJScanCounter;
+import com.mokiat.data.front.scanner.OBJScanCounts;
+import com.mokiat.data.front.scanner.OBJScanner;
 
 /**
  * Default implementation of the {@link IOBJParser}
@@ -35,6 +50,12 @@ import com.mokiat.data.front.error.WFException;
 public class OBJParser implements IOBJParser {
 	
 	private OBJLimits limits;
+	private ForkJoinPool forkJoinPool;
+	private boolean packed;
+	private boolean presized;
+	private boolean boundingSpheres;
+	private OBJModelCache modelCache;
+	private WFCancellationToken cancellationToken;
 	
 	/**
 	 * Creates a new instance of {@link OBJParser}.
@@ -53,6 +74,157 @@ public class OBJParser implements IOBJParser {
 		return limits;
 	}
 
+	/**
+	 * Sets the {@link ForkJoinPool} that is used to scan
+	 * file resources in parallel.
+	 * <p>
+	 * If <code>null</code> is specified, which is the default,
+	 * then files are scanned sequentially.
+	 * @param forkJoinPool pool to use for parallel scanning
+	 * @see OBJParallelScanner
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Returns the {@link ForkJoinPool} that is used to scan
+	 * file resources in parallel.
+	 * @return the pool or <code>null</code> if files are
+	 * scanned sequentially
+	 */
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Sets whether parsed models should store their vertices,
+	 * texture coordinates, normals and faces in packed arrays.
+	 * <p>
+	 * If <code>true</code> is specified, all parse methods return
+	 * an {@link OBJPackedModel}, whose meshes are {@link OBJPackedMesh}
+	 * instances. The default is <code>false</code>.
+	 * @param packed whether to produce packed models
+	 * @see OBJPackedModel
+	 */
+	public void setPacked(boolean packed) {
+		this.packed = packed;
+	}
+
+	/**
+	 * Returns whether parsed models store their vertices,
+	 * texture coordinates, normals and faces in packed arrays.
+	 * @return <code>true</code> if {@link OBJPackedModel} instances
+	 * are produced, <code>false</code> otherwise
+	 */
+	public boolean isPacked() {
+		return packed;
+	}
+
+	/**
+	 * Sets whether files should be counted before they are parsed, so
+	 * that all storage of the model can be allocated at its final size.
+	 * <p>
+	 * The counting pass only classifies lines and does not parse any
+	 * values, which makes it much cheaper than the parse itself. It
+	 * avoids the repeated copying of growing storage, which for very
+	 * large files dominates allocation and garbage collection.
+	 * <p>
+	 * This setting only applies to the methods that parse a
+	 * {@link Path}, as streams and readers cannot be read twice.
+	 * The default is <code>false</code>.
+	 * @param presized whether to count files before parsing them
+	 * @see OBJScanCounter
+	 */
+	public void setPresized(boolean presized) {
+		this.presized = presized;
+	}
+
+	/**
+	 * Returns whether files are counted before they are parsed.
+	 * @return <code>true</code> if storage is allocated at its final
+	 * size, <code>false</code> otherwise
+	 */
+	public boolean isPresized() {
+		return presized;
+	}
+
+	/**
+	 * Sets whether bounding spheres should be computed in addition
+	 * to the bounding boxes of the model, its objects and its meshes.
+	 * <p>
+	 * Bounding boxes are always computed. Spheres cost some extra work
+	 * for each data reference and are only computed if <code>true</code>
+	 * is specified. The default is <code>false</code>.
+	 * @param boundingSpheres whether to compute bounding spheres
+	 * @see OBJBounds
+	 */
+	public void setBoundingSpheres(boolean boundingSpheres) {
+		this.boundingSpheres = boundingSpheres;
+	}
+
+	/**
+	 * Returns whether bounding spheres are computed.
+	 * @return <code>true</code> if bounding spheres are computed,
+	 * <code>false</code> otherwise
+	 */
+	public boolean isBoundingSpheres() {
+		return boundingSpheres;
+	}
+
+	/**
+	 * Sets the {@link OBJModelCache} that is consulted before
+	 * files are parsed.
+	 * <p>
+	 * If the cache has a valid entry for a file, the model is loaded
+	 * from that entry instead of being parsed. Otherwise, the file is
+	 * parsed and the resulting model is stored in the cache. Entries are
+	 * only used if the file is within the limits of the parser, if any,
+	 * and failures to store an entry do not fail the parse.
+	 * <p>
+	 * This setting only applies to {@link #parse(Path)}, as streams
+	 * and readers cannot be identified and object handlers do not
+	 * keep the objects in the model. The default is <code>null</code>.
+	 * @param modelCache cache to use or <code>null</code> if files
+	 * should always be parsed
+	 */
+	public void setModelCache(OBJModelCache modelCache) {
+		this.modelCache = modelCache;
+	}
+
+	/**
+	 * Returns the {@link OBJModelCache} that is consulted
+	 * before files are parsed.
+	 * @return the cache or <code>null</code> if files are
+	 * always parsed
+	 */
+	public OBJModelCache getModelCache() {
+		return modelCache;
+	}
+
+	/**
+	 * Sets the {@link WFCancellationToken} that is checked while
+	 * resources are parsed.
+	 * <p>
+	 * Once the token is cancelled or its deadline passes, parsing
+	 * stops between two lines shortly afterwards and fails with a
+	 * {@link WFCancelledException}. The default is <code>null</code>.
+	 * @param cancellationToken token to check or <code>null</code>
+	 * if parsing should not be stopped
+	 */
+	public void setCancellationToken(WFCancellationToken cancellationToken) {
+		this.cancellationToken = cancellationToken;
+	}
+
+	/**
+	 * Returns the {@link WFCancellationToken} that is checked
+	 * while resources are parsed.
+	 * @return the token or <code>null</code> if there is none
+	 */
+	public WFCancellationToken getCancellationToken() {
+		return cancellationToken;
+	}
+
 	@Override
 	public OBJModel parse(InputStream in) throws WFException, IOException {
 		final Reader reader = new InputStreamReader(in);
@@ -61,8 +233,195 @@ public class OBJParser implements IOBJParser {
 
 	@Override
 	public OBJModel parse(BufferedReader reader) throws WFException, IOException {
-		final OBJParseRunner runner = new OBJParseRunner();
-		return runner.run(reader, getLimits());
+		final OBJParseRunner runner = new OBJParseRunner(packed, null, boundingSpheres);
+		return runner.run(reader, new OBJScanner(cancellationToken), getLimits());
+	}
+
+	/**
+	 * Parses a 3D model (OBJ) resource from the
+	 * file at the specified {@link Path}.
+	 * <p>
+	 * The file is memory-mapped and is expected to
+	 * be UTF-8 encoded.
+	 * @param path path to the file from which to parse the model
+	 * @return an instance of {@link OBJModel}
+	 * @throws WFException if an error occurs during resource parsing
+	 * @throws IOException if an I/O error occurs
+	 */
+	public OBJModel parse(Path path) throws WFException, IOException {
+		return parseFile(path, null);
+	}
+
+	/**
+	 * Parses a 3D model (OBJ) resource from the specified
+	 * {@link InputStream}, handing each object over to the
+	 * specified handler as soon as it has been parsed.
+	 * <p>
+	 * Objects are not retained, so memory usage is bound by
+	 * the shared data and the largest object.
+	 * @param in stream from which to parse the model
+	 * @param handler handler that receives the parsed objects
+	 * @return an instance of {@link OBJModel} that holds the shared
+	 * data (vertices, normals, etc.) but no objects
+	 * @throws WFException if an error occurs during resource parsing
+	 * @throws IOException if an I/O error occurs
+	 */
+	public OBJModel parse(InputStream in, IOBJObjectHandler handler) throws WFException, IOException {
+		final Reader reader = new InputStreamReader(in);
+		return parse(new BufferedReader(reader), handler);
+	}
+
+	/**
+	 * Parses a 3D model (OBJ) resource from the specified
+	 * {@link BufferedReader}, handing each object over to the
+	 * specified handler as soon as it has been parsed.
+	 * @param reader reader from which to parse the model
+	 * @param handler handler that receives the parsed objects
+	 * @return an instance of {@link OBJModel} that holds the shared
+	 * data (vertices, normals, etc.) but no objects
+	 * @throws WFException if an error occurs during resource parsing
+	 * @throws IOException if an I/O error occurs
+	 * @see #parse(InputStream, IOBJObjectHandler)
+	 */
+	public OBJModel parse(BufferedReader reader, IOBJObjectHandler handler) throws WFException, IOException {
+		final OBJParseRunner runner = new OBJParseRunner(packed, handler, boundingSpheres);
+		return runner.run(reader, new OBJScanner(cancellationToken), getLimits());
+	}
+
+	/**
+	 * Parses a 3D model (OBJ) resource from the file at the specified
+	 * {@link Path}, handing each object over to the specified handler
+	 * as soon as it has been parsed.
+	 * @param path path to the file from which to parse the model
+	 * @param handler handler that receives the parsed objects
+	 * @return an instance of {@link OBJModel} that holds the shared
+	 * data (vertices, normals, etc.) but no objects
+	 * @throws WFException if an error occurs during resource parsing
+	 * @throws IOException if an I/O error occurs
+	 * @see #parse(InputStream, IOBJObjectHandler)
+	 */
+	public OBJModel parse(Path path, IOBJObjectHandler handler) throws WFException, IOException {
+		final OBJParseRunner runner = new OBJParseRunner(packed, handler, boundingSpheres);
+		return runner.run(path, createFileScanner(), getLimits(), countFile(path));
+	}
+
+	/**
+	 * Parses the file at the specified path on the specified
+	 * {@link Executor}.
+	 * <p>
+	 * The result is the same as with {@link #parse(Path)}. Failures
+	 * are reported through the {@link java.util.concurrent.ExecutionException}
+	 * of the returned {@link Future}. Cancelling the {@link Future}
+	 * with interruption stops the parse between two lines shortly
+	 * afterwards, after which the file is closed and all intermediate
+	 * data can be reclaimed.
+	 * @param path path to the OBJ file
+	 * @param executor executor on which to parse
+	 * @return the pending {@link OBJModel}
+	 */
+	public Future<OBJModel> parseAsync(final Path path, Executor executor) {
+		return submit(new Callable<OBJModel>() {
+
+			@Override
+			public OBJModel call() throws Exception {
+				return parse(path);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Parses an OBJ resource from the specified {@link InputStream}
+	 * on the specified {@link Executor}.
+	 * <p>
+	 * The stream is not closed once parsing completes and should not
+	 * be used by the caller until the returned {@link Future} is done.
+	 * Cancellation behaves as with {@link #parseAsync(Path, Executor)}.
+	 * @param in input stream to read from
+	 * @param executor executor on which to parse
+	 * @return the pending {@link OBJModel}
+	 */
+	public Future<OBJModel> parseAsync(final InputStream in, Executor executor) {
+		return submit(new Callable<OBJModel>() {
+
+			@Override
+			public OBJModel call() throws Exception {
+				return parse(in);
+			}
+		}, executor);
+	}
+
+	/*
+	 * Parses the file at the specified path, passing material library
+	 * references to the handler, if any, as soon as they are parsed.
+	 * Models that are loaded from the cache do not notify the handler.
+	 */
+	OBJModel parseFile(Path path, IOBJMaterialLibraryHandler libraryHandler) throws WFException, IOException {
+		if (modelCache != null) {
+			return parseCached(path, libraryHandler);
+		}
+		final OBJParseRunner runner = new OBJParseRunner(packed, null, boundingSpheres, libraryHandler);
+		return runner.run(path, createFileScanner(), getLimits(), countFile(path));
+	}
+
+	private OBJModel parseCached(Path path, IOBJMaterialLibraryHandler libraryHandler) throws WFException, IOException {
+		final OBJBinaryModel cachedModel = modelCache.open(path);
+		if ((cachedModel != null) && hasRequiredBounds(cachedModel.getBounds()) && isWithinLimits(cachedModel)) {
+			return cachedModel.toModel(packed);
+		}
+		// Attributes are read before the parse, so that changes
+		// made in the meantime leave a stale entry behind.
+		final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		final OBJParseRunner runner = new OBJParseRunner(packed, null, boundingSpheres, libraryHandler);
+		final OBJModel model = runner.run(path, createFileScanner(), getLimits(), countFile(path));
+		try {
+			modelCache.store(path, attributes.size(), attributes.lastModifiedTime().toMillis(), model, runner.getLimitCounts());
+		} catch (IOException ex) {
+			// The model is complete, so an entry that cannot be
+			// written only means that the next load parses again.
+		}
+		return model;
+	}
+
+	/*
+	 * Entries record the counts that limits apply to, so that a file
+	 * that fails to parse with the limits also fails to load. Entries
+	 * without counts cannot be checked and are parsed again.
+	 */
+	private boolean isWithinLimits(OBJBinaryModel cachedModel) {
+		final OBJLimits limits = getLimits();
+		if (limits == null) {
+			return true;
+		}
+		final OBJLimitCounts limitCounts = cachedModel.getLimitCounts();
+		return (limitCounts != null) && limitCounts.fits(limits);
+	}
+
+	/*
+	 * Entries that were stored without bounding spheres cannot
+	 * be used if spheres are needed. Empty bounds never have one.
+	 */
+	private boolean hasRequiredBounds(OBJBounds bounds) {
+		return !boundingSpheres || bounds.hasSphere() || bounds.isEmpty();
+	}
+
+	private static Future<OBJModel> submit(Callable<OBJModel> callable, Executor executor) {
+		final FutureTask<OBJModel> task = new FutureTask<OBJModel>(callable);
+		executor.execute(task);
+		return task;
+	}
+
+	private OBJScanCounts countFile(Path path) throws IOException {
+		if (!presized) {
+			return null;
+		}
+		return new OBJScanCounter(cancellationToken).count(path);
+	}
+
+	private IOBJFileScanner createFileScanner() {
+		if (forkJoinPool != null) {
+			return new OBJParallelScanner(forkJoinPool, OBJParallelScanner.DEFAULT_CHUNK_SIZE, cancellationToken);
+		}
+		return new OBJScanner(cancellationToken);
 	}
 
 }
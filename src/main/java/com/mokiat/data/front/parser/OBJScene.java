@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents an OBJ model along with the material
+ * libraries that it references.
+ *
+ * @author Momchil Atanasov
+ *
+ * @see OBJSceneLoader
+ */
+public class OBJScene {
+
+	private final OBJModel model;
+	private final Map<String, MTLLibrary> materialLibraries;
+
+	/**
+	 * Creates a new {@link OBJScene} instance.
+	 * @param model the model
+	 * @param materialLibraries the material libraries of the model,
+	 * keyed by their references in the model and in the order of
+	 * the references
+	 */
+	public OBJScene(OBJModel model, Map<String, MTLLibrary> materialLibraries) {
+		this.model = model;
+		this.materialLibraries = Collections.unmodifiableMap(materialLibraries);
+	}
+
+	/**
+	 * Returns the model of this scene.
+	 * @return an instance of {@link OBJModel}
+	 */
+	public OBJModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Returns the material libraries of this scene, keyed by their
+	 * references in the model. Libraries are listed in the order in
+	 * which they are first referenced.
+	 * @return non-null read-only map of {@link MTLLibrary} instances
+	 */
+	public Map<String, MTLLibrary> getMaterialLibraries() {
+		return materialLibraries;
+	}
+
+	/**
+	 * Returns the material library for the specified reference.
+	 * @param libraryFilename the material library reference
+	 * @return an instance of {@link MTLLibrary} or <code>null</code>,
+	 * if the model has no such reference
+	 */
+	public MTLLibrary getMaterialLibrary(String libraryFilename) {
+		return materialLibraries.get(libraryFilename);
+	}
+
+	/**
+	 * A helper method that returns the material with the specified
+	 * name from the first material library that defines it.
+	 * <p>
+	 * This can be used to resolve {@link OBJMesh#getMaterialName()}.
+	 * @param name name of the requested material
+	 * @return an instance of {@link MTLMaterial} or <code>null</code>,
+	 * if no library defines such a material
+	 */
+	public MTLMaterial getMaterial(String name) {
+		for (MTLLibrary library : materialLibraries.values()) {
+			final MTLMaterial material = library.getMaterial(name);
+			if (material != null) {
+				return material;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Loads an OBJ resource together with all of the
+ * MTL resources that it references.
+ * <p>
+ * Material library references are resolved relative to the directory
+ * of the OBJ resource. Each library is parsed on the {@link Executor}
+ * as soon as its reference has been read, while the OBJ resource is
+ * still being parsed, so the parsing of material libraries overlaps
+ * with the parsing of the model.
+ * <p>
+ * The parsers are shared by concurrent loads, as well as by the tasks
+ * of a single load. The default {@link OBJParser} and {@link MTLParser}
+ * can be shared this way, as long as they are not reconfigured while
+ * loading.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJSceneLoader {
+
+	private final OBJParser objParser;
+	private final IMTLParser mtlParser;
+	private final Executor executor;
+	private MTLLibraryCache libraryCache;
+
+	/**
+	 * Creates a new {@link OBJSceneLoader} that uses default
+	 * parsers and parses material libraries on the specified
+	 * {@link Executor}.
+	 * @param executor executor on which material libraries are parsed
+	 */
+	public OBJSceneLoader(Executor executor) {
+		this(new OBJParser(), new MTLParser(), executor);
+	}
+
+	/**
+	 * Creates a new {@link OBJSceneLoader} that uses the specified
+	 * parsers and parses material libraries on the specified
+	 * {@link Executor}.
+	 * @param objParser parser for the OBJ resource
+	 * @param mtlParser parser for the MTL resources
+	 * @param executor executor on which material libraries are parsed
+	 */
+	public OBJSceneLoader(OBJParser objParser, IMTLParser mtlParser, Executor executor) {
+		this.objParser = objParser;
+		this.mtlParser = mtlParser;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the parser that is used for OBJ resources.
+	 * @return an instance of {@link OBJParser}
+	 */
+	public OBJParser getOBJParser() {
+		return objParser;
+	}
+
+	/**
+	 * Returns the parser that is used for MTL resources.
+	 * @return an instance of {@link IMTLParser}
+	 */
+	public IMTLParser getMTLParser() {
+		return mtlParser;
+	}
+
+	/**
+	 * Sets the {@link MTLLibraryCache} through which material
+	 * libraries are loaded.
+	 * <p>
+	 * If a cache is specified, libraries are loaded through it
+	 * instead of through the MTL parser of this loader, and scenes
+	 * share the read-only libraries of the cache. The default is
+	 * <code>null</code>.
+	 * @param libraryCache cache to use or <code>null</code> if each
+	 * library should be parsed for each scene
+	 */
+	public void setLibraryCache(MTLLibraryCache libraryCache) {
+		this.libraryCache = libraryCache;
+	}
+
+	/**
+	 * Returns the {@link MTLLibraryCache} through which
+	 * material libraries are loaded.
+	 * @return the cache or <code>null</code> if each library
+	 * is parsed for each scene
+	 */
+	public MTLLibraryCache getLibraryCache() {
+		return libraryCache;
+	}
+
+	/**
+	 * Loads the OBJ resource at the specified path and all of
+	 * the material libraries that it references.
+	 * <p>
+	 * If the model or any of the libraries cannot be parsed, then
+	 * the libraries that are still being parsed are cancelled and
+	 * the first error is thrown.
+	 * @param path path of the OBJ resource
+	 * @return an instance of {@link OBJScene}
+	 * @throws WFException if an error occurs during resource parsing
+	 * @throws IOException if an I/O error occurs, including when a
+	 * referenced material library does not exist
+	 */
+	public OBJScene load(Path path) throws WFException, IOException {
+		final Path absolutePath = path.toAbsolutePath();
+		final Map<String, MTLLibraryTask> tasks = new LinkedHashMap<String, MTLLibraryTask>();
+		boolean complete = false;
+		try {
+			final OBJModel model = objParser.parseFile(path, new IOBJMaterialLibraryHandler() {
+
+				@Override
+				public void onMaterialLibrary(OBJModel model, String libraryFilename) {
+					submit(tasks, absolutePath, libraryFilename);
+				}
+			});
+			// Models that are loaded from a cache do not report their
+			// libraries while parsing, so all of them are checked here.
+			for (String libraryFilename : model.getMaterialLibraries()) {
+				submit(tasks, absolutePath, libraryFilename);
+			}
+			final Map<String, MTLLibrary> libraries = new LinkedHashMap<String, MTLLibrary>();
+			for (Map.Entry<String, MTLLibraryTask> entry : tasks.entrySet()) {
+				libraries.put(entry.getKey(), entry.getValue().await());
+			}
+			complete = true;
+			return new OBJScene(model, libraries);
+		} finally {
+			if (!complete) {
+				for (MTLLibraryTask task : tasks.values()) {
+					task.cancel(true);
+				}
+			}
+		}
+	}
+
+	private void submit(Map<String, MTLLibraryTask> tasks, Path path, String libraryFilename) {
+		if (tasks.containsKey(libraryFilename)) {
+			return;
+		}
+		final Path libraryPath = path.resolveSibling(libraryFilename);
+		final MTLLibraryTask task = new MTLLibraryTask(new Callable<MTLLibrary>() {
+
+			@Override
+			public MTLLibrary call() throws IOException {
+				if (libraryCache != null) {
+					return libraryCache.load(libraryPath);
+				}
+				return MTLLibraryTask.parse(mtlParser, libraryPath);
+			}
+		});
+		tasks.put(libraryFilename, task);
+		executor.execute(task);
+	}
+
+}
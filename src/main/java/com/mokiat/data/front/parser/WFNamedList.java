@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Internal list of named elements that supports lookups by name
+ * through a hash index.
+ * <p>
+ * The index is built lazily on the first lookup and maps each name
+ * to the position of its first occurrence, so duplicate names resolve
+ * the same way a linear scan would. Every change to the list, be it
+ * through the list itself, its iterators or its sub lists, marks the
+ * index as stale, so that it is rebuilt on the next lookup.
+ * <p>
+ * Each element keeps track of the lists that hold it through its
+ * {@link Owners}, so that renaming an element marks the index of
+ * those lists as stale, while the index of any other list is kept.
+ * <p>
+ * Lookups can be performed by multiple threads concurrently as long
+ * as the list and the names of its elements are not modified at the
+ * same time.
+ *
+ * @author Momchil Atanasov
+ *
+ * @param <T> type of the elements
+ */
+abstract class WFNamedList<T> extends AbstractList<T> implements RandomAccess {
+
+	private final ArrayList<T> elements;
+	private int version = 0;
+	private volatile Index index;
+
+	public WFNamedList() {
+		this.elements = new ArrayList<T>();
+	}
+
+	public WFNamedList(List<T> elements) {
+		this.elements = new ArrayList<T>(elements);
+		for (T element : this.elements) {
+			attach(element);
+		}
+	}
+
+	protected abstract String getName(T element);
+
+	protected abstract Owners getOwners(T element);
+
+	public T find(String name) {
+		Index current = index;
+		if ((current == null) || (current.version != version)) {
+			current = new Index(version, elements.size());
+			for (int i = 0; i < elements.size(); ++i) {
+				final String elementName = getName(elements.get(i));
+				if ((elementName != null) && !current.positions.containsKey(elementName)) {
+					current.positions.put(elementName, i);
+				}
+			}
+			index = current;
+		}
+		final Integer position = current.positions.get(name);
+		return (position != null) ? elements.get(position) : null;
+	}
+
+	@Override
+	public T get(int index) {
+		return elements.get(index);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public T set(int index, T element) {
+		final T previous = elements.set(index, element);
+		detach(previous);
+		attach(element);
+		version++;
+		return previous;
+	}
+
+	@Override
+	public void add(int index, T element) {
+		elements.add(index, element);
+		attach(element);
+		modCount++;
+		version++;
+	}
+
+	@Override
+	public T remove(int index) {
+		final T previous = elements.remove(index);
+		detach(previous);
+		modCount++;
+		version++;
+		return previous;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		final List<T> range = elements.subList(fromIndex, toIndex);
+		for (T element : range) {
+			detach(element);
+		}
+		range.clear();
+		modCount++;
+		version++;
+	}
+
+	private void attach(T element) {
+		if (element != null) {
+			getOwners(element).add(this);
+		}
+	}
+
+	private void detach(T element) {
+		if (element != null) {
+			getOwners(element).remove(this);
+		}
+	}
+
+	private void onRenamed() {
+		index = null;
+	}
+
+	/*
+	 * Keeps track of the lists that hold a named element. A list is
+	 * registered once for each position that holds the element.
+	 */
+	static final class Owners {
+
+		private List<WFNamedList<?>> lists;
+
+		public synchronized void add(WFNamedList<?> list) {
+			if (lists == null) {
+				lists = new ArrayList<WFNamedList<?>>(1);
+			}
+			lists.add(list);
+		}
+
+		public synchronized void remove(WFNamedList<?> list) {
+			// Lists are compared by identity, as list equality
+			// is based on the elements.
+			for (int i = 0; i < lists.size(); ++i) {
+				if (lists.get(i) == list) {
+					lists.remove(i);
+					return;
+				}
+			}
+		}
+
+		/*
+		 * Has to be called whenever the named element changes its
+		 * name, so that the lists that hold it rebuild their index.
+		 */
+		public synchronized void onRenamed() {
+			if (lists != null) {
+				for (WFNamedList<?> list : lists) {
+					list.onRenamed();
+				}
+			}
+		}
+
+	}
+
+	private static final class Index {
+
+		private final Map<String, Integer> positions;
+		private final int version;
+
+		public Index(int version, int capacity) {
+			this.positions = new HashMap<String, Integer>(capacity * 4 / 3 + 1);
+			this.version = version;
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * The {@link IMTLFileScanner} interface extends the {@link IMTLScanner}
+ * interface with methods that scan MTL files directly from the file
+ * system.
+ * <p>
+ * Files are memory-mapped instead of being read through a stream,
+ * which avoids copying their content through intermediate buffers.
+ * 
+ * @author Momchil Atanasov
+ * 
+ */
+public interface IMTLFileScanner extends IMTLScanner {
+
+	/**
+	 * Scans the file at the specified {@link Path} and
+	 * passes any events to the {@link IMTLScannerHandler} instance.
+	 * <p>
+	 * The file is memory-mapped and is expected to be UTF-8 encoded.
+	 * @param path path to the file
+	 * @param handler handler to be notified of events
+	 * @throws WFException if the MTL file is corrupt
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void scan(Path path, IMTLScannerHandler handler) throws WFException, IOException;
+
+	/**
+	 * Scans the file specified through the {@link FileChannel}, starting
+	 * from its current position, and passes any events to the
+	 * {@link IMTLScannerHandler} instance.
+	 * <p>
+	 * The file is memory-mapped and is expected to be UTF-8 encoded.
+	 * The channel is not closed by this method.
+	 * @param channel channel from which the file will be mapped
+	 * @param handler handler to be notified of events
+	 * @throws WFException if the MTL file is corrupt
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void scan(FileChannel channel, IMTLScannerHandler handler) throws WFException, IOException;
+
+}
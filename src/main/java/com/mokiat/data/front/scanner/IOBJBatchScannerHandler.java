@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Users can implement this extension of the {@link IOBJScannerHandler}
+ * interface in order to receive vertices, texture coordinates and normals
+ * in blocks of primitive floats instead of one callback per element.
+ * <p>
+ * When the handler passed to an {@link IOBJScanner} implements this
+ * interface, the {@link #onVertex}, {@link #onTextureCoordinate} and
+ * {@link #onNormal} methods are not called. Instead, consecutive elements
+ * of the same kind are collected and delivered through the batch methods.
+ * Batches are delivered in file order, so all elements declared before
+ * any other event (e.g. a face) will have been delivered by the time that
+ * event is received.
+ * <p>
+ * The arrays passed to the batch methods are reused by the scanner and
+ * their content is only valid for the duration of the call. Missing
+ * optional components are stored as {@link Float#NaN}. Should scanning
+ * fail, elements that precede the failure but have not yet been delivered
+ * are discarded.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public interface IOBJBatchScannerHandler extends IOBJScannerHandler {
+
+	/**
+	 * Number of floats per vertex (x, y, z, w).
+	 */
+	public static final int VERTEX_STRIDE = 4;
+
+	/**
+	 * Number of floats per texture coordinate (u, v, w).
+	 */
+	public static final int TEXTURE_COORDINATE_STRIDE = 3;
+
+	/**
+	 * Number of floats per normal (x, y, z).
+	 */
+	public static final int NORMAL_STRIDE = 3;
+
+	/**
+	 * Called when a block of vertex definitions (v) has been read.
+	 * @param data array holding {@link #VERTEX_STRIDE} floats per vertex.
+	 * The W coordinate is {@link Float#NaN} if unavailable.
+	 * @param count number of vertices in the block.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onVertexBatch(float[] data, int count) throws WFException;
+
+	/**
+	 * Called when a block of texture coordinate definitions (vt) has been read.
+	 * @param data array holding {@link #TEXTURE_COORDINATE_STRIDE} floats per
+	 * texture coordinate. The V and W coordinates are {@link Float#NaN}
+	 * if unavailable.
+	 * @param count number of texture coordinates in the block.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onTextureCoordinateBatch(float[] data, int count) throws WFException;
+
+	/**
+	 * Called when a block of normal definitions (vn) has been read.
+	 * @param data array holding {@link #NORMAL_STRIDE} floats per normal.
+	 * @param count number of normals in the block.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onNormalBatch(float[] data, int count) throws WFException;
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Users can implement this extension of the {@link IOBJScannerHandler}
+ * interface in order to declare which kinds of commands they are
+ * interested in.
+ * <p>
+ * Commands that are not part of the interest mask are not parsed. Their
+ * parameters are neither converted to numbers nor to strings and they
+ * are not validated. Instead, {@link #onSkipped(int)} is called once per
+ * skipped line, so that handlers can still keep track of element counts
+ * (e.g. to resolve relative indices or to enforce limits).
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public interface IOBJInterestScannerHandler extends IOBJScannerHandler {
+
+	/**
+	 * Interest in comments (#).
+	 */
+	public static final int INTEREST_COMMENT = 1 << 1;
+
+	/**
+	 * Interest in vertices (v).
+	 */
+	public static final int INTEREST_VERTEX = 1 << 2;
+
+	/**
+	 * Interest in texture coordinates (vt).
+	 */
+	public static final int INTEREST_TEXCOORD = 1 << 3;
+
+	/**
+	 * Interest in normals (vn).
+	 */
+	public static final int INTEREST_NORMAL = 1 << 4;
+
+	/**
+	 * Interest in objects (o).
+	 */
+	public static final int INTEREST_OBJECT = 1 << 5;
+
+	/**
+	 * Interest in faces (f) and their data references.
+	 */
+	public static final int INTEREST_FACE = 1 << 6;
+
+	/**
+	 * Interest in material libraries (mtllib).
+	 */
+	public static final int INTEREST_MATERIAL_LIBRARY = 1 << 7;
+
+	/**
+	 * Interest in material references (usemtl).
+	 */
+	public static final int INTEREST_MATERIAL_REFERENCE = 1 << 8;
+
+	/**
+	 * Interest in smoothing groups (s).
+	 * <p>
+	 * This only has an effect on handlers that also implement
+	 * {@link IOBJSmoothingGroupScannerHandler}.
+	 */
+	public static final int INTEREST_SMOOTHING_GROUP = 1 << 9;
+
+	/**
+	 * Interest in all commands.
+	 */
+	public static final int INTEREST_ALL = INTEREST_COMMENT | INTEREST_VERTEX | INTEREST_TEXCOORD
+			| INTEREST_NORMAL | INTEREST_OBJECT | INTEREST_FACE | INTEREST_MATERIAL_LIBRARY
+			| INTEREST_MATERIAL_REFERENCE | INTEREST_SMOOTHING_GROUP;
+
+	/**
+	 * Returns the kinds of commands this handler should be notified of.
+	 * <p>
+	 * This method is called once, before scanning starts.
+	 * @return a combination of the <code>INTEREST_</code> flags.
+	 */
+	public int getInterestMask();
+
+	/**
+	 * Called when a command that is not part of the interest mask
+	 * has been read.
+	 * <p>
+	 * This is called once per line, even for a material library
+	 * declaration that lists multiple files.
+	 * @param interest the <code>INTEREST_</code> flag of the skipped command.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onSkipped(int interest) throws WFException;
+
+}
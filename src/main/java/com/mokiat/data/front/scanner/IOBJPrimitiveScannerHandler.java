@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Primitive counterpart of the {@link IOBJScannerHandler} interface.
+ * <p>
+ * Values are passed as primitives instead of through {@link com.mokiat.data.front.common.IFastFloat}
+ * and {@link com.mokiat.data.front.common.IFastInt} wrappers and absent
+ * values are indicated through flags or sentinels instead of <code>null</code>.
+ * <p>
+ * To scan a resource with such a handler, wrap it in an
+ * {@link OBJPrimitiveScannerHandlerAdapter}. Scanners recognize the adapter
+ * and deliver events directly to the wrapped handler. To use an
+ * existing {@link IOBJScannerHandler} where a primitive one is expected,
+ * use {@link OBJScannerHandlerAdapter}.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public interface IOBJPrimitiveScannerHandler {
+
+	/**
+	 * Index value used to indicate that a data reference
+	 * does not reference a texture coordinate or a normal.
+	 * <p>
+	 * Scanners reject this value when it is specified
+	 * in a resource, so it cannot be confused with an index.
+	 */
+	public static final int NO_INDEX = Integer.MIN_VALUE;
+
+	/**
+	 * Called when a comment section (#) has been read.
+	 * @param comment the parsed comment
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onComment(String comment) throws WFException;
+
+	/**
+	 * Called when a vertex definition (v) has been read.
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param z Z coordinate
+	 * @param w W coordinate, will be <code>1.0</code> if unavailable.
+	 * @param hasW whether the W coordinate was specified
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onVertex(float x, float y, float z, float w, boolean hasW) throws WFException;
+
+	/**
+	 * Called when a normal definition (vn) has been read.
+	 * @param x X coordinate
+	 * @param y Y coordinate
+	 * @param z Z coordinate
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onNormal(float x, float y, float z) throws WFException;
+
+	/**
+	 * Called when a texture coordinate (vt) definition has been read.
+	 * @param u U coordinate
+	 * @param v V coordinate, will be <code>0.0</code> if unavailable.
+	 * @param w W coordinate, will be <code>0.0</code> if unavailable.
+	 * @param dimensions number of specified coordinates, between
+	 * <code>1</code> and <code>3</code>.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onTextureCoordinate(float u, float v, float w, int dimensions) throws WFException;
+
+	/**
+	 * Called when an object definition (o) has been read.
+	 * @param objectName name of the object.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onObject(String objectName) throws WFException;
+
+	/**
+	 * Called when a face definition (f) is being read.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onFaceBegin() throws WFException;
+
+	/**
+	 * Called when the reading of a face definition has completed.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onFaceEnd() throws WFException;
+
+	/**
+	 * Called when a data reference segment has been read.
+	 * <p>
+	 * Indices are as in the resource, meaning that positive indices start
+	 * from 1 and negative indices are relative to the last read element.
+	 * @param vertexIndex index of the referenced vertex.
+	 * @param texCoordIndex index of the referenced texture coordinate,
+	 * will be {@link #NO_INDEX} if unavailable.
+	 * @param normalIndex index of the referenced normal,
+	 * will be {@link #NO_INDEX} if unavailable.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onDataReference(int vertexIndex, int texCoordIndex, int normalIndex) throws WFException;
+
+	/**
+	 * Called when a filename from a material library declaration (mtllib)
+	 * has been read.
+	 * @param libraryFilename filename of a material library to be used.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onMaterialLibrary(String libraryFilename) throws WFException;
+
+	/**
+	 * Called when a material reference (usemtl) has been read.
+	 * @param materialName name of the material to use for subsequent
+	 * elements, may be <code>null</code>.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onMaterialReference(String materialName) throws WFException;
+
+}
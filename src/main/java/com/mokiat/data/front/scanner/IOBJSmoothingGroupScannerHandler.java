@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Users can implement this extension of the {@link IOBJScannerHandler}
+ * interface in order to receive smoothing group declarations (s).
+ * <p>
+ * Smoothing group statements are only parsed when the handler passed to
+ * an {@link IOBJScanner} implements this interface. Other handlers are
+ * not notified of them in any way, not even through
+ * {@link IOBJInterestScannerHandler#onSkipped(int)}.
+ * <p>
+ * A smoothing group applies to all faces that follow it, until the
+ * next smoothing group statement.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public interface IOBJSmoothingGroupScannerHandler extends IOBJScannerHandler {
+
+	/**
+	 * Smoothing group value used when smoothing is turned off, either
+	 * through <code>s off</code> or through <code>s 0</code>.
+	 */
+	public static final int SMOOTHING_GROUP_OFF = 0;
+
+	/**
+	 * Called when a smoothing group declaration (s) has been read.
+	 * @param smoothingGroup the positive number of the smoothing group,
+	 * or {@link #SMOOTHING_GROUP_OFF} if smoothing is turned off.
+	 * @throws WFException can be thrown by users to terminate any
+	 * further scanning of the resource.
+	 */
+	public void onSmoothingGroup(int smoothingGroup) throws WFException;
+
+}
@@ -16,7 +16,6 @@
 
 package com.mokiat.data.front.scanner;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 
 import com.mokiat.data.front.common.IFastFloat;
@@ -31,18 +30,34 @@ import com.mokiat.data.front.error.WFException;
  */
 class MTLScanRunner {
 	
-	private static final String COMMAND_MATERIAL = "newmtl";
-    private static final String COMMAND_AMBIENT_COLOR = "Ka";
-    private static final String COMMAND_DIFFUSE_COLOR = "Kd";
-    private static final String COMMAND_SPECULAR_COLOR = "Ks";
-    private static final String COMMAND_TRANSMISSION_COLOR = "Tf";
-    private static final String COMMAND_DISSOLVE = "d";
-    private static final String COMMAND_SPECULAR_EXPONENT = "Ns";
-    private static final String COMMAND_AMBIENT_TEXTURE = "map_Ka";
-    private static final String COMMAND_DIFFUSE_TEXTURE = "map_Kd";
-    private static final String COMMAND_SPECULAR_TEXTURE = "map_Ks";
-    private static final String COMMAND_SPECULAR_EXPONENT_TEXTURE = "map_Ns";
-    private static final String COMMAND_DISSOLVE_TEXTURE = "map_d";
+    static final String COMMAND_MATERIAL = "newmtl";
+    static final String COMMAND_AMBIENT_COLOR = "Ka";
+    static final String COMMAND_DIFFUSE_COLOR = "Kd";
+    static final String COMMAND_SPECULAR_COLOR = "Ks";
+    static final String COMMAND_TRANSMISSION_COLOR = "Tf";
+    static final String COMMAND_DISSOLVE = "d";
+    static final String COMMAND_SPECULAR_EXPONENT = "Ns";
+    static final String COMMAND_AMBIENT_TEXTURE = "map_Ka";
+    static final String COMMAND_DIFFUSE_TEXTURE = "map_Kd";
+    static final String COMMAND_SPECULAR_TEXTURE = "map_Ks";
+    static final String COMMAND_SPECULAR_EXPONENT_TEXTURE = "map_Ns";
+    static final String COMMAND_DISSOLVE_TEXTURE = "map_d";
+    static final int TEXTURE_PREFIX_LENGTH = "map_".length();
+
+    static final int TYPE_NONE = 0;
+    static final int TYPE_COMMENT = 1;
+    static final int TYPE_MATERIAL = 2;
+    static final int TYPE_AMBIENT_COLOR = 3;
+    static final int TYPE_DIFFUSE_COLOR = 4;
+    static final int TYPE_SPECULAR_COLOR = 5;
+    static final int TYPE_TRANSMISSION_COLOR = 6;
+    static final int TYPE_DISSOLVE = 7;
+    static final int TYPE_SPECULAR_EXPONENT = 8;
+    static final int TYPE_AMBIENT_TEXTURE = 9;
+    static final int TYPE_DIFFUSE_TEXTURE = 10;
+    static final int TYPE_SPECULAR_TEXTURE = 11;
+    static final int TYPE_SPECULAR_EXPONENT_TEXTURE = 12;
+    static final int TYPE_DISSOLVE_TEXTURE = 13;
 
 	private final IMTLScannerHandler handler;
 	private final WFScanCommand command = new WFScanCommand();
@@ -52,37 +67,117 @@ class MTLScanRunner {
 		this.handler = handler;
 	}
 
-	public void run(BufferedReader reader) throws WFException, IOException {
-		while (command.parse(reader)) {
-            if (command.isEmpty()) {
-                continue;
-            } else if (command.isComment()) {
+	public void run(WFScanInput input, WFScanGuard guard) throws WFException, IOException {
+		while (command.parse(input)) {
+			guard.check();
+			switch (classify(command)) {
+			case TYPE_COMMENT:
 				processComment(command);
-			} else if (command.isCommand(COMMAND_MATERIAL)) {
-            	processMaterial(command);
-            } else if (command.isCommand(COMMAND_AMBIENT_COLOR)) {
-            	processAmbientColor(command);
-            } else if (command.isCommand(COMMAND_DIFFUSE_COLOR)) {
-            	processDiffuseColor(command);
-            } else if (command.isCommand(COMMAND_SPECULAR_COLOR)) {
-            	processSpecularColor(command);
-            } else if (command.isCommand(COMMAND_TRANSMISSION_COLOR)) {
-            	processTransmissionColor(command);
-            } else if (command.isCommand(COMMAND_DISSOLVE)) {
-            	processDissolve(command);
-            } else if (command.isCommand(COMMAND_SPECULAR_EXPONENT)) {
-            	processSpecularExponent(command);
-            } else if (command.isCommand(COMMAND_AMBIENT_TEXTURE)) {
-            	processAmbientTexture(command);
-            } else if (command.isCommand(COMMAND_DIFFUSE_TEXTURE)) {
-            	processDiffuseTexture(command);
-            } else if (command.isCommand(COMMAND_SPECULAR_TEXTURE)) {
-            	processSpecularTexture(command);
-            } else if (command.isCommand(COMMAND_SPECULAR_EXPONENT_TEXTURE)) {
-            	processSpecularExponentTexture(command);
-            } else if (command.isCommand(COMMAND_DISSOLVE_TEXTURE)) {
-            	processDissolveTexture(command);
-            }
+				break;
+			case TYPE_MATERIAL:
+				processMaterial(command);
+				break;
+			case TYPE_AMBIENT_COLOR:
+				processAmbientColor(command);
+				break;
+			case TYPE_DIFFUSE_COLOR:
+				processDiffuseColor(command);
+				break;
+			case TYPE_SPECULAR_COLOR:
+				processSpecularColor(command);
+				break;
+			case TYPE_TRANSMISSION_COLOR:
+				processTransmissionColor(command);
+				break;
+			case TYPE_DISSOLVE:
+				processDissolve(command);
+				break;
+			case TYPE_SPECULAR_EXPONENT:
+				processSpecularExponent(command);
+				break;
+			case TYPE_AMBIENT_TEXTURE:
+				processAmbientTexture(command);
+				break;
+			case TYPE_DIFFUSE_TEXTURE:
+				processDiffuseTexture(command);
+				break;
+			case TYPE_SPECULAR_TEXTURE:
+				processSpecularTexture(command);
+				break;
+			case TYPE_SPECULAR_EXPONENT_TEXTURE:
+				processSpecularExponentTexture(command);
+				break;
+			case TYPE_DISSOLVE_TEXTURE:
+				processDissolveTexture(command);
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/*
+	 * Determines the type of the command by switching on its first
+	 * character and, for texture maps, on the characters following
+	 * the map_ prefix, so that at most one full comparison is made.
+	 * No String is built for the keyword.
+	 */
+	static int classify(WFScanCommand command) {
+		if (command.isEmpty()) {
+			return TYPE_NONE;
+		}
+		switch (command.getCommandChar(0)) {
+		case '#':
+			return TYPE_COMMENT;
+		case 'n':
+			return command.isCommand(COMMAND_MATERIAL) ? TYPE_MATERIAL : TYPE_NONE;
+		case 'K':
+			if (command.isCommand(COMMAND_AMBIENT_COLOR)) {
+				return TYPE_AMBIENT_COLOR;
+			} else if (command.isCommand(COMMAND_DIFFUSE_COLOR)) {
+				return TYPE_DIFFUSE_COLOR;
+			} else if (command.isCommand(COMMAND_SPECULAR_COLOR)) {
+				return TYPE_SPECULAR_COLOR;
+			}
+			return TYPE_NONE;
+		case 'T':
+			return command.isCommand(COMMAND_TRANSMISSION_COLOR) ? TYPE_TRANSMISSION_COLOR : TYPE_NONE;
+		case 'd':
+			return command.isCommand(COMMAND_DISSOLVE) ? TYPE_DISSOLVE : TYPE_NONE;
+		case 'N':
+			return command.isCommand(COMMAND_SPECULAR_EXPONENT) ? TYPE_SPECULAR_EXPONENT : TYPE_NONE;
+		case 'm':
+			return classifyTexture(command);
+		default:
+			return TYPE_NONE;
+		}
+	}
+
+	private static int classifyTexture(WFScanCommand command) {
+		if (command.getCommandLength() <= TEXTURE_PREFIX_LENGTH) {
+			return TYPE_NONE;
+		}
+		switch (command.getCommandChar(TEXTURE_PREFIX_LENGTH)) {
+		case 'K':
+			if (command.getCommandLength() <= TEXTURE_PREFIX_LENGTH + 1) {
+				return TYPE_NONE;
+			}
+			switch (command.getCommandChar(TEXTURE_PREFIX_LENGTH + 1)) {
+			case 'a':
+				return command.isCommand(COMMAND_AMBIENT_TEXTURE) ? TYPE_AMBIENT_TEXTURE : TYPE_NONE;
+			case 'd':
+				return command.isCommand(COMMAND_DIFFUSE_TEXTURE) ? TYPE_DIFFUSE_TEXTURE : TYPE_NONE;
+			case 's':
+				return command.isCommand(COMMAND_SPECULAR_TEXTURE) ? TYPE_SPECULAR_TEXTURE : TYPE_NONE;
+			default:
+				return TYPE_NONE;
+			}
+		case 'N':
+			return command.isCommand(COMMAND_SPECULAR_EXPONENT_TEXTURE) ? TYPE_SPECULAR_EXPONENT_TEXTURE : TYPE_NONE;
+		case 'd':
+			return command.isCommand(COMMAND_DISSOLVE_TEXTURE) ? TYPE_DISSOLVE_TEXTURE : TYPE_NONE;
+		default:
+			return TYPE_NONE;
 		}
 	}
 
@@ -21,23 +21,54 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
+import com.mokiat.data.front.common.WFCancellationToken;
+import com.mokiat.data.front.error.WFCancelledException;
 import com.mokiat.data.front.error.WFException;
 
 /**
- * Default implementation of the {@link IMTLScanner}
+ * Default implementation of the {@link IMTLFileScanner}
  * interface.
+ * <p>
+ * Should the calling thread be interrupted, scanning stops between two
+ * lines shortly afterwards with an {@link java.io.InterruptedIOException}.
+ * <p>
+ * Scanning can also be stopped through a {@link WFCancellationToken},
+ * in which case it fails with a {@link WFCancelledException}.
  * 
  * @author Momchil Atanasov
  *
  */
-public class MTLScanner implements IMTLScanner {
+public class MTLScanner implements IMTLFileScanner {
 	
+	private final WFCancellationToken token;
+
 	/**
 	 * Creates a new instance of {@link MTLScanner}.
 	 */
 	public MTLScanner() {
-		super();
+		this(null);
+	}
+
+	/**
+	 * Creates a new instance of {@link MTLScanner}
+	 * that stops once the specified token fires.
+	 * @param token token to check or <code>null</code>
+	 */
+	public MTLScanner(WFCancellationToken token) {
+		this.token = token;
+	}
+
+	/**
+	 * Returns the {@link WFCancellationToken} that is checked
+	 * during scanning.
+	 * @return the token or <code>null</code> if there is none
+	 */
+	public WFCancellationToken getCancellationToken() {
+		return token;
 	}
 
 	@Override
@@ -49,7 +80,23 @@ public class MTLScanner implements IMTLScanner {
 	@Override
 	public void scan(BufferedReader reader, IMTLScannerHandler handler) throws WFException, IOException {
 		final MTLScanRunner runner = new MTLScanRunner(handler);
-		runner.run(reader);
+		runner.run(new WFReaderScanInput(reader), WFScanGuard.forCurrentThread(token));
+	}
+
+	@Override
+	public void scan(Path path, IMTLScannerHandler handler) throws WFException, IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			scan(channel, handler);
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Override
+	public void scan(FileChannel channel, IMTLScannerHandler handler) throws WFException, IOException {
+		final MTLScanRunner runner = new MTLScanRunner(handler);
+		runner.run(new WFMappedScanInput(channel), WFScanGuard.forCurrentThread(token));
 	}
 
 }
@@ -34,14 +34,28 @@ import com.mokiat.data.front.error.WFSizeException;
  * This class implements the decorator pattern, so you need
  * to specify another handler to which all events will be forwarded
  * after they have passed a threshold check.
+ * <p>
+ * The handler can also be used as an {@link IOBJPrimitiveScannerHandler},
+ * in which case events are forwarded to the primitive view of the delegate.
+ * Smoothing groups are forwarded if the delegate implements
+ * {@link IOBJSmoothingGroupScannerHandler} and are not limited.
+ * <p>
+ * Should the delegate implement {@link IOBJBatchScannerHandler}, then
+ * vertices, texture coordinates and normals are counted and forwarded
+ * a batch at a time. A batch that would exceed a limit is not
+ * forwarded. Scanners do not batch elements for other delegates.
  * 
  * @author Momchil Atanasov
  *
  */
-public class OBJLimitingScannerHandler implements IOBJScannerHandler {
+public class OBJLimitingScannerHandler implements IOBJInterestScannerHandler, IOBJSmoothingGroupScannerHandler, IOBJPrimitiveScannerHandler,
+		IOBJBatchScannerHandler {
 	
 	
 	private final IOBJScannerHandler delegate;
+	private final IOBJPrimitiveScannerHandler primitiveDelegate;
+	private final IOBJSmoothingGroupScannerHandler smoothingGroupDelegate;
+	private final IOBJBatchScannerHandler batchDelegate;
 	private final OBJLimits limits;
 
 	private int commentCount = 0;
@@ -64,60 +78,115 @@ public class OBJLimitingScannerHandler implements IOBJScannerHandler {
 	 */
 	public OBJLimitingScannerHandler(IOBJScannerHandler delegate, OBJLimits limits) {
 		this.delegate = delegate;
+		this.primitiveDelegate = OBJScannerHandlerAdapter.adapt(delegate);
+		this.smoothingGroupDelegate = OBJScanRunner.getSmoothingGroupHandler(delegate);
+		this.batchDelegate = (delegate instanceof IOBJBatchScannerHandler) ? (IOBJBatchScannerHandler) delegate : null;
 		this.limits = limits;
 	}
 
+	/*
+	 * Returns whether batches are forwarded as such, rather than
+	 * split up again for a delegate that takes single elements.
+	 */
+	boolean isBatching() {
+		return (batchDelegate != null);
+	}
+
 	@Override
 	public void onComment(String comment) throws WFException {
-		commentCount++;
-		if (commentCount > limits.maxCommentCount) {
-			throw new WFSizeException("Too many comments.");
-		}
+		countComment();
 		delegate.onComment(comment);
 	}
 
 	@Override
 	public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) throws WFException {
-		vertexCount++;
-		if (vertexCount > limits.maxVertexCount) {
-			throw new WFSizeException("Too many vertices.");
-		}
+		countVertex();
 		delegate.onVertex(x, y, z, w);
 	}
 
+	@Override
+	public void onVertex(float x, float y, float z, float w, boolean hasW) throws WFException {
+		countVertex();
+		primitiveDelegate.onVertex(x, y, z, w, hasW);
+	}
+
 	@Override
 	public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) throws WFException {
-		normalCount++;
-		if (normalCount > limits.maxNormalCount) {
-			throw new WFSizeException("Too many normals.");
-		}
+		countNormal();
 		delegate.onNormal(x, y, z);
 	}
 
+	@Override
+	public void onNormal(float x, float y, float z) throws WFException {
+		countNormal();
+		primitiveDelegate.onNormal(x, y, z);
+	}
+
 	@Override
 	public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) throws WFException {
-		texCoordCount++;
-		if (texCoordCount > limits.maxTexCoordCount) {
-			throw new WFSizeException("Too many texture coordinates.");
-		}
+		countTexCoord();
 		delegate.onTextureCoordinate(u, v, w);
 	}
 
 	@Override
-	public void onObject(String objectName) throws WFException {
-		objectCount++;
-		if (objectCount > limits.maxObjectCount) {
-			throw new WFSizeException("Too many objects.");
+	public void onTextureCoordinate(float u, float v, float w, int dimensions) throws WFException {
+		countTexCoord();
+		primitiveDelegate.onTextureCoordinate(u, v, w, dimensions);
+	}
+
+	@Override
+	public void onVertexBatch(float[] data, int count) throws WFException {
+		countVertices(count);
+		if (batchDelegate != null) {
+			batchDelegate.onVertexBatch(data, count);
+			return;
 		}
+		for (int i = 0; i < count; ++i) {
+			final int offset = i * VERTEX_STRIDE;
+			final float w = data[offset + 3];
+			final boolean hasW = !Float.isNaN(w);
+			primitiveDelegate.onVertex(data[offset], data[offset + 1], data[offset + 2], hasW ? w : 1.0f, hasW);
+		}
+	}
+
+	@Override
+	public void onTextureCoordinateBatch(float[] data, int count) throws WFException {
+		countTexCoords(count);
+		if (batchDelegate != null) {
+			batchDelegate.onTextureCoordinateBatch(data, count);
+			return;
+		}
+		for (int i = 0; i < count; ++i) {
+			final int offset = i * TEXTURE_COORDINATE_STRIDE;
+			final float v = data[offset + 1];
+			final float w = data[offset + 2];
+			final int dimensions = Float.isNaN(v) ? 1 : (Float.isNaN(w) ? 2 : 3);
+			primitiveDelegate.onTextureCoordinate(data[offset], (dimensions > 1) ? v : 0.0f, (dimensions > 2) ? w : 0.0f, dimensions);
+		}
+	}
+
+	@Override
+	public void onNormalBatch(float[] data, int count) throws WFException {
+		countNormals(count);
+		if (batchDelegate != null) {
+			batchDelegate.onNormalBatch(data, count);
+			return;
+		}
+		for (int i = 0; i < count; ++i) {
+			final int offset = i * NORMAL_STRIDE;
+			primitiveDelegate.onNormal(data[offset], data[offset + 1], data[offset + 2]);
+		}
+	}
+
+	@Override
+	public void onObject(String objectName) throws WFException {
+		countObject();
 		delegate.onObject(objectName);
 	}
 
 	@Override
 	public void onFaceBegin() throws WFException {
-		faceCount++;
-		if (faceCount > limits.maxFaceCount) {
-			throw new WFSizeException("Too many faces.");
-		}
+		countFace();
 		delegate.onFaceBegin();
 	}
 
@@ -128,29 +197,160 @@ public class OBJLimitingScannerHandler implements IOBJScannerHandler {
 
 	@Override
 	public void onDataReference(IFastInt vertexIndex, IFastInt texCoordIndex, IFastInt normalIndex) throws WFException {
+		countDataReference();
+		delegate.onDataReference(vertexIndex, texCoordIndex, normalIndex);
+	}
+
+	@Override
+	public void onDataReference(int vertexIndex, int texCoordIndex, int normalIndex) throws WFException {
+		countDataReference();
+		primitiveDelegate.onDataReference(vertexIndex, texCoordIndex, normalIndex);
+	}
+
+	@Override
+	public void onMaterialLibrary(String libraryFilename) throws WFException {
+		countMaterialLibrary();
+		delegate.onMaterialLibrary(libraryFilename);
+	}
+
+	@Override
+	public void onMaterialReference(String materialName) throws WFException {
+		countMaterialReference();
+		delegate.onMaterialReference(materialName);
+	}
+
+	@Override
+	public void onSmoothingGroup(int smoothingGroup) throws WFException {
+		if (smoothingGroupDelegate != null) {
+			smoothingGroupDelegate.onSmoothingGroup(smoothingGroup);
+		}
+	}
+
+	/**
+	 * Returns the interest mask of the delegate, should it implement
+	 * {@link IOBJInterestScannerHandler}, or all commands otherwise.
+	 * Smoothing groups are always included if the delegate does not
+	 * implement {@link IOBJSmoothingGroupScannerHandler}, as such
+	 * delegates are never notified of them.
+	 */
+	@Override
+	public int getInterestMask() {
+		if (!(delegate instanceof IOBJInterestScannerHandler)) {
+			return INTEREST_ALL;
+		}
+		final int interestMask = ((IOBJInterestScannerHandler) delegate).getInterestMask();
+		if (smoothingGroupDelegate == null) {
+			return interestMask | INTEREST_SMOOTHING_GROUP;
+		}
+		return interestMask;
+	}
+
+	@Override
+	public void onSkipped(int interest) throws WFException {
+		switch (interest) {
+		case INTEREST_COMMENT:
+			countComment();
+			break;
+		case INTEREST_VERTEX:
+			countVertex();
+			break;
+		case INTEREST_TEXCOORD:
+			countTexCoord();
+			break;
+		case INTEREST_NORMAL:
+			countNormal();
+			break;
+		case INTEREST_OBJECT:
+			countObject();
+			break;
+		case INTEREST_FACE:
+			countFace();
+			break;
+		case INTEREST_MATERIAL_LIBRARY:
+			countMaterialLibrary();
+			break;
+		case INTEREST_MATERIAL_REFERENCE:
+			countMaterialReference();
+			break;
+		default:
+			break;
+		}
+		((IOBJInterestScannerHandler) delegate).onSkipped(interest);
+	}
+
+	private void countComment() throws WFSizeException {
+		commentCount++;
+		if (commentCount > limits.maxCommentCount) {
+			throw new WFSizeException("Too many comments.");
+		}
+	}
+
+	private void countVertex() throws WFSizeException {
+		countVertices(1);
+	}
+
+	private void countVertices(int count) throws WFSizeException {
+		if ((long) vertexCount + count > limits.maxVertexCount) {
+			throw new WFSizeException("Too many vertices.");
+		}
+		vertexCount += count;
+	}
+
+	private void countTexCoord() throws WFSizeException {
+		countTexCoords(1);
+	}
+
+	private void countTexCoords(int count) throws WFSizeException {
+		if ((long) texCoordCount + count > limits.maxTexCoordCount) {
+			throw new WFSizeException("Too many texture coordinates.");
+		}
+		texCoordCount += count;
+	}
+
+	private void countNormal() throws WFSizeException {
+		countNormals(1);
+	}
+
+	private void countNormals(int count) throws WFSizeException {
+		if ((long) normalCount + count > limits.maxNormalCount) {
+			throw new WFSizeException("Too many normals.");
+		}
+		normalCount += count;
+	}
+
+	private void countObject() throws WFSizeException {
+		objectCount++;
+		if (objectCount > limits.maxObjectCount) {
+			throw new WFSizeException("Too many objects.");
+		}
+	}
+
+	private void countFace() throws WFSizeException {
+		faceCount++;
+		if (faceCount > limits.maxFaceCount) {
+			throw new WFSizeException("Too many faces.");
+		}
+	}
+
+	private void countDataReference() throws WFSizeException {
 		dataReferenceCount++;
 		if (dataReferenceCount > limits.maxDataReferenceCount) {
 			throw new WFSizeException("Too many data references.");
 		}
-		delegate.onDataReference(vertexIndex, texCoordIndex, normalIndex);
 	}
 
-	@Override
-	public void onMaterialLibrary(String libraryFilename) throws WFException {
+	private void countMaterialLibrary() throws WFSizeException {
 		materialLibraryCount++;
 		if (materialLibraryCount > limits.maxMaterialLibraryCount) {
 			throw new WFSizeException("Too many material libraries.");
 		}
-		delegate.onMaterialLibrary(libraryFilename);
 	}
 
-	@Override
-	public void onMaterialReference(String materialName) throws WFException {
+	private void countMaterialReference() throws WFSizeException {
 		materialReferenceCount++;
 		if (materialReferenceCount > limits.maxMaterialReferenceCount) {
 			throw new WFSizeException("Too many material references.");
 		}
-		delegate.onMaterialReference(materialName);
 	}
 
 }
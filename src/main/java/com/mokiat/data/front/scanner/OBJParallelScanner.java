@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.mokiat.data.front.common.WFCancellationToken;
+import com.mokiat.data.front.error.WFCancelledException;
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * An implementation of the {@link IOBJFileScanner} interface that
+ * scans file resources on multiple threads.
+ * <p>
+ * The file is split into chunks at line boundaries (taking line
+ * continuations into account) and the chunks are scanned concurrently
+ * on a {@link ForkJoinPool}. Events are still delivered to the
+ * {@link IOBJScannerHandler} on the calling thread and in file order,
+ * so handlers observe exactly the same sequence of events as with
+ * the {@link OBJScanner}. In particular, negative (relative) data
+ * references resolve against the same element counts.
+ * <p>
+ * Streams and readers cannot be split, so they are scanned
+ * sequentially.
+ * <p>
+ * Should the calling thread be interrupted, all chunks stop between
+ * two lines shortly afterwards and the scan fails with an
+ * {@link java.io.InterruptedIOException}. Likewise, they stop with a
+ * {@link WFCancelledException} once the {@link WFCancellationToken},
+ * if any, fires.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJParallelScanner implements IOBJFileScanner {
+
+	/**
+	 * The default size in bytes of a single chunk.
+	 */
+	public static final long DEFAULT_CHUNK_SIZE = 1L << 24;
+
+	private static final int BOUNDARY_BUFFER_SIZE = 4096;
+
+	private final ForkJoinPool pool;
+	private final long chunkSize;
+	private final WFCancellationToken token;
+
+	/**
+	 * Creates a new instance of the {@link OBJParallelScanner} class
+	 * that uses the specified pool and the default chunk size.
+	 * @param pool pool on which chunks will be scanned
+	 */
+	public OBJParallelScanner(ForkJoinPool pool) {
+		this(pool, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new instance of the {@link OBJParallelScanner} class
+	 * that uses the specified pool and chunk size.
+	 * @param pool pool on which chunks will be scanned
+	 * @param chunkSize approximate size in bytes of each chunk
+	 */
+	public OBJParallelScanner(ForkJoinPool pool, long chunkSize) {
+		this(pool, chunkSize, null);
+	}
+
+	/**
+	 * Creates a new instance of the {@link OBJParallelScanner} class
+	 * that uses the specified pool and chunk size and that stops once
+	 * the specified token fires.
+	 * @param pool pool on which chunks will be scanned
+	 * @param chunkSize approximate size in bytes of each chunk
+	 * @param token token to check or <code>null</code>
+	 */
+	public OBJParallelScanner(ForkJoinPool pool, long chunkSize, WFCancellationToken token) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive.");
+		}
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+		this.token = token;
+	}
+
+	/**
+	 * Returns the {@link WFCancellationToken} that is checked
+	 * during scanning.
+	 * @return the token or <code>null</code> if there is none
+	 */
+	public WFCancellationToken getCancellationToken() {
+		return token;
+	}
+
+	@Override
+	public void scan(InputStream in, IOBJScannerHandler handler) throws WFException, IOException {
+		new OBJScanner(token).scan(in, handler);
+	}
+
+	@Override
+	public void scan(BufferedReader reader, IOBJScannerHandler handler) throws WFException, IOException {
+		new OBJScanner(token).scan(reader, handler);
+	}
+
+	@Override
+	public void scan(Path path, IOBJScannerHandler handler) throws WFException, IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			scan(channel, handler);
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Override
+	public void scan(FileChannel channel, IOBJScannerHandler handler) throws WFException, IOException {
+		final long start = channel.position();
+		final long size = channel.size();
+		final int maxPendingChunks = Math.max(2, pool.getParallelism() * 2);
+		final Deque<ForkJoinTask<OBJScanTape>> pendingChunks = new ArrayDeque<ForkJoinTask<OBJScanTape>>();
+		int interestMask = (handler instanceof IOBJInterestScannerHandler)
+				? ((IOBJInterestScannerHandler) handler).getInterestMask()
+				: IOBJInterestScannerHandler.INTEREST_ALL;
+		if (OBJScanRunner.getSmoothingGroupHandler(handler) == null) {
+			// Tapes always receive smoothing groups, which are then dropped
+			// on replay, so that they are never reported as skipped.
+			interestMask |= IOBJInterestScannerHandler.INTEREST_SMOOTHING_GROUP;
+		}
+		final WFScanGuard guard = WFScanGuard.forCurrentThread(token);
+		try {
+			long chunkStart = start;
+			while ((chunkStart < size) || !pendingChunks.isEmpty()) {
+				while ((chunkStart < size) && (pendingChunks.size() < maxPendingChunks)) {
+					final long chunkEnd = findChunkEnd(channel, start, chunkStart + chunkSize, size);
+					pendingChunks.addLast(pool.submit(new ChunkTask(channel, chunkStart, chunkEnd, interestMask, guard)));
+					chunkStart = chunkEnd;
+				}
+				final OBJScanTape tape = pendingChunks.removeFirst().join();
+				guard.checkNow();
+				tape.replay(handler);
+			}
+		} finally {
+			for (ForkJoinTask<OBJScanTape> pendingChunk : pendingChunks) {
+				pendingChunk.cancel(false);
+			}
+		}
+	}
+
+	/*
+	 * Finds the position right after the first line feed at or after
+	 * the target position that does not terminate a continued line.
+	 */
+	private static long findChunkEnd(FileChannel channel, long start, long target, long size) throws IOException {
+		if (target >= size) {
+			return size;
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+		long position = Math.max(start, target - 2);
+		byte previous = 0;
+		byte beforePrevious = 0;
+		while (position < size) {
+			((Buffer) buffer).clear();
+			final int count = channel.read(buffer, position);
+			if (count <= 0) {
+				break;
+			}
+			for (int i = 0; i < count; ++i) {
+				final byte current = buffer.get(i);
+				final long currentPosition = position + i;
+				if ((current == '\n') && (currentPosition >= target)) {
+					final byte lastLineChar = (previous == '\r') ? beforePrevious : previous;
+					if (lastLineChar != '\\') {
+						return currentPosition + 1;
+					}
+				}
+				beforePrevious = previous;
+				previous = current;
+			}
+			position += count;
+		}
+		return size;
+	}
+
+	private static class ChunkTask extends RecursiveTask<OBJScanTape> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final int interestMask;
+		private final Thread owner;
+		private final WFCancellationToken token;
+
+		public ChunkTask(FileChannel channel, long start, long end, int interestMask, WFScanGuard guard) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.interestMask = interestMask;
+			this.owner = guard.getOwner();
+			this.token = guard.getToken();
+		}
+
+		@Override
+		protected OBJScanTape compute() {
+			final OBJScanTape tape = new OBJScanTape(interestMask);
+			try {
+				final OBJScanRunner runner = new OBJScanRunner(tape);
+				runner.run(new WFMappedScanInput(channel, start, end), new WFScanGuard(owner, token));
+			} catch (IOException ex) {
+				tape.setError(ex);
+			}
+			return tape;
+		}
+
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.common.IFastFloat;
+import com.mokiat.data.front.common.IFastInt;
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * This implementation of the {@link IOBJScannerHandler} interface
+ * forwards all events to an {@link IOBJPrimitiveScannerHandler}.
+ * <p>
+ * Scanners recognize this adapter and deliver events directly to
+ * the wrapped handler, so no {@link IFastFloat} or {@link IFastInt}
+ * wrappers are involved.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJPrimitiveScannerHandlerAdapter implements IOBJScannerHandler {
+
+	private final IOBJPrimitiveScannerHandler delegate;
+
+	/**
+	 * Creates a new {@link OBJPrimitiveScannerHandlerAdapter} that
+	 * forwards events to the specified handler.
+	 * @param delegate handler to which events will be forwarded.
+	 */
+	public OBJPrimitiveScannerHandlerAdapter(IOBJPrimitiveScannerHandler delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Returns the handler to which events are forwarded.
+	 * @return the wrapped {@link IOBJPrimitiveScannerHandler}
+	 */
+	public IOBJPrimitiveScannerHandler getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public void onComment(String comment) throws WFException {
+		delegate.onComment(comment);
+	}
+
+	@Override
+	public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) throws WFException {
+		if (w != null) {
+			delegate.onVertex(x.get(), y.get(), z.get(), w.get(), true);
+		} else {
+			delegate.onVertex(x.get(), y.get(), z.get(), 1.0f, false);
+		}
+	}
+
+	@Override
+	public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) throws WFException {
+		delegate.onNormal(x.get(), y.get(), z.get());
+	}
+
+	@Override
+	public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) throws WFException {
+		if (v == null) {
+			delegate.onTextureCoordinate(u.get(), 0.0f, 0.0f, 1);
+		} else if (w == null) {
+			delegate.onTextureCoordinate(u.get(), v.get(), 0.0f, 2);
+		} else {
+			delegate.onTextureCoordinate(u.get(), v.get(), w.get(), 3);
+		}
+	}
+
+	@Override
+	public void onObject(String objectName) throws WFException {
+		delegate.onObject(objectName);
+	}
+
+	@Override
+	public void onFaceBegin() throws WFException {
+		delegate.onFaceBegin();
+	}
+
+	@Override
+	public void onFaceEnd() throws WFException {
+		delegate.onFaceEnd();
+	}
+
+	@Override
+	public void onDataReference(IFastInt vertexIndex, IFastInt texCoordIndex, IFastInt normalIndex) throws WFException {
+		delegate.onDataReference(vertexIndex.get(),
+				(texCoordIndex != null) ? texCoordIndex.get() : IOBJPrimitiveScannerHandler.NO_INDEX,
+				(normalIndex != null) ? normalIndex.get() : IOBJPrimitiveScannerHandler.NO_INDEX);
+	}
+
+	@Override
+	public void onMaterialLibrary(String libraryFilename) throws WFException {
+		delegate.onMaterialLibrary(libraryFilename);
+	}
+
+	@Override
+	public void onMaterialReference(String materialName) throws WFException {
+		delegate.onMaterialReference(materialName);
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Internal class that collects consecutive vertices, texture coordinates
+ * and normals into primitive blocks and delivers them to an
+ * {@link IOBJBatchScannerHandler}.
+ * <p>
+ * Only elements of a single kind are pending at any time. Adding an
+ * element of a different kind, or calling {@link #flush()}, delivers
+ * the pending block first, so that file order is preserved.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+class OBJScanBatcher {
+
+	public static final int DEFAULT_BATCH_SIZE = 4096;
+
+	private static final int KIND_NONE = 0;
+	private static final int KIND_VERTEX = 1;
+	private static final int KIND_TEXCOORD = 2;
+	private static final int KIND_NORMAL = 3;
+
+	private final IOBJBatchScannerHandler handler;
+	private final int batchSize;
+	private float[] data;
+	private int kind = KIND_NONE;
+	private int count = 0;
+	private int position = 0;
+
+	public OBJScanBatcher(IOBJBatchScannerHandler handler) {
+		this(handler, DEFAULT_BATCH_SIZE);
+	}
+
+	public OBJScanBatcher(IOBJBatchScannerHandler handler, int batchSize) {
+		this.handler = handler;
+		this.batchSize = batchSize;
+		this.data = new float[batchSize * IOBJBatchScannerHandler.VERTEX_STRIDE];
+	}
+
+	/**
+	 * Returns a batcher for the specified handler, should it
+	 * implement {@link IOBJBatchScannerHandler}, or <code>null</code>
+	 * otherwise. Limiting handlers only get a batcher if their
+	 * delegate takes batches.
+	 * @param handler the handler that will receive the events
+	 * @return a batcher or <code>null</code>
+	 */
+	public static OBJScanBatcher forHandler(IOBJScannerHandler handler) {
+		if ((handler instanceof OBJLimitingScannerHandler) && !((OBJLimitingScannerHandler) handler).isBatching()) {
+			return null;
+		}
+		if (handler instanceof IOBJBatchScannerHandler) {
+			return new OBJScanBatcher((IOBJBatchScannerHandler) handler);
+		}
+		return null;
+	}
+
+	public void addVertex(float x, float y, float z, float w) throws WFException {
+		prepare(KIND_VERTEX);
+		data[position++] = x;
+		data[position++] = y;
+		data[position++] = z;
+		data[position++] = w;
+		complete();
+	}
+
+	public void addTexCoord(float u, float v, float w) throws WFException {
+		prepare(KIND_TEXCOORD);
+		data[position++] = u;
+		data[position++] = v;
+		data[position++] = w;
+		complete();
+	}
+
+	public void addNormal(float x, float y, float z) throws WFException {
+		prepare(KIND_NORMAL);
+		data[position++] = x;
+		data[position++] = y;
+		data[position++] = z;
+		complete();
+	}
+
+	/**
+	 * Delivers any pending elements to the handler.
+	 * @throws WFException if the handler throws
+	 */
+	public void flush() throws WFException {
+		if (count == 0) {
+			return;
+		}
+		final int pendingKind = kind;
+		final int pendingCount = count;
+		kind = KIND_NONE;
+		count = 0;
+		position = 0;
+		switch (pendingKind) {
+		case KIND_VERTEX:
+			handler.onVertexBatch(data, pendingCount);
+			break;
+		case KIND_TEXCOORD:
+			handler.onTextureCoordinateBatch(data, pendingCount);
+			break;
+		case KIND_NORMAL:
+			handler.onNormalBatch(data, pendingCount);
+			break;
+		default:
+			throw new IllegalStateException("Unknown element kind.");
+		}
+	}
+
+	private void prepare(int elementKind) throws WFException {
+		if (kind != elementKind) {
+			flush();
+			kind = elementKind;
+		}
+	}
+
+	private void complete() throws WFException {
+		if (++count == batchSize) {
+			flush();
+		}
+	}
+
+}
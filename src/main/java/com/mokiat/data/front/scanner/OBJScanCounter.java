@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.mokiat.data.front.common.WFCancellationToken;
+
+/**
+ * Counts the elements that an OBJ file declares, without
+ * parsing any of their values.
+ * <p>
+ * Lines are only classified by their command, and face lines are
+ * split into tokens to count their data references, which makes this
+ * considerably cheaper than a scan. The result can be used to allocate
+ * storage of the exact size before the actual scan.
+ * <p>
+ * Counting stops between two lines, same as scanning, when the calling
+ * thread is interrupted or when the {@link WFCancellationToken}, if any,
+ * fires.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJScanCounter {
+
+	private final WFCancellationToken token;
+
+	/**
+	 * Creates a new instance of the {@link OBJScanCounter} class.
+	 */
+	public OBJScanCounter() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new instance of the {@link OBJScanCounter} class
+	 * that stops once the specified token fires.
+	 * @param token token to check or <code>null</code>
+	 */
+	public OBJScanCounter(WFCancellationToken token) {
+		this.token = token;
+	}
+
+	/**
+	 * Counts the elements of the file at the specified {@link Path}.
+	 * <p>
+	 * The file is memory-mapped and is expected to be UTF-8 encoded.
+	 * @param path path to the file
+	 * @return the element counts
+	 * @throws IOException if an I/O error occurs
+	 */
+	public OBJScanCounts count(Path path) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return count(channel);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Counts the elements of the file that is accessed through the
+	 * specified {@link FileChannel}, starting from its current position.
+	 * The position of the channel is not changed.
+	 * @param channel channel to the file
+	 * @return the element counts
+	 * @throws IOException if an I/O error occurs
+	 */
+	public OBJScanCounts count(FileChannel channel) throws IOException {
+		final WFScanInput input = new WFMappedScanInput(channel, channel.position(), channel.size());
+		final WFScanCommand command = new WFScanCommand();
+		final OBJScanCounts counts = new OBJScanCounts();
+		final WFScanGuard guard = WFScanGuard.forCurrentThread(token);
+		while (command.parseKeyword(input)) {
+			guard.check();
+			switch (OBJScanRunner.classify(command)) {
+			case OBJScanRunner.TYPE_VERTEX:
+				counts.addVertex();
+				break;
+			case OBJScanRunner.TYPE_TEXCOORD:
+				counts.addTexCoord();
+				break;
+			case OBJScanRunner.TYPE_NORMAL:
+				counts.addNormal();
+				break;
+			case OBJScanRunner.TYPE_OBJECT:
+				counts.addObject();
+				break;
+			case OBJScanRunner.TYPE_FACE:
+				command.parseParameters();
+				counts.addFace(command.getParameterCount());
+				break;
+			case OBJScanRunner.TYPE_MATERIAL_LIB:
+				counts.addMaterialLibrary();
+				break;
+			case OBJScanRunner.TYPE_MATERIAL_REF:
+				counts.addMaterialReference();
+				break;
+			default:
+				break;
+			}
+		}
+		return counts;
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+/**
+ * The {@link OBJScanCounts} class holds the number of elements
+ * of each kind that an OBJ resource declares, as determined by
+ * an {@link OBJScanCounter}.
+ * <p>
+ * Faces are additionally counted per segment. The first segment
+ * starts at the beginning of the resource and a new one starts at
+ * every object (<code>o</code>) and material reference
+ * (<code>usemtl</code>) statement, so that each mesh of a parsed
+ * model corresponds to exactly one segment.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJScanCounts {
+
+	private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+	private int vertexCount;
+	private int texCoordCount;
+	private int normalCount;
+	private int objectCount;
+	private int materialLibraryCount;
+	private int faceCount;
+	private long referenceCount;
+	private int segmentCount = 1;
+	private int[] segmentFaceCounts = new int[INITIAL_SEGMENT_CAPACITY];
+	private int[] segmentReferenceCounts = new int[INITIAL_SEGMENT_CAPACITY];
+
+	OBJScanCounts() {
+		super();
+	}
+
+	/**
+	 * Returns the number of vertex statements.
+	 * @return vertex count
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Returns the number of texture coordinate statements.
+	 * @return texture coordinate count
+	 */
+	public int getTexCoordCount() {
+		return texCoordCount;
+	}
+
+	/**
+	 * Returns the number of normal statements.
+	 * @return normal count
+	 */
+	public int getNormalCount() {
+		return normalCount;
+	}
+
+	/**
+	 * Returns the number of object statements.
+	 * @return object count
+	 */
+	public int getObjectCount() {
+		return objectCount;
+	}
+
+	/**
+	 * Returns the number of material library statements.
+	 * @return material library statement count
+	 */
+	public int getMaterialLibraryCount() {
+		return materialLibraryCount;
+	}
+
+	/**
+	 * Returns the number of face statements.
+	 * @return face count
+	 */
+	public int getFaceCount() {
+		return faceCount;
+	}
+
+	/**
+	 * Returns the total number of data references of all faces.
+	 * @return data reference count
+	 */
+	public long getReferenceCount() {
+		return referenceCount;
+	}
+
+	/**
+	 * Returns the number of segments.
+	 * @return segment count, which is at least one
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * Returns the number of faces in the specified segment.
+	 * @param segment index of the segment
+	 * @return face count of the segment
+	 */
+	public int getSegmentFaceCount(int segment) {
+		checkSegment(segment);
+		return segmentFaceCounts[segment];
+	}
+
+	/**
+	 * Returns the number of data references of all faces
+	 * in the specified segment.
+	 * @param segment index of the segment
+	 * @return data reference count of the segment
+	 */
+	public int getSegmentReferenceCount(int segment) {
+		checkSegment(segment);
+		return segmentReferenceCounts[segment];
+	}
+
+	void addVertex() {
+		vertexCount++;
+	}
+
+	void addTexCoord() {
+		texCoordCount++;
+	}
+
+	void addNormal() {
+		normalCount++;
+	}
+
+	void addMaterialLibrary() {
+		materialLibraryCount++;
+	}
+
+	void addObject() {
+		objectCount++;
+		addSegment();
+	}
+
+	void addMaterialReference() {
+		addSegment();
+	}
+
+	void addFace(int references) {
+		faceCount++;
+		referenceCount += references;
+		segmentFaceCounts[segmentCount - 1]++;
+		segmentReferenceCounts[segmentCount - 1] += references;
+	}
+
+	private void addSegment() {
+		if (segmentCount == segmentFaceCounts.length) {
+			final int capacity = segmentCount * 2;
+			final int[] newFaceCounts = new int[capacity];
+			final int[] newReferenceCounts = new int[capacity];
+			System.arraycopy(segmentFaceCounts, 0, newFaceCounts, 0, segmentCount);
+			System.arraycopy(segmentReferenceCounts, 0, newReferenceCounts, 0, segmentCount);
+			segmentFaceCounts = newFaceCounts;
+			segmentReferenceCounts = newReferenceCounts;
+		}
+		segmentCount++;
+	}
+
+	private void checkSegment(int segment) {
+		if ((segment < 0) || (segment >= segmentCount)) {
+			throw new IndexOutOfBoundsException("Index: " + segment + ", Size: " + segmentCount);
+		}
+	}
+
+}
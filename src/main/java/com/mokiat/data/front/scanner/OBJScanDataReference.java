@@ -16,8 +16,6 @@
 
 package com.mokiat.data.front.scanner;
 
-import com.mokiat.data.front.common.FastInt;
-import com.mokiat.data.front.common.IFastInt;
 import com.mokiat.data.front.error.WFCorruptException;
 
 /**
@@ -28,9 +26,9 @@ import com.mokiat.data.front.error.WFCorruptException;
  */
 class OBJScanDataReference {
 
-	private final FastInt vertexIndex = new FastInt();
-	private final FastInt texCoordIndex = new FastInt();
-	private final FastInt normalIndex = new FastInt();
+	private int vertexIndex = 0;
+	private int texCoordIndex = 0;
+	private int normalIndex = 0;
 	private boolean hasTexCoordIndex = false;
 	private boolean hasNormalIndex = false;
 
@@ -38,37 +36,88 @@ class OBJScanDataReference {
     	super();
 	}
 
-	public void parse(String segment) throws WFCorruptException {
-        final String[] references = segment.split("/");
-        vertexIndex.set(parseInt(references[0]));
-        hasTexCoordIndex = (references.length >= 2) && !references[1].isEmpty();
-        if (hasTexCoordIndex) {
-        	texCoordIndex.set(parseInt(references[1]));
-        }
-        hasNormalIndex = (references.length >= 3) && !references[2].isEmpty();
-        if (hasNormalIndex) {
-        	normalIndex.set(parseInt(references[2]));
-        }
+	/*
+	 * Parses a v, v/vt, v//vn or v/vt/vn segment located between
+	 * the start (inclusive) and end (exclusive) offsets. Any fields
+	 * after the third one are ignored.
+	 */
+	public void parse(char[] chars, int start, int end) throws WFCorruptException {
+		int fieldEnd = findSeparator(chars, start, end);
+		vertexIndex = parseInt(chars, start, fieldEnd);
+		hasTexCoordIndex = false;
+		hasNormalIndex = false;
+		if (fieldEnd == end) {
+			return;
+		}
+
+		int fieldStart = fieldEnd + 1;
+		fieldEnd = findSeparator(chars, fieldStart, end);
+		hasTexCoordIndex = (fieldEnd > fieldStart);
+		if (hasTexCoordIndex) {
+			texCoordIndex = parseInt(chars, fieldStart, fieldEnd);
+		}
+		if (fieldEnd == end) {
+			return;
+		}
+
+		fieldStart = fieldEnd + 1;
+		fieldEnd = findSeparator(chars, fieldStart, end);
+		hasNormalIndex = (fieldEnd > fieldStart);
+		if (hasNormalIndex) {
+			normalIndex = parseInt(chars, fieldStart, fieldEnd);
+		}
 	}
 	
-	public IFastInt getVertexIndex() {
+	public int getVertexIndex() {
 		return vertexIndex;
 	}
 	
-	public IFastInt getTexCoordIndex() {
-		return hasTexCoordIndex ? texCoordIndex : null;
+	public int getTexCoordIndex() {
+		return hasTexCoordIndex ? texCoordIndex : IOBJPrimitiveScannerHandler.NO_INDEX;
 	}
 	
-	public IFastInt getNormalIndex() {
-		return hasNormalIndex ? normalIndex : null;
+	public int getNormalIndex() {
+		return hasNormalIndex ? normalIndex : IOBJPrimitiveScannerHandler.NO_INDEX;
 	}
 
-    private static int parseInt(String text) throws WFCorruptException {
-        try {
-            return Integer.parseInt(text);
-        } catch (NumberFormatException ex) {
-            throw new WFCorruptException("Could not parse int value.", ex);
-        }
-    }
+	private static int findSeparator(char[] chars, int start, int end) {
+		int position = start;
+		while ((position < end) && (chars[position] != '/')) {
+			position++;
+		}
+		return position;
+	}
+
+	/*
+	 * Has the same behavior as Integer.parseInt but
+	 * works directly on the character range. Integer.MIN_VALUE
+	 * is reserved for IOBJPrimitiveScannerHandler.NO_INDEX and is
+	 * treated as an overflow.
+	 */
+	private static int parseInt(char[] chars, int start, int end) throws WFCorruptException {
+		int position = start;
+		boolean negative = false;
+		if ((position < end) && ((chars[position] == '-') || (chars[position] == '+'))) {
+			negative = (chars[position] == '-');
+			position++;
+		}
+		if (position == end) {
+			throw new WFCorruptException("Could not parse int value.");
+		}
+		// Accumulate negatively, same as Integer.parseInt
+		final int limit = -Integer.MAX_VALUE;
+		int result = 0;
+		while (position < end) {
+			final int digit = chars[position++] - '0';
+			if ((digit < 0) || (digit > 9)) {
+				throw new WFCorruptException("Could not parse int value.");
+			}
+			if (result < (limit + digit) / 10) {
+				throw new WFCorruptException("Could not parse int value.");
+			}
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
 
 }
@@ -16,11 +16,8 @@
 
 package com.mokiat.data.front.scanner;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 
-import com.mokiat.data.front.common.IFastFloat;
-import com.mokiat.data.front.common.IFastInt;
 import com.mokiat.data.front.error.WFCorruptException;
 import com.mokiat.data.front.error.WFException;
 
@@ -32,43 +29,158 @@ import com.mokiat.data.front.error.WFException;
  */
 class OBJScanRunner {
 	
-    private static final String COMMAND_VERTEX = "v";
-    private static final String COMMAND_TEXCOORD = "vt";
-    private static final String COMMAND_NORMAL = "vn";
-    private static final String COMMAND_OBJECT = "o";
-    private static final String COMMAND_FACE = "f";
-    private static final String COMMAND_MATERIAL_REF = "usemtl";
-    private static final String COMMAND_MATERIAL_LIB = "mtllib";
+    static final String COMMAND_VERTEX = "v";
+    static final String COMMAND_TEXCOORD = "vt";
+    static final String COMMAND_NORMAL = "vn";
+    static final String COMMAND_OBJECT = "o";
+    static final String COMMAND_FACE = "f";
+    static final String COMMAND_MATERIAL_REF = "usemtl";
+    static final String COMMAND_MATERIAL_LIB = "mtllib";
+    static final String COMMAND_SMOOTHING_GROUP = "s";
+    static final String SMOOTHING_GROUP_OFF = "off";
+
+    static final int TYPE_NONE = 0;
+    static final int TYPE_COMMENT = 1;
+    static final int TYPE_VERTEX = 2;
+    static final int TYPE_TEXCOORD = 3;
+    static final int TYPE_NORMAL = 4;
+    static final int TYPE_OBJECT = 5;
+    static final int TYPE_FACE = 6;
+    static final int TYPE_MATERIAL_LIB = 7;
+    static final int TYPE_MATERIAL_REF = 8;
+    static final int TYPE_SMOOTHING_GROUP = 9;
+
+    /*
+     * The IOBJInterestScannerHandler flags of each command are equal
+     * to one shifted left by the respective type.
+     */
+    private static final int BATCHED_INTERESTS = (1 << TYPE_VERTEX) | (1 << TYPE_TEXCOORD) | (1 << TYPE_NORMAL);
 	
-	private final IOBJScannerHandler handler;
+	private final IOBJPrimitiveScannerHandler handler;
 	private final WFScanCommand command = new WFScanCommand();
 	private final OBJScanDataReference dataReference = new OBJScanDataReference();
+	private final OBJScanBatcher batcher;
+	private final IOBJInterestScannerHandler interestHandler;
+	private final IOBJSmoothingGroupScannerHandler smoothingGroupHandler;
+	private final int interestMask;
 
 	public OBJScanRunner(IOBJScannerHandler handler) {
-		this.handler = handler;
+		this.handler = OBJScannerHandlerAdapter.adapt(handler);
+		this.batcher = OBJScanBatcher.forHandler(handler);
+		this.smoothingGroupHandler = getSmoothingGroupHandler(handler);
+		if (handler instanceof IOBJInterestScannerHandler) {
+			this.interestHandler = (IOBJInterestScannerHandler) handler;
+			this.interestMask = interestHandler.getInterestMask();
+		} else {
+			this.interestHandler = null;
+			this.interestMask = IOBJInterestScannerHandler.INTEREST_ALL;
+		}
 	}
 	
-	public void run(BufferedReader reader) throws WFException, IOException {
-		while (command.parse(reader)) {
-            if (command.isEmpty()) {
-                continue;
-            } else if (command.isComment()) {
+	public void run(WFScanInput input, WFScanGuard guard) throws WFException, IOException {
+		while (command.parseKeyword(input)) {
+			guard.check();
+			final int type = classify(command);
+			if ((type == TYPE_NONE) || ((type == TYPE_SMOOTHING_GROUP) && (smoothingGroupHandler == null))) {
+				continue;
+			}
+			final int interest = 1 << type;
+			final boolean interested = ((interestMask & interest) != 0);
+			if ((batcher != null) && (!interested || ((interest & BATCHED_INTERESTS) == 0))) {
+				batcher.flush();
+			}
+			if (!interested) {
+				interestHandler.onSkipped(interest);
+				continue;
+			}
+			command.parseParameters();
+			switch (type) {
+			case TYPE_COMMENT:
 				processComment(command);
-			} else if (command.isCommand(COMMAND_VERTEX)) {
-            	processVertex(command);
-            } else if (command.isCommand(COMMAND_TEXCOORD)) {
-            	processTexCoord(command);
-            } else if (command.isCommand(COMMAND_NORMAL)) {
-            	processNormal(command);
-            } else if (command.isCommand(COMMAND_OBJECT)) {
-            	processObject(command);
-            } else if (command.isCommand(COMMAND_FACE)) {
-            	processFace(command);
-            } else if (command.isCommand(COMMAND_MATERIAL_LIB)) {
-            	processMaterialLibrary(command);
-            } else if (command.isCommand(COMMAND_MATERIAL_REF)) {
-            	processMaterialReference(command);
-            }
+				break;
+			case TYPE_VERTEX:
+				processVertex(command);
+				break;
+			case TYPE_TEXCOORD:
+				processTexCoord(command);
+				break;
+			case TYPE_NORMAL:
+				processNormal(command);
+				break;
+			case TYPE_OBJECT:
+				processObject(command);
+				break;
+			case TYPE_FACE:
+				processFace(command);
+				break;
+			case TYPE_MATERIAL_LIB:
+				processMaterialLibrary(command);
+				break;
+			case TYPE_MATERIAL_REF:
+				processMaterialReference(command);
+				break;
+			case TYPE_SMOOTHING_GROUP:
+				processSmoothingGroup(command);
+				break;
+			default:
+				break;
+			}
+		}
+		if (batcher != null) {
+			batcher.flush();
+		}
+	}
+
+	/*
+	 * Returns the handler that should receive smoothing groups, looking
+	 * through primitive handler adapters, or null if there is none.
+	 */
+	static IOBJSmoothingGroupScannerHandler getSmoothingGroupHandler(IOBJScannerHandler handler) {
+		if (handler instanceof IOBJSmoothingGroupScannerHandler) {
+			return (IOBJSmoothingGroupScannerHandler) handler;
+		}
+		if (handler instanceof OBJPrimitiveScannerHandlerAdapter) {
+			final IOBJPrimitiveScannerHandler delegate = ((OBJPrimitiveScannerHandlerAdapter) handler).getDelegate();
+			if (delegate instanceof IOBJSmoothingGroupScannerHandler) {
+				return (IOBJSmoothingGroupScannerHandler) delegate;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Determines the type of the command by switching on its first
+	 * character, so that the common commands (v, f) are identified
+	 * with a couple of comparisons and no String is built.
+	 */
+	static int classify(WFScanCommand command) {
+		if (command.isEmpty()) {
+			return TYPE_NONE;
+		}
+		switch (command.getCommandChar(0)) {
+		case '#':
+			return TYPE_COMMENT;
+		case 'v':
+			if (command.isCommand(COMMAND_VERTEX)) {
+				return TYPE_VERTEX;
+			} else if (command.isCommand(COMMAND_TEXCOORD)) {
+				return TYPE_TEXCOORD;
+			} else if (command.isCommand(COMMAND_NORMAL)) {
+				return TYPE_NORMAL;
+			}
+			return TYPE_NONE;
+		case 'f':
+			return command.isCommand(COMMAND_FACE) ? TYPE_FACE : TYPE_NONE;
+		case 'o':
+			return command.isCommand(COMMAND_OBJECT) ? TYPE_OBJECT : TYPE_NONE;
+		case 'm':
+			return command.isCommand(COMMAND_MATERIAL_LIB) ? TYPE_MATERIAL_LIB : TYPE_NONE;
+		case 'u':
+			return command.isCommand(COMMAND_MATERIAL_REF) ? TYPE_MATERIAL_REF : TYPE_NONE;
+		case 's':
+			return command.isCommand(COMMAND_SMOOTHING_GROUP) ? TYPE_SMOOTHING_GROUP : TYPE_NONE;
+		default:
+			return TYPE_NONE;
 		}
 	}
 
@@ -80,33 +192,55 @@ class OBJScanRunner {
         if (command.getParameterCount() < 3) {
             throw new WFCorruptException("Insufficient vertex data.");
         }
-        final IFastFloat x = command.getFastFloat(0);
-        final IFastFloat y = command.getFastFloat(1);
-        final IFastFloat z = command.getFastFloat(2);
-        final IFastFloat w = command.getFastFloat(3);
-        handler.onVertex(x, y, z, w);
+        if (batcher != null) {
+        	batcher.addVertex(command.getFloatParam(0), command.getFloatParam(1), command.getFloatParam(2),
+        			getOptionalFloatParam(command, 3));
+        	return;
+        }
+        final float x = command.getFloatParam(0);
+        final float y = command.getFloatParam(1);
+        final float z = command.getFloatParam(2);
+        if (command.getParameterCount() > 3) {
+        	handler.onVertex(x, y, z, command.getFloatParam(3), true);
+        } else {
+        	handler.onVertex(x, y, z, 1.0f, false);
+        }
 	}
 	
 	private void processTexCoord(WFScanCommand command) throws WFException {
         if (command.getParameterCount() == 0) {
             throw new WFCorruptException("Insufficient texture coordinate data.");
         }
-        final IFastFloat u = command.getFastFloat(0);
-        final IFastFloat v = command.getFastFloat(1);
-        final IFastFloat w = command.getFastFloat(2);
-        handler.onTextureCoordinate(u, v, w);
+        if (batcher != null) {
+        	batcher.addTexCoord(command.getFloatParam(0), getOptionalFloatParam(command, 1),
+        			getOptionalFloatParam(command, 2));
+        	return;
+        }
+        final int dimensions = Math.min(3, command.getParameterCount());
+        final float u = command.getFloatParam(0);
+        final float v = (dimensions > 1) ? command.getFloatParam(1) : 0.0f;
+        final float w = (dimensions > 2) ? command.getFloatParam(2) : 0.0f;
+        handler.onTextureCoordinate(u, v, w, dimensions);
 	}
 
 	private void processNormal(WFScanCommand command) throws WFException {
         if (command.getParameterCount() < 3) {
             throw new WFCorruptException("Insufficient normal data.");
         }
-        final IFastFloat x = command.getFastFloat(0);
-        final IFastFloat y = command.getFastFloat(1);
-        final IFastFloat z = command.getFastFloat(2);
+        if (batcher != null) {
+        	batcher.addNormal(command.getFloatParam(0), command.getFloatParam(1), command.getFloatParam(2));
+        	return;
+        }
+        final float x = command.getFloatParam(0);
+        final float y = command.getFloatParam(1);
+        final float z = command.getFloatParam(2);
         handler.onNormal(x, y, z);
 	}
 
+	private float getOptionalFloatParam(WFScanCommand command, int index) throws WFCorruptException {
+		return (index < command.getParameterCount()) ? command.getFloatParam(index) : Float.NaN;
+	}
+
 	private void processObject(WFScanCommand command) throws WFException {
 		if (command.getParameterCount() == 0) {
 			throw new WFCorruptException("Missing object name.");	
@@ -118,11 +252,9 @@ class OBJScanRunner {
 	private void processFace(WFScanCommand command) throws WFException {
 		handler.onFaceBegin();
         for (int i = 0; i < command.getParameterCount(); ++i) {
-        	dataReference.parse(command.getStringParam(i));
-            final IFastInt vertexIndex = dataReference.getVertexIndex();
-            final IFastInt texCoordIndex = dataReference.getTexCoordIndex();
-            final IFastInt normalIndex = dataReference.getNormalIndex();
-            handler.onDataReference(vertexIndex, texCoordIndex, normalIndex);
+        	dataReference.parse(command.getBuffer(), command.getParamStart(i), command.getParamEnd(i));
+            handler.onDataReference(dataReference.getVertexIndex(),
+            		dataReference.getTexCoordIndex(), dataReference.getNormalIndex());
         }
 		handler.onFaceEnd();
 	}
@@ -143,4 +275,48 @@ class OBJScanRunner {
         }
 	}
 
+	private void processSmoothingGroup(WFScanCommand command) throws WFException {
+		if (command.getParameterCount() == 0) {
+			throw new WFCorruptException("Missing smoothing group.");
+		}
+		smoothingGroupHandler.onSmoothingGroup(parseSmoothingGroup(command));
+	}
+
+	/*
+	 * Parses the smoothing group directly from the line buffer, as
+	 * these statements can appear before every single face.
+	 */
+	private static int parseSmoothingGroup(WFScanCommand command) throws WFCorruptException {
+		final char[] buffer = command.getBuffer();
+		final int start = command.getParamStart(0);
+		final int end = command.getParamEnd(0);
+		if (isToken(buffer, start, end, SMOOTHING_GROUP_OFF)) {
+			return IOBJSmoothingGroupScannerHandler.SMOOTHING_GROUP_OFF;
+		}
+		long value = 0;
+		for (int i = start; i < end; ++i) {
+			final char c = buffer[i];
+			if ((c < '0') || (c > '9')) {
+				throw new WFCorruptException("Invalid smoothing group.");
+			}
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw new WFCorruptException("Smoothing group is too large.");
+			}
+		}
+		return (int) value;
+	}
+
+	private static boolean isToken(char[] buffer, int start, int end, String token) {
+		if (end - start != token.length()) {
+			return false;
+		}
+		for (int i = 0; i < token.length(); ++i) {
+			if (buffer[start + i] != token.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
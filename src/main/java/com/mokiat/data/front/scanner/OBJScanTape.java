@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mokiat.data.front.common.IFastFloat;
+import com.mokiat.data.front.common.IFastInt;
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * Internal implementation of the {@link IOBJPrimitiveScannerHandler} interface
+ * that records all events in compact primitive arrays, so that they
+ * can later be replayed, in the same order, to another handler.
+ * <p>
+ * This is used by {@link OBJParallelScanner} to scan chunks of a
+ * resource concurrently while still delivering events in file order.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+class OBJScanTape implements IOBJInterestScannerHandler, IOBJSmoothingGroupScannerHandler, IOBJPrimitiveScannerHandler {
+
+	private static final int EVENT_COMMENT = 0;
+	private static final int EVENT_VERTEX = 1;
+	private static final int EVENT_VERTEX_W = 2;
+	private static final int EVENT_NORMAL = 3;
+	private static final int EVENT_TEXCOORD_U = 4;
+	private static final int EVENT_TEXCOORD_UV = 5;
+	private static final int EVENT_TEXCOORD_UVW = 6;
+	private static final int EVENT_OBJECT = 7;
+	private static final int EVENT_FACE_BEGIN = 8;
+	private static final int EVENT_FACE_END = 9;
+	private static final int EVENT_DATA_REFERENCE = 10;
+	private static final int EVENT_MATERIAL_LIBRARY = 11;
+	private static final int EVENT_MATERIAL_REFERENCE = 12;
+	private static final int EVENT_SKIPPED = 13;
+	private static final int EVENT_SMOOTHING_GROUP = 14;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private byte[] events = new byte[INITIAL_CAPACITY];
+	private int eventCount = 0;
+	private float[] floats = new float[INITIAL_CAPACITY];
+	private int floatCount = 0;
+	private int[] ints = new int[INITIAL_CAPACITY];
+	private int intCount = 0;
+	private final List<String> strings = new ArrayList<String>();
+	private final int interestMask;
+	private IOException error;
+
+	public OBJScanTape() {
+		this(INTEREST_ALL);
+	}
+
+	/**
+	 * Creates a new tape that declares the specified interest mask
+	 * to the scan runner. Skipped commands are recorded and replayed
+	 * through {@link IOBJInterestScannerHandler#onSkipped(int)}.
+	 * @param interestMask the interest mask of the handler to which
+	 * the tape will be replayed
+	 */
+	public OBJScanTape(int interestMask) {
+		this.interestMask = interestMask;
+	}
+
+	/**
+	 * Records an error that occurred while scanning. The error
+	 * is thrown once all previously recorded events have been
+	 * replayed.
+	 * @param error the error that occurred
+	 */
+	public void setError(IOException error) {
+		this.error = error;
+	}
+
+	/**
+	 * Replays all recorded events to the specified handler.
+	 * @param handler handler to receive the events
+	 * @throws IOException if the handler throws or if the
+	 * recorded scan ended with an error
+	 */
+	public void replay(IOBJScannerHandler handler) throws IOException {
+		final IOBJPrimitiveScannerHandler target = OBJScannerHandlerAdapter.adapt(handler);
+		final OBJScanBatcher batcher = OBJScanBatcher.forHandler(handler);
+		final IOBJSmoothingGroupScannerHandler smoothingGroupTarget = OBJScanRunner.getSmoothingGroupHandler(handler);
+		int floatIndex = 0;
+		int intIndex = 0;
+		int stringIndex = 0;
+		for (int i = 0; i < eventCount; ++i) {
+			final byte event = events[i];
+			if (batcher != null) {
+				switch (event) {
+				case EVENT_VERTEX:
+				case EVENT_VERTEX_W:
+					batcher.addVertex(floats[floatIndex++], floats[floatIndex++], floats[floatIndex++],
+							(event == EVENT_VERTEX_W) ? floats[floatIndex++] : Float.NaN);
+					continue;
+				case EVENT_NORMAL:
+					batcher.addNormal(floats[floatIndex++], floats[floatIndex++], floats[floatIndex++]);
+					continue;
+				case EVENT_TEXCOORD_U:
+				case EVENT_TEXCOORD_UV:
+				case EVENT_TEXCOORD_UVW:
+					batcher.addTexCoord(floats[floatIndex++],
+							(event != EVENT_TEXCOORD_U) ? floats[floatIndex++] : Float.NaN,
+							(event == EVENT_TEXCOORD_UVW) ? floats[floatIndex++] : Float.NaN);
+					continue;
+				default:
+					batcher.flush();
+					break;
+				}
+			}
+			switch (event) {
+			case EVENT_COMMENT:
+				target.onComment(strings.get(stringIndex++));
+				break;
+			case EVENT_VERTEX:
+				target.onVertex(floats[floatIndex++], floats[floatIndex++], floats[floatIndex++], 1.0f, false);
+				break;
+			case EVENT_VERTEX_W:
+				target.onVertex(floats[floatIndex++], floats[floatIndex++], floats[floatIndex++], floats[floatIndex++], true);
+				break;
+			case EVENT_NORMAL:
+				target.onNormal(floats[floatIndex++], floats[floatIndex++], floats[floatIndex++]);
+				break;
+			case EVENT_TEXCOORD_U:
+				target.onTextureCoordinate(floats[floatIndex++], 0.0f, 0.0f, 1);
+				break;
+			case EVENT_TEXCOORD_UV:
+				target.onTextureCoordinate(floats[floatIndex++], floats[floatIndex++], 0.0f, 2);
+				break;
+			case EVENT_TEXCOORD_UVW:
+				target.onTextureCoordinate(floats[floatIndex++], floats[floatIndex++], floats[floatIndex++], 3);
+				break;
+			case EVENT_OBJECT:
+				target.onObject(strings.get(stringIndex++));
+				break;
+			case EVENT_FACE_BEGIN:
+				target.onFaceBegin();
+				break;
+			case EVENT_FACE_END:
+				target.onFaceEnd();
+				break;
+			case EVENT_DATA_REFERENCE:
+				target.onDataReference(ints[intIndex++], ints[intIndex++], ints[intIndex++]);
+				break;
+			case EVENT_MATERIAL_LIBRARY:
+				target.onMaterialLibrary(strings.get(stringIndex++));
+				break;
+			case EVENT_MATERIAL_REFERENCE:
+				target.onMaterialReference(strings.get(stringIndex++));
+				break;
+			case EVENT_SKIPPED:
+				((IOBJInterestScannerHandler) handler).onSkipped(ints[intIndex++]);
+				break;
+			case EVENT_SMOOTHING_GROUP:
+				final int smoothingGroup = ints[intIndex++];
+				if (smoothingGroupTarget != null) {
+					smoothingGroupTarget.onSmoothingGroup(smoothingGroup);
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown event.");
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+		if (batcher != null) {
+			batcher.flush();
+		}
+	}
+
+	@Override
+	public void onComment(String comment) throws WFException {
+		addEvent(EVENT_COMMENT);
+		strings.add(comment);
+	}
+
+	@Override
+	public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) throws WFException {
+		onVertex(x.get(), y.get(), z.get(), (w != null) ? w.get() : 1.0f, (w != null));
+	}
+
+	@Override
+	public void onVertex(float x, float y, float z, float w, boolean hasW) throws WFException {
+		addEvent(hasW ? EVENT_VERTEX_W : EVENT_VERTEX);
+		addFloat(x);
+		addFloat(y);
+		addFloat(z);
+		if (hasW) {
+			addFloat(w);
+		}
+	}
+
+	@Override
+	public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) throws WFException {
+		onNormal(x.get(), y.get(), z.get());
+	}
+
+	@Override
+	public void onNormal(float x, float y, float z) throws WFException {
+		addEvent(EVENT_NORMAL);
+		addFloat(x);
+		addFloat(y);
+		addFloat(z);
+	}
+
+	@Override
+	public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) throws WFException {
+		final int dimensions = (v == null) ? 1 : ((w == null) ? 2 : 3);
+		onTextureCoordinate(u.get(), (v != null) ? v.get() : 0.0f, (w != null) ? w.get() : 0.0f, dimensions);
+	}
+
+	@Override
+	public void onTextureCoordinate(float u, float v, float w, int dimensions) throws WFException {
+		addFloat(u);
+		if (dimensions == 1) {
+			addEvent(EVENT_TEXCOORD_U);
+			return;
+		}
+		addFloat(v);
+		if (dimensions == 2) {
+			addEvent(EVENT_TEXCOORD_UV);
+			return;
+		}
+		addFloat(w);
+		addEvent(EVENT_TEXCOORD_UVW);
+	}
+
+	@Override
+	public void onObject(String objectName) throws WFException {
+		addEvent(EVENT_OBJECT);
+		strings.add(objectName);
+	}
+
+	@Override
+	public void onFaceBegin() throws WFException {
+		addEvent(EVENT_FACE_BEGIN);
+	}
+
+	@Override
+	public void onFaceEnd() throws WFException {
+		addEvent(EVENT_FACE_END);
+	}
+
+	@Override
+	public void onDataReference(IFastInt vertexIndex, IFastInt texCoordIndex, IFastInt normalIndex) throws WFException {
+		onDataReference(vertexIndex.get(),
+				(texCoordIndex != null) ? texCoordIndex.get() : NO_INDEX,
+				(normalIndex != null) ? normalIndex.get() : NO_INDEX);
+	}
+
+	@Override
+	public void onDataReference(int vertexIndex, int texCoordIndex, int normalIndex) throws WFException {
+		addEvent(EVENT_DATA_REFERENCE);
+		addInt(vertexIndex);
+		addInt(texCoordIndex);
+		addInt(normalIndex);
+	}
+
+	@Override
+	public void onMaterialLibrary(String libraryFilename) throws WFException {
+		addEvent(EVENT_MATERIAL_LIBRARY);
+		strings.add(libraryFilename);
+	}
+
+	@Override
+	public void onMaterialReference(String materialName) throws WFException {
+		addEvent(EVENT_MATERIAL_REFERENCE);
+		strings.add(materialName);
+	}
+
+	@Override
+	public void onSmoothingGroup(int smoothingGroup) throws WFException {
+		addEvent(EVENT_SMOOTHING_GROUP);
+		addInt(smoothingGroup);
+	}
+
+	@Override
+	public int getInterestMask() {
+		return interestMask;
+	}
+
+	@Override
+	public void onSkipped(int interest) throws WFException {
+		addEvent(EVENT_SKIPPED);
+		addInt(interest);
+	}
+
+	private void addEvent(int event) {
+		if (eventCount == events.length) {
+			final byte[] newEvents = new byte[eventCount * 2];
+			System.arraycopy(events, 0, newEvents, 0, eventCount);
+			events = newEvents;
+		}
+		events[eventCount++] = (byte) event;
+	}
+
+	private void addFloat(float value) {
+		if (floatCount == floats.length) {
+			final float[] newFloats = new float[floatCount * 2];
+			System.arraycopy(floats, 0, newFloats, 0, floatCount);
+			floats = newFloats;
+		}
+		floats[floatCount++] = value;
+	}
+
+	private void addInt(int value) {
+		if (intCount == ints.length) {
+			final int[] newInts = new int[intCount * 2];
+			System.arraycopy(ints, 0, newInts, 0, intCount);
+			ints = newInts;
+		}
+		ints[intCount++] = value;
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.common.FastFloat;
+import com.mokiat.data.front.common.FastInt;
+import com.mokiat.data.front.error.WFException;
+
+/**
+ * This implementation of the {@link IOBJPrimitiveScannerHandler} interface
+ * forwards all events to an {@link IOBJScannerHandler}, wrapping primitive
+ * values in reusable {@link FastFloat} and {@link FastInt} instances.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJScannerHandlerAdapter implements IOBJPrimitiveScannerHandler {
+
+	private final IOBJScannerHandler delegate;
+	private final FastFloat x = new FastFloat();
+	private final FastFloat y = new FastFloat();
+	private final FastFloat z = new FastFloat();
+	private final FastFloat w = new FastFloat();
+	private final FastInt vertexIndex = new FastInt();
+	private final FastInt texCoordIndex = new FastInt();
+	private final FastInt normalIndex = new FastInt();
+
+	/**
+	 * Creates a new {@link OBJScannerHandlerAdapter} that
+	 * forwards events to the specified handler.
+	 * @param delegate handler to which events will be forwarded.
+	 */
+	public OBJScannerHandlerAdapter(IOBJScannerHandler delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Returns an {@link IOBJPrimitiveScannerHandler} view of the specified
+	 * handler. Handlers that already implement the primitive interface are
+	 * returned as is and {@link OBJPrimitiveScannerHandlerAdapter} instances
+	 * are unwrapped, so that no adapter is stacked on top of another.
+	 * @param handler the handler to adapt
+	 * @return a primitive handler that forwards to the specified handler
+	 */
+	public static IOBJPrimitiveScannerHandler adapt(IOBJScannerHandler handler) {
+		if (handler instanceof OBJPrimitiveScannerHandlerAdapter) {
+			return ((OBJPrimitiveScannerHandlerAdapter) handler).getDelegate();
+		}
+		if (handler instanceof IOBJPrimitiveScannerHandler) {
+			return (IOBJPrimitiveScannerHandler) handler;
+		}
+		return new OBJScannerHandlerAdapter(handler);
+	}
+
+	/**
+	 * Returns the handler to which events are forwarded.
+	 * @return the wrapped {@link IOBJScannerHandler}
+	 */
+	public IOBJScannerHandler getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public void onComment(String comment) throws WFException {
+		delegate.onComment(comment);
+	}
+
+	@Override
+	public void onVertex(float x, float y, float z, float w, boolean hasW) throws WFException {
+		this.x.set(x);
+		this.y.set(y);
+		this.z.set(z);
+		this.w.set(w);
+		delegate.onVertex(this.x, this.y, this.z, hasW ? this.w : null);
+	}
+
+	@Override
+	public void onNormal(float x, float y, float z) throws WFException {
+		this.x.set(x);
+		this.y.set(y);
+		this.z.set(z);
+		delegate.onNormal(this.x, this.y, this.z);
+	}
+
+	@Override
+	public void onTextureCoordinate(float u, float v, float w, int dimensions) throws WFException {
+		this.x.set(u);
+		this.y.set(v);
+		this.z.set(w);
+		delegate.onTextureCoordinate(this.x, (dimensions > 1) ? this.y : null, (dimensions > 2) ? this.z : null);
+	}
+
+	@Override
+	public void onObject(String objectName) throws WFException {
+		delegate.onObject(objectName);
+	}
+
+	@Override
+	public void onFaceBegin() throws WFException {
+		delegate.onFaceBegin();
+	}
+
+	@Override
+	public void onFaceEnd() throws WFException {
+		delegate.onFaceEnd();
+	}
+
+	@Override
+	public void onDataReference(int vertexIndex, int texCoordIndex, int normalIndex) throws WFException {
+		this.vertexIndex.set(vertexIndex);
+		this.texCoordIndex.set(texCoordIndex);
+		this.normalIndex.set(normalIndex);
+		delegate.onDataReference(this.vertexIndex,
+				(texCoordIndex != NO_INDEX) ? this.texCoordIndex : null,
+				(normalIndex != NO_INDEX) ? this.normalIndex : null);
+	}
+
+	@Override
+	public void onMaterialLibrary(String libraryFilename) throws WFException {
+		delegate.onMaterialLibrary(libraryFilename);
+	}
+
+	@Override
+	public void onMaterialReference(String materialName) throws WFException {
+		delegate.onMaterialReference(materialName);
+	}
+
+}
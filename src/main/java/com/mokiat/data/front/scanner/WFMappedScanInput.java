@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Internal implementation of {@link WFScanInput} that reads
+ * characters from a memory-mapped {@link FileChannel}.
+ * <p>
+ * The file is mapped in windows of limited size, which are
+ * remapped as scanning progresses, so files larger than 2 GB
+ * are supported. Bytes are expected to be UTF-8 encoded. ASCII
+ * bytes, which make up practically all of an OBJ or MTL resource,
+ * are widened directly without going through a charset decoder.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+class WFMappedScanInput extends WFScanInput {
+
+	private static final long DEFAULT_WINDOW_SIZE = 1L << 26;
+	private static final int MAX_SEQUENCE_LENGTH = 4;
+	private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+	private final FileChannel channel;
+	private final long end;
+	private final long windowSize;
+	private long windowStart;
+	private MappedByteBuffer window;
+
+	public WFMappedScanInput(FileChannel channel) throws IOException {
+		this(channel, channel.position(), channel.size(), DEFAULT_WINDOW_SIZE);
+	}
+
+	/*
+	 * Creates an input that reads the bytes between the start (inclusive)
+	 * and end (exclusive) positions of the channel.
+	 */
+	public WFMappedScanInput(FileChannel channel, long start, long end) {
+		this(channel, start, end, DEFAULT_WINDOW_SIZE);
+	}
+
+	WFMappedScanInput(FileChannel channel, long start, long end, long windowSize) {
+		this.channel = channel;
+		this.windowStart = start;
+		this.end = end;
+		this.windowSize = Math.max(windowSize, MAX_SEQUENCE_LENGTH);
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		int count = 0;
+		while ((count < length) && ensureAvailable()) {
+			while ((count < length) && window.hasRemaining()) {
+				final byte b = window.get();
+				if (b < 0) {
+					((Buffer) window).position(window.position() - 1);
+					break;
+				}
+				buffer[offset + count++] = (char) b;
+			}
+			if ((count + 2 > length) || !ensureAvailable()) {
+				break;
+			}
+			if (window.get(window.position()) < 0) {
+				count += decodeSequence(buffer, offset + count);
+			}
+		}
+		return (count == 0) ? -1 : count;
+	}
+
+	/*
+	 * Decodes a single multi-byte UTF-8 sequence. Malformed
+	 * sequences are replaced by the U+FFFD character, same
+	 * as with the default behavior of InputStreamReader.
+	 */
+	private int decodeSequence(char[] buffer, int offset) {
+		final int first = window.get() & 0xFF;
+		final int continuationCount;
+		final int minCodePoint;
+		int codePoint;
+		if ((first >> 5) == 0x06) {
+			continuationCount = 1;
+			minCodePoint = 0x80;
+			codePoint = first & 0x1F;
+		} else if ((first >> 4) == 0x0E) {
+			continuationCount = 2;
+			minCodePoint = 0x800;
+			codePoint = first & 0x0F;
+		} else if ((first >> 3) == 0x1E) {
+			continuationCount = 3;
+			minCodePoint = 0x10000;
+			codePoint = first & 0x07;
+		} else {
+			buffer[offset] = REPLACEMENT_CHAR;
+			return 1;
+		}
+		for (int i = 0; i < continuationCount; ++i) {
+			if (!window.hasRemaining()) {
+				buffer[offset] = REPLACEMENT_CHAR;
+				return 1;
+			}
+			final int next = window.get(window.position()) & 0xFF;
+			if ((next & 0xC0) != 0x80) {
+				buffer[offset] = REPLACEMENT_CHAR;
+				return 1;
+			}
+			window.get();
+			codePoint = (codePoint << 6) | (next & 0x3F);
+		}
+		if ((codePoint < minCodePoint) || !Character.isValidCodePoint(codePoint)
+				|| ((codePoint >= Character.MIN_SURROGATE) && (codePoint <= Character.MAX_SURROGATE))) {
+			buffer[offset] = REPLACEMENT_CHAR;
+			return 1;
+		}
+		if (Character.isBmpCodePoint(codePoint)) {
+			buffer[offset] = (char) codePoint;
+			return 1;
+		}
+		buffer[offset] = Character.highSurrogate(codePoint);
+		buffer[offset + 1] = Character.lowSurrogate(codePoint);
+		return 2;
+	}
+
+	/*
+	 * Makes sure that the current window has enough bytes to decode
+	 * a complete UTF-8 sequence, remapping if needed. Returns whether
+	 * there are any bytes left at all.
+	 */
+	private boolean ensureAvailable() throws IOException {
+		if (window != null) {
+			if (window.remaining() >= MAX_SEQUENCE_LENGTH) {
+				return true;
+			}
+			if (windowStart + window.limit() >= end) {
+				return window.hasRemaining();
+			}
+			windowStart += window.position();
+		}
+		if (windowStart >= end) {
+			return false;
+		}
+		final long length = Math.min(windowSize, end - windowStart);
+		window = channel.map(MapMode.READ_ONLY, windowStart, length);
+		return window.hasRemaining();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Internal implementation of {@link WFScanInput} that reads
+ * characters from a {@link Reader}.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+class WFReaderScanInput extends WFScanInput {
+
+	private final Reader reader;
+
+	public WFReaderScanInput(Reader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		return reader.read(buffer, offset, length);
+	}
+
+}
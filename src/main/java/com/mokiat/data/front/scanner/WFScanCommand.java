@@ -16,7 +16,6 @@
 
 package com.mokiat.data.front.scanner;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 
 import com.mokiat.data.front.common.FastFloat;
@@ -26,80 +25,135 @@ import com.mokiat.data.front.error.WFCorruptException;
 /**
  * This class helps in parsing OBJ and MTL files by extracting element
  * declarations (e.g. vertex, normal, material).
+ * <p>
+ * Logical lines are read into a reusable character buffer and
+ * are split into tokens by recording their start and end offsets.
+ * Strings are only constructed when explicitly requested and
+ * numeric values are parsed directly from the buffer.
  *
  * @author Momchil Atanasov
- * 
+ *
  */
 class WFScanCommand {
-	
+
 	private static final int FAST_FLOAT_POOL_SIZE = 4;
-    private static final String WHITE_SPACE_PATTERN = "[\\s]+";
-    private static final String COMMENT_SEPARATOR = "#";
-    private static final int COMMENT_SEPARATOR_LENGTH = COMMENT_SEPARATOR.length();
-    private static final String LINE_EXTENSION = "\\";
-    
-    private final FastFloat[] fastFloats = new FastFloat[FAST_FLOAT_POOL_SIZE];
-	private final StringBuilder logicalLineBuilder = new StringBuilder();
-    private String logicalLine;
-    private String[] segments;
-
-    public WFScanCommand() {
-    	for (int i = 0; i < FAST_FLOAT_POOL_SIZE; ++i) {
-    		fastFloats[i] = new FastFloat(); 
-    	}
-    }
-    
-	public boolean parse(BufferedReader reader) throws IOException {
-		final String line = readLogicalLine(reader);
-		if (line == null) {
+	private static final int INITIAL_LINE_CAPACITY = 256;
+	private static final int INITIAL_TOKEN_CAPACITY = 16;
+	private static final int CHUNK_SIZE = 8192;
+	private static final char COMMENT_SEPARATOR = '#';
+	private static final char LINE_EXTENSION = '\\';
+
+	private final FastFloat[] fastFloats = new FastFloat[FAST_FLOAT_POOL_SIZE];
+	private final char[] chunk = new char[CHUNK_SIZE];
+	private int chunkPosition = 0;
+	private int chunkLimit = 0;
+	private boolean skipLineFeed = false;
+	private char[] line = new char[INITIAL_LINE_CAPACITY];
+	private int lineLength = 0;
+	private int[] tokenStarts = new int[INITIAL_TOKEN_CAPACITY];
+	private int[] tokenEnds = new int[INITIAL_TOKEN_CAPACITY];
+	private int tokenCount = 0;
+
+	public WFScanCommand() {
+		for (int i = 0; i < FAST_FLOAT_POOL_SIZE; ++i) {
+			fastFloats[i] = new FastFloat();
+		}
+	}
+
+	public boolean parse(WFScanInput input) throws IOException {
+		if (!readLogicalLine(input)) {
 			return false;
 		}
-        logicalLine = line.trim();
-        segments = logicalLine.split(WHITE_SPACE_PATTERN);
-        return true;
+		tokenize();
+		return true;
 	}
-	
+
+	/*
+	 * Reads the next logical line but only extracts its keyword, so
+	 * that lines that are not needed can be skipped cheaply. Parameters
+	 * are only available after a call to parseParameters().
+	 */
+	public boolean parseKeyword(WFScanInput input) throws IOException {
+		if (!readLogicalLine(input)) {
+			return false;
+		}
+		tokenizeKeyword();
+		return true;
+	}
+
+	public void parseParameters() {
+		tokenize();
+	}
+
 	public boolean isEmpty() {
-		return (segments[0].isEmpty());
-    }
+		return (tokenCount == 0);
+	}
 
 	public boolean isComment() {
-		return segments[0].startsWith(COMMENT_SEPARATOR);
+		return (tokenCount > 0) && (line[tokenStarts[0]] == COMMENT_SEPARATOR);
+	}
+
+	public String getComment() {
+		final int begin = tokenStarts[0] + 1;
+		final int end = tokenEnds[tokenCount - 1];
+		return trimmedString(begin, end);
 	}
 
-    public String getComment() {
-    	final int commentIndex = logicalLine.indexOf(COMMENT_SEPARATOR);
-    	final String commentSegment = logicalLine.substring(commentIndex + COMMENT_SEPARATOR_LENGTH); 
-    	return commentSegment.trim();
-    }
-    
 	public boolean isCommand(String commandName) {
-		return commandName.equals(segments[0]);
-	}
-
-    public int getParameterCount() {
-        return Math.max(0, segments.length - 1);
-    }
-    
-    public int getLastParamIndex() {
-    	return getParameterCount() - 1;
-    }
-
-    public String getStringParam(int index) {
-        return segments[index + 1];
-    }
-
-    public float getFloatParam(int index) throws WFCorruptException {
-        try {
-            return Float.parseFloat(getStringParam(index));
-        } catch (NumberFormatException ex) {
-            throw new WFCorruptException("Could not parse float value.");
-        }
-    }
-    
+		final int start = tokenStarts[0];
+		final int length = tokenEnds[0] - start;
+		if (commandName.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; ++i) {
+			if (commandName.charAt(i) != line[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public char getCommandChar(int index) {
+		return line[tokenStarts[0] + index];
+	}
+
+	public int getCommandLength() {
+		return tokenEnds[0] - tokenStarts[0];
+	}
+
+	public int getParameterCount() {
+		return Math.max(0, tokenCount - 1);
+	}
+
+	public int getLastParamIndex() {
+		return getParameterCount() - 1;
+	}
+
+	public String getStringParam(int index) {
+		final int start = tokenStarts[index + 1];
+		return new String(line, start, tokenEnds[index + 1] - start);
+	}
+
+	public char[] getBuffer() {
+		return line;
+	}
+
+	public int getParamStart(int index) {
+		return tokenStarts[index + 1];
+	}
+
+	public int getParamEnd(int index) {
+		return tokenEnds[index + 1];
+	}
+
+	public float getFloatParam(int index) throws WFCorruptException {
+		final int start = tokenStarts[index + 1];
+		return WFScanFloat.parse(line, start, tokenEnds[index + 1]);
+	}
+
 	public IFastFloat getFastFloat(int index) throws WFCorruptException {
 		final int segmentIndex = (index + 1);
-		if (segmentIndex >= segments.length) {
+		if (segmentIndex >= tokenCount) {
 			return null;
 		}
 		final FastFloat fastFloat = fastFloats[index];
@@ -107,28 +161,155 @@ class WFScanCommand {
 		return fastFloat;
 	}
 
-    private String readLogicalLine(BufferedReader reader) throws IOException {
-    	// Try and read a single line
-    	String line = reader.readLine();
-    	if (line == null) {
-    		return null;
-    	}
-    	if (!line.endsWith(LINE_EXTENSION)) {
-    		return line;
-    	}
-    	
-    	// If line extension character is available, we have to build a logical line
-    	logicalLineBuilder.setLength(0);
-    	while ((line != null) && (line.endsWith(LINE_EXTENSION))) {
-    		final String lineContent = line.substring(0, line.length() - 1);
-    		logicalLineBuilder.append(lineContent);
-    		line = reader.readLine();
-    	}
-    	if (line != null) {
-    		logicalLineBuilder.append(line);
-    	}
-    	return logicalLineBuilder.toString();
-	}
-
-    
+	/*
+	 * Splits the current logical line into whitespace separated
+	 * tokens. The behavior matches a String.trim() followed by
+	 * a split on the [\\s]+ pattern.
+	 */
+	private void tokenize() {
+		int begin = 0;
+		int end = lineLength;
+		while ((begin < end) && (line[begin] <= ' ')) {
+			begin++;
+		}
+		while ((end > begin) && (line[end - 1] <= ' ')) {
+			end--;
+		}
+		tokenCount = 0;
+		int position = begin;
+		while (position < end) {
+			final int start = position;
+			while ((position < end) && !isWhiteSpace(line[position])) {
+				position++;
+			}
+			addToken(start, position);
+			while ((position < end) && isWhiteSpace(line[position])) {
+				position++;
+			}
+		}
+	}
+
+	private void tokenizeKeyword() {
+		int begin = 0;
+		int end = lineLength;
+		while ((begin < end) && (line[begin] <= ' ')) {
+			begin++;
+		}
+		while ((end > begin) && (line[end - 1] <= ' ')) {
+			end--;
+		}
+		tokenCount = 0;
+		if (begin < end) {
+			int position = begin;
+			while ((position < end) && !isWhiteSpace(line[position])) {
+				position++;
+			}
+			addToken(begin, position);
+		}
+	}
+
+	private void addToken(int start, int end) {
+		if (tokenCount == tokenStarts.length) {
+			final int capacity = tokenCount * 2;
+			final int[] newStarts = new int[capacity];
+			final int[] newEnds = new int[capacity];
+			System.arraycopy(tokenStarts, 0, newStarts, 0, tokenCount);
+			System.arraycopy(tokenEnds, 0, newEnds, 0, tokenCount);
+			tokenStarts = newStarts;
+			tokenEnds = newEnds;
+		}
+		tokenStarts[tokenCount] = start;
+		tokenEnds[tokenCount] = end;
+		tokenCount++;
+	}
+
+	private String trimmedString(int begin, int end) {
+		while ((begin < end) && (line[begin] <= ' ')) {
+			begin++;
+		}
+		while ((end > begin) && (line[end - 1] <= ' ')) {
+			end--;
+		}
+		return new String(line, begin, end - begin);
+	}
+
+	private boolean readLogicalLine(WFScanInput input) throws IOException {
+		// Try and read a single line
+		lineLength = 0;
+		if (!readPhysicalLine(input)) {
+			return false;
+		}
+
+		// If line extension character is available, we have to build a logical line.
+		// Only the physical line that was read last is checked, so that an empty
+		// line ends the logical line even if the content before it ends with one.
+		int physicalStart = 0;
+		while ((lineLength > physicalStart) && (line[lineLength - 1] == LINE_EXTENSION)) {
+			lineLength--;
+			physicalStart = lineLength;
+			if (!readPhysicalLine(input)) {
+				break;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Appends the next physical line to the line buffer. Lines
+	 * are terminated by '\n', '\r' or "\r\n", same as with
+	 * BufferedReader.readLine().
+	 */
+	private boolean readPhysicalLine(WFScanInput input) throws IOException {
+		boolean hasContent = false;
+		while (true) {
+			if ((chunkPosition >= chunkLimit) && !fillChunk(input)) {
+				return hasContent;
+			}
+			if (skipLineFeed) {
+				skipLineFeed = false;
+				if (chunk[chunkPosition] == '\n') {
+					chunkPosition++;
+					continue;
+				}
+			}
+			hasContent = true;
+			while (chunkPosition < chunkLimit) {
+				final char c = chunk[chunkPosition++];
+				if (c == '\n') {
+					return true;
+				}
+				if (c == '\r') {
+					skipLineFeed = true;
+					return true;
+				}
+				appendToLine(c);
+			}
+		}
+	}
+
+	private boolean fillChunk(WFScanInput input) throws IOException {
+		final int count = input.read(chunk, 0, CHUNK_SIZE);
+		if (count <= 0) {
+			chunkPosition = 0;
+			chunkLimit = 0;
+			return false;
+		}
+		chunkPosition = 0;
+		chunkLimit = count;
+		return true;
+	}
+
+	private void appendToLine(char c) {
+		if (lineLength == line.length) {
+			final char[] newLine = new char[line.length * 2];
+			System.arraycopy(line, 0, newLine, 0, lineLength);
+			line = newLine;
+		}
+		line[lineLength++] = c;
+	}
+
+	private static boolean isWhiteSpace(char c) {
+		return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r');
+	}
+
 }
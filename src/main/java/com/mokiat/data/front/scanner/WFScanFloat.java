@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import com.mokiat.data.front.error.WFCorruptException;
+
+/**
+ * Internal class that is used to parse float values directly
+ * from a character range.
+ * <p>
+ * Plain decimal values (e.g. <code>-1.25e-3</code>) are evaluated through
+ * Clinger's fast path, where the decimal significand and the power of ten
+ * are both exact doubles and a single double operation is performed.
+ * Should the result land exactly on a float rounding boundary, or should
+ * the value not be a plain decimal (e.g. too many digits, hexadecimal,
+ * <code>NaN</code>), parsing falls back to {@link Float#parseFloat(String)},
+ * so results are always correctly rounded.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class WFScanFloat {
+
+	private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+	private static final int MAX_SIGNIFICANT_DIGITS = 18;
+	private static final long FLOAT_ROUNDING_MASK = 0x1FFFFFFFL;
+	private static final long FLOAT_ROUNDING_MIDPOINT = 0x10000000L;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22
+	};
+
+	private WFScanFloat() {
+	}
+
+	public static float parse(char[] chars, int start, int end) throws WFCorruptException {
+		int position = start;
+		boolean negative = false;
+		if ((position < end) && ((chars[position] == '-') || (chars[position] == '+'))) {
+			negative = (chars[position] == '-');
+			position++;
+		}
+
+		long significand = 0;
+		int significantDigits = 0;
+		int exponent = 0;
+		int digits = 0;
+		while ((position < end) && isDigit(chars[position])) {
+			significand = accumulate(significand, chars[position]);
+			if ((significand != 0) && (++significantDigits > MAX_SIGNIFICANT_DIGITS)) {
+				return parseSlow(chars, start, end);
+			}
+			digits++;
+			position++;
+		}
+		if ((position < end) && (chars[position] == '.')) {
+			position++;
+			while ((position < end) && isDigit(chars[position])) {
+				significand = accumulate(significand, chars[position]);
+				if ((significand != 0) && (++significantDigits > MAX_SIGNIFICANT_DIGITS)) {
+					return parseSlow(chars, start, end);
+				}
+				exponent--;
+				digits++;
+				position++;
+			}
+		}
+		if (digits == 0) {
+			return parseSlow(chars, start, end);
+		}
+		if ((position < end) && ((chars[position] == 'e') || (chars[position] == 'E'))) {
+			position++;
+			boolean negativeExponent = false;
+			if ((position < end) && ((chars[position] == '-') || (chars[position] == '+'))) {
+				negativeExponent = (chars[position] == '-');
+				position++;
+			}
+			if (position == end) {
+				return parseSlow(chars, start, end);
+			}
+			int explicitExponent = 0;
+			while ((position < end) && isDigit(chars[position])) {
+				if (explicitExponent > 9999) {
+					return parseSlow(chars, start, end);
+				}
+				explicitExponent = explicitExponent * 10 + (chars[position] - '0');
+				position++;
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (position != end) {
+			return parseSlow(chars, start, end);
+		}
+
+		if (significand == 0) {
+			return negative ? -0.0f : 0.0f;
+		}
+		// Clinger's extension: move excess exponent into the significand
+		// as long as it remains exact.
+		while ((exponent > 22) && (significand < MAX_EXACT_SIGNIFICAND / 10)) {
+			significand *= 10;
+			exponent--;
+		}
+		if ((significand >= MAX_EXACT_SIGNIFICAND) || (exponent < -22) || (exponent > 22)) {
+			return parseSlow(chars, start, end);
+		}
+		final double value;
+		if (exponent >= 0) {
+			value = significand * POWERS_OF_TEN[exponent];
+		} else {
+			value = significand / POWERS_OF_TEN[-exponent];
+		}
+		// Double rounding to float is only unsafe if the double
+		// value sits exactly between two adjacent float values.
+		if ((Double.doubleToRawLongBits(value) & FLOAT_ROUNDING_MASK) == FLOAT_ROUNDING_MIDPOINT) {
+			return parseSlow(chars, start, end);
+		}
+		final float result = (float) value;
+		return negative ? -result : result;
+	}
+
+	private static long accumulate(long significand, char digit) {
+		return significand * 10 + (digit - '0');
+	}
+
+	private static boolean isDigit(char c) {
+		return (c >= '0') && (c <= '9');
+	}
+
+	private static float parseSlow(char[] chars, int start, int end) throws WFCorruptException {
+		try {
+			return Float.parseFloat(new String(chars, start, end - start));
+		} catch (NumberFormatException ex) {
+			throw new WFCorruptException("Could not parse float value.");
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import com.mokiat.data.front.common.WFCancellationToken;
+
+/**
+ * Internal class that allows a scan to be stopped between lines.
+ * <p>
+ * Scan loops call {@link #check()} once per line. Only the first and
+ * then every {@value #CHECK_INTERVAL}-th call inspect the state of the
+ * owning thread and of the {@link WFCancellationToken}, if any, so that
+ * the check does not affect throughput. Should the owning thread be
+ * interrupted, the scan is aborted with an {@link InterruptedIOException}
+ * and the interrupt status is kept. Should the token fire, the scan is
+ * aborted with a {@link com.mokiat.data.front.error.WFCancelledException}.
+ * <p>
+ * The owner is not necessarily the thread that performs the scan,
+ * which allows chunks that are scanned on a pool to be stopped when
+ * the thread that waits for them is interrupted.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+final class WFScanGuard {
+
+	static final int CHECK_INTERVAL = 1024;
+
+	private static final int CHECK_MASK = CHECK_INTERVAL - 1;
+
+	private final Thread owner;
+	private final WFCancellationToken token;
+	private int lineCount = 0;
+
+	public WFScanGuard(Thread owner, WFCancellationToken token) {
+		this.owner = owner;
+		this.token = token;
+	}
+
+	public static WFScanGuard forCurrentThread(WFCancellationToken token) {
+		return new WFScanGuard(Thread.currentThread(), token);
+	}
+
+	public Thread getOwner() {
+		return owner;
+	}
+
+	public WFCancellationToken getToken() {
+		return token;
+	}
+
+	public void check() throws IOException {
+		if ((lineCount++ & CHECK_MASK) == 0) {
+			checkNow();
+		}
+	}
+
+	public void checkNow() throws IOException {
+		if (owner.isInterrupted()) {
+			throw new InterruptedIOException("Scanning was interrupted.");
+		}
+		if (token != null) {
+			token.check();
+		}
+	}
+
+}
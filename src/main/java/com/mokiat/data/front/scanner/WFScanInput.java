@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import java.io.IOException;
+
+/**
+ * Internal class that represents a source of characters
+ * from which {@link WFScanCommand} reads lines.
+ *
+ * @author Momchil Atanasov
+ *
+ */
+abstract class WFScanInput {
+
+	/**
+	 * Reads up to <code>length</code> characters into the specified
+	 * buffer.
+	 * @param buffer buffer into which to store the characters
+	 * @param offset offset in the buffer from which to start
+	 * @param length maximum number of characters to read
+	 * @return number of characters read, or <code>-1</code> if
+	 * the end of the input has been reached
+	 * @throws IOException if an I/O error occurs
+	 */
+	public abstract int read(char[] buffer, int offset, int length) throws IOException;
+
+}
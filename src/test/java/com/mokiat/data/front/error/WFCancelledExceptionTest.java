@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.error;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class WFCancelledExceptionTest extends AbstractWFExceptionTest {
+	
+	@Test
+	public void testDefaultException() {
+		final WFCancelledException ex = new WFCancelledException();
+		assertNull(ex.getMessage());
+		assertNull(ex.getCause());
+	}
+	
+	@Test
+	public void testExceptionWithMessage() {
+		final WFCancelledException ex = new WFCancelledException(MESSAGE);
+		assertEquals(MESSAGE, ex.getMessage());
+	}
+	
+	@Test
+	public void testExceptionWithCause() {
+		final WFCancelledException ex = new WFCancelledException(CAUSE);
+		assertSame(CAUSE, ex.getCause());
+	}
+	
+	@Test
+	public void testExceptionWithMessageAndCause() {
+		final WFCancelledException ex = new WFCancelledException(MESSAGE, CAUSE);
+		assertEquals(MESSAGE, ex.getMessage());
+		assertSame(CAUSE, ex.getCause());
+	}
+
+}
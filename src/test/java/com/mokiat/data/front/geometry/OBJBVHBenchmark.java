@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+
+/**
+ * Measures {@link OBJBVHBuilder} build times, sequentially and on the
+ * common pool, as well as closest hit and any hit queries per second,
+ * on bumpy grids of ten thousand up to fifty million triangles.
+ * <p>
+ * Queries cast rays from above the grid in random directions, so
+ * that most of them hit it.
+ * <p>
+ * The largest model needs a heap of several gigabytes. Sizes can be
+ * selected with <code>-p triangleCount=...</code>. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=OBJBVHBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class OBJBVHBenchmark {
+
+	private static final int RAY_COUNT = 4096;
+
+	@Param({"10000", "1000000", "50000000"})
+	public int triangleCount;
+
+	private final OBJBVHBuilder builder = new OBJBVHBuilder();
+	private final OBJRay ray = new OBJRay();
+	private final float[] rays = new float[RAY_COUNT * 6];
+	private OBJPackedModel model;
+	private List<OBJMesh> meshes;
+	private OBJBVH bvh;
+	private int rayIndex = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final int gridSize = Math.max(1, (int) Math.sqrt(triangleCount / 2));
+		model = new OBJPackedModel();
+		for (int y = 0; y <= gridSize; ++y) {
+			for (int x = 0; x <= gridSize; ++x) {
+				model.addVertex(x, y, (float) Math.sin(x * 0.1) * (float) Math.cos(y * 0.1));
+			}
+		}
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		for (int y = 0; y < gridSize; ++y) {
+			for (int x = 0; x < gridSize; ++x) {
+				final int corner = y * (gridSize + 1) + x;
+				addTriangle(mesh, corner, corner + 1, corner + gridSize + 2);
+				addTriangle(mesh, corner, corner + gridSize + 2, corner + gridSize + 1);
+			}
+		}
+		mesh.trimToSize();
+		meshes = Collections.<OBJMesh>singletonList(mesh);
+		bvh = builder.build(model, meshes, ForkJoinPool.commonPool());
+
+		final Random random = new Random(0x5EED);
+		for (int i = 0; i < RAY_COUNT; ++i) {
+			rays[i * 6] = random.nextFloat() * gridSize;
+			rays[i * 6 + 1] = random.nextFloat() * gridSize;
+			rays[i * 6 + 2] = 10.0f;
+			rays[i * 6 + 3] = random.nextFloat() - 0.5f;
+			rays[i * 6 + 4] = random.nextFloat() - 0.5f;
+			rays[i * 6 + 5] = -1.0f;
+		}
+	}
+
+	private static void addTriangle(OBJPackedMesh mesh, int a, int b, int c) {
+		mesh.beginFace();
+		mesh.addReference(a, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(b, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(c, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+	}
+
+	private OBJRay nextRay() {
+		final int offset = rayIndex * 6;
+		rayIndex = (rayIndex + 1) % RAY_COUNT;
+		ray.set(rays[offset], rays[offset + 1], rays[offset + 2], rays[offset + 3], rays[offset + 4], rays[offset + 5]);
+		return ray;
+	}
+
+	@Benchmark
+	public OBJBVH buildSequential() {
+		return builder.build(model, meshes, null);
+	}
+
+	@Benchmark
+	public OBJBVH buildParallel() {
+		return builder.build(model, meshes, ForkJoinPool.commonPool());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public boolean queryClosest() {
+		return bvh.intersectClosest(nextRay());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public boolean queryAny() {
+		return bvh.intersectAny(nextRay());
+	}
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+import com.mokiat.data.front.parser.OBJParser;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJBVHBuilderTest {
+
+	private static final float FLOAT_MARGIN = 0.0001f;
+	private static final int SOUP_TRIANGLE_COUNT = 3000;
+	private static final int RAY_COUNT = 2000;
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJParser parser = new OBJParser();
+	private final OBJBVHBuilder builder = new OBJBVHBuilder();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private final Random random = new Random(0x5EED);
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testQuads() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_quads.obj", parser);
+		final OBJMesh quadMesh = model.getObjects().get(0).getMeshes().get(0);
+		final OBJBVH bvh = builder.build(model, quadMesh);
+		assertEquals(4, bvh.getTriangleCount());
+		assertValidHierarchy(bvh);
+
+		final OBJRay ray = new OBJRay(1.5f, 0.5f, 2.0f, 0.0f, 0.0f, -1.0f);
+		assertTrue(bvh.intersectClosest(ray));
+		assertEquals(2.0f, ray.distance, FLOAT_MARGIN);
+		assertEquals(0, bvh.getMesh(ray.triangle));
+		assertEquals(1, bvh.getFace(ray.triangle));
+
+		ray.set(0.5f, 0.5f, -2.0f, 0.0f, 0.0f, 2.0f);
+		assertTrue(bvh.intersectAny(ray));
+		assertEquals(1.0f, ray.distance, FLOAT_MARGIN);
+		assertEquals(0, bvh.getFace(ray.triangle));
+
+		ray.maxDistance = 0.5f;
+		assertFalse(bvh.intersectClosest(ray));
+		assertFalse(ray.hasHit());
+
+		ray.set(2.5f, 0.5f, 2.0f, 0.0f, 0.0f, -1.0f);
+		assertFalse(bvh.intersectClosest(ray));
+		assertFalse(bvh.intersectAny(ray));
+	}
+
+	@Test
+	public void testModel() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_quads.obj", parser);
+		final OBJBVH bvh = builder.build(model, pool);
+		assertEquals(7, bvh.getTriangleCount());
+		assertValidHierarchy(bvh);
+		final OBJRay ray = new OBJRay(1.5f, 0.5f, 2.0f, 0.0f, 0.0f, -1.0f);
+		assertTrue(bvh.intersectClosest(ray));
+		assertEquals(2.0f, ray.distance, FLOAT_MARGIN);
+	}
+
+	@Test
+	public void testMatchesBruteForce() {
+		final OBJPackedModel model = createSoup();
+		final OBJMesh mesh = model.getObjects().get(0).getMeshes().get(0);
+		final OBJBVH bvh = builder.build(model, mesh);
+		assertEquals(SOUP_TRIANGLE_COUNT, bvh.getTriangleCount());
+		assertValidHierarchy(bvh);
+
+		final OBJRay ray = new OBJRay();
+		int hitCount = 0;
+		for (int i = 0; i < RAY_COUNT; ++i) {
+			randomizeRay(ray);
+			final float expected = closestBruteForce(model, ray);
+			final boolean hit = bvh.intersectClosest(ray);
+			assertEquals(expected != Float.POSITIVE_INFINITY, hit);
+			if (hit) {
+				hitCount++;
+				assertEquals(expected, ray.distance, 0.0f);
+				assertEquals(0, bvh.getMesh(ray.triangle));
+			}
+			assertEquals(hit, bvh.intersectAny(ray));
+		}
+		assertTrue(hitCount > RAY_COUNT / 10);
+	}
+
+	@Test
+	public void testParallel() {
+		final OBJPackedModel model = createSoup();
+		final OBJBVH expected = builder.build(model, model.getObjects().get(0).getMeshes().get(0));
+		final OBJBVH actual = new OBJBVHBuilder(64).build(model, pool);
+		assertValidHierarchy(actual);
+		assertEquals(expected.getNodeCount(), actual.getNodeCount());
+		assertEquals(expected.getDepth(), actual.getDepth());
+		assertArrayEquals(expected.getNodeBounds(), actual.getNodeBounds(), 0.0f);
+		assertArrayEquals(expected.getNodeData(), actual.getNodeData());
+		assertArrayEquals(expected.getTriangleData(), actual.getTriangleData(), 0.0f);
+	}
+
+	@Test
+	public void testEmpty() {
+		final OBJModel model = new OBJModel();
+		final OBJBVH bvh = builder.build(model, new OBJMesh());
+		assertEquals(0, bvh.getNodeCount());
+		assertFalse(bvh.intersectClosest(new OBJRay()));
+		assertFalse(bvh.intersectAny(new OBJRay()));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidReference() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_quads.obj", parser);
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		mesh.beginFace();
+		mesh.addReference(0, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(1, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(100, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		builder.setTriangulator(createFanTriangulator());
+		builder.build(model, mesh);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBinCount() {
+		builder.setBinCount(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxLeafSize() {
+		builder.setMaxLeafSize(0);
+	}
+
+	private OBJTriangulator createFanTriangulator() {
+		final OBJTriangulator triangulator = new OBJTriangulator();
+		triangulator.setEarClipping(false);
+		return triangulator;
+	}
+
+	/*
+	 * Creates small random triangles, scattered in a cube.
+	 */
+	private OBJPackedModel createSoup() {
+		final OBJPackedModel model = new OBJPackedModel();
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		for (int i = 0; i < SOUP_TRIANGLE_COUNT; ++i) {
+			final float x = random.nextFloat() * 10.0f;
+			final float y = random.nextFloat() * 10.0f;
+			final float z = random.nextFloat() * 10.0f;
+			mesh.beginFace();
+			for (int j = 0; j < 3; ++j) {
+				model.addVertex(x + random.nextFloat(), y + random.nextFloat(), z + random.nextFloat());
+				mesh.addReference(i * 3 + j, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+			}
+		}
+		final OBJObject object = new OBJObject("Soup");
+		object.getMeshes().add(mesh);
+		model.getObjects().add(object);
+		return model;
+	}
+
+	private void randomizeRay(OBJRay ray) {
+		ray.set(random.nextFloat() * 14.0f - 2.0f, random.nextFloat() * 14.0f - 2.0f, -2.0f,
+				random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, 1.0f);
+		if (random.nextBoolean()) {
+			ray.maxDistance = random.nextFloat() * 12.0f;
+		}
+	}
+
+	/*
+	 * Tests every triangle of the soup with the same arithmetic
+	 * as the hierarchy and returns the closest distance.
+	 */
+	private float closestBruteForce(OBJPackedModel model, OBJRay ray) {
+		float closest = ray.maxDistance;
+		boolean hit = false;
+		for (int i = 0; i < SOUP_TRIANGLE_COUNT; ++i) {
+			final float x0 = model.getVertexX(i * 3);
+			final float y0 = model.getVertexY(i * 3);
+			final float z0 = model.getVertexZ(i * 3);
+			final float edge1X = model.getVertexX(i * 3 + 1) - x0;
+			final float edge1Y = model.getVertexY(i * 3 + 1) - y0;
+			final float edge1Z = model.getVertexZ(i * 3 + 1) - z0;
+			final float edge2X = model.getVertexX(i * 3 + 2) - x0;
+			final float edge2Y = model.getVertexY(i * 3 + 2) - y0;
+			final float edge2Z = model.getVertexZ(i * 3 + 2) - z0;
+			final float pX = ray.directionY * edge2Z - ray.directionZ * edge2Y;
+			final float pY = ray.directionZ * edge2X - ray.directionX * edge2Z;
+			final float pZ = ray.directionX * edge2Y - ray.directionY * edge2X;
+			final float determinant = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+			if (Math.abs(determinant) < 1e-12f) {
+				continue;
+			}
+			final float inverse = 1.0f / determinant;
+			final float sX = ray.originX - x0;
+			final float sY = ray.originY - y0;
+			final float sZ = ray.originZ - z0;
+			final float u = (sX * pX + sY * pY + sZ * pZ) * inverse;
+			if ((u < 0.0f) || (u > 1.0f)) {
+				continue;
+			}
+			final float qX = sY * edge1Z - sZ * edge1Y;
+			final float qY = sZ * edge1X - sX * edge1Z;
+			final float qZ = sX * edge1Y - sY * edge1X;
+			final float v = (ray.directionX * qX + ray.directionY * qY + ray.directionZ * qZ) * inverse;
+			if ((v < 0.0f) || (u + v > 1.0f)) {
+				continue;
+			}
+			final float distance = (edge2X * qX + edge2Y * qY + edge2Z * qZ) * inverse;
+			if ((distance >= 0.0f) && (distance <= closest)) {
+				closest = distance;
+				hit = true;
+			}
+		}
+		return hit ? closest : Float.POSITIVE_INFINITY;
+	}
+
+	/*
+	 * Checks that every triangle is in exactly one leaf, that leaves
+	 * respect the maximum size and that the bounds of every node
+	 * contain its triangles.
+	 */
+	private void assertValidHierarchy(OBJBVH bvh) {
+		final int[] triangleLeaves = new int[bvh.getTriangleCount()];
+		final int depth = visit(bvh, 0, 0, triangleLeaves);
+		assertEquals(bvh.getDepth(), depth);
+		for (int count : triangleLeaves) {
+			assertEquals(1, count);
+		}
+	}
+
+	private int visit(OBJBVH bvh, int node, int level, int[] triangleLeaves) {
+		final int[] data = bvh.getNodeData();
+		if (bvh.isLeaf(node)) {
+			final int first = data[node * OBJBVH.NODE_DATA_STRIDE];
+			final int count = data[node * OBJBVH.NODE_DATA_STRIDE + 1];
+			assertTrue(count <= builder.getMaxLeafSize());
+			for (int triangle = first; triangle < first + count; ++triangle) {
+				triangleLeaves[triangle]++;
+				for (int corner = 0; corner < 3; ++corner) {
+					assertContains(bvh, node, bvh.getTriangleData(), triangle * OBJBVH.TRIANGLE_STRIDE + corner * 3);
+				}
+			}
+			return level;
+		}
+		final int right = data[node * OBJBVH.NODE_DATA_STRIDE];
+		assertContains(bvh, node, bvh.getNodeBounds(), (node + 1) * OBJBVH.NODE_BOUNDS_STRIDE);
+		assertContains(bvh, node, bvh.getNodeBounds(), right * OBJBVH.NODE_BOUNDS_STRIDE + 3);
+		return Math.max(visit(bvh, node + 1, level + 1, triangleLeaves), visit(bvh, right, level + 1, triangleLeaves));
+	}
+
+	private void assertContains(OBJBVH bvh, int node, float[] points, int offset) {
+		final float[] bounds = bvh.getNodeBounds();
+		for (int axis = 0; axis < 3; ++axis) {
+			assertTrue(points[offset + axis] >= bounds[node * OBJBVH.NODE_BOUNDS_STRIDE + axis]);
+			assertTrue(points[offset + axis] <= bounds[node * OBJBVH.NODE_BOUNDS_STRIDE + axis + 3]);
+		}
+	}
+
+}
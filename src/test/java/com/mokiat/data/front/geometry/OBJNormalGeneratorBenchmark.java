@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mokiat.data.front.geometry.OBJNormalGenerator.Weighting;
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+
+/**
+ * Measures {@link OBJNormalGenerator} on a smoothed grid of about one
+ * million triangles, sequentially and on the common pool, with both
+ * weightings. Faces either share a single smoothing group or each have
+ * their own one, in which case every vertex is keyed with up to six
+ * groups. The model is recreated before each invocation, so that
+ * normals do not pile up.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=OBJNormalGeneratorBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OBJNormalGeneratorBenchmark {
+
+	private static final int GRID_SIZE = 700;
+
+	public enum Grouping {
+		SHARED,
+		PER_FACE
+	}
+
+	@Param({"AREA", "ANGLE"})
+	public Weighting weighting;
+
+	@Param({"SHARED", "PER_FACE"})
+	public Grouping grouping;
+
+	private final OBJNormalGenerator generator = new OBJNormalGenerator();
+	private List<OBJMesh> meshes;
+	private OBJPackedModel model;
+
+	@Setup(Level.Trial)
+	public void setUpMesh() {
+		generator.setWeighting(weighting);
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		for (int y = 0; y < GRID_SIZE; ++y) {
+			for (int x = 0; x < GRID_SIZE; ++x) {
+				final int corner = y * (GRID_SIZE + 1) + x;
+				addTriangle(mesh, corner, corner + 1, corner + GRID_SIZE + 2);
+				addTriangle(mesh, corner, corner + GRID_SIZE + 2, corner + GRID_SIZE + 1);
+			}
+		}
+		mesh.trimToSize();
+		meshes = Collections.<OBJMesh>singletonList(mesh);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpModel() {
+		model = new OBJPackedModel();
+		for (int y = 0; y <= GRID_SIZE; ++y) {
+			for (int x = 0; x <= GRID_SIZE; ++x) {
+				model.addVertex(x, y, (float) Math.sin(x * 0.1) * (float) Math.cos(y * 0.1));
+			}
+		}
+	}
+
+	private void addTriangle(OBJPackedMesh mesh, int a, int b, int c) {
+		mesh.beginFace();
+		final int face = mesh.getFaceCount() - 1;
+		mesh.setSmoothingGroup(face, (grouping == Grouping.SHARED) ? 1 : face + 1);
+		mesh.addReference(a, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(b, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(c, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+	}
+
+	@Benchmark
+	public int generateSequential() {
+		return generator.generate(model, meshes, null);
+	}
+
+	@Benchmark
+	public int generateParallel() {
+		return generator.generate(model, meshes, ForkJoinPool.commonPool());
+	}
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.geometry.OBJNormalGenerator.Weighting;
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJFace;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJNormal;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+import com.mokiat.data.front.parser.OBJParser;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJNormalGeneratorTest {
+
+	private static final float FLOAT_MARGIN = 0.0001f;
+	private static final float DIAGONAL = (float) Math.sqrt(0.5);
+	private static final float WIDE_Y = 2.0f / (float) Math.sqrt(5.0);
+	private static final float WIDE_Z = 1.0f / (float) Math.sqrt(5.0);
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJParser parser = new OBJParser();
+	private final OBJNormalGenerator generator = new OBJNormalGenerator();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testAreaWeighted() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		assertEquals(11, generator.generate(model, pool));
+		assertEquals(11, model.getNormals().size());
+
+		final List<OBJMesh> meshes = model.getObjects().get(0).getMeshes();
+		assertNormalIndices(meshes.get(0).getFaces().get(0), 0, 1, 2, 3);
+		assertNormalIndices(meshes.get(1).getFaces().get(0), 4, 5, 1, 0);
+		assertNormalIndices(meshes.get(1).getFaces().get(1), 6, 6, 6);
+		assertNormalIndices(meshes.get(2).getFaces().get(0), 7, 8, 9, 10);
+
+		assertNormal(model.getNormals().get(0), 0.0f, WIDE_Y, WIDE_Z);
+		assertNormal(model.getNormals().get(1), 0.0f, WIDE_Y, WIDE_Z);
+		assertNormal(model.getNormals().get(2), 0.0f, 1.0f, 0.0f);
+		assertNormal(model.getNormals().get(4), 0.0f, 0.0f, 1.0f);
+		assertNormal(model.getNormals().get(6), 0.0f, 1.0f, 0.0f);
+		for (int i = 7; i < 11; ++i) {
+			assertNormal(model.getNormals().get(i), 0.0f, 0.0f, 1.0f);
+		}
+	}
+
+	@Test
+	public void testAngleWeighted() throws Exception {
+		generator.setWeighting(Weighting.ANGLE);
+		final OBJModel model = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		generator.generate(model, pool);
+		assertNormal(model.getNormals().get(0), 0.0f, DIAGONAL, DIAGONAL);
+		assertNormal(model.getNormals().get(1), 0.0f, DIAGONAL, DIAGONAL);
+		assertNormal(model.getNormals().get(3), 0.0f, 1.0f, 0.0f);
+		assertNormal(model.getNormals().get(5), 0.0f, 0.0f, 1.0f);
+	}
+
+	@Test
+	public void testPacked() throws Exception {
+		final OBJModel expected = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		generator.generate(expected, pool);
+		parser.setPacked(true);
+		final OBJModel actual = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		generator.generate(actual, pool);
+		assertSameNormals(expected, actual);
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		final OBJModel expected = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		generator.generate(expected, getMeshes(expected), null);
+		final OBJModel actual = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		new OBJNormalGenerator(1).generate(actual, pool);
+		assertSameNormals(expected, actual);
+	}
+
+	@Test
+	public void testAppendsNormals() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		final OBJMesh mesh = model.getObjects().get(0).getMeshes().get(2);
+		assertEquals(4, generator.generate(model, mesh));
+		assertEquals(4, generator.generate(model, mesh));
+		assertEquals(8, model.getNormals().size());
+		assertNormalIndices(mesh.getFaces().get(0), 4, 5, 6, 7);
+		assertNormalIndices(model.getObjects().get(0).getMeshes().get(0).getFaces().get(0),
+				OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX,
+				OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+	}
+
+	/*
+	 * With each face in a smoothing group of its own, no corners share
+	 * a normal and every normal is that of its face, same as without
+	 * smoothing.
+	 */
+	@Test(timeout = 30000)
+	public void testSmoothingGroupPerFace() {
+		final int size = 300;
+		final OBJPackedModel flatModel = createGridModel(size, false);
+		final OBJPackedModel groupModel = createGridModel(size, true);
+		final int faceCount = (size - 1) * (size - 1) * 2;
+		assertEquals(faceCount, generator.generate(flatModel, pool));
+		assertEquals(faceCount * 3, generator.generate(groupModel, pool));
+		for (int face = 0; face < faceCount; ++face) {
+			final OBJNormal expected = flatModel.getNormals().get(face);
+			for (int corner = 0; corner < 3; ++corner) {
+				final OBJNormal actual = groupModel.getNormals().get(face * 3 + corner);
+				assertNormal(actual, expected.x, expected.y, expected.z);
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidReference() {
+		final OBJPackedModel model = createGridModel(3, true);
+		try {
+			generator.generate(model, createInvalidMesh(model.getVertices().size()));
+			fail("Expected an exception");
+		} catch (IndexOutOfBoundsException ex) {
+			assertInvalidReference(ex, model.getVertices().size(), model.getVertices().size());
+		}
+		assertEquals(0, model.getNormals().size());
+	}
+
+	@Test
+	public void testUndefinedReference() {
+		final OBJPackedModel model = createGridModel(3, false);
+		generator.setWeighting(Weighting.ANGLE);
+		try {
+			generator.generate(model, createInvalidMesh(OBJDataReference.UNDEFINED_INDEX));
+			fail("Expected an exception");
+		} catch (IndexOutOfBoundsException ex) {
+			assertInvalidReference(ex, OBJDataReference.UNDEFINED_INDEX, model.getVertices().size());
+		}
+	}
+
+	@Test
+	public void testInvalidReferenceParallel() {
+		final OBJPackedModel model = createGridModel(3, true);
+		final List<OBJMesh> meshes = Arrays.asList(getMeshes(model).get(0), createInvalidMesh(model.getVertices().size()));
+		try {
+			generator.generate(model, meshes, pool);
+			fail("Expected an exception");
+		} catch (IndexOutOfBoundsException ex) {
+			// Exceptions of other threads are rethrown by the
+			// pool as copies whose cause is the original one.
+			assertInvalidReference((ex.getCause() != null) ? (IndexOutOfBoundsException) ex.getCause() : ex,
+					model.getVertices().size(), model.getVertices().size());
+		}
+		assertEquals(0, model.getNormals().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRangeSize() {
+		new OBJNormalGenerator(0);
+	}
+
+	private static OBJPackedModel createGridModel(int size, boolean smoothed) {
+		final OBJPackedModel model = new OBJPackedModel();
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				model.addVertex(x, y, (float) Math.sin(x * 0.1) * (float) Math.cos(y * 0.1));
+			}
+		}
+		for (int y = 0; y < size - 1; ++y) {
+			for (int x = 0; x < size - 1; ++x) {
+				final int corner = y * size + x;
+				addTriangle(mesh, smoothed, corner, corner + 1, corner + size + 1);
+				addTriangle(mesh, smoothed, corner, corner + size + 1, corner + size);
+			}
+		}
+		final OBJObject object = new OBJObject();
+		object.getMeshes().add(mesh);
+		model.getObjects().add(object);
+		return model;
+	}
+
+	private static void addTriangle(OBJPackedMesh mesh, boolean smoothed, int a, int b, int c) {
+		mesh.beginFace();
+		if (smoothed) {
+			mesh.setSmoothingGroup(mesh.getFaceCount() - 1, mesh.getFaceCount());
+		}
+		mesh.addReference(a, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(b, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(c, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+	}
+
+	private static OBJMesh createInvalidMesh(int vertexIndex) {
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		addTriangle(mesh, true, 0, 1, 2);
+		addTriangle(mesh, true, 0, 2, vertexIndex);
+		return mesh;
+	}
+
+	private static void assertInvalidReference(IndexOutOfBoundsException ex, int index, int size) {
+		assertEquals(IndexOutOfBoundsException.class, ex.getClass());
+		assertEquals("Index: " + index + ", Size: " + size, ex.getMessage());
+	}
+
+	private List<OBJMesh> getMeshes(OBJModel model) {
+		final List<OBJMesh> meshes = new ArrayList<OBJMesh>();
+		for (OBJObject object : model.getObjects()) {
+			meshes.addAll(object.getMeshes());
+		}
+		return meshes;
+	}
+
+	private void assertSameNormals(OBJModel expected, OBJModel actual) {
+		assertEquals(expected.getNormals(), actual.getNormals());
+		final List<OBJMesh> expectedMeshes = getMeshes(expected);
+		final List<OBJMesh> actualMeshes = getMeshes(actual);
+		for (int i = 0; i < expectedMeshes.size(); ++i) {
+			final List<OBJFace> expectedFaces = expectedMeshes.get(i).getFaces();
+			final List<OBJFace> actualFaces = actualMeshes.get(i).getFaces();
+			for (int j = 0; j < expectedFaces.size(); ++j) {
+				assertEquals(expectedFaces.get(j).getReferences(), actualFaces.get(j).getReferences());
+			}
+		}
+	}
+
+	private void assertNormalIndices(OBJFace face, int... normalIndices) {
+		assertEquals(normalIndices.length, face.getReferences().size());
+		for (int i = 0; i < normalIndices.length; ++i) {
+			assertEquals(normalIndices[i], face.getReferences().get(i).normalIndex);
+		}
+	}
+
+	private void assertNormal(OBJNormal normal, float x, float y, float z) {
+		assertEquals(x, normal.x, FLOAT_MARGIN);
+		assertEquals(y, normal.y, FLOAT_MARGIN);
+		assertEquals(z, normal.z, FLOAT_MARGIN);
+	}
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJFace;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJNormal;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJParser;
+import com.mokiat.data.front.parser.OBJTexCoord;
+import com.mokiat.data.front.parser.OBJVertex;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJTangentGeneratorTest {
+
+	private static final float FLOAT_MARGIN = 0.0001f;
+	private static final float REFERENCE_MARGIN = 0.001f;
+	private static final int GRID_SIZE = 24;
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJParser parser = new OBJParser();
+	private final OBJTriangulator triangulator = new OBJTriangulator();
+	private final OBJVertexBufferBuilder builder = new OBJVertexBufferBuilder();
+	private final OBJTangentGenerator generator = new OBJTangentGenerator();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private final Random random = new Random(0x5EED);
+
+	@Before
+	public void setUp() {
+		triangulator.setEarClipping(false);
+		builder.setTriangulator(triangulator);
+		generator.setTriangulator(triangulator);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testDegenerateMapping() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_quads.obj", parser);
+		final List<OBJMesh> meshes = model.getObjects().get(0).getMeshes();
+		for (OBJMesh mesh : meshes) {
+			final float[] tangents = generator.generate(model, mesh);
+			final OBJVertexBuffer buffer = builder.build(model, mesh);
+			assertEquals(buffer.getVertexCount() * OBJTangentGenerator.TANGENT_SIZE, tangents.length);
+			for (int i = 0; i < buffer.getVertexCount(); ++i) {
+				assertTangent(tangents, i, 1.0f, 0.0f, 0.0f, 1.0f);
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesReference() {
+		final OBJModel model = createGridModel();
+		for (OBJMesh mesh : model.getObjects().get(0).getMeshes()) {
+			final OBJVertexBuffer buffer = builder.build(model, mesh);
+			final float[] expected = computeReference(model, mesh, buffer);
+			final float[] actual = generator.generate(model, mesh);
+			assertEquals(buffer.getVertexCount() * OBJTangentGenerator.TANGENT_SIZE, actual.length);
+			assertArrayEquals(expected, actual, REFERENCE_MARGIN);
+		}
+	}
+
+	@Test
+	public void testTangentSpace() {
+		final OBJModel model = createGridModel();
+		final List<OBJMesh> meshes = model.getObjects().get(0).getMeshes();
+		final float[] tangents = generator.generate(model, meshes.get(0));
+		final OBJVertexBuffer buffer = builder.build(model, meshes.get(0));
+		for (int i = 0; i < buffer.getVertexCount(); ++i) {
+			final int offset = i * OBJTangentGenerator.TANGENT_SIZE;
+			final float x = tangents[offset];
+			final float y = tangents[offset + 1];
+			final float z = tangents[offset + 2];
+			assertEquals(1.0f, (float) Math.sqrt(x * x + y * y + z * z), FLOAT_MARGIN);
+			final int normalOffset = i * buffer.getStride() + buffer.getNormalOffset();
+			final float dot = x * buffer.getInterleavedData().get(normalOffset)
+					+ y * buffer.getInterleavedData().get(normalOffset + 1)
+					+ z * buffer.getInterleavedData().get(normalOffset + 2);
+			assertEquals(0.0f, dot, FLOAT_MARGIN);
+			assertEquals(1.0f, tangents[offset + 3], 0.0f);
+		}
+		final float[] mirrored = generator.generate(model, meshes.get(1));
+		for (int i = 3; i < mirrored.length; i += OBJTangentGenerator.TANGENT_SIZE) {
+			assertEquals(-1.0f, mirrored[i], 0.0f);
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		final OBJModel model = createGridModel();
+		final List<OBJMesh> meshes = model.getObjects().get(0).getMeshes();
+		final List<float[]> tangents = new OBJTangentGenerator(1).generate(model, pool);
+		assertEquals(meshes.size(), tangents.size());
+		for (int i = 0; i < meshes.size(); ++i) {
+			assertArrayEquals(generator.generate(model, meshes.get(i)), tangents.get(i), 0.0f);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRangeSize() {
+		new OBJTangentGenerator(0);
+	}
+
+	/*
+	 * Creates a slightly bumpy grid with jittered texture coordinates
+	 * and tilted normals. The first mesh is mapped normally and the
+	 * second one has its texture mirrored horizontally.
+	 */
+	private OBJModel createGridModel() {
+		final OBJModel model = new OBJModel();
+		for (int y = 0; y <= GRID_SIZE; ++y) {
+			for (int x = 0; x <= GRID_SIZE; ++x) {
+				final float height = 0.2f * (float) Math.sin(x * 0.5) * (float) Math.cos(y * 0.5);
+				model.getVertices().add(new OBJVertex(x, y, height));
+				final float u = (x + jitter()) / GRID_SIZE;
+				final float v = (y + jitter()) / GRID_SIZE;
+				model.getTexCoords().add(new OBJTexCoord(u, v));
+				model.getTexCoords().add(new OBJTexCoord(-u, v));
+				model.getNormals().add(new OBJNormal(jitter(), jitter(), 1.0f));
+			}
+		}
+		final OBJObject object = new OBJObject();
+		object.getMeshes().add(createGridMesh(0));
+		object.getMeshes().add(createGridMesh(1));
+		model.getObjects().add(object);
+		return model;
+	}
+
+	private OBJMesh createGridMesh(int texCoordOffset) {
+		final OBJMesh mesh = new OBJMesh();
+		for (int y = 0; y < GRID_SIZE; ++y) {
+			for (int x = 0; x < GRID_SIZE; ++x) {
+				final OBJFace face = new OBJFace();
+				face.getReferences().add(createReference(x, y, texCoordOffset));
+				face.getReferences().add(createReference(x + 1, y, texCoordOffset));
+				face.getReferences().add(createReference(x + 1, y + 1, texCoordOffset));
+				face.getReferences().add(createReference(x, y + 1, texCoordOffset));
+				mesh.getFaces().add(face);
+			}
+		}
+		return mesh;
+	}
+
+	private OBJDataReference createReference(int x, int y, int texCoordOffset) {
+		final OBJDataReference reference = new OBJDataReference();
+		reference.vertexIndex = y * (GRID_SIZE + 1) + x;
+		reference.texCoordIndex = reference.vertexIndex * 2 + texCoordOffset;
+		reference.normalIndex = reference.vertexIndex;
+		return reference;
+	}
+
+	private float jitter() {
+		return (random.nextFloat() - 0.5f) * 0.2f;
+	}
+
+	/*
+	 * Straightforward implementation of the per triangle texture
+	 * gradient method, evaluated in double precision over the triangle
+	 * fans of the faces and mapped onto the vertices of the buffer.
+	 */
+	private float[] computeReference(OBJModel model, OBJMesh mesh, OBJVertexBuffer buffer) {
+		final double[] tangents = new double[buffer.getVertexCount() * 3];
+		final double[] bitangents = new double[buffer.getVertexCount() * 3];
+		int position = 0;
+		for (OBJFace face : mesh.getFaces()) {
+			final List<OBJDataReference> references = face.getReferences();
+			for (int j = 1; j < references.size() - 1; ++j) {
+				final OBJDataReference[] corners = {
+					references.get(0), references.get(j), references.get(j + 1)
+				};
+				final OBJVertex v0 = model.getVertex(corners[0]);
+				final OBJVertex v1 = model.getVertex(corners[1]);
+				final OBJVertex v2 = model.getVertex(corners[2]);
+				final OBJTexCoord t0 = model.getTexCoord(corners[0]);
+				final OBJTexCoord t1 = model.getTexCoord(corners[1]);
+				final OBJTexCoord t2 = model.getTexCoord(corners[2]);
+				final double[] edge1 = { v1.x - v0.x, v1.y - v0.y, v1.z - v0.z };
+				final double[] edge2 = { v2.x - v0.x, v2.y - v0.y, v2.z - v0.z };
+				final double du1 = t1.u - t0.u;
+				final double dv1 = t1.v - t0.v;
+				final double du2 = t2.u - t0.u;
+				final double dv2 = t2.v - t0.v;
+				final double r = 1.0 / (du1 * dv2 - du2 * dv1);
+				for (int k = 0; k < 3; ++k) {
+					final int vertex = buffer.getIndex(position++);
+					for (int c = 0; c < 3; ++c) {
+						tangents[vertex * 3 + c] += (edge1[c] * dv2 - edge2[c] * dv1) * r;
+						bitangents[vertex * 3 + c] += (edge2[c] * du1 - edge1[c] * du2) * r;
+					}
+				}
+			}
+		}
+
+		final float[] result = new float[buffer.getVertexCount() * OBJTangentGenerator.TANGENT_SIZE];
+		for (int i = 0; i < buffer.getVertexCount(); ++i) {
+			final int normalOffset = i * buffer.getStride() + buffer.getNormalOffset();
+			final double[] n = {
+				buffer.getInterleavedData().get(normalOffset),
+				buffer.getInterleavedData().get(normalOffset + 1),
+				buffer.getInterleavedData().get(normalOffset + 2)
+			};
+			final double normalLength = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+			final double[] t = new double[3];
+			final double[] b = new double[3];
+			for (int c = 0; c < 3; ++c) {
+				n[c] /= normalLength;
+				t[c] = tangents[i * 3 + c];
+				b[c] = bitangents[i * 3 + c];
+			}
+			final double dot = n[0] * t[0] + n[1] * t[1] + n[2] * t[2];
+			for (int c = 0; c < 3; ++c) {
+				t[c] -= n[c] * dot;
+			}
+			final double length = Math.sqrt(t[0] * t[0] + t[1] * t[1] + t[2] * t[2]);
+			final double[] cross = {
+				n[1] * t[2] - n[2] * t[1],
+				n[2] * t[0] - n[0] * t[2],
+				n[0] * t[1] - n[1] * t[0]
+			};
+			final double handedness = cross[0] * b[0] + cross[1] * b[1] + cross[2] * b[2];
+			for (int c = 0; c < 3; ++c) {
+				result[i * OBJTangentGenerator.TANGENT_SIZE + c] = (float) (t[c] / length);
+			}
+			result[i * OBJTangentGenerator.TANGENT_SIZE + 3] = (handedness < 0.0) ? -1.0f : 1.0f;
+		}
+		return result;
+	}
+
+	private void assertTangent(float[] tangents, int vertex, float x, float y, float z, float w) {
+		final int offset = vertex * OBJTangentGenerator.TANGENT_SIZE;
+		assertEquals(x, tangents[offset], FLOAT_MARGIN);
+		assertEquals(y, tangents[offset + 1], FLOAT_MARGIN);
+		assertEquals(z, tangents[offset + 2], FLOAT_MARGIN);
+		assertEquals(w, tangents[offset + 3], 0.0f);
+	}
+
+}
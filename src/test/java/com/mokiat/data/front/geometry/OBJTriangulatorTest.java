@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+import com.mokiat.data.front.parser.OBJParser;
+import com.mokiat.data.front.parser.OBJVertex;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJTriangulatorTest {
+
+	private static final float AREA_MARGIN = 0.0001f;
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJParser parser = new OBJParser();
+	private final OBJTriangulator triangulator = new OBJTriangulator();
+	private OBJModel model;
+	private OBJMesh mesh;
+
+	@Before
+	public void setUp() throws Exception {
+		parser.setPacked(true);
+		model = fixture.parseOBJ("valid_polygons.obj", parser);
+		mesh = model.getObjects().get(0).getMeshes().get(0);
+	}
+
+	@Test
+	public void testTriangleCounts() {
+		final int[] triangles = triangulator.triangulate(model, mesh);
+		assertEquals((4 + 2 + 3 + 3) * 3, triangles.length);
+	}
+
+	@Test
+	public void testConvex() {
+		final int[] triangles = triangulator.triangulate(model, mesh);
+		assertArrayEquals(new int[] { 6, 7, 8, 6, 8, 9 }, Arrays.copyOfRange(triangles, 12, 18));
+	}
+
+	@Test
+	public void testConcave() {
+		final int[] triangles = triangulator.triangulate(model, mesh);
+		assertFaceCovered(triangles, 0, 0, 6, 3.0f);
+	}
+
+	@Test
+	public void testConcaveXZ() {
+		final int[] triangles = triangulator.triangulate(model, mesh);
+		assertFaceCovered(triangles, 18, 10, 5, 10.0f);
+	}
+
+	@Test
+	public void testNonPlanar() {
+		final int[] triangles = triangulator.triangulate(model, mesh);
+		for (int i = 27; i < 36; ++i) {
+			assertTrue(triangles[i] >= 15);
+			assertTrue(triangles[i] < 20);
+		}
+		final float[] normal = newellNormal(15, 5);
+		for (int i = 27; i < 36; i += 3) {
+			final float[] triangleNormal = triangleNormal(triangles, i);
+			assertTrue(dot(normal, triangleNormal) > 0.0f);
+		}
+	}
+
+	@Test
+	public void testFanOnly() {
+		triangulator.setEarClipping(false);
+		final int[] triangles = triangulator.triangulate(model, mesh);
+		assertArrayEquals(new int[] { 0, 1, 2, 0, 2, 3, 0, 3, 4, 0, 4, 5 }, Arrays.copyOfRange(triangles, 0, 12));
+	}
+
+	@Test
+	public void testObjectModel() throws Exception {
+		final OBJModel objectModel = fixture.parseOBJ("valid_polygons.obj", new OBJParser());
+		final OBJMesh objectMesh = objectModel.getObjects().get(0).getMeshes().get(0);
+		assertArrayEquals(
+				triangulator.triangulate(model, mesh),
+				triangulator.triangulate(objectModel, objectMesh));
+	}
+
+	@Test
+	public void testDeterministic() {
+		final OBJPackedModel starModel = createStarModel(5000, 8);
+		final int[] expected = triangulator.triangulate(starModel, starModel.getObjects().get(0).getMeshes().get(0));
+		final OBJTriangulator rangeTriangulator = new OBJTriangulator(64);
+		for (int parallelism : new int[] { 1, 4 }) {
+			final ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				final List<int[]> result = rangeTriangulator.triangulate(starModel, pool);
+				assertEquals(1, result.size());
+				assertArrayEquals(expected, result.get(0));
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidReference() {
+		try {
+			triangulator.triangulate(model, createInvalidMesh());
+			fail("Expected an exception");
+		} catch (IndexOutOfBoundsException ex) {
+			assertInvalidReference(ex);
+		}
+	}
+
+	@Test
+	public void testInvalidReferenceFanOnly() {
+		triangulator.setEarClipping(false);
+		try {
+			triangulator.triangulate(model, createInvalidMesh());
+			fail("Expected an exception");
+		} catch (IndexOutOfBoundsException ex) {
+			assertInvalidReference(ex);
+		}
+	}
+
+	@Test
+	public void testInvalidReferenceParallel() {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			triangulator.triangulate(model, Arrays.<OBJMesh>asList(mesh, createInvalidMesh()), pool);
+			fail("Expected an exception");
+		} catch (IndexOutOfBoundsException ex) {
+			// Exceptions of other threads are rethrown by the
+			// pool as copies whose cause is the original one.
+			assertInvalidReference((ex.getCause() != null) ? (IndexOutOfBoundsException) ex.getCause() : ex);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void assertInvalidReference(IndexOutOfBoundsException ex) {
+		final int size = model.getVertices().size();
+		assertEquals(IndexOutOfBoundsException.class, ex.getClass());
+		assertEquals("Index: " + size + ", Size: " + size, ex.getMessage());
+	}
+
+	/*
+	 * Checks that the triangles of a planar face have the same
+	 * orientation as the face and add up to its area.
+	 */
+	private void assertFaceCovered(int[] triangles, int offset, int firstReference, int size, float area) {
+		final float[] normal = newellNormal(firstReference, size);
+		float triangleArea = 0.0f;
+		for (int i = offset; i < offset + (size - 2) * 3; i += 3) {
+			final float[] triangleNormal = triangleNormal(triangles, i);
+			assertTrue(dot(normal, triangleNormal) > 0.0f);
+			triangleArea += length(triangleNormal) / 2.0f;
+		}
+		assertEquals(area, triangleArea, AREA_MARGIN);
+	}
+
+	private float[] newellNormal(int firstReference, int size) {
+		final float[] normal = new float[3];
+		for (int i = 0; i < size; ++i) {
+			final OBJVertex current = vertex(firstReference + i);
+			final OBJVertex following = vertex(firstReference + (i + 1) % size);
+			normal[0] += (current.y - following.y) * (current.z + following.z);
+			normal[1] += (current.z - following.z) * (current.x + following.x);
+			normal[2] += (current.x - following.x) * (current.y + following.y);
+		}
+		return normal;
+	}
+
+	private float[] triangleNormal(int[] triangles, int offset) {
+		final OBJVertex a = vertex(triangles[offset]);
+		final OBJVertex b = vertex(triangles[offset + 1]);
+		final OBJVertex c = vertex(triangles[offset + 2]);
+		final float abX = b.x - a.x;
+		final float abY = b.y - a.y;
+		final float abZ = b.z - a.z;
+		final float acX = c.x - a.x;
+		final float acY = c.y - a.y;
+		final float acZ = c.z - a.z;
+		return new float[] {
+			abY * acZ - abZ * acY,
+			abZ * acX - abX * acZ,
+			abX * acY - abY * acX
+		};
+	}
+
+	private OBJVertex vertex(int reference) {
+		return model.getVertices().get(((OBJPackedMesh) mesh).getVertexIndex(reference));
+	}
+
+	private static float dot(float[] a, float[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+
+	private static float length(float[] a) {
+		return (float) Math.sqrt(dot(a, a));
+	}
+
+	/*
+	 * Creates a quad, which is projected when ear clipping is
+	 * used, whose last corner points past the vertices of the model.
+	 */
+	private OBJMesh createInvalidMesh() {
+		final OBJPackedMesh invalidMesh = new OBJPackedMesh();
+		invalidMesh.beginFace();
+		invalidMesh.addReference(0, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		invalidMesh.addReference(1, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		invalidMesh.addReference(2, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		invalidMesh.addReference(model.getVertices().size(), OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		return invalidMesh;
+	}
+
+	private static OBJPackedModel createStarModel(int faceCount, int pointCount) {
+		final Random random = new Random(0x5EED);
+		final OBJPackedModel starModel = new OBJPackedModel();
+		final OBJPackedMesh starMesh = new OBJPackedMesh();
+		for (int i = 0; i < faceCount; ++i) {
+			starMesh.beginFace();
+			for (int j = 0; j < pointCount * 2; ++j) {
+				final double angle = Math.PI * j / pointCount;
+				final double radius = (j % 2 == 0) ? 1.0 + random.nextDouble() : 0.2 + random.nextDouble() * 0.3;
+				starMesh.addReference(starModel.getVertexCount(), OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+				starModel.addVertex(i + (float) (radius * Math.cos(angle)), (float) (radius * Math.sin(angle)), random.nextFloat() * 0.01f);
+			}
+		}
+		final OBJObject object = new OBJObject();
+		object.getMeshes().add(starMesh);
+		starModel.getObjects().add(object);
+		return starModel;
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJFace;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJNormal;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+import com.mokiat.data.front.parser.OBJTexCoord;
+import com.mokiat.data.front.parser.OBJVertex;
+
+/**
+ * Compares the {@link OBJVertexBufferBuilder} against welding
+ * vertices through a {@link HashMap} keyed by {@link OBJDataReference},
+ * on a grid of quads where each vertex is shared by four faces. The
+ * builder is measured both on an {@link OBJModel} and on the same
+ * data as an {@link OBJPackedModel}.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=OBJVertexBufferBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OBJVertexBufferBenchmark {
+
+	private static final int GRID_SIZE = 300;
+
+	private final OBJVertexBufferBuilder builder = new OBJVertexBufferBuilder();
+	private OBJModel model;
+	private OBJMesh mesh;
+	private OBJPackedModel packedModel;
+	private OBJPackedMesh packedMesh;
+
+	@Setup
+	public void setUp() {
+		model = new OBJModel();
+		mesh = new OBJMesh();
+		for (int y = 0; y <= GRID_SIZE; ++y) {
+			for (int x = 0; x <= GRID_SIZE; ++x) {
+				model.getVertices().add(new OBJVertex(x, y, 0.0f));
+				model.getTexCoords().add(new OBJTexCoord(x / (float) GRID_SIZE, y / (float) GRID_SIZE));
+			}
+		}
+		model.getNormals().add(new OBJNormal(0.0f, 0.0f, 1.0f));
+		for (int y = 0; y < GRID_SIZE; ++y) {
+			for (int x = 0; x < GRID_SIZE; ++x) {
+				final int corner = y * (GRID_SIZE + 1) + x;
+				final OBJFace face = new OBJFace();
+				addReference(face, corner);
+				addReference(face, corner + 1);
+				addReference(face, corner + GRID_SIZE + 2);
+				addReference(face, corner + GRID_SIZE + 1);
+				mesh.getFaces().add(face);
+			}
+		}
+		packedModel = new OBJPackedModel();
+		packedModel.getVertices().addAll(model.getVertices());
+		packedModel.getTexCoords().addAll(model.getTexCoords());
+		packedModel.getNormals().addAll(model.getNormals());
+		packedMesh = new OBJPackedMesh();
+		packedMesh.getFaces().addAll(mesh.getFaces());
+		packedModel.trimToSize();
+		packedMesh.trimToSize();
+	}
+
+	private static void addReference(OBJFace face, int index) {
+		final OBJDataReference reference = new OBJDataReference();
+		reference.vertexIndex = index;
+		reference.texCoordIndex = index;
+		reference.normalIndex = 0;
+		face.getReferences().add(reference);
+	}
+
+	@Benchmark
+	public OBJVertexBuffer buildWithBuilder() {
+		return builder.build(model, mesh);
+	}
+
+	@Benchmark
+	public OBJVertexBuffer buildPackedWithBuilder() {
+		return builder.build(packedModel, packedMesh);
+	}
+
+	@Benchmark
+	public float[] buildWithHashMap() {
+		final Map<OBJDataReference, Integer> indexMap = new HashMap<OBJDataReference, Integer>();
+		final List<OBJDataReference> uniqueReferences = new ArrayList<OBJDataReference>();
+		final List<Integer> indices = new ArrayList<Integer>();
+		for (OBJFace face : mesh.getFaces()) {
+			final List<OBJDataReference> references = face.getReferences();
+			for (int i = 1; i < references.size() - 1; ++i) {
+				indices.add(weld(indexMap, uniqueReferences, references.get(0)));
+				indices.add(weld(indexMap, uniqueReferences, references.get(i)));
+				indices.add(weld(indexMap, uniqueReferences, references.get(i + 1)));
+			}
+		}
+		final float[] data = new float[uniqueReferences.size() * 8];
+		int offset = 0;
+		for (OBJDataReference reference : uniqueReferences) {
+			final OBJVertex vertex = model.getVertex(reference);
+			final OBJTexCoord texCoord = model.getTexCoord(reference);
+			final OBJNormal normal = model.getNormal(reference);
+			data[offset++] = vertex.x;
+			data[offset++] = vertex.y;
+			data[offset++] = vertex.z;
+			data[offset++] = texCoord.u;
+			data[offset++] = texCoord.v;
+			data[offset++] = normal.x;
+			data[offset++] = normal.y;
+			data[offset++] = normal.z;
+		}
+		return data;
+	}
+
+	private static Integer weld(Map<OBJDataReference, Integer> indexMap, List<OBJDataReference> uniqueReferences, OBJDataReference reference) {
+		Integer index = indexMap.get(reference);
+		if (index == null) {
+			index = uniqueReferences.size();
+			indexMap.put(reference, index);
+			uniqueReferences.add(reference);
+		}
+		return index;
+	}
+
+}
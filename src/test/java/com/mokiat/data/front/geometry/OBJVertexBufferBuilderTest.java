@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mokiat.data.front.parser.OBJDataReference;
+import com.mokiat.data.front.parser.OBJMesh;
+import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJObject;
+import com.mokiat.data.front.parser.OBJPackedMesh;
+import com.mokiat.data.front.parser.OBJPackedModel;
+import com.mokiat.data.front.parser.OBJParser;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJVertexBufferBuilderTest {
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJParser parser = new OBJParser();
+	private final OBJVertexBufferBuilder builder = new OBJVertexBufferBuilder();
+	private OBJModel model;
+	private OBJMesh quadMesh;
+	private OBJMesh pentagonMesh;
+
+	@Before
+	public void setUp() throws Exception {
+		model = fixture.parseOBJ("valid_quads.obj", parser);
+		quadMesh = model.getObjects().get(0).getMeshes().get(0);
+		pentagonMesh = model.getObjects().get(0).getMeshes().get(1);
+	}
+
+	@Test
+	public void testInterleaved() {
+		final OBJVertexBuffer buffer = builder.build(model, quadMesh);
+		assertTrue(buffer.isInterleaved());
+		assertTrue(buffer.hasTexCoords());
+		assertTrue(buffer.hasNormals());
+		assertEquals(6, buffer.getVertexCount());
+		assertEquals(12, buffer.getIndexCount());
+		assertEquals(8, buffer.getStride());
+		assertEquals(3, buffer.getTexCoordOffset());
+		assertEquals(5, buffer.getNormalOffset());
+		assertTrue(buffer.isShortIndices());
+		assertNull(buffer.getPositions());
+		assertEquals(6 * 8, buffer.getInterleavedData().capacity());
+
+		assertIndices(buffer, 0, 1, 2, 0, 2, 3, 1, 4, 5, 1, 5, 2);
+		assertMatchesFaces(model, quadMesh, buffer);
+	}
+
+	@Test
+	public void testDeinterleaved() {
+		builder.setInterleaved(false);
+		final OBJVertexBuffer buffer = builder.build(model, quadMesh);
+		assertFalse(buffer.isInterleaved());
+		assertNull(buffer.getInterleavedData());
+		assertEquals(6 * 3, buffer.getPositions().capacity());
+		assertEquals(6 * 2, buffer.getTexCoords().capacity());
+		assertEquals(6 * 3, buffer.getNormals().capacity());
+		assertMatchesFaces(model, quadMesh, buffer);
+	}
+
+	@Test
+	public void testPolygon() {
+		final OBJVertexBuffer buffer = builder.build(model, pentagonMesh);
+		assertFalse(buffer.hasTexCoords());
+		assertFalse(buffer.hasNormals());
+		assertEquals(3, buffer.getStride());
+		assertEquals(-1, buffer.getTexCoordOffset());
+		assertEquals(5, buffer.getVertexCount());
+		assertIndices(buffer, 0, 1, 2, 0, 2, 3, 0, 3, 4);
+		assertMatchesFaces(model, pentagonMesh, buffer);
+	}
+
+	@Test
+	public void testPacked() throws Exception {
+		final OBJParser packedParser = new OBJParser();
+		packedParser.setPacked(true);
+		final OBJModel packedModel = fixture.parseOBJ("valid_quads.obj", packedParser);
+		final OBJMesh packedMesh = packedModel.getObjects().get(0).getMeshes().get(0);
+		final OBJVertexBuffer buffer = builder.build(packedModel, packedMesh);
+		assertEquals(6, buffer.getVertexCount());
+		assertMatchesFaces(model, quadMesh, buffer);
+	}
+
+	@Test
+	public void testParallel() {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final List<OBJVertexBuffer> buffers = builder.build(model, pool);
+			assertEquals(2, buffers.size());
+			assertMatchesFaces(model, quadMesh, buffers.get(0));
+			assertMatchesFaces(model, pentagonMesh, buffers.get(1));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testIntIndices() {
+		final int triangleCount = 30000;
+		final OBJPackedModel largeModel = new OBJPackedModel();
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		for (int i = 0; i < triangleCount * 3; ++i) {
+			largeModel.addVertex(i, i * 2, i * 3);
+		}
+		for (int i = 0; i < triangleCount; ++i) {
+			mesh.beginFace();
+			for (int j = 0; j < 3; ++j) {
+				mesh.addReference(i * 3 + j, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+			}
+		}
+		final OBJObject object = new OBJObject();
+		object.getMeshes().add(mesh);
+		largeModel.getObjects().add(object);
+
+		final OBJVertexBuffer buffer = builder.build(largeModel, mesh);
+		assertFalse(buffer.isShortIndices());
+		assertNull(buffer.getShortIndices());
+		assertEquals(triangleCount * 3, buffer.getVertexCount());
+		assertEquals(triangleCount * 3, buffer.getIndexCount());
+		assertMatchesFaces(largeModel, mesh, buffer);
+	}
+
+	/*
+	 * A flat shaded grid, where each triangle has a normal of its own,
+	 * so that every position is referenced with up to six different
+	 * normals and no two corners can be welded.
+	 */
+	@Test(timeout = 30000)
+	public void testPerFaceNormals() {
+		final int size = 300;
+		final OBJPackedModel gridModel = new OBJPackedModel();
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				gridModel.addVertex(x, y, (x * y) % 7);
+			}
+		}
+		int normal = 0;
+		for (int y = 0; y < size - 1; ++y) {
+			for (int x = 0; x < size - 1; ++x) {
+				final int corner = y * size + x;
+				addFlatTriangle(gridModel, mesh, normal++, corner, corner + 1, corner + size + 1);
+				addFlatTriangle(gridModel, mesh, normal++, corner, corner + size + 1, corner + size);
+			}
+		}
+		final OBJObject object = new OBJObject();
+		object.getMeshes().add(mesh);
+		gridModel.getObjects().add(object);
+
+		final OBJVertexBuffer buffer = builder.build(gridModel, mesh);
+		assertEquals(normal * 3, buffer.getVertexCount());
+		assertEquals(normal * 3, buffer.getIndexCount());
+		assertMatchesFaces(gridModel, mesh, buffer);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testInvalidReference() {
+		final OBJMesh mesh = new OBJMesh();
+		final OBJPackedMesh packedMesh = new OBJPackedMesh();
+		packedMesh.beginFace();
+		packedMesh.addReference(0, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		packedMesh.addReference(1, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		packedMesh.addReference(100, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.getFaces().addAll(packedMesh.getFaces());
+		builder.build(model, mesh);
+	}
+
+	private void addFlatTriangle(OBJPackedModel model, OBJPackedMesh mesh, int normal, int a, int b, int c) {
+		model.addNormal(0.0f, 0.0f, normal);
+		mesh.beginFace();
+		mesh.addReference(a, OBJDataReference.UNDEFINED_INDEX, normal);
+		mesh.addReference(b, OBJDataReference.UNDEFINED_INDEX, normal);
+		mesh.addReference(c, OBJDataReference.UNDEFINED_INDEX, normal);
+	}
+
+	private void assertIndices(OBJVertexBuffer buffer, int... expected) {
+		assertEquals(expected.length, buffer.getIndexCount());
+		for (int i = 0; i < expected.length; ++i) {
+			assertEquals(expected[i], buffer.getIndex(i));
+		}
+	}
+
+	/*
+	 * Checks that every triangle corner of the buffer has the same
+	 * attributes as the corresponding data reference of a fan
+	 * triangulation of the mesh faces.
+	 */
+	private void assertMatchesFaces(OBJModel model, OBJMesh mesh, OBJVertexBuffer buffer) {
+		int position = 0;
+		for (int i = 0; i < mesh.getFaces().size(); ++i) {
+			final List<OBJDataReference> references = mesh.getFaces().get(i).getReferences();
+			for (int j = 1; j < references.size() - 1; ++j) {
+				assertVertex(model, references.get(0), buffer, buffer.getIndex(position++));
+				assertVertex(model, references.get(j), buffer, buffer.getIndex(position++));
+				assertVertex(model, references.get(j + 1), buffer, buffer.getIndex(position++));
+			}
+		}
+		assertEquals(position, buffer.getIndexCount());
+	}
+
+	private void assertVertex(OBJModel model, OBJDataReference reference, OBJVertexBuffer buffer, int index) {
+		final FloatBuffer positions;
+		final int positionOffset;
+		if (buffer.isInterleaved()) {
+			positions = buffer.getInterleavedData();
+			positionOffset = index * buffer.getStride();
+		} else {
+			positions = buffer.getPositions();
+			positionOffset = index * OBJVertexBuffer.POSITION_SIZE;
+		}
+		assertEquals(model.getVertex(reference).x, positions.get(positionOffset), 0.0f);
+		assertEquals(model.getVertex(reference).y, positions.get(positionOffset + 1), 0.0f);
+		assertEquals(model.getVertex(reference).z, positions.get(positionOffset + 2), 0.0f);
+		if (buffer.hasTexCoords()) {
+			final FloatBuffer texCoords = buffer.isInterleaved() ? buffer.getInterleavedData() : buffer.getTexCoords();
+			final int offset = buffer.isInterleaved()
+					? positionOffset + buffer.getTexCoordOffset()
+					: index * OBJVertexBuffer.TEXCOORD_SIZE;
+			assertEquals(model.getTexCoord(reference).u, texCoords.get(offset), 0.0f);
+			assertEquals(model.getTexCoord(reference).v, texCoords.get(offset + 1), 0.0f);
+		}
+		if (buffer.hasNormals()) {
+			final FloatBuffer normals = buffer.isInterleaved() ? buffer.getInterleavedData() : buffer.getNormals();
+			final int offset = buffer.isInterleaved()
+					? positionOffset + buffer.getNormalOffset()
+					: index * OBJVertexBuffer.NORMAL_SIZE;
+			assertEquals(model.getNormal(reference).x, normals.get(offset), 0.0f);
+			assertEquals(model.getNormal(reference).y, normals.get(offset + 1), 0.0f);
+			assertEquals(model.getNormal(reference).z, normals.get(offset + 2), 0.0f);
+		}
+	}
+
+}
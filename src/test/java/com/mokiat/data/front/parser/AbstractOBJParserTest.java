@@ -26,7 +26,7 @@ public abstract class AbstractOBJParserTest {
 	private static final float FLOAT_MARGIN = 0.00001f;
 	
 	protected final WFResourceFixture fixture = new WFResourceFixture();
-	protected final IOBJParser parser = new OBJParser();
+	protected final OBJParser parser = new OBJParser();
 	protected OBJModel model;
 
 	protected void assertVertex(OBJVertex vertex, float x, float y, float z) {
@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mokiat.data.front.common.MTLLimits;
+import com.mokiat.data.front.error.WFException;
+
+public class MTLLibraryCacheTest {
+
+	private static final String CONTENT = "newmtl First\r\nKd 1.0 0.0 0.0\r\nnewmtl Second\r\n";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final AtomicInteger parseCount = new AtomicInteger();
+	private final CountingParser parser = new CountingParser();
+
+	@Test
+	public void testHitAndMiss() throws Exception {
+		final MTLLibraryCache cache = new MTLLibraryCache(parser, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = newLibrary("first.mtl");
+		final MTLLibrary library = cache.load(path);
+		assertEquals(2, library.getMaterials().size());
+		assertEquals(1.0f, library.getMaterial("First").getDiffuseColor().r, 0.0f);
+		assertSame(library, cache.load(path));
+		assertSame(library, cache.load(path.getParent().resolve(".").resolve("first.mtl")));
+		assertEquals(1, parseCount.get());
+		assertEquals(2L, cache.getHitCount());
+		assertEquals(1L, cache.getMissCount());
+		assertEquals(1, cache.size());
+		assertEquals(Files.size(path), cache.getWeight());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() throws Exception {
+		final MTLLibrary library = new MTLLibraryCache().load(newLibrary("first.mtl"));
+		library.getMaterials().add(new MTLMaterial("Third"));
+	}
+
+	@Test
+	public void testReadOnlyMaterials() throws Exception {
+		final MTLMaterial material = new MTLLibraryCache().load(newLibrary("first.mtl")).getMaterial("First");
+		material.getDiffuseColor().r = 0.5f;
+		assertEquals(1.0f, material.getDiffuseColor().r, 0.0f);
+		try {
+			material.setName("Renamed");
+			fail("Expected the material to be read-only.");
+		} catch (UnsupportedOperationException ex) {
+			// expected
+		}
+		try {
+			material.setDiffuseTexture("diffuse.png");
+			fail("Expected the material to be read-only.");
+		} catch (UnsupportedOperationException ex) {
+			// expected
+		}
+		assertEquals("First", material.getName());
+		assertNull(material.getDiffuseTexture());
+	}
+
+	@Test
+	public void testReadOnlyCopies() throws Exception {
+		final MTLMaterial material = new MTLMaterial("Textured");
+		material.getSpecularColor().setTo(0.25f, 0.5f, 0.75f);
+		material.setDissolve(0.5f);
+		material.setDiffuseTexture("diffuse.png");
+		material.setDissolveTexture("dissolve.png");
+		final MTLMaterial copy = new MTLLibrary(Arrays.asList(material)).getMaterial("Textured");
+		assertEquals(material.getSpecularColor(), copy.getSpecularColor());
+		assertEquals(0.5f, copy.getDissolve(), 0.0f);
+		assertEquals("diffuse.png", copy.getDiffuseTexture());
+		assertEquals("dissolve.png", copy.getDissolveTexture());
+
+		material.getSpecularColor().r = 1.0f;
+		assertEquals(0.25f, copy.getSpecularColor().r, 0.0f);
+	}
+
+	@Test
+	public void testModifiedFile() throws Exception {
+		final MTLLibraryCache cache = new MTLLibraryCache(parser, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = newLibrary("first.mtl");
+		final MTLLibrary library = cache.load(path);
+		Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 1000L));
+		assertNotSame(library, cache.load(path));
+		assertEquals(2, parseCount.get());
+		assertEquals(2L, cache.getMissCount());
+		assertEquals(1, cache.size());
+		assertEquals(0L, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		final Path first = newLibrary("first.mtl");
+		final Path second = newLibrary("second.mtl");
+		final Path third = newLibrary("third.mtl");
+		final MTLLibraryCache cache = new MTLLibraryCache(parser, Files.size(first) * 2);
+		final MTLLibrary firstLibrary = cache.load(first);
+		cache.load(second);
+		cache.load(first);
+		cache.load(third);
+		assertEquals(1L, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+
+		// The second library was the least recently used one
+		assertSame(firstLibrary, cache.load(first));
+		cache.load(second);
+		assertEquals(2L, cache.getEvictionCount());
+		assertEquals(4L, cache.getMissCount());
+		assertEquals(2L, cache.getHitCount());
+	}
+
+	@Test
+	public void testOversizedLibraryIsKept() throws Exception {
+		final MTLLibraryCache cache = new MTLLibraryCache(parser, 1L);
+		final Path path = newLibrary("first.mtl");
+		final MTLLibrary library = cache.load(path);
+		assertSame(library, cache.load(path));
+		cache.load(newLibrary("second.mtl"));
+		assertEquals(1, cache.size());
+		assertEquals(1L, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final MTLLibraryCache cache = new MTLLibraryCache(new CountingParser() {
+
+			@Override
+			public MTLLibrary parse(InputStream in) throws WFException, IOException {
+				started.countDown();
+				await(release);
+				return super.parse(in);
+			}
+		}, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = newLibrary("first.mtl");
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<MTLLibrary>> results = new ArrayList<Future<MTLLibrary>>();
+			for (int i = 0; i < 4; ++i) {
+				results.add(executor.submit(new Callable<MTLLibrary>() {
+
+					@Override
+					public MTLLibrary call() throws Exception {
+						return cache.load(path);
+					}
+				}));
+			}
+			started.await();
+			release.countDown();
+			for (Future<MTLLibrary> result : results) {
+				assertSame(results.get(0).get(), result.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, parseCount.get());
+		assertEquals(1L, cache.getMissCount());
+		assertEquals(3L, cache.getHitCount());
+	}
+
+	@Test
+	public void testCancelledOwner() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicInteger attemptCount = new AtomicInteger();
+		final MTLLibraryCache cache = new MTLLibraryCache(new CountingParser() {
+
+			@Override
+			public MTLLibrary parse(InputStream in) throws WFException, IOException {
+				if (attemptCount.getAndIncrement() == 0) {
+					started.countDown();
+					blockUntilInterrupted();
+				}
+				return super.parse(in);
+			}
+		}, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = newLibrary("first.mtl");
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			final Future<MTLLibrary> owner = executor.submit(newLoad(cache, path));
+			started.await();
+			final Future<MTLLibrary> firstWaiter = executor.submit(newLoad(cache, path));
+			final Future<MTLLibrary> secondWaiter = executor.submit(newLoad(cache, path));
+			awaitHitCount(cache, 2L);
+			owner.cancel(true);
+
+			final MTLLibrary library = firstWaiter.get(10, TimeUnit.SECONDS);
+			assertEquals(2, library.getMaterials().size());
+			assertSame(library, secondWaiter.get(10, TimeUnit.SECONDS));
+			assertSame(library, cache.load(path));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(2, attemptCount.get());
+		assertEquals(1, cache.size());
+		assertEquals(Files.size(path), cache.getWeight());
+	}
+
+	@Test
+	public void testCancelledWaiter() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final MTLLibraryCache cache = new MTLLibraryCache(new CountingParser() {
+
+			@Override
+			public MTLLibrary parse(InputStream in) throws WFException, IOException {
+				started.countDown();
+				await(release);
+				return super.parse(in);
+			}
+		}, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = newLibrary("first.mtl");
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final Future<MTLLibrary> owner = executor.submit(newLoad(cache, path));
+			started.await();
+			final Future<MTLLibrary> waiter = executor.submit(newLoad(cache, path));
+			awaitHitCount(cache, 1L);
+			waiter.cancel(true);
+			assertEquals(1, cache.size());
+			release.countDown();
+
+			final MTLLibrary library = owner.get(10, TimeUnit.SECONDS);
+			assertSame(library, cache.load(path));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, parseCount.get());
+		assertEquals(1L, cache.getMissCount());
+	}
+
+	@Test
+	public void testFailureIsNotCached() throws Exception {
+		final MTLLibraryCache cache = new MTLLibraryCache(parser, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = folder.newFile("invalid.mtl").toPath();
+		Files.write(path, "Kd 1.0 0.0 0.0\r\n".getBytes("UTF-8"));
+		for (int i = 0; i < 2; ++i) {
+			try {
+				cache.load(path);
+				fail("Expected an exception");
+			} catch (WFException ex) {
+				assertEquals(0, cache.size());
+				assertEquals(0L, cache.getWeight());
+			}
+		}
+		assertEquals(2, parseCount.get());
+		assertEquals(2L, cache.getMissCount());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		final MTLLibraryCache cache = new MTLLibraryCache(parser, MTLLibraryCache.DEFAULT_MAX_WEIGHT);
+		final Path path = newLibrary("first.mtl");
+		final MTLLibrary library = cache.load(path);
+		cache.invalidate(path);
+		assertEquals(0, cache.size());
+		assertNotSame(library, cache.load(path));
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0L, cache.getWeight());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxWeight() {
+		new MTLLibraryCache(parser, -1L);
+	}
+
+	private Path newLibrary(String name) throws IOException {
+		final Path path = folder.newFile(name).toPath();
+		Files.write(path, CONTENT.getBytes("UTF-8"));
+		return path;
+	}
+
+	private static Callable<MTLLibrary> newLoad(final MTLLibraryCache cache, final Path path) {
+		return new Callable<MTLLibrary>() {
+
+			@Override
+			public MTLLibrary call() throws Exception {
+				return cache.load(path);
+			}
+		};
+	}
+
+	/*
+	 * Requests count as hits before they start waiting
+	 * for a library that is being parsed.
+	 */
+	private static void awaitHitCount(MTLLibraryCache cache, long hitCount) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while ((cache.getHitCount() < hitCount) && (System.nanoTime() < deadline)) {
+			Thread.sleep(1);
+		}
+		assertEquals(hitCount, cache.getHitCount());
+	}
+
+	/*
+	 * Blocks the way the scan loops of the parsers do, reporting
+	 * an interruption through an InterruptedIOException.
+	 */
+	private static void blockUntilInterrupted() throws IOException {
+		try {
+			new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			throw new InterruptedIOException("Interrupted.");
+		}
+		throw new IOException("Timed out.");
+	}
+
+	private static void await(CountDownLatch latch) throws IOException {
+		try {
+			if (!latch.await(10, TimeUnit.SECONDS)) {
+				throw new IOException("Timed out.");
+			}
+		} catch (InterruptedException ex) {
+			throw new IOException(ex);
+		}
+	}
+
+	private class CountingParser implements IMTLParser {
+
+		private final MTLParser delegate = new MTLParser();
+
+		@Override
+		public void setLimits(MTLLimits limits) {
+			delegate.setLimits(limits);
+		}
+
+		@Override
+		public MTLLimits getLimits() {
+			return delegate.getLimits();
+		}
+
+		@Override
+		public MTLLibrary parse(InputStream in) throws WFException, IOException {
+			parseCount.incrementAndGet();
+			return delegate.parse(in);
+		}
+
+		@Override
+		public MTLLibrary parse(BufferedReader reader) throws WFException, IOException {
+			parseCount.incrementAndGet();
+			return delegate.parse(reader);
+		}
+
+	}
+
+}
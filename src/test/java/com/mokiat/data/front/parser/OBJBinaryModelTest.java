@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mokiat.data.front.error.WFCorruptException;
+import com.mokiat.data.front.parser.OBJTexCoord.Type;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJBinaryModelTest {
+
+	private static final String[] RESOURCES = {
+		"valid_basic.obj", "valid_tex_coords.obj", "valid_smoothing_groups.obj",
+		"valid_objects.obj", "valid_bounds.obj", "valid_polygons.obj"
+	};
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJParser parser = new OBJParser();
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		for (String resource : RESOURCES) {
+			final OBJModel model = fixture.parseOBJ(resource, parser);
+			final OBJBinaryModel binaryModel = writeAndOpen(model);
+			assertSameModel(model, binaryModel.toModel(false));
+			assertSameModel(model, binaryModel.toModel(true));
+		}
+	}
+
+	@Test
+	public void testPackedRoundTrip() throws Exception {
+		parser.setPacked(true);
+		parser.setBoundingSpheres(true);
+		for (String resource : RESOURCES) {
+			final OBJModel model = fixture.parseOBJ(resource, parser);
+			final OBJBinaryModel binaryModel = writeAndOpen(model);
+			assertSameModel(model, binaryModel.toModel(false));
+			assertSameModel(model, binaryModel.toModel(true));
+		}
+	}
+
+	@Test
+	public void testLoadedModelsGrow() throws Exception {
+		parser.setPacked(true);
+		final OBJModel model = writeAndOpen(fixture.parseOBJ("valid_objects.obj", parser)).toModel(true);
+		final OBJPackedModel packedModel = (OBJPackedModel) model;
+		packedModel.addVertex(1.0f, 2.0f, 3.0f);
+		assertEquals(1, packedModel.getVertexCount());
+
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		model.getObjects().get(0).getMeshes().add(mesh);
+		final OBJPackedMesh loadedMesh = (OBJPackedMesh) writeAndOpen(model).toModel(true).getObjects().get(0).getMeshes().get(0);
+		loadedMesh.beginFace();
+		loadedMesh.addReference(0, 1, OBJDataReference.UNDEFINED_INDEX);
+		assertEquals(1, loadedMesh.getFaceCount());
+		assertEquals(1, loadedMesh.getTexCoordIndex(0));
+	}
+
+	@Test
+	public void testViews() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_basic.obj", parser);
+		final OBJBinaryModel binaryModel = writeAndOpen(model);
+		assertEquals(4, binaryModel.getVertexCount());
+		assertEquals(4, binaryModel.getTexCoordCount());
+		assertEquals(3, binaryModel.getNormalCount());
+		assertEquals(1, binaryModel.getMaterialLibraries().size());
+		assertEquals("materials.mtl", binaryModel.getMaterialLibraries().get(0));
+		assertEquals(1, binaryModel.getObjectCount());
+		assertEquals("MyObject", binaryModel.getObjectName(0));
+		assertEquals(0, binaryModel.getObjectFirstMesh(0));
+		assertEquals(1, binaryModel.getObjectMeshCount(0));
+		assertEquals(1, binaryModel.getMeshCount());
+		assertEquals("BlueMaterial", binaryModel.getMaterialName(0));
+		assertEquals(2, binaryModel.getFaceCount(0));
+		assertEquals(6, binaryModel.getReferenceCount(0));
+
+		final FloatBuffer vertices = binaryModel.getVertexData();
+		assertTrue(vertices.isReadOnly());
+		assertEquals(12, vertices.remaining());
+		assertEquals(0.4f, vertices.get(3), 0.0f);
+		assertEquals(0.8f, vertices.get(11), 0.0f);
+		assertEquals(Type.TYPE_3D, binaryModel.getTexCoordType(0));
+		assertEquals(0.6f, binaryModel.getTexCoordData().get(5), 0.0f);
+		assertEquals(1.0f, binaryModel.getNormalData().get(8), 0.0f);
+
+		assertIntBuffer(binaryModel.getFaceOffsets(0), 0, 3, 6);
+		assertIntBuffer(binaryModel.getVertexIndices(0), 0, 1, 2, 0, 2, 3);
+		assertIntBuffer(binaryModel.getTexCoordIndices(0), 3, 0, 2, 3, 2, 1);
+		assertIntBuffer(binaryModel.getNormalIndices(0), 0, 0, 1, 2, 1, 0);
+		assertNull(binaryModel.getSmoothingGroups(0));
+	}
+
+	@Test
+	public void testSmoothingGroupViews() throws Exception {
+		final OBJBinaryModel binaryModel = writeAndOpen(fixture.parseOBJ("valid_smoothing_groups.obj", parser));
+		assertEquals(3, binaryModel.getMeshCount());
+		assertNull(binaryModel.getTexCoordIndices(0));
+		assertNull(binaryModel.getNormalIndices(0));
+		assertIntBuffer(binaryModel.getSmoothingGroups(0), 1);
+		assertIntBuffer(binaryModel.getSmoothingGroups(1), 1, 0);
+		assertIntBuffer(binaryModel.getSmoothingGroups(2), 2);
+	}
+
+	@Test
+	public void testSourceAttributes() throws Exception {
+		final Path path = folder.newFile().toPath();
+		new OBJBinaryWriter().write(new OBJModel(), path, 1234L, 5678L);
+		final OBJBinaryModel binaryModel = OBJBinaryModel.open(path);
+		assertEquals(1234L, binaryModel.getSourceSize());
+		assertEquals(5678L, binaryModel.getSourceModified());
+		assertEquals(0, binaryModel.getObjectCount());
+		assertTrue(binaryModel.getBounds().isEmpty());
+	}
+
+	@Test(expected = WFCorruptException.class)
+	public void testNotABinaryModel() throws Exception {
+		final Path path = folder.newFile().toPath();
+		Files.write(path, "v 1.0 2.0 3.0".getBytes("UTF-8"));
+		OBJBinaryModel.open(path);
+	}
+
+	@Test(expected = WFCorruptException.class)
+	public void testUnsupportedVersion() throws Exception {
+		final Path path = folder.newFile().toPath();
+		new OBJBinaryWriter().write(new OBJModel(), path);
+		final byte[] bytes = Files.readAllBytes(path);
+		bytes[OBJBinaryFormat.OFFSET_VERSION] = (byte) (OBJBinaryFormat.VERSION + 1);
+		Files.write(path, bytes);
+		OBJBinaryModel.open(path);
+	}
+
+	@Test(expected = WFCorruptException.class)
+	public void testTruncated() throws Exception {
+		final Path path = folder.newFile().toPath();
+		new OBJBinaryWriter().write(fixture.parseOBJ("valid_basic.obj", parser), path);
+		final byte[] bytes = Files.readAllBytes(path);
+		final byte[] truncated = new byte[bytes.length - OBJBinaryFormat.SECTION_ALIGNMENT];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		Files.write(path, truncated);
+		OBJBinaryModel.open(path);
+	}
+
+	private OBJBinaryModel writeAndOpen(OBJModel model) throws Exception {
+		final Path path = folder.newFile().toPath();
+		new OBJBinaryWriter().write(model, path);
+		return OBJBinaryModel.open(path);
+	}
+
+	static void assertSameModel(OBJModel expected, OBJModel actual) {
+		assertEquals(expected.getMaterialLibraries(), actual.getMaterialLibraries());
+		assertSameBounds(expected.getBounds(), actual.getBounds());
+		assertEquals(expected.getVertices().size(), actual.getVertices().size());
+		for (int i = 0; i < expected.getVertices().size(); ++i) {
+			final OBJVertex expectedVertex = expected.getVertices().get(i);
+			final OBJVertex actualVertex = actual.getVertices().get(i);
+			assertArrayEquals(new float[] { expectedVertex.x, expectedVertex.y, expectedVertex.z },
+					new float[] { actualVertex.x, actualVertex.y, actualVertex.z }, 0.0f);
+		}
+		assertEquals(expected.getTexCoords().size(), actual.getTexCoords().size());
+		for (int i = 0; i < expected.getTexCoords().size(); ++i) {
+			final OBJTexCoord expectedTexCoord = expected.getTexCoords().get(i);
+			final OBJTexCoord actualTexCoord = actual.getTexCoords().get(i);
+			assertArrayEquals(new float[] { expectedTexCoord.u, expectedTexCoord.v, expectedTexCoord.w },
+					new float[] { actualTexCoord.u, actualTexCoord.v, actualTexCoord.w }, 0.0f);
+			assertEquals(expectedTexCoord.type, actualTexCoord.type);
+		}
+		assertEquals(expected.getNormals().size(), actual.getNormals().size());
+		for (int i = 0; i < expected.getNormals().size(); ++i) {
+			final OBJNormal expectedNormal = expected.getNormals().get(i);
+			final OBJNormal actualNormal = actual.getNormals().get(i);
+			assertArrayEquals(new float[] { expectedNormal.x, expectedNormal.y, expectedNormal.z },
+					new float[] { actualNormal.x, actualNormal.y, actualNormal.z }, 0.0f);
+		}
+		assertEquals(expected.getObjects().size(), actual.getObjects().size());
+		for (int i = 0; i < expected.getObjects().size(); ++i) {
+			final OBJObject expectedObject = expected.getObjects().get(i);
+			final OBJObject actualObject = actual.getObjects().get(i);
+			assertEquals(expectedObject.getName(), actualObject.getName());
+			assertSameBounds(expectedObject.getBounds(), actualObject.getBounds());
+			assertEquals(expectedObject.getMeshes().size(), actualObject.getMeshes().size());
+			for (int j = 0; j < expectedObject.getMeshes().size(); ++j) {
+				assertSameMesh(expectedObject.getMeshes().get(j), actualObject.getMeshes().get(j));
+			}
+		}
+	}
+
+	private static void assertSameMesh(OBJMesh expected, OBJMesh actual) {
+		assertEquals(expected.getMaterialName(), actual.getMaterialName());
+		assertSameBounds(expected.getBounds(), actual.getBounds());
+		final List<OBJFace> expectedFaces = expected.getFaces();
+		final List<OBJFace> actualFaces = actual.getFaces();
+		assertEquals(expectedFaces.size(), actualFaces.size());
+		for (int i = 0; i < expectedFaces.size(); ++i) {
+			final OBJFace expectedFace = expectedFaces.get(i);
+			final OBJFace actualFace = actualFaces.get(i);
+			assertEquals(expectedFace.getSmoothingGroup(), actualFace.getSmoothingGroup());
+			assertEquals(expectedFace.getReferences().size(), actualFace.getReferences().size());
+			for (int j = 0; j < expectedFace.getReferences().size(); ++j) {
+				final OBJDataReference expectedReference = expectedFace.getReferences().get(j);
+				final OBJDataReference actualReference = actualFace.getReferences().get(j);
+				assertEquals(expectedReference.vertexIndex, actualReference.vertexIndex);
+				assertEquals(expectedReference.texCoordIndex, actualReference.texCoordIndex);
+				assertEquals(expectedReference.normalIndex, actualReference.normalIndex);
+			}
+		}
+	}
+
+	private static void assertSameBounds(OBJBounds expected, OBJBounds actual) {
+		assertArrayEquals(new float[] {
+				expected.minX, expected.minY, expected.minZ, expected.maxX, expected.maxY, expected.maxZ,
+				expected.centerX, expected.centerY, expected.centerZ, expected.radius
+		}, new float[] {
+				actual.minX, actual.minY, actual.minZ, actual.maxX, actual.maxY, actual.maxZ,
+				actual.centerX, actual.centerY, actual.centerZ, actual.radius
+		}, 0.0f);
+	}
+
+	private static void assertIntBuffer(IntBuffer buffer, int... expected) {
+		assertTrue(buffer.isReadOnly());
+		final int[] actual = new int[buffer.remaining()];
+		buffer.get(actual);
+		assertArrayEquals(expected, actual);
+	}
+
+}
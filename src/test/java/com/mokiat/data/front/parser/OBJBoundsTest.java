@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OBJBoundsTest {
+
+	private static final float FLOAT_MARGIN = 0.0001f;
+	private static final int POINT_COUNT = 1000;
+
+	private final Random random = new Random(0x5EED);
+
+	@Test
+	public void testEmpty() {
+		final OBJBounds bounds = new OBJBounds();
+		assertTrue(bounds.isEmpty());
+		assertFalse(bounds.hasSphere());
+		bounds.extend(new OBJBounds());
+		assertTrue(bounds.isEmpty());
+		assertFalse(bounds.hasSphere());
+	}
+
+	@Test
+	public void testExtend() {
+		final OBJBounds bounds = new OBJBounds();
+		bounds.extend(1.0f, 2.0f, 3.0f);
+		assertFalse(bounds.isEmpty());
+		bounds.extend(-1.0f, 5.0f, 0.0f);
+		assertEquals(-1.0f, bounds.minX, 0.0f);
+		assertEquals(2.0f, bounds.minY, 0.0f);
+		assertEquals(0.0f, bounds.minZ, 0.0f);
+		assertEquals(1.0f, bounds.maxX, 0.0f);
+		assertEquals(5.0f, bounds.maxY, 0.0f);
+		assertEquals(3.0f, bounds.maxZ, 0.0f);
+		assertFalse(bounds.hasSphere());
+
+		bounds.reset();
+		assertTrue(bounds.isEmpty());
+	}
+
+	@Test
+	public void testSphere() {
+		final OBJBounds bounds = new OBJBounds();
+		final float[] points = randomPoints();
+		for (int i = 0; i < points.length; i += 3) {
+			bounds.extendSphere(points[i], points[i + 1], points[i + 2]);
+		}
+		assertTrue(bounds.isEmpty());
+		assertSphereContains(bounds, points);
+	}
+
+	@Test
+	public void testMergedSpheres() {
+		final OBJBounds merged = new OBJBounds();
+		final float[] allPoints = new float[POINT_COUNT * 3 * 4];
+		for (int part = 0; part < 4; ++part) {
+			final OBJBounds bounds = new OBJBounds();
+			final float[] points = randomPoints();
+			for (int i = 0; i < points.length; i += 3) {
+				points[i] += part * 3.0f;
+				bounds.extend(points[i], points[i + 1], points[i + 2]);
+				bounds.extendSphere(points[i], points[i + 1], points[i + 2]);
+			}
+			System.arraycopy(points, 0, allPoints, part * points.length, points.length);
+			merged.extend(bounds);
+		}
+		assertSphereContains(merged, allPoints);
+		assertEquals(-1.0f, merged.minX, 0.01f);
+		assertEquals(10.0f, merged.maxX, 0.01f);
+	}
+
+	private float[] randomPoints() {
+		final float[] points = new float[POINT_COUNT * 3];
+		for (int i = 0; i < points.length; ++i) {
+			points[i] = random.nextFloat() * 2.0f - 1.0f;
+		}
+		return points;
+	}
+
+	private void assertSphereContains(OBJBounds bounds, float[] points) {
+		assertTrue(bounds.hasSphere());
+		for (int i = 0; i < points.length; i += 3) {
+			final float deltaX = points[i] - bounds.centerX;
+			final float deltaY = points[i + 1] - bounds.centerY;
+			final float deltaZ = points[i + 2] - bounds.centerZ;
+			final float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ);
+			assertTrue(distance <= bounds.radius + FLOAT_MARGIN);
+		}
+	}
+
+}
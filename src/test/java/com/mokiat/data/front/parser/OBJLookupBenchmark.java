@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares resolving the material of every mesh through
+ * {@link MTLLibrary#getMaterial(String)} and every object through
+ * {@link OBJModel#getObject(String)} against a linear scan of the
+ * respective lists, which is what both methods used to do.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=OBJLookupBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OBJLookupBenchmark {
+
+	private static final int MATERIAL_COUNT = 20000;
+	private static final int MESH_COUNT = 50000;
+	private static final int OBJECT_COUNT = 5000;
+
+	private final MTLLibrary library = new MTLLibrary();
+	private final OBJModel model = new OBJModel();
+	private final String[] meshMaterials = new String[MESH_COUNT];
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < MATERIAL_COUNT; ++i) {
+			library.getMaterials().add(new MTLMaterial("Material" + i));
+		}
+		for (int i = 0; i < MESH_COUNT; ++i) {
+			meshMaterials[i] = "Material" + ((i * 7919) % MATERIAL_COUNT);
+		}
+		for (int i = 0; i < OBJECT_COUNT; ++i) {
+			model.getObjects().add(new OBJObject("Object" + i));
+		}
+	}
+
+	@Benchmark
+	public int resolveMaterials() {
+		int found = 0;
+		for (String name : meshMaterials) {
+			if (library.getMaterial(name) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int resolveMaterialsLinear() {
+		int found = 0;
+		for (String name : meshMaterials) {
+			if (scanMaterials(library.getMaterials(), name) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int resolveObjects() {
+		int found = 0;
+		for (int i = 0; i < OBJECT_COUNT; ++i) {
+			if (model.getObject("Object" + i) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int resolveObjectsLinear() {
+		int found = 0;
+		for (int i = 0; i < OBJECT_COUNT; ++i) {
+			if (scanObjects(model.getObjects(), "Object" + i) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int resolveMaterialsAfterChange() {
+		final List<MTLMaterial> materials = library.getMaterials();
+		materials.set(0, materials.get(0));
+		return resolveMaterials();
+	}
+
+	private static MTLMaterial scanMaterials(List<MTLMaterial> materials, String name) {
+		for (MTLMaterial material : materials) {
+			if (name.equals(material.getName())) {
+				return material;
+			}
+		}
+		return null;
+	}
+
+	private static OBJObject scanObjects(List<OBJObject> objects, String name) {
+		for (OBJObject object : objects) {
+			if (name.equals(object.getName())) {
+				return object;
+			}
+		}
+		return null;
+	}
+
+}
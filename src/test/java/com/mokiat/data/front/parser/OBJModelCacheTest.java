@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mokiat.data.front.common.OBJLimits;
+import com.mokiat.data.front.error.WFSizeException;
+
+public class OBJModelCacheTest {
+
+	private static final String RESOURCE = "/com/mokiat/data/front/test/parser/obj/valid_basic.obj";
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final OBJParser parser = new OBJParser();
+	private OBJModelCache cache;
+	private Path source;
+
+	@Before
+	public void setUp() throws Exception {
+		cache = new OBJModelCache(new File(folder.getRoot(), "cache").toPath());
+		source = folder.newFile("model.obj").toPath();
+		final InputStream in = getClass().getResourceAsStream(RESOURCE);
+		try {
+			Files.copy(in, source, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testMiss() throws Exception {
+		assertNull(cache.open(source));
+		assertNull(cache.load(source, true));
+		assertFalse(Files.exists(cache.getDirectory()));
+	}
+
+	@Test
+	public void testStoreAndLoad() throws Exception {
+		final OBJModel model = parser.parse(source);
+		cache.store(source, model);
+		assertTrue(Files.isRegularFile(cache.getEntry(source)));
+		OBJBinaryModelTest.assertSameModel(model, cache.load(source, false));
+		OBJBinaryModelTest.assertSameModel(model, cache.load(source, true));
+		assertEquals(1, cache.getDirectory().toFile().list().length);
+	}
+
+	@Test
+	public void testEntryKey() throws Exception {
+		final Path other = folder.newFile("other.obj").toPath();
+		assertEquals(cache.getEntry(source), cache.getEntry(source.getParent().resolve(".").resolve("model.obj")));
+		assertFalse(cache.getEntry(source).equals(cache.getEntry(other)));
+	}
+
+	@Test
+	public void testStaleModificationTime() throws Exception {
+		cache.store(source, parser.parse(source));
+		final FileTime modified = Files.getLastModifiedTime(source);
+		Files.setLastModifiedTime(source, FileTime.fromMillis(modified.toMillis() + 1000L));
+		assertNull(cache.open(source));
+	}
+
+	@Test
+	public void testStaleSize() throws Exception {
+		final long modified = Files.getLastModifiedTime(source).toMillis();
+		cache.store(source, Files.size(source) + 1L, modified, parser.parse(source));
+		assertNull(cache.open(source));
+	}
+
+	@Test
+	public void testCorruptEntry() throws Exception {
+		cache.store(source, parser.parse(source));
+		Files.write(cache.getEntry(source), new byte[] { 1, 2, 3 });
+		assertNull(cache.open(source));
+	}
+
+	@Test
+	public void testParser() throws Exception {
+		parser.setModelCache(cache);
+		final OBJModel parsedModel = parser.parse(source);
+		assertTrue(Files.isRegularFile(cache.getEntry(source)));
+
+		// A model with the same attributes as the source shows
+		// that the second parse is served from the cache.
+		final OBJModel cachedModel = new OBJModel();
+		cachedModel.getObjects().add(new OBJObject("Cached"));
+		cache.store(source, cachedModel);
+		final OBJModel model = parser.parse(source);
+		assertEquals("Cached", model.getObjects().get(0).getName());
+		assertFalse(model instanceof OBJPackedModel);
+
+		parser.setPacked(true);
+		assertTrue(parser.parse(source) instanceof OBJPackedModel);
+
+		Files.setLastModifiedTime(source, FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() + 1000L));
+		OBJBinaryModelTest.assertSameModel(parsedModel, parser.parse(source));
+		assertNotNull(cache.open(source));
+	}
+
+	@Test
+	public void testParserBoundingSpheres() throws Exception {
+		parser.setModelCache(cache);
+		parser.parse(source);
+		assertFalse(cache.open(source).getBounds().hasSphere());
+		parser.setBoundingSpheres(true);
+		assertTrue(parser.parse(source).getBounds().hasSphere());
+		assertTrue(cache.open(source).getBounds().hasSphere());
+	}
+
+	@Test
+	public void testParserLimits() throws Exception {
+		parser.setModelCache(cache);
+		final OBJModel parsedModel = parser.parse(source);
+		final OBJLimits limits = new OBJLimits();
+		limits.maxVertexCount = parsedModel.getVertices().size() - 1;
+		parser.setLimits(limits);
+		try {
+			parser.parse(source);
+			fail("Expected a size exception.");
+		} catch (WFSizeException ex) {
+			// expected
+		}
+		limits.maxVertexCount = parsedModel.getVertices().size();
+		OBJBinaryModelTest.assertSameModel(parsedModel, parser.parse(source));
+	}
+
+	@Test
+	public void testParserLimitsUnknownCounts() throws Exception {
+		final OBJModel cachedModel = new OBJModel();
+		cachedModel.getObjects().add(new OBJObject("Cached"));
+		cache.store(source, cachedModel);
+		assertNull(cache.open(source).getLimitCounts());
+
+		// Entries that were stored without counts are
+		// replaced by parsers that have limits.
+		parser.setModelCache(cache);
+		parser.setLimits(new OBJLimits());
+		final OBJModel model = parser.parse(source);
+		assertFalse("Cached".equals(model.getObjects().get(0).getName()));
+		assertNotNull(cache.open(source).getLimitCounts());
+		OBJBinaryModelTest.assertSameModel(model, parser.parse(source));
+	}
+
+	@Test
+	public void testParserStoreFailure() throws Exception {
+		Files.write(cache.getDirectory(), new byte[0]);
+		parser.setModelCache(cache);
+		final OBJModel model = parser.parse(source);
+		OBJBinaryModelTest.assertSameModel(new OBJParser().parse(source), model);
+		assertTrue(Files.isRegularFile(cache.getDirectory()));
+	}
+
+}
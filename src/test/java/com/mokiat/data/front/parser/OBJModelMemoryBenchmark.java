@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+
+/**
+ * Reports the heap usage per vertex and per triangle face of the object
+ * based {@link OBJModel} and of the {@link OBJPackedModel}. Each vertex
+ * comes with a texture coordinate and a normal and faces are measured
+ * both with full <code>v/vt/vn</code> references and with vertex only ones.
+ * Finally, it compares the memory that a model with many objects needs
+ * against the peak memory of a streaming parse of the same resource.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.mokiat.data.front.parser.OBJModelMemoryBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+public class OBJModelMemoryBenchmark {
+
+	private static final int ELEMENT_COUNT = 1000000;
+	private static final int FACE_VERTEX_COUNT = 100;
+	private static final int STREAM_OBJECT_COUNT = 20;
+
+	public static void main(String[] args) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < ELEMENT_COUNT; ++i) {
+			builder.append(String.format(Locale.US, "v %d.5 %d.25 -%d.125%n", i, i, i));
+			builder.append(String.format(Locale.US, "vt 0.%d 0.%d%n", i % 100, i % 50));
+			builder.append("vn 0.0 1.0 0.0\n");
+		}
+		final String content = builder.toString();
+		reportVertices("OBJModel", content, false);
+		reportVertices("OBJPackedModel", content, true);
+
+		final String fullFaces = createFaces(true);
+		reportFaces("OBJModel (v/vt/vn)", fullFaces, false);
+		reportFaces("OBJPackedModel (v/vt/vn)", fullFaces, true);
+		final String vertexFaces = createFaces(false);
+		reportFaces("OBJModel (v)", vertexFaces, false);
+		reportFaces("OBJPackedModel (v)", vertexFaces, true);
+
+		final String objects = createObjects();
+		reportModel("OBJModel", objects);
+		reportStream("Streaming parse", objects);
+	}
+
+	private static String createObjects() {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < FACE_VERTEX_COUNT; ++i) {
+			builder.append("v 1.0 2.0 3.0\n");
+		}
+		for (int i = 0; i < STREAM_OBJECT_COUNT; ++i) {
+			builder.append("o Object").append(i).append('\n');
+			for (int j = 0; j < ELEMENT_COUNT / STREAM_OBJECT_COUNT; ++j) {
+				builder.append("f 1 2 3\n");
+			}
+		}
+		return builder.toString();
+	}
+
+	private static void reportModel(String name, String content) throws IOException {
+		final long before = usedMemory();
+		final OBJModel model = parse(content, false);
+		final long after = usedMemory();
+		System.out.println(String.format(Locale.US, "%s: %.1f MB for %d objects",
+				name, (after - before) / (1024.0 * 1024.0), model.getObjects().size()));
+	}
+
+	private static void reportStream(String name, String content) throws IOException {
+		final long before = usedMemory();
+		final long[] peak = new long[1];
+		new OBJParser().parse(new BufferedReader(new StringReader(content)), new IOBJObjectHandler() {
+
+			@Override
+			public void onObject(OBJModel model, OBJObject object) {
+				peak[0] = Math.max(peak[0], usedMemory());
+			}
+		});
+		System.out.println(String.format(Locale.US, "%s: %.1f MB peak",
+				name, (peak[0] - before) / (1024.0 * 1024.0)));
+	}
+
+	private static String createFaces(boolean full) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < FACE_VERTEX_COUNT; ++i) {
+			builder.append("v 1.0 2.0 3.0\n");
+			builder.append("vt 0.5 0.5\n");
+			builder.append("vn 0.0 1.0 0.0\n");
+		}
+		for (int i = 0; i < ELEMENT_COUNT; ++i) {
+			builder.append('f');
+			for (int j = 0; j < 3; ++j) {
+				final int index = (i + j) % FACE_VERTEX_COUNT + 1;
+				builder.append(' ').append(index);
+				if (full) {
+					builder.append('/').append(index).append('/').append(index);
+				}
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	private static void reportVertices(String name, String content, boolean packed) throws IOException {
+		final long before = usedMemory();
+		final OBJModel model = parse(content, packed);
+		final long after = usedMemory();
+		System.out.println(String.format(Locale.US, "%s: %.1f bytes per vertex",
+				name, (after - before) / (double) model.getVertices().size()));
+	}
+
+	private static void reportFaces(String name, String content, boolean packed) throws IOException {
+		final long before = usedMemory();
+		final OBJModel model = parse(content, packed);
+		final long after = usedMemory();
+		System.out.println(String.format(Locale.US, "%s: %.1f bytes per face",
+				name, (after - before) / (double) ELEMENT_COUNT));
+		if (model.getObjects().isEmpty()) {
+			throw new IllegalStateException("No faces were parsed.");
+		}
+	}
+
+	private static OBJModel parse(String content, boolean packed) throws IOException {
+		final OBJParser parser = new OBJParser();
+		parser.setPacked(packed);
+		return parser.parse(new BufferedReader(new StringReader(content)));
+	}
+
+	private static long usedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; ++i) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
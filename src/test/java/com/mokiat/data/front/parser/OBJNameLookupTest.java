@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OBJNameLookupTest {
+
+	private OBJModel model;
+	private OBJObject first;
+	private OBJObject second;
+	private OBJObject duplicate;
+	private MTLLibrary library;
+	private MTLMaterial red;
+	private MTLMaterial green;
+
+	@Before
+	public void setUp() {
+		model = new OBJModel();
+		first = new OBJObject("First");
+		second = new OBJObject("Second");
+		duplicate = new OBJObject("First");
+		model.getObjects().addAll(Arrays.asList(first, second, duplicate));
+
+		library = new MTLLibrary();
+		red = new MTLMaterial("Red");
+		green = new MTLMaterial("Green");
+		library.getMaterials().add(red);
+		library.getMaterials().add(green);
+	}
+
+	@Test
+	public void testLookup() {
+		assertSame(first, model.getObject("First"));
+		assertSame(second, model.getObject("Second"));
+		assertNull(model.getObject("Missing"));
+		assertSame(red, library.getMaterial("Red"));
+		assertSame(green, library.getMaterial("Green"));
+		assertNull(library.getMaterial("Missing"));
+	}
+
+	@Test
+	public void testLookupAfterAdd() {
+		assertNull(model.getObject("Third"));
+		final OBJObject third = new OBJObject("Third");
+		model.getObjects().add(third);
+		assertSame(third, model.getObject("Third"));
+
+		final MTLMaterial earlier = new MTLMaterial("Green");
+		library.getMaterials().add(0, earlier);
+		assertSame(earlier, library.getMaterial("Green"));
+	}
+
+	@Test
+	public void testLookupAfterRemove() {
+		assertSame(first, model.getObject("First"));
+		model.getObjects().remove(first);
+		assertSame(duplicate, model.getObject("First"));
+		model.getObjects().remove(duplicate);
+		assertNull(model.getObject("First"));
+		assertSame(second, model.getObject("Second"));
+	}
+
+	@Test
+	public void testLookupAfterSet() {
+		assertSame(first, model.getObject("First"));
+		final OBJObject replacement = new OBJObject("Replacement");
+		model.getObjects().set(0, replacement);
+		assertSame(replacement, model.getObject("Replacement"));
+		assertSame(duplicate, model.getObject("First"));
+	}
+
+	@Test
+	public void testLookupAfterIteratorChanges() {
+		assertSame(first, model.getObject("First"));
+		final Iterator<OBJObject> iterator = model.getObjects().iterator();
+		iterator.next();
+		iterator.remove();
+		assertSame(duplicate, model.getObject("First"));
+
+		final OBJObject replacement = new OBJObject("Second");
+		final ListIterator<OBJObject> listIterator = model.getObjects().listIterator();
+		listIterator.next();
+		listIterator.set(replacement);
+		assertSame(replacement, model.getObject("Second"));
+	}
+
+	@Test
+	public void testLookupAfterSubListChanges() {
+		assertSame(first, model.getObject("First"));
+		model.getObjects().subList(0, 2).clear();
+		assertSame(duplicate, model.getObject("First"));
+		assertNull(model.getObject("Second"));
+	}
+
+	@Test
+	public void testLookupAfterReorder() {
+		assertSame(first, model.getObject("First"));
+		Collections.reverse(model.getObjects());
+		assertSame(duplicate, model.getObject("First"));
+
+		assertSame(red, library.getMaterial("Red"));
+		Collections.swap(library.getMaterials(), 0, 1);
+		library.getMaterials().get(0).setName("Red");
+		assertSame(green, library.getMaterial("Red"));
+	}
+
+	@Test
+	public void testLookupAfterClear() {
+		assertSame(first, model.getObject("First"));
+		model.getObjects().clear();
+		assertNull(model.getObject("First"));
+	}
+
+	@Test
+	public void testLookupAfterRename() {
+		assertSame(first, model.getObject("First"));
+		second.setName("First");
+		assertSame(first, model.getObject("First"));
+		first.setName("Renamed");
+		assertSame(first, model.getObject("Renamed"));
+		assertSame(second, model.getObject("First"));
+		assertNull(model.getObject("Second"));
+
+		assertSame(red, library.getMaterial("Red"));
+		red.setName("Blue");
+		assertNull(library.getMaterial("Red"));
+		assertSame(red, library.getMaterial("Blue"));
+	}
+
+	@Test
+	public void testLookupAfterRenameToLaterName() {
+		assertSame(second, model.getObject("Second"));
+		first.setName("Second");
+		assertSame(first, model.getObject("Second"));
+		assertSame(duplicate, model.getObject("First"));
+
+		assertSame(green, library.getMaterial("Green"));
+		red.setName("Green");
+		assertSame(red, library.getMaterial("Green"));
+	}
+
+	@Test
+	public void testLookupAfterRenameOfRemovedElement() {
+		assertSame(first, model.getObject("First"));
+		model.getObjects().remove(first);
+		model.getObjects().add(first);
+		assertSame(duplicate, model.getObject("First"));
+		model.getObjects().remove(duplicate);
+		duplicate.setName("Other");
+		assertSame(first, model.getObject("First"));
+		assertNull(model.getObject("Other"));
+	}
+
+	@Test
+	public void testRenameElsewhereKeepsIndex() {
+		final AtomicInteger nameCount = new AtomicInteger();
+		final WFNamedList<MTLMaterial> materials = new WFNamedList<MTLMaterial>(Arrays.asList(red, green)) {
+
+			@Override
+			protected String getName(MTLMaterial element) {
+				nameCount.incrementAndGet();
+				return element.getName();
+			}
+
+			@Override
+			protected Owners getOwners(MTLMaterial element) {
+				return element.getOwners();
+			}
+		};
+		assertSame(green, materials.find("Green"));
+		final int count = nameCount.get();
+		new MTLMaterial("Other").setName("Renamed");
+		library.getMaterials().add(new MTLMaterial("Blue"));
+		library.getMaterials().get(2).setName("Renamed");
+		assertSame(green, materials.find("Green"));
+		assertNull(materials.find("Missing"));
+		assertEquals(count, nameCount.get());
+
+		green.setName("Renamed");
+		assertSame(green, materials.find("Renamed"));
+		assertEquals(count + 2, nameCount.get());
+	}
+
+	@Test
+	public void testUnnamedElements() {
+		model.getObjects().add(0, new OBJObject(null));
+		assertSame(first, model.getObject("First"));
+	}
+
+	@Test
+	public void testSharedLibraryLookup() {
+		final List<MTLMaterial> materials = Arrays.asList(red, green, new MTLMaterial("Red"));
+		final MTLLibrary shared = new MTLLibrary(materials);
+		final MTLMaterial sharedRed = shared.getMaterial("Red");
+		assertSame(shared.getMaterials().get(0), sharedRed);
+		assertNotSame(red, sharedRed);
+
+		// Shared libraries hold copies, so renaming
+		// the original materials does not affect them.
+		red.setName("Other");
+		assertSame(sharedRed, shared.getMaterial("Red"));
+		assertNull(shared.getMaterial("Other"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSharedLibraryIsReadOnly() {
+		final MTLLibrary shared = new MTLLibrary(Arrays.asList(red));
+		shared.getMaterials().add(green);
+	}
+
+}
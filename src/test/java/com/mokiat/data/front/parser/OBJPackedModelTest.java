@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.parser.OBJTexCoord.Type;
+
+public class OBJPackedModelTest extends AbstractOBJParserTest {
+	
+	private final OBJParser packedParser = new OBJParser();
+	
+	public OBJPackedModelTest() {
+		packedParser.setPacked(true);
+	}
+	
+	@Test
+	public void testBasic() throws Exception {
+		assertSameModel("valid_basic.obj");
+	}
+	
+	@Test
+	public void testTexCoords() throws Exception {
+		assertSameModel("valid_tex_coords.obj");
+	}
+	
+	@Test
+	public void testNegativeIndices() throws Exception {
+		assertSameModel("valid_negative_indices.obj");
+	}
+	
+	@Test
+	public void testObjects() throws Exception {
+		assertSameModel("valid_objects.obj");
+	}
+	
+	@Test
+	public void testSmoothingGroups() throws Exception {
+		assertSameModel("valid_smoothing_groups.obj");
+		final OBJModel model = fixture.parseOBJ("valid_smoothing_groups.obj", packedParser);
+		final OBJPackedMesh mesh = (OBJPackedMesh) model.getObjects().get(0).getMeshes().get(1);
+		final OBJFaceCursor cursor = mesh.newFaceCursor();
+		assertTrue(cursor.next());
+		assertEquals(1, cursor.getSmoothingGroup());
+		assertTrue(cursor.next());
+		assertEquals(OBJFace.SMOOTHING_GROUP_OFF, cursor.getSmoothingGroup());
+	}
+	
+	@Test
+	public void testFile() throws Exception {
+		final OBJModel expected = fixture.parseOBJFile("valid_negative_indices.obj", parser);
+		final OBJModel actual = fixture.parseOBJFile("valid_negative_indices.obj", packedParser);
+		assertTrue(actual instanceof OBJPackedModel);
+		assertSameModel(expected, actual);
+	}
+	
+	@Test
+	public void testPrimitiveAccessors() {
+		final OBJPackedModel packedModel = new OBJPackedModel();
+		packedModel.addVertex(1.0f, 2.0f, 3.0f);
+		packedModel.addTexCoord(0.5f, 0.0f, 0.0f, Type.TYPE_1D);
+		packedModel.addNormal(0.0f, 0.0f, 1.0f);
+		assertEquals(1, packedModel.getVertexCount());
+		assertEquals(2.0f, packedModel.getVertexY(0), 0.0f);
+		assertEquals(Type.TYPE_1D, packedModel.getTexCoordType(0));
+		assertEquals(0.5f, packedModel.getTexCoordU(0), 0.0f);
+		assertEquals(1.0f, packedModel.getNormalZ(0), 0.0f);
+		assertVertex(packedModel.getVertex(reference(0)), 1.0f, 2.0f, 3.0f);
+		assertTexCoord(packedModel.getTexCoord(reference(0)), 0.5f, null, null);
+		assertNormal(packedModel.getNormal(reference(0)), 0.0f, 0.0f, 1.0f);
+	}
+	
+	@Test
+	public void testListViews() {
+		final OBJPackedModel packedModel = new OBJPackedModel();
+		packedModel.trimToSize();
+		for (int i = 0; i < 100; ++i) {
+			packedModel.getVertices().add(new OBJVertex(i, i + 1, i + 2));
+			packedModel.getTexCoords().add(new OBJTexCoord(i, i + 1));
+			packedModel.getNormals().add(new OBJNormal(i, 0.0f, 1.0f));
+		}
+		packedModel.trimToSize();
+		assertEquals(300, packedModel.getVertexData().length);
+		
+		packedModel.getVertices().get(10).x = 100.0f;
+		assertVertex(packedModel.getVertices().get(10), 10.0f, 11.0f, 12.0f);
+		packedModel.getVertices().set(10, new OBJVertex(-1.0f, -2.0f, -3.0f));
+		assertVertex(packedModel.getVertices().get(10), -1.0f, -2.0f, -3.0f);
+		packedModel.getTexCoords().set(20, new OBJTexCoord(1.0f, 2.0f, 3.0f));
+		assertTexCoord(packedModel.getTexCoords().get(20), 1.0f, 2.0f, 3.0f);
+		assertTexCoord(packedModel.getTexCoords().get(21), 21.0f, 22.0f, null);
+		packedModel.getNormals().add(new OBJNormal(1.0f, 1.0f, 1.0f));
+		assertEquals(101, packedModel.getNormalCount());
+		assertNormal(packedModel.getNormals().get(100), 1.0f, 1.0f, 1.0f);
+	}
+	
+	@Test
+	public void testPackedMeshes() throws Exception {
+		final OBJModel model = fixture.parseOBJ("valid_objects.obj", packedParser);
+		for (OBJObject object : model.getObjects()) {
+			for (OBJMesh mesh : object.getMeshes()) {
+				assertTrue(mesh instanceof OBJPackedMesh);
+				final OBJPackedMesh packedMesh = (OBJPackedMesh) mesh;
+				assertEquals(packedMesh.getFaceCount() + 1, packedMesh.getFaceOffsets().length);
+				assertEquals(packedMesh.getReferenceCount(), packedMesh.getVertexIndices().length);
+			}
+		}
+	}
+	
+	@Test
+	public void testFaceCursor() {
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		mesh.beginFace();
+		mesh.addReference(0, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(1, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.addReference(2, OBJDataReference.UNDEFINED_INDEX, OBJDataReference.UNDEFINED_INDEX);
+		mesh.beginFace();
+		mesh.addReference(2, 5, 7);
+		mesh.addReference(3, 6, 8);
+		mesh.addReference(0, 4, 9);
+		mesh.addReference(1, 3, 1);
+		mesh.trimToSize();
+		
+		final OBJFaceCursor cursor = mesh.newFaceCursor();
+		assertTrue(cursor.next());
+		assertEquals(0, cursor.getFaceIndex());
+		assertEquals(3, cursor.getReferenceCount());
+		assertEquals(1, cursor.getVertexIndex(1));
+		assertFalse(cursor.hasTextureCoordinates());
+		assertFalse(cursor.hasNormals());
+		assertTrue(cursor.next());
+		assertEquals(4, cursor.getReferenceCount());
+		assertEquals(3, cursor.getVertexIndex(1));
+		assertEquals(6, cursor.getTexCoordIndex(1));
+		assertEquals(8, cursor.getNormalIndex(1));
+		assertTrue(cursor.hasTextureCoordinates());
+		assertTrue(cursor.hasNormals());
+		assertFalse(cursor.next());
+		cursor.moveTo(0);
+		assertEquals(OBJDataReference.UNDEFINED_INDEX, cursor.getTexCoordIndex(0));
+		
+		assertEquals(2, mesh.getFaces().size());
+		assertEquals(4, mesh.getFaces().get(1).getReferences().size());
+		assertEquals(9, mesh.getFaces().get(1).getReferences().get(2).normalIndex);
+	}
+	
+	@Test
+	public void testLazyIndexStreams() {
+		final OBJPackedMesh mesh = new OBJPackedMesh();
+		final OBJFace face = new OBJFace();
+		for (int i = 0; i < 3; ++i) {
+			final OBJDataReference reference = new OBJDataReference();
+			reference.vertexIndex = i;
+			face.getReferences().add(reference);
+		}
+		mesh.getFaces().add(face);
+		assertNull(mesh.getTexCoordIndices());
+		assertNull(mesh.getNormalIndices());
+		assertEquals(face.getReferences(), mesh.getFaces().get(0).getReferences());
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testListViewBounds() {
+		final OBJPackedModel packedModel = new OBJPackedModel();
+		packedModel.addVertex(1.0f, 2.0f, 3.0f);
+		packedModel.getVertices().get(1);
+	}
+	
+	private void assertSameModel(String name) throws Exception {
+		final OBJModel expected = fixture.parseOBJ(name, parser);
+		final OBJModel actual = fixture.parseOBJ(name, packedParser);
+		assertTrue(actual instanceof OBJPackedModel);
+		assertSameModel(expected, actual);
+	}
+	
+	private void assertSameModel(OBJModel expected, OBJModel actual) {
+		assertEquals(expected.getVertices(), actual.getVertices());
+		assertEquals(expected.getTexCoords(), actual.getTexCoords());
+		assertEquals(expected.getNormals(), actual.getNormals());
+		assertEquals(expected.getMaterialLibraries(), actual.getMaterialLibraries());
+		assertEquals(expected.getObjects().size(), actual.getObjects().size());
+		for (int i = 0; i < expected.getObjects().size(); ++i) {
+			final OBJObject expectedObject = expected.getObjects().get(i);
+			final OBJObject actualObject = actual.getObjects().get(i);
+			assertEquals(expectedObject.getName(), actualObject.getName());
+			assertEquals(expectedObject.getMeshes().size(), actualObject.getMeshes().size());
+			for (int j = 0; j < expectedObject.getMeshes().size(); ++j) {
+				final OBJMesh expectedMesh = expectedObject.getMeshes().get(j);
+				final OBJMesh actualMesh = actualObject.getMeshes().get(j);
+				assertEquals(expectedMesh.getFaces().size(), actualMesh.getFaces().size());
+				for (int k = 0; k < expectedMesh.getFaces().size(); ++k) {
+					assertEquals(expectedMesh.getFaces().get(k).getReferences(), actualMesh.getFaces().get(k).getReferences());
+					assertEquals(expectedMesh.getFaces().get(k).getSmoothingGroup(), actualMesh.getFaces().get(k).getSmoothingGroup());
+				}
+			}
+		}
+	}
+	
+	private OBJDataReference reference(int index) {
+		final OBJDataReference reference = new OBJDataReference();
+		reference.vertexIndex = index;
+		reference.texCoordIndex = index;
+		reference.normalIndex = index;
+		return reference;
+	}
+
+}
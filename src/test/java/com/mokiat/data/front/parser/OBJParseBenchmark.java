@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mokiat.data.front.common.IFastFloat;
+import com.mokiat.data.front.common.IFastInt;
+import com.mokiat.data.front.common.OBJLimits;
+import com.mokiat.data.front.error.WFException;
+import com.mokiat.data.front.scanner.IOBJScannerHandler;
+import com.mokiat.data.front.scanner.OBJScanner;
+
+/**
+ * Compares parsing through the primitive handler path, which
+ * {@link OBJParseRunner} uses, against the {@link IFastFloat} based
+ * handler path, with limits enabled in both cases.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=OBJParseBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OBJParseBenchmark {
+
+	private static final int ELEMENT_COUNT = 10000;
+
+	private final OBJLimits limits = new OBJLimits();
+	private String content;
+
+	@Setup
+	public void setUp() {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < ELEMENT_COUNT; ++i) {
+			builder.append(String.format(Locale.US, "v %f %f %f%n", i * 0.5f, i * 0.25f, i * -0.125f));
+			builder.append(String.format(Locale.US, "vt %f %f%n", (i % 100) / 100.0f, (i % 50) / 50.0f));
+			builder.append(String.format(Locale.US, "vn %f %f %f%n", 0.0f, 1.0f, 0.0f));
+		}
+		for (int i = 3; i <= ELEMENT_COUNT; ++i) {
+			builder.append(String.format("f %d/%d/%d %d/%d/%d -1/-1/-1%n", i - 2, i - 2, i - 2, i - 1, i - 1, i - 1));
+		}
+		content = builder.toString();
+	}
+
+	@Benchmark
+	public OBJModel parsePrimitive() throws IOException {
+		final OBJParseRunner runner = new OBJParseRunner();
+		return runner.run(new BufferedReader(new StringReader(content)), new OBJScanner(), limits);
+	}
+
+	@Benchmark
+	public OBJModel parseFastFloat() throws IOException {
+		final OBJParseRunner runner = new OBJParseRunner();
+		final IOBJScannerHandler handler = runner.prepare(limits);
+		new OBJScanner().scan(new BufferedReader(new StringReader(content)), new FastFloatHandler(handler));
+		return runner.getModel();
+	}
+
+	/*
+	 * Exposes only the IOBJScannerHandler interface of the
+	 * wrapped handler, so that scanners cannot use the
+	 * primitive path.
+	 */
+	private static class FastFloatHandler implements IOBJScannerHandler {
+
+		private final IOBJScannerHandler delegate;
+
+		public FastFloatHandler(IOBJScannerHandler delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void onComment(String comment) throws WFException {
+			delegate.onComment(comment);
+		}
+
+		@Override
+		public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) throws WFException {
+			delegate.onVertex(x, y, z, w);
+		}
+
+		@Override
+		public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) throws WFException {
+			delegate.onNormal(x, y, z);
+		}
+
+		@Override
+		public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) throws WFException {
+			delegate.onTextureCoordinate(u, v, w);
+		}
+
+		@Override
+		public void onObject(String objectName) throws WFException {
+			delegate.onObject(objectName);
+		}
+
+		@Override
+		public void onFaceBegin() throws WFException {
+			delegate.onFaceBegin();
+		}
+
+		@Override
+		public void onFaceEnd() throws WFException {
+			delegate.onFaceEnd();
+		}
+
+		@Override
+		public void onDataReference(IFastInt vertexIndex, IFastInt texCoordIndex, IFastInt normalIndex) throws WFException {
+			delegate.onDataReference(vertexIndex, texCoordIndex, normalIndex);
+		}
+
+		@Override
+		public void onMaterialLibrary(String libraryFilename) throws WFException {
+			delegate.onMaterialLibrary(libraryFilename);
+		}
+
+		@Override
+		public void onMaterialReference(String materialName) throws WFException {
+			delegate.onMaterialReference(materialName);
+		}
+
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.error.WFException;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJParserAsyncTest {
+
+	private static final long TERMINATION_TIMEOUT_SECONDS = 5;
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+	private final OBJParser objParser = new OBJParser();
+	private final MTLParser mtlParser = new MTLParser();
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void testParseFile() throws Exception {
+		final Path path = fixture.getScenePath("valid_scene.obj");
+		final OBJModel expected = objParser.parse(path);
+		final OBJModel model = objParser.parseAsync(path, executorService).get();
+		assertSameModel(expected, model);
+	}
+
+	@Test
+	public void testParseStream() throws Exception {
+		final Path path = fixture.getScenePath("valid_scene.obj");
+		final OBJModel expected = objParser.parse(path);
+		final InputStream in = Files.newInputStream(path);
+		try {
+			assertSameModel(expected, objParser.parseAsync(in, executorService).get());
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testParseLibrary() throws Exception {
+		final Path path = fixture.getScenePath("first.mtl");
+		final MTLLibrary library = mtlParser.parseAsync(path, executorService).get();
+		assertEquals(2, library.getMaterials().size());
+		assertEquals("Red", library.getMaterials().get(0).getName());
+	}
+
+	@Test
+	public void testParseFailure() throws Exception {
+		final Path path = fixture.getScenePath("error_corrupt_model.obj");
+		try {
+			objParser.parseAsync(path, executorService).get();
+			fail("Expected an exception");
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof WFException);
+		}
+	}
+
+	@Test
+	public void testCancelModel() throws Exception {
+		final RepeatingInputStream in = new RepeatingInputStream("v 1.0 2.0 3.0\n");
+		final Future<OBJModel> future = objParser.parseAsync(in, executorService);
+		in.awaitReading();
+		assertTrue(future.cancel(true));
+		assertStopped();
+	}
+
+	@Test
+	public void testCancelLibrary() throws Exception {
+		final RepeatingInputStream in = new RepeatingInputStream("# Comment\n");
+		final Future<MTLLibrary> future = mtlParser.parseAsync(in, executorService);
+		in.awaitReading();
+		assertTrue(future.cancel(true));
+		assertStopped();
+	}
+
+	private void assertStopped() throws InterruptedException {
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+	}
+
+	private static void assertSameModel(OBJModel expected, OBJModel actual) {
+		assertEquals(expected.getVertices().size(), actual.getVertices().size());
+		assertEquals(expected.getMaterialLibraries(), actual.getMaterialLibraries());
+		assertEquals(expected.getObjects().size(), actual.getObjects().size());
+		for (int i = 0; i < expected.getObjects().size(); ++i) {
+			final OBJObject expectedObject = expected.getObjects().get(i);
+			final OBJObject actualObject = actual.getObjects().get(i);
+			assertEquals(expectedObject.getName(), actualObject.getName());
+			assertEquals(expectedObject.getMeshes().size(), actualObject.getMeshes().size());
+		}
+	}
+
+	/*
+	 * An endless stream that repeats the same line.
+	 */
+	private static class RepeatingInputStream extends InputStream {
+
+		private final byte[] line;
+		private final CountDownLatch reading = new CountDownLatch(1);
+		private int position = 0;
+
+		public RepeatingInputStream(String line) {
+			this.line = line.getBytes(StandardCharsets.US_ASCII);
+		}
+
+		public void awaitReading() throws InterruptedException {
+			assertTrue(reading.await(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+
+		@Override
+		public int read() {
+			reading.countDown();
+			final byte value = line[position];
+			position = (position + 1) % line.length;
+			return value;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			reading.countDown();
+			for (int i = 0; i < length; ++i) {
+				buffer[offset + i] = line[position];
+				position = (position + 1) % line.length;
+			}
+			return length;
+		}
+
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class OBJParserBoundsTest extends AbstractOBJParserTest {
+
+	private static final float FLOAT_MARGIN = 0.0001f;
+
+	private final OBJParser boundsParser = new OBJParser();
+
+	@Test
+	public void testBoxes() throws Exception {
+		model = fixture.parseOBJ("valid_bounds.obj", boundsParser);
+		assertExpectedBoxes(model);
+		assertFalse(model.getBounds().hasSphere());
+	}
+
+	@Test
+	public void testPackedBoxes() throws Exception {
+		boundsParser.setPacked(true);
+		model = fixture.parseOBJ("valid_bounds.obj", boundsParser);
+		assertExpectedBoxes(model);
+	}
+
+	@Test
+	public void testParallelBoxes() throws Exception {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			boundsParser.setForkJoinPool(pool);
+			model = fixture.parseOBJFile("valid_bounds.obj", boundsParser);
+			assertExpectedBoxes(model);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testStreamingBoxes() throws Exception {
+		final List<OBJObject> objects = new ArrayList<OBJObject>();
+		model = fixture.parseOBJ("valid_bounds.obj", boundsParser, new IOBJObjectHandler() {
+
+			@Override
+			public void onObject(OBJModel model, OBJObject object) {
+				objects.add(object);
+			}
+		});
+		assertEquals(2, objects.size());
+		assertBox(objects.get(0).getBounds(), -1.0f, -2.0f, -3.0f, 4.0f, 5.0f, 6.0f);
+		assertBox(objects.get(1).getBounds(), 0.0f, -1.0f, 2.0f, 3.0f, 2.0f, 6.0f);
+		assertBox(model.getBounds(), -1.0f, -2.0f, -3.0f, 4.0f, 5.0f, 6.0f);
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		model = fixture.parseOBJ("valid_objects.obj", boundsParser);
+		assertTrue(model.getBounds().isEmpty());
+		assertTrue(model.getObjects().get(0).getBounds().isEmpty());
+	}
+
+	@Test
+	public void testSpheres() throws Exception {
+		boundsParser.setBoundingSpheres(true);
+		model = fixture.parseOBJ("valid_bounds.obj", boundsParser);
+		assertExpectedBoxes(model);
+
+		final OBJObject first = model.getObjects().get(0);
+		final OBJObject second = model.getObjects().get(1);
+		assertSphereContains(first.getMeshes().get(0).getBounds(), 0, 1, 2);
+		assertSphereContains(first.getMeshes().get(1).getBounds(), 1, 2, 3);
+		assertSphereContains(first.getBounds(), 0, 1, 2, 3);
+		assertSphereContains(second.getBounds(), 3, 5, 6);
+		assertSphereContains(model.getBounds(), 0, 1, 2, 3, 5, 6);
+	}
+
+	private void assertExpectedBoxes(OBJModel model) {
+		final OBJObject first = model.getObjects().get(0);
+		final OBJObject second = model.getObjects().get(1);
+		assertBox(first.getMeshes().get(0).getBounds(), -1.0f, -2.0f, -3.0f, 4.0f, 5.0f, 0.0f);
+		assertBox(first.getMeshes().get(1).getBounds(), 0.0f, 0.0f, 0.0f, 4.0f, 5.0f, 6.0f);
+		assertBox(first.getBounds(), -1.0f, -2.0f, -3.0f, 4.0f, 5.0f, 6.0f);
+		assertBox(second.getMeshes().get(0).getBounds(), 0.0f, -1.0f, 2.0f, 3.0f, 2.0f, 6.0f);
+		assertBox(second.getBounds(), 0.0f, -1.0f, 2.0f, 3.0f, 2.0f, 6.0f);
+		// The unreferenced vertex is not part of the model bounds
+		assertBox(model.getBounds(), -1.0f, -2.0f, -3.0f, 4.0f, 5.0f, 6.0f);
+	}
+
+	private void assertBox(OBJBounds bounds, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		assertFalse(bounds.isEmpty());
+		assertEquals(minX, bounds.minX, 0.0f);
+		assertEquals(minY, bounds.minY, 0.0f);
+		assertEquals(minZ, bounds.minZ, 0.0f);
+		assertEquals(maxX, bounds.maxX, 0.0f);
+		assertEquals(maxY, bounds.maxY, 0.0f);
+		assertEquals(maxZ, bounds.maxZ, 0.0f);
+	}
+
+	private void assertSphereContains(OBJBounds bounds, int... vertexIndices) {
+		assertTrue(bounds.hasSphere());
+		for (int index : vertexIndices) {
+			final OBJVertex vertex = model.getVertices().get(index);
+			final float deltaX = vertex.x - bounds.centerX;
+			final float deltaY = vertex.y - bounds.centerY;
+			final float deltaZ = vertex.z - bounds.centerZ;
+			final float distance = (float) Math.sqrt(deltaX * deltaX + deltaY * deltaY + deltaZ * deltaZ);
+			assertTrue(distance <= bounds.radius + FLOAT_MARGIN);
+		}
+		final float diagonalX = bounds.maxX - bounds.minX;
+		final float diagonalY = bounds.maxY - bounds.minY;
+		final float diagonalZ = bounds.maxZ - bounds.minZ;
+		assertTrue(bounds.radius <= (float) Math.sqrt(diagonalX * diagonalX + diagonalY * diagonalY + diagonalZ * diagonalZ));
+	}
+
+}
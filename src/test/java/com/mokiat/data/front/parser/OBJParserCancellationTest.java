@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.common.WFCancellationToken;
+import com.mokiat.data.front.error.WFCancelledException;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJParserCancellationTest {
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+	private final WFCancellationToken token = new WFCancellationToken();
+	private final OBJParser objParser = new OBJParser();
+	private final MTLParser mtlParser = new MTLParser();
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void testParseWithToken() throws Exception {
+		objParser.setCancellationToken(token);
+		assertSame(token, objParser.getCancellationToken());
+		fixture.parseOBJ("valid_basic.obj", objParser);
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testParseStreamCancelled() throws Exception {
+		token.cancel();
+		objParser.setCancellationToken(token);
+		fixture.parseOBJ("valid_basic.obj", objParser);
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testParseFileExpired() throws Exception {
+		objParser.setCancellationToken(new WFCancellationToken(0, TimeUnit.MILLISECONDS));
+		objParser.parse(getScenePath());
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testParsePresizedFileCancelled() throws Exception {
+		token.cancel();
+		objParser.setCancellationToken(token);
+		objParser.setPresized(true);
+		objParser.parse(getScenePath());
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testParseParallelFileCancelled() throws Exception {
+		token.cancel();
+		objParser.setCancellationToken(token);
+		objParser.setForkJoinPool(pool);
+		objParser.parse(getScenePath());
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testParseLibraryCancelled() throws Exception {
+		token.cancel();
+		mtlParser.setCancellationToken(token);
+		assertSame(token, mtlParser.getCancellationToken());
+		fixture.parseMTL("valid_basic.mtl", mtlParser);
+	}
+
+	private Path getScenePath() {
+		return fixture.getScenePath("valid_scene.obj");
+	}
+
+}
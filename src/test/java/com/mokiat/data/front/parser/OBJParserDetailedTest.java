@@ -41,6 +41,16 @@ public class OBJParserDetailedTest extends AbstractOBJParserTest {
 		assertTexCoord(texCoords.get(2), 0.7f, 0.8f, 0.9f);
 	}
 	
+	@Test
+	public void testSmoothingGroups() throws Exception {
+		model = fixture.parseOBJ("valid_smoothing_groups.obj", parser);
+		final List<OBJMesh> meshes = model.getObjects().get(0).getMeshes();
+		assertEquals(1, meshes.get(0).getFaces().get(0).getSmoothingGroup());
+		assertEquals(1, meshes.get(1).getFaces().get(0).getSmoothingGroup());
+		assertEquals(OBJFace.SMOOTHING_GROUP_OFF, meshes.get(1).getFaces().get(1).getSmoothingGroup());
+		assertEquals(2, meshes.get(2).getFaces().get(0).getSmoothingGroup());
+	}
+	
 	@Test
 	public void testNoMesh() throws Exception {
 		model = fixture.parseOBJ("valid_no_mesh.obj", parser);
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class OBJParserFileTest extends AbstractOBJParserTest {
+	
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Test
+	public void testSequential() throws Exception {
+		model = fixture.parseOBJFile("valid_negative_indices.obj", parser);
+		assertNegativeIndicesModel();
+	}
+	
+	@Test
+	public void testParallel() throws Exception {
+		final OBJParser parallelParser = new OBJParser();
+		parallelParser.setForkJoinPool(pool);
+		model = fixture.parseOBJFile("valid_negative_indices.obj", parallelParser);
+		assertNegativeIndicesModel();
+	}
+	
+	private void assertNegativeIndicesModel() {
+		assertEquals(5, model.getVertices().size());
+		assertVertex(model.getVertices().get(3), 1.0f, 1.0f, 1.0f);
+		assertEquals(5, model.getTexCoords().size());
+		assertTexCoord(model.getTexCoords().get(3), 0.0f, 1.0f, null);
+		assertEquals(4, model.getNormals().size());
+		assertNormal(model.getNormals().get(2), 0.0f, 0.0f, 1.0f);
+		
+		final OBJObject object = model.getObjects().get(0);
+		final OBJMesh mesh = object.getMeshes().get(0);
+		final OBJFace face = mesh.getFaces().get(0);
+		
+		final List<OBJDataReference> references = face.getReferences();
+		assertReference(references.get(0), 0, 3, 0);
+		assertReference(references.get(1), 1, 0, 0);
+		assertReference(references.get(2), 2, 2, 1);
+	}
+
+}
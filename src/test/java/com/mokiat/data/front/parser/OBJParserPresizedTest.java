@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.common.OBJLimits;
+import com.mokiat.data.front.error.WFSizeException;
+
+public class OBJParserPresizedTest extends AbstractOBJParserTest {
+
+	private final OBJParser presizedParser = new OBJParser();
+
+	public OBJParserPresizedTest() {
+		presizedParser.setPresized(true);
+	}
+
+	@Test
+	public void testSameModel() throws Exception {
+		assertSameModel("valid_basic.obj");
+		assertSameModel("valid_negative_indices.obj");
+		assertSameModel("valid_no_object.obj");
+		assertSameModel("valid_quads.obj");
+		assertSameModel("valid_polygons.obj");
+	}
+
+	@Test
+	public void testSamePackedModel() throws Exception {
+		presizedParser.setPacked(true);
+		assertSameModel("valid_quads.obj");
+		assertSameModel("valid_polygons.obj");
+	}
+
+	@Test
+	public void testExactPackedStorage() throws Exception {
+		presizedParser.setPacked(true);
+		final OBJPackedModel packedModel = (OBJPackedModel) fixture.parseOBJFile("valid_quads.obj", presizedParser);
+		assertEquals(6 * OBJPackedModel.VERTEX_STRIDE, packedModel.getVertexData().length);
+		final OBJPackedMesh mesh = (OBJPackedMesh) packedModel.getObjects().get(0).getMeshes().get(0);
+		assertEquals(3, mesh.getFaceOffsets().length);
+		assertEquals(8, mesh.getVertexIndices().length);
+		assertEquals(8, mesh.getNormalIndices().length);
+	}
+
+	@Test
+	public void testStreaming() throws Exception {
+		final int[] objectCount = new int[1];
+		fixture.parseOBJFile("valid_quads.obj", presizedParser, new IOBJObjectHandler() {
+
+			@Override
+			public void onObject(OBJModel model, OBJObject object) {
+				assertEquals(2, object.getMeshes().size());
+				objectCount[0]++;
+			}
+		});
+		assertEquals(1, objectCount[0]);
+	}
+
+	@Test(expected = WFSizeException.class)
+	public void testLimits() throws Exception {
+		final OBJLimits limits = new OBJLimits();
+		limits.maxVertexCount = 3;
+		presizedParser.setLimits(limits);
+		fixture.parseOBJFile("valid_quads.obj", presizedParser);
+	}
+
+	private void assertSameModel(String name) throws Exception {
+		final OBJModel expected = fixture.parseOBJFile(name, parser);
+		final OBJModel actual = fixture.parseOBJFile(name, presizedParser);
+		assertEquals(expected.getVertices(), actual.getVertices());
+		assertEquals(expected.getTexCoords(), actual.getTexCoords());
+		assertEquals(expected.getNormals(), actual.getNormals());
+		assertEquals(expected.getObjects().size(), actual.getObjects().size());
+		for (int i = 0; i < expected.getObjects().size(); ++i) {
+			final OBJObject expectedObject = expected.getObjects().get(i);
+			final OBJObject actualObject = actual.getObjects().get(i);
+			assertEquals(expectedObject.getName(), actualObject.getName());
+			assertEquals(expectedObject.getMeshes().size(), actualObject.getMeshes().size());
+			for (int j = 0; j < expectedObject.getMeshes().size(); ++j) {
+				assertEquals(expectedObject.getMeshes().get(j).getMaterialName(), actualObject.getMeshes().get(j).getMaterialName());
+				final List<OBJFace> expectedFaces = expectedObject.getMeshes().get(j).getFaces();
+				final List<OBJFace> actualFaces = actualObject.getMeshes().get(j).getFaces();
+				assertEquals(expectedFaces.size(), actualFaces.size());
+				for (int k = 0; k < expectedFaces.size(); ++k) {
+					assertEquals(expectedFaces.get(k).getReferences(), actualFaces.get(k).getReferences());
+				}
+			}
+		}
+	}
+
+}
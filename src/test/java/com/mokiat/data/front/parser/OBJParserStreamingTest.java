@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.error.WFException;
+
+public class OBJParserStreamingTest extends AbstractOBJParserTest {
+
+	private final ObjectCollector collector = new ObjectCollector();
+
+	@Test
+	public void testObjects() throws Exception {
+		model = fixture.parseOBJ("valid_objects.obj", parser, collector);
+		assertTrue(model.getObjects().isEmpty());
+		assertEquals(2, collector.objects.size());
+		assertEquals("First", collector.objects.get(0).getName());
+		assertEquals("Second", collector.objects.get(1).getName());
+	}
+
+	@Test
+	public void testDefaultObject() throws Exception {
+		model = fixture.parseOBJ("valid_no_object.obj", parser, collector);
+		assertEquals(1, collector.objects.size());
+		assertEquals("Default", collector.objects.get(0).getName());
+		assertEquals("Red", collector.objects.get(0).getMeshes().get(0).getMaterialName());
+	}
+
+	@Test
+	public void testSharedData() throws Exception {
+		model = fixture.parseOBJ("valid_negative_indices.obj", parser, collector);
+		assertEquals(1, collector.objects.size());
+		assertEquals(5, collector.vertexCounts.get(0).intValue());
+		assertEquals(5, model.getVertices().size());
+		final OBJFace face = collector.objects.get(0).getMeshes().get(0).getFaces().get(0);
+		assertReference(face.getReferences().get(0), 0, 3, 0);
+		assertReference(face.getReferences().get(2), 2, 2, 1);
+	}
+
+	@Test
+	public void testSameAsParse() throws Exception {
+		assertSameAsParse("valid_basic.obj", parser);
+		assertSameAsParse("valid_quads.obj", parser);
+		final OBJParser packedParser = new OBJParser();
+		packedParser.setPacked(true);
+		assertSameAsParse("valid_polygons.obj", packedParser);
+	}
+
+	@Test
+	public void testFile() throws Exception {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final OBJParser parallelParser = new OBJParser();
+			parallelParser.setForkJoinPool(pool);
+			model = fixture.parseOBJFile("valid_negative_indices.obj", parallelParser, collector);
+			assertEquals(1, collector.objects.size());
+			assertEquals("First", collector.objects.get(0).getName());
+			assertTrue(model.getObjects().isEmpty());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(expected = WFException.class)
+	public void testHandlerError() throws Exception {
+		fixture.parseOBJ("valid_objects.obj", parser, new IOBJObjectHandler() {
+
+			@Override
+			public void onObject(OBJModel model, OBJObject object) throws WFException {
+				throw new WFException("Stop.");
+			}
+		});
+	}
+
+	private void assertSameAsParse(String name, OBJParser objParser) throws Exception {
+		final OBJModel expected = fixture.parseOBJ(name, objParser);
+		final ObjectCollector streamCollector = new ObjectCollector();
+		final OBJModel actual = fixture.parseOBJ(name, objParser, streamCollector);
+		assertEquals(expected.getVertices(), actual.getVertices());
+		assertEquals(expected.getObjects().size(), streamCollector.objects.size());
+		for (int i = 0; i < expected.getObjects().size(); ++i) {
+			final OBJObject expectedObject = expected.getObjects().get(i);
+			final OBJObject actualObject = streamCollector.objects.get(i);
+			assertEquals(expectedObject.getName(), actualObject.getName());
+			assertEquals(expectedObject.getMeshes().size(), actualObject.getMeshes().size());
+			for (int j = 0; j < expectedObject.getMeshes().size(); ++j) {
+				final List<OBJFace> expectedFaces = expectedObject.getMeshes().get(j).getFaces();
+				final List<OBJFace> actualFaces = actualObject.getMeshes().get(j).getFaces();
+				assertEquals(expectedFaces.size(), actualFaces.size());
+				for (int k = 0; k < expectedFaces.size(); ++k) {
+					assertEquals(expectedFaces.get(k).getReferences(), actualFaces.get(k).getReferences());
+				}
+			}
+		}
+	}
+
+	private static class ObjectCollector implements IOBJObjectHandler {
+
+		private final List<OBJObject> objects = new ArrayList<OBJObject>();
+		private final List<Integer> vertexCounts = new ArrayList<Integer>();
+		private OBJModel model;
+
+		@Override
+		public void onObject(OBJModel model, OBJObject object) throws WFException {
+			if (this.model != null) {
+				assertSame(this.model, model);
+			}
+			this.model = model;
+			assertTrue(model.getObjects().isEmpty());
+			objects.add(object);
+			vertexCounts.add(model.getVertices().size());
+		}
+
+	}
+
+}
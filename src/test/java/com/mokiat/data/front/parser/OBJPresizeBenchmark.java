@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.parser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing a file with and without the counting pass of
+ * {@link OBJParser#setPresized(boolean)}. Run it with the
+ * <code>-prof gc</code> option to see the allocation rate and the
+ * garbage collection time of each mode.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args="OBJPresizeBenchmark -prof gc"
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OBJPresizeBenchmark {
+
+	private static final int ELEMENT_COUNT = 100000;
+	private static final int OBJECT_COUNT = 10;
+
+	@Param({"false", "true"})
+	public boolean packed;
+
+	private final OBJParser parser = new OBJParser();
+	private final OBJParser presizedParser = new OBJParser();
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		parser.setPacked(packed);
+		presizedParser.setPacked(packed);
+		presizedParser.setPresized(true);
+		file = Files.createTempFile("presize", ".obj");
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+			for (int i = 0; i < ELEMENT_COUNT; ++i) {
+				writer.write(String.format(Locale.US, "v %f %f %f%n", i * 0.5f, i * 0.25f, i * -0.125f));
+				writer.write(String.format(Locale.US, "vt %f %f%n", (i % 100) / 100.0f, (i % 50) / 50.0f));
+				writer.write(String.format(Locale.US, "vn %f %f %f%n", 0.0f, 1.0f, 0.0f));
+			}
+			for (int i = 0; i < OBJECT_COUNT; ++i) {
+				writer.write(String.format("o Object%d%n", i));
+				for (int j = 3; j <= ELEMENT_COUNT / OBJECT_COUNT; ++j) {
+					writer.write(String.format("f %d/%d/%d %d/%d/%d -1/-1/-1%n", j - 2, j - 2, j - 2, j - 1, j - 1, j - 1));
+				}
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public OBJModel parseGrowing() throws IOException {
+		return parser.parse(file);
+	}
+
+	@Benchmark
+	public OBJModel parsePresized() throws IOException {
+		return presizedParser.parse(file);
+	}
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mokiat.data.front.error.WFException;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJSceneLoaderTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+	private final List<Runnable> tasks = new ArrayList<Runnable>();
+	private final OBJParser objParser = new OBJParser();
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		final OBJScene scene = fixture.loadScene("valid_scene.obj", new OBJSceneLoader(executorService));
+		assertExpectedScene(scene);
+	}
+
+	@Test
+	public void testLibrariesAreSubmittedWhileParsing() throws Exception {
+		final List<Boolean> parsing = new ArrayList<Boolean>();
+		final OBJSceneLoader loader = new OBJSceneLoader(objParser, new MTLParser(), new Executor() {
+
+			@Override
+			public void execute(Runnable task) {
+				parsing.add(isParsing());
+				task.run();
+			}
+		});
+		assertExpectedScene(fixture.loadScene("valid_scene.obj", loader));
+		assertEquals(Arrays.asList(true, true), parsing);
+	}
+
+	@Test
+	public void testCachedModel() throws Exception {
+		objParser.setModelCache(new OBJModelCache(folder.getRoot().toPath()));
+		final OBJSceneLoader loader = new OBJSceneLoader(objParser, new MTLParser(), executorService);
+		fixture.loadScene("valid_scene.obj", loader);
+		assertExpectedScene(fixture.loadScene("valid_scene.obj", loader));
+	}
+
+	@Test
+	public void testLibraryCache() throws Exception {
+		final MTLLibraryCache cache = new MTLLibraryCache();
+		final OBJSceneLoader loader = new OBJSceneLoader(executorService);
+		loader.setLibraryCache(cache);
+		final OBJScene first = fixture.loadScene("valid_scene.obj", loader);
+		final OBJScene second = fixture.loadScene("valid_scene.obj", loader);
+		assertExpectedScene(second);
+		assertSame(first.getMaterialLibrary("first.mtl"), second.getMaterialLibrary("first.mtl"));
+		assertEquals(2L, cache.getMissCount());
+		assertEquals(2L, cache.getHitCount());
+	}
+
+	@Test
+	public void testMissingLibrary() throws Exception {
+		try {
+			fixture.loadScene("error_missing_library.obj", new OBJSceneLoader(executorService));
+			fail("Expected an exception");
+		} catch (NoSuchFileException ex) {
+			assertTrue(ex.getMessage().endsWith("missing.mtl"));
+		}
+	}
+
+	@Test
+	public void testCorruptModelCancelsLibraries() throws Exception {
+		final OBJSceneLoader loader = new OBJSceneLoader(objParser, new MTLParser(), new Executor() {
+
+			@Override
+			public void execute(Runnable task) {
+				tasks.add(task);
+			}
+		});
+		try {
+			fixture.loadScene("error_corrupt_model.obj", loader);
+			fail("Expected an exception");
+		} catch (WFException ex) {
+			assertEquals(1, tasks.size());
+			assertTrue(((FutureTask<?>) tasks.get(0)).isCancelled());
+		}
+	}
+
+	private boolean isParsing() {
+		// The model is parsed on the calling thread, so the stack
+		// shows whether it is still being parsed.
+		for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+			if (element.getClassName().equals(OBJParseRunner.class.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void assertExpectedScene(OBJScene scene) {
+		final OBJModel model = scene.getModel();
+		assertEquals(Arrays.asList("first.mtl", "materials/second.mtl", "first.mtl"), model.getMaterialLibraries());
+		assertEquals(Arrays.asList("first.mtl", "materials/second.mtl"), new ArrayList<String>(scene.getMaterialLibraries().keySet()));
+		final MTLLibrary first = scene.getMaterialLibrary("first.mtl");
+		final MTLLibrary second = scene.getMaterialLibrary("materials/second.mtl");
+		assertEquals(2, first.getMaterials().size());
+		assertEquals(2, second.getMaterials().size());
+		final OBJObject object = model.getObjects().get(0);
+		assertSame(first.getMaterial("Red"), scene.getMaterial(object.getMeshes().get(0).getMaterialName()));
+		assertSame(second.getMaterial("Green"), scene.getMaterial(object.getMeshes().get(1).getMaterialName()));
+		assertSame(first.getMaterial("Shared"), scene.getMaterial("Shared"));
+		assertNull(scene.getMaterial("Blue"));
+		assertFalse(scene.getMaterialLibraries().containsKey("missing.mtl"));
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class MTLScanClassifyTest {
+
+	private final WFScanCommand command = new WFScanCommand();
+
+	@Test
+	public void testTextureCommands() throws IOException {
+		assertEquals(MTLScanRunner.TYPE_AMBIENT_TEXTURE, classify("map_Ka a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_DIFFUSE_TEXTURE, classify("map_Kd a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_SPECULAR_TEXTURE, classify("map_Ks a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_SPECULAR_EXPONENT_TEXTURE, classify("map_Ns a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_DISSOLVE_TEXTURE, classify("map_d a.bmp"));
+	}
+
+	@Test
+	public void testUnknownTextureCommands() throws IOException {
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_ a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_K a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_Ke a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_Kdd a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_N a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_Ni a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_dd a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("map_bump a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("mapxKd a.bmp"));
+		assertEquals(MTLScanRunner.TYPE_NONE, classify("m a.bmp"));
+	}
+
+	private int classify(String line) throws IOException {
+		command.parse(new WFReaderScanInput(new StringReader(line)));
+		return MTLScanRunner.classify(command);
+	}
+
+}
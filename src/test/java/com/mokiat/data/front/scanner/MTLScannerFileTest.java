@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.error.WFCorruptException;
+import com.mokiat.data.front.stub.MTLContentScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class MTLScannerFileTest {
+	
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final MTLContentScannerHandler handler = new MTLContentScannerHandler();
+	
+	@Test
+	public void testBasic() throws Exception {
+		fixture.scanMTLFile("valid_basic.mtl", handler);
+		handler.assertCommentCount(1);
+		handler.assertComment(0, "This is the beginning of this MTL file.");
+		handler.assertMaterialCount(1);
+		handler.assertMaterial(0, "MyMaterial");
+		handler.assertAmbientColorRGBCount(1);
+		handler.assertAmbientColorRGB(0, 0.8f, 0.5f, 0.2f);
+		handler.assertDiffuseColorRGBCount(1);
+		handler.assertDiffuseColorRGB(0, 0.1f, 0.4f, 0.7f);
+		handler.assertSpecularExponentCount(1);
+		handler.assertSpecularExponent(0, 330.0f);
+		handler.assertDissolveTextureCount(1);
+		handler.assertDissolveTexture(0, "textures/dissolve.bmp");
+	}
+	
+	@Test(expected = WFCorruptException.class)
+	public void testMissingMaterialName() throws Exception {
+		fixture.scanMTLFile("error_missing_material_name.mtl", handler);
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.stub.OBJBatchEventLogScannerHandler;
+import com.mokiat.data.front.stub.OBJEventLogScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJBatchScannerHandlerTest {
+	
+	private static final int PARALLEL_CHUNK_SIZE = 16;
+	
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Test
+	public void testBasic() throws Exception {
+		assertSameEvents("valid_basic.obj");
+	}
+	
+	@Test
+	public void testVertices() throws Exception {
+		final OBJBatchEventLogScannerHandler handler = assertSameEvents("valid_vertices.obj");
+		assertTrue(handler.getBatchCount() < handler.getEvents().size());
+	}
+	
+	@Test
+	public void testTexCoords() throws Exception {
+		assertSameEvents("valid_texcoords.obj");
+	}
+	
+	@Test
+	public void testNormals() throws Exception {
+		assertSameEvents("valid_normals.obj");
+	}
+	
+	@Test
+	public void testDataReferences() throws Exception {
+		assertSameEvents("valid_data_references.obj");
+		assertSameEvents("valid_negative_data_references.obj");
+	}
+	
+	@Test
+	public void testBatchSize() throws Exception {
+		final OBJBatchEventLogScannerHandler handler = new OBJBatchEventLogScannerHandler();
+		final OBJScanBatcher batcher = new OBJScanBatcher(handler, 2);
+		batcher.addVertex(1.0f, 2.0f, 3.0f, Float.NaN);
+		batcher.addVertex(4.0f, 5.0f, 6.0f, 7.0f);
+		assertEquals(1, handler.getBatchCount());
+		batcher.addVertex(8.0f, 9.0f, 10.0f, Float.NaN);
+		batcher.addNormal(0.0f, 1.0f, 0.0f);
+		assertEquals(2, handler.getBatchCount());
+		batcher.flush();
+		batcher.flush();
+		assertEquals(3, handler.getBatchCount());
+		assertEquals(4, handler.getEvents().size());
+	}
+	
+	private OBJBatchEventLogScannerHandler assertSameEvents(String name) throws IOException {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJFile(name, expected);
+		
+		final OBJBatchEventLogScannerHandler actual = new OBJBatchEventLogScannerHandler();
+		fixture.scanOBJFile(name, actual);
+		assertEquals(expected.getEvents(), actual.getEvents());
+		
+		final OBJBatchEventLogScannerHandler parallel = new OBJBatchEventLogScannerHandler();
+		fixture.scanOBJFile(name, new OBJParallelScanner(pool, PARALLEL_CHUNK_SIZE), parallel);
+		assertEquals(expected.getEvents(), parallel.getEvents());
+		return actual;
+	}
+
+}
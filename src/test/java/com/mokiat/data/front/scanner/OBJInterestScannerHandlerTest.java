@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static com.mokiat.data.front.scanner.IOBJInterestScannerHandler.INTEREST_ALL;
+import static com.mokiat.data.front.scanner.IOBJInterestScannerHandler.INTEREST_FACE;
+import static com.mokiat.data.front.scanner.IOBJInterestScannerHandler.INTEREST_NORMAL;
+import static com.mokiat.data.front.scanner.IOBJInterestScannerHandler.INTEREST_VERTEX;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.common.OBJLimits;
+import com.mokiat.data.front.error.WFSizeException;
+import com.mokiat.data.front.stub.OBJEventLogScannerHandler;
+import com.mokiat.data.front.stub.OBJInterestEventLogScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJInterestScannerHandlerTest {
+	
+	private static final int PARALLEL_CHUNK_SIZE = 16;
+	
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Test
+	public void testAllInterests() throws Exception {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJ("valid_basic.obj", expected);
+		final OBJInterestEventLogScannerHandler actual = new OBJInterestEventLogScannerHandler(INTEREST_ALL);
+		fixture.scanOBJ("valid_basic.obj", actual);
+		assertEquals(expected.getEvents(), actual.getEvents());
+	}
+	
+	@Test
+	public void testPositionsAndFaces() throws Exception {
+		final OBJEventLogScannerHandler full = new OBJEventLogScannerHandler();
+		fixture.scanOBJ("valid_basic.obj", full);
+		final OBJInterestEventLogScannerHandler actual = new OBJInterestEventLogScannerHandler(INTEREST_VERTEX | INTEREST_FACE);
+		fixture.scanOBJ("valid_basic.obj", actual);
+		
+		final List<String> expected = new ArrayList<String>();
+		for (String event : full.getEvents()) {
+			if (event.startsWith("comment ")) {
+				expected.add("skip " + IOBJInterestScannerHandler.INTEREST_COMMENT);
+			} else if (event.startsWith("mtllib ")) {
+				expected.add("skip " + IOBJInterestScannerHandler.INTEREST_MATERIAL_LIBRARY);
+			} else if (event.startsWith("vt ")) {
+				expected.add("skip " + IOBJInterestScannerHandler.INTEREST_TEXCOORD);
+			} else if (event.startsWith("vn ")) {
+				expected.add("skip " + IOBJInterestScannerHandler.INTEREST_NORMAL);
+			} else if (event.startsWith("o ")) {
+				expected.add("skip " + IOBJInterestScannerHandler.INTEREST_OBJECT);
+			} else if (event.startsWith("usemtl ")) {
+				expected.add("skip " + IOBJInterestScannerHandler.INTEREST_MATERIAL_REFERENCE);
+			} else {
+				expected.add(event);
+			}
+		}
+		assertEquals(expected, actual.getEvents());
+	}
+	
+	@Test
+	public void testParallel() throws Exception {
+		final OBJInterestEventLogScannerHandler expected = new OBJInterestEventLogScannerHandler(INTEREST_VERTEX | INTEREST_FACE);
+		fixture.scanOBJFile("valid_basic.obj", expected);
+		final OBJInterestEventLogScannerHandler actual = new OBJInterestEventLogScannerHandler(INTEREST_VERTEX | INTEREST_FACE);
+		fixture.scanOBJFile("valid_basic.obj", new OBJParallelScanner(pool, PARALLEL_CHUNK_SIZE), actual);
+		assertEquals(expected.getEvents(), actual.getEvents());
+	}
+	
+	@Test
+	public void testSkippedCommandsNotValidated() throws Exception {
+		final OBJInterestEventLogScannerHandler handler = new OBJInterestEventLogScannerHandler(INTEREST_ALL & ~INTEREST_NORMAL);
+		fixture.scanOBJ("error_missing_normal_data.obj", handler);
+		assertEquals(1, handler.getEvents().size());
+	}
+	
+	@Test(expected = WFSizeException.class)
+	public void testLimitsCountSkippedCommands() throws Exception {
+		final OBJLimits limits = new OBJLimits();
+		limits.maxNormalCount = 2;
+		final OBJInterestEventLogScannerHandler delegate = new OBJInterestEventLogScannerHandler(INTEREST_VERTEX | INTEREST_FACE);
+		fixture.scanOBJ("valid_basic.obj", new OBJLimitingScannerHandler(delegate, limits));
+	}
+
+}
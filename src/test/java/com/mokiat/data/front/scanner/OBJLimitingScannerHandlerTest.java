@@ -16,10 +16,16 @@
 
 package com.mokiat.data.front.scanner;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -28,6 +34,8 @@ import com.mokiat.data.front.common.IFastFloat;
 import com.mokiat.data.front.common.IFastInt;
 import com.mokiat.data.front.common.OBJLimits;
 import com.mokiat.data.front.error.WFSizeException;
+import com.mokiat.data.front.stub.OBJBatchEventLogScannerHandler;
+import com.mokiat.data.front.stub.OBJEventLogScannerHandler;
 import com.mokiat.data.front.test.WFResourceFixture;
 
 public class OBJLimitingScannerHandlerTest {
@@ -188,6 +196,81 @@ public class OBJLimitingScannerHandlerTest {
 				Mockito.anyString());
 	}
 	
+	@Test
+	public void testBatchDelegate() throws Exception {
+		assertSameBatchEvents("valid_basic.obj");
+		assertSameBatchEvents("valid_vertices.obj");
+		assertSameBatchEvents("valid_texcoords.obj");
+		assertSameBatchEvents("valid_normals.obj");
+	}
+
+	@Test
+	public void testBatchLimit() throws Exception {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJFile("valid_vertices.obj", expected);
+		limits.maxVertexCount = countEvents(expected.getEvents(), "v ");
+		fixture.scanOBJFile("valid_vertices.obj", new OBJLimitingScannerHandler(new OBJBatchEventLogScannerHandler(), limits));
+
+		limits.maxVertexCount--;
+		try {
+			fixture.scanOBJFile("valid_vertices.obj", new OBJLimitingScannerHandler(new OBJBatchEventLogScannerHandler(), limits));
+			fail("Expected a size exception.");
+		} catch (WFSizeException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSplitBatches() throws Exception {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		final IOBJPrimitiveScannerHandler primitiveExpected = OBJScannerHandlerAdapter.adapt(expected);
+		primitiveExpected.onVertex(1.0f, 2.0f, 3.0f, 1.0f, false);
+		primitiveExpected.onVertex(4.0f, 5.0f, 6.0f, 7.0f, true);
+		primitiveExpected.onTextureCoordinate(0.5f, 0.0f, 0.0f, 1);
+		primitiveExpected.onTextureCoordinate(0.5f, 0.25f, 0.0f, 2);
+		primitiveExpected.onTextureCoordinate(0.5f, 0.25f, 0.125f, 3);
+		primitiveExpected.onNormal(0.0f, 1.0f, 0.0f);
+
+		final OBJEventLogScannerHandler actual = new OBJEventLogScannerHandler();
+		final OBJScanBatcher batcher = new OBJScanBatcher(new OBJLimitingScannerHandler(actual, limits));
+		batcher.addVertex(1.0f, 2.0f, 3.0f, Float.NaN);
+		batcher.addVertex(4.0f, 5.0f, 6.0f, 7.0f);
+		batcher.addTexCoord(0.5f, Float.NaN, Float.NaN);
+		batcher.addTexCoord(0.5f, 0.25f, Float.NaN);
+		batcher.addTexCoord(0.5f, 0.25f, 0.125f);
+		batcher.addNormal(0.0f, 1.0f, 0.0f);
+		batcher.flush();
+		assertEquals(expected.getEvents(), actual.getEvents());
+	}
+
+	private void assertSameBatchEvents(String name) throws Exception {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJFile(name, expected);
+
+		final OBJBatchEventLogScannerHandler actual = new OBJBatchEventLogScannerHandler();
+		fixture.scanOBJFile(name, new OBJLimitingScannerHandler(actual, limits));
+		assertEquals(expected.getEvents(), actual.getEvents());
+		assertTrue(actual.getBatchCount() > 0);
+
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final OBJBatchEventLogScannerHandler parallel = new OBJBatchEventLogScannerHandler();
+			fixture.scanOBJFile(name, new OBJParallelScanner(pool, 16), new OBJLimitingScannerHandler(parallel, limits));
+			assertEquals(expected.getEvents(), parallel.getEvents());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static int countEvents(List<String> events, String prefix) {
+		int count = 0;
+		for (String event : events) {
+			if (event.startsWith(prefix)) {
+				count++;
+			}
+		}
+		return count;
+	}
 	
 	private void scanBasicValidOBJFile() throws Exception {
 		fixture.scanOBJ("valid_basic.obj", handler);
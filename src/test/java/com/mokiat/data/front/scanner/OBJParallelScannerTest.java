@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.stub.OBJEventLogScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJParallelScannerTest {
+	
+	private static final int MAX_CHUNK_SIZE = 48;
+	
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Test
+	public void testBasic() throws Exception {
+		assertSameEvents("valid_basic.obj");
+	}
+	
+	@Test
+	public void testComments() throws Exception {
+		assertSameEvents("valid_comments.obj");
+	}
+	
+	@Test
+	public void testDataReferences() throws Exception {
+		assertSameEvents("valid_data_references.obj");
+		assertSameEvents("valid_negative_data_references.obj");
+	}
+	
+	@Test
+	public void testLogicalLine() throws Exception {
+		assertSameEvents("valid_logical_line.obj");
+	}
+	
+	@Test
+	public void testWhiteSpace() throws Exception {
+		assertSameEvents("valid_white_space.obj");
+	}
+	
+	@Test
+	public void testUnicode() throws Exception {
+		assertSameEvents("valid_unicode.obj");
+	}
+	
+	@Test
+	public void testCorruptDataReference() throws Exception {
+		assertSameFailure("error_corrupt_data_reference.obj");
+	}
+	
+	@Test
+	public void testCorruptVertex() throws Exception {
+		assertSameFailure("error_corrupt_vertex.obj");
+	}
+	
+	private void assertSameEvents(String name) throws IOException {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJFile(name, expected);
+		for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; ++chunkSize) {
+			final OBJEventLogScannerHandler actual = new OBJEventLogScannerHandler();
+			fixture.scanOBJFile(name, new OBJParallelScanner(pool, chunkSize), actual);
+			assertEquals("Chunk size " + chunkSize, expected.getEvents(), actual.getEvents());
+		}
+	}
+	
+	private void assertSameFailure(String name) throws IOException {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		final IOException expectedError = scanForError(name, new OBJScanner(), expected);
+		assertNotNull(expectedError);
+		for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; ++chunkSize) {
+			final OBJEventLogScannerHandler actual = new OBJEventLogScannerHandler();
+			final IOException actualError = scanForError(name, new OBJParallelScanner(pool, chunkSize), actual);
+			assertNotNull(actualError);
+			assertEquals(expectedError.getClass(), actualError.getClass());
+			assertEquals(expected.getEvents(), actual.getEvents());
+		}
+	}
+	
+	private IOException scanForError(String name, IOBJFileScanner scanner, OBJEventLogScannerHandler handler) {
+		try {
+			fixture.scanOBJFile(name, scanner, handler);
+			return null;
+		} catch (IOException ex) {
+			return ex;
+		}
+	}
+
+}
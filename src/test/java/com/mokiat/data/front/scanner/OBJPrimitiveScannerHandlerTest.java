@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.stub.OBJEventLogScannerHandler;
+import com.mokiat.data.front.stub.OBJPrimitiveEventLogScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJPrimitiveScannerHandlerTest {
+	
+	private static final int PARALLEL_CHUNK_SIZE = 16;
+	
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+	
+	@Test
+	public void testBasic() throws Exception {
+		assertSameEvents("valid_basic.obj");
+	}
+	
+	@Test
+	public void testVertices() throws Exception {
+		assertSameEvents("valid_vertices.obj");
+	}
+	
+	@Test
+	public void testTexCoords() throws Exception {
+		assertSameEvents("valid_texcoords.obj");
+	}
+	
+	@Test
+	public void testDataReferences() throws Exception {
+		assertSameEvents("valid_data_references.obj");
+		assertSameEvents("valid_negative_data_references.obj");
+	}
+	
+	@Test
+	public void testLegacyAdapter() throws Exception {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJ("valid_basic.obj", expected);
+		
+		final OBJEventLogScannerHandler actual = new OBJEventLogScannerHandler();
+		final IOBJPrimitiveScannerHandler adapter = new OBJScannerHandlerAdapter(actual);
+		fixture.scanOBJ("valid_basic.obj", new OBJPrimitiveScannerHandlerAdapter(adapter));
+		assertEquals(expected.getEvents(), actual.getEvents());
+	}
+	
+	@Test
+	public void testAdaptUnwraps() throws Exception {
+		final OBJPrimitiveEventLogScannerHandler handler = new OBJPrimitiveEventLogScannerHandler();
+		assertSame(handler, OBJScannerHandlerAdapter.adapt(new OBJPrimitiveScannerHandlerAdapter(handler)));
+	}
+	
+	private void assertSameEvents(String name) throws IOException {
+		final OBJEventLogScannerHandler expected = new OBJEventLogScannerHandler();
+		fixture.scanOBJ(name, expected);
+		
+		final OBJPrimitiveEventLogScannerHandler actual = new OBJPrimitiveEventLogScannerHandler();
+		fixture.scanOBJ(name, new OBJPrimitiveScannerHandlerAdapter(actual));
+		assertEquals(expected.getEvents(), actual.getEvents());
+		
+		final OBJPrimitiveEventLogScannerHandler parallel = new OBJPrimitiveEventLogScannerHandler();
+		fixture.scanOBJFile(name, new OBJParallelScanner(pool, PARALLEL_CHUNK_SIZE), new OBJPrimitiveScannerHandlerAdapter(parallel));
+		assertEquals(expected.getEvents(), parallel.getEvents());
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJScanCounterTest {
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+
+	@Test
+	public void testCounts() throws Exception {
+		final OBJScanCounts counts = fixture.countOBJFile("valid_counts.obj");
+		assertEquals(4, counts.getVertexCount());
+		assertEquals(2, counts.getTexCoordCount());
+		assertEquals(1, counts.getNormalCount());
+		assertEquals(2, counts.getObjectCount());
+		assertEquals(1, counts.getMaterialLibraryCount());
+		assertEquals(6, counts.getFaceCount());
+		assertEquals(20, counts.getReferenceCount());
+	}
+
+	@Test
+	public void testSegments() throws Exception {
+		final OBJScanCounts counts = fixture.countOBJFile("valid_counts.obj");
+		assertEquals(5, counts.getSegmentCount());
+		assertSegment(counts, 0, 1, 3);
+		assertSegment(counts, 1, 1, 4);
+		assertSegment(counts, 2, 2, 6);
+		assertSegment(counts, 3, 0, 0);
+		assertSegment(counts, 4, 2, 7);
+	}
+
+	@Test
+	public void testMatchesScan() throws Exception {
+		final OBJScanCounts counts = fixture.countOBJFile("valid_basic.obj");
+		assertEquals(4, counts.getVertexCount());
+		assertEquals(4, counts.getTexCoordCount());
+		assertEquals(3, counts.getNormalCount());
+		assertEquals(1, counts.getObjectCount());
+		assertEquals(1, counts.getFaceCount());
+		assertEquals(3, counts.getSegmentCount());
+		assertSegment(counts, 2, 1, 3);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testSegmentBounds() throws Exception {
+		fixture.countOBJFile("valid_counts.obj").getSegmentFaceCount(5);
+	}
+
+	private void assertSegment(OBJScanCounts counts, int segment, int faceCount, int referenceCount) {
+		assertEquals(faceCount, counts.getSegmentFaceCount(segment));
+		assertEquals(referenceCount, counts.getSegmentReferenceCount(segment));
+	}
+
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per-line cost of classifying OBJ and MTL commands.
+ * <p>
+ * The <code>EqualsChain</code> and <code>Switch</code> arms classify
+ * lines that are already tokenized by the current {@link WFScanCommand},
+ * so they only isolate the dispatch itself. As comparing the keyword in
+ * place is cheap either way, the difference between them is small.
+ * <p>
+ * The <code>Original</code> and <code>Scan</code> arms read the same lines
+ * from a reader and also include tokenization. The former reproduces the
+ * original path, which trimmed each line, split it with a regular
+ * expression and compared the first segment through
+ * {@link String#equals(Object)}. The latter tokenizes lines in place
+ * and dispatches them through the character switch, same as the scan
+ * runners do.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.openjdk.jmh.Main \
+ *     -Dexec.args=OBJScanDispatchBenchmark
+ * </pre>
+ *
+ * @author Momchil Atanasov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OBJScanDispatchBenchmark {
+
+	private static final String[] OBJ_LINES = {
+		"f 1/1/1 2/2/2 3/3/3",
+		"f 3/3/3 4/4/4 1/1/1",
+		"f 5/5/5 6/6/6 7/7/7",
+		"v 1.0 2.0 3.0",
+		"vt 0.5 0.5",
+		"vn 0.0 1.0 0.0",
+		"# comment",
+		"usemtl Material",
+		"o Object",
+		"mtllib library.mtl"
+	};
+
+	private static final String[] MTL_LINES = {
+		"newmtl Material",
+		"Ka 0.1 0.1 0.1",
+		"Kd 0.8 0.8 0.8",
+		"Ks 1.0 1.0 1.0",
+		"Tf 1.0 1.0 1.0",
+		"d 1.0",
+		"Ns 32.0",
+		"map_Kd diffuse.png",
+		"map_d alpha.png",
+		"# comment"
+	};
+
+	private static final String WHITE_SPACE_PATTERN = "[\\s]+";
+
+	private final WFScanCommand command = new WFScanCommand();
+	private WFScanCommand[] objCommands;
+	private WFScanCommand[] mtlCommands;
+	private String objText;
+	private String mtlText;
+
+	@Setup
+	public void setUp() throws IOException {
+		objCommands = parseCommands(OBJ_LINES);
+		mtlCommands = parseCommands(MTL_LINES);
+		objText = joinLines(OBJ_LINES);
+		mtlText = joinLines(MTL_LINES);
+	}
+
+	@Benchmark
+	public void objOriginal(Blackhole blackhole) throws IOException {
+		final BufferedReader reader = new BufferedReader(new StringReader(objText), objText.length());
+		String line;
+		while ((line = reader.readLine()) != null) {
+			blackhole.consume(classifyOBJBySplit(line));
+		}
+	}
+
+	@Benchmark
+	public void objScan(Blackhole blackhole) throws IOException {
+		final WFScanInput input = new WFReaderScanInput(new StringReader(objText));
+		while (command.parse(input)) {
+			blackhole.consume(OBJScanRunner.classify(command));
+		}
+	}
+
+	@Benchmark
+	public void mtlOriginal(Blackhole blackhole) throws IOException {
+		final BufferedReader reader = new BufferedReader(new StringReader(mtlText), mtlText.length());
+		String line;
+		while ((line = reader.readLine()) != null) {
+			blackhole.consume(classifyMTLBySplit(line));
+		}
+	}
+
+	@Benchmark
+	public void mtlScan(Blackhole blackhole) throws IOException {
+		final WFScanInput input = new WFReaderScanInput(new StringReader(mtlText));
+		while (command.parse(input)) {
+			blackhole.consume(MTLScanRunner.classify(command));
+		}
+	}
+
+	@Benchmark
+	public void objEqualsChain(Blackhole blackhole) {
+		for (WFScanCommand command : objCommands) {
+			blackhole.consume(classifyOBJByChain(command));
+		}
+	}
+
+	@Benchmark
+	public void objSwitch(Blackhole blackhole) {
+		for (WFScanCommand command : objCommands) {
+			blackhole.consume(OBJScanRunner.classify(command));
+		}
+	}
+
+	@Benchmark
+	public void mtlEqualsChain(Blackhole blackhole) {
+		for (WFScanCommand command : mtlCommands) {
+			blackhole.consume(classifyMTLByChain(command));
+		}
+	}
+
+	@Benchmark
+	public void mtlSwitch(Blackhole blackhole) {
+		for (WFScanCommand command : mtlCommands) {
+			blackhole.consume(MTLScanRunner.classify(command));
+		}
+	}
+
+	private static WFScanCommand[] parseCommands(String[] lines) throws IOException {
+		final WFScanCommand[] commands = new WFScanCommand[lines.length];
+		for (int i = 0; i < lines.length; ++i) {
+			commands[i] = new WFScanCommand();
+			commands[i].parse(new WFReaderScanInput(new StringReader(lines[i])));
+		}
+		return commands;
+	}
+
+	private static String joinLines(String[] lines) {
+		final StringBuilder builder = new StringBuilder();
+		for (String line : lines) {
+			builder.append(line).append('\n');
+		}
+		return builder.toString();
+	}
+
+	private static int classifyOBJBySplit(String line) {
+		final String keyword = line.trim().split(WHITE_SPACE_PATTERN)[0];
+		if (keyword.isEmpty()) {
+			return OBJScanRunner.TYPE_NONE;
+		} else if (keyword.startsWith("#")) {
+			return OBJScanRunner.TYPE_COMMENT;
+		} else if (OBJScanRunner.COMMAND_VERTEX.equals(keyword)) {
+			return OBJScanRunner.TYPE_VERTEX;
+		} else if (OBJScanRunner.COMMAND_TEXCOORD.equals(keyword)) {
+			return OBJScanRunner.TYPE_TEXCOORD;
+		} else if (OBJScanRunner.COMMAND_NORMAL.equals(keyword)) {
+			return OBJScanRunner.TYPE_NORMAL;
+		} else if (OBJScanRunner.COMMAND_OBJECT.equals(keyword)) {
+			return OBJScanRunner.TYPE_OBJECT;
+		} else if (OBJScanRunner.COMMAND_FACE.equals(keyword)) {
+			return OBJScanRunner.TYPE_FACE;
+		} else if (OBJScanRunner.COMMAND_MATERIAL_LIB.equals(keyword)) {
+			return OBJScanRunner.TYPE_MATERIAL_LIB;
+		} else if (OBJScanRunner.COMMAND_MATERIAL_REF.equals(keyword)) {
+			return OBJScanRunner.TYPE_MATERIAL_REF;
+		}
+		return OBJScanRunner.TYPE_NONE;
+	}
+
+	private static int classifyMTLBySplit(String line) {
+		final String keyword = line.trim().split(WHITE_SPACE_PATTERN)[0];
+		if (keyword.isEmpty()) {
+			return MTLScanRunner.TYPE_NONE;
+		} else if (keyword.startsWith("#")) {
+			return MTLScanRunner.TYPE_COMMENT;
+		} else if (MTLScanRunner.COMMAND_MATERIAL.equals(keyword)) {
+			return MTLScanRunner.TYPE_MATERIAL;
+		} else if (MTLScanRunner.COMMAND_AMBIENT_COLOR.equals(keyword)) {
+			return MTLScanRunner.TYPE_AMBIENT_COLOR;
+		} else if (MTLScanRunner.COMMAND_DIFFUSE_COLOR.equals(keyword)) {
+			return MTLScanRunner.TYPE_DIFFUSE_COLOR;
+		} else if (MTLScanRunner.COMMAND_SPECULAR_COLOR.equals(keyword)) {
+			return MTLScanRunner.TYPE_SPECULAR_COLOR;
+		} else if (MTLScanRunner.COMMAND_TRANSMISSION_COLOR.equals(keyword)) {
+			return MTLScanRunner.TYPE_TRANSMISSION_COLOR;
+		} else if (MTLScanRunner.COMMAND_DISSOLVE.equals(keyword)) {
+			return MTLScanRunner.TYPE_DISSOLVE;
+		} else if (MTLScanRunner.COMMAND_SPECULAR_EXPONENT.equals(keyword)) {
+			return MTLScanRunner.TYPE_SPECULAR_EXPONENT;
+		} else if (MTLScanRunner.COMMAND_AMBIENT_TEXTURE.equals(keyword)) {
+			return MTLScanRunner.TYPE_AMBIENT_TEXTURE;
+		} else if (MTLScanRunner.COMMAND_DIFFUSE_TEXTURE.equals(keyword)) {
+			return MTLScanRunner.TYPE_DIFFUSE_TEXTURE;
+		} else if (MTLScanRunner.COMMAND_SPECULAR_TEXTURE.equals(keyword)) {
+			return MTLScanRunner.TYPE_SPECULAR_TEXTURE;
+		} else if (MTLScanRunner.COMMAND_SPECULAR_EXPONENT_TEXTURE.equals(keyword)) {
+			return MTLScanRunner.TYPE_SPECULAR_EXPONENT_TEXTURE;
+		} else if (MTLScanRunner.COMMAND_DISSOLVE_TEXTURE.equals(keyword)) {
+			return MTLScanRunner.TYPE_DISSOLVE_TEXTURE;
+		}
+		return MTLScanRunner.TYPE_NONE;
+	}
+
+	private static int classifyOBJByChain(WFScanCommand command) {
+		if (command.isEmpty()) {
+			return OBJScanRunner.TYPE_NONE;
+		} else if (command.isComment()) {
+			return OBJScanRunner.TYPE_COMMENT;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_VERTEX)) {
+			return OBJScanRunner.TYPE_VERTEX;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_TEXCOORD)) {
+			return OBJScanRunner.TYPE_TEXCOORD;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_NORMAL)) {
+			return OBJScanRunner.TYPE_NORMAL;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_OBJECT)) {
+			return OBJScanRunner.TYPE_OBJECT;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_FACE)) {
+			return OBJScanRunner.TYPE_FACE;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_MATERIAL_LIB)) {
+			return OBJScanRunner.TYPE_MATERIAL_LIB;
+		} else if (command.isCommand(OBJScanRunner.COMMAND_MATERIAL_REF)) {
+			return OBJScanRunner.TYPE_MATERIAL_REF;
+		}
+		return OBJScanRunner.TYPE_NONE;
+	}
+
+	private static int classifyMTLByChain(WFScanCommand command) {
+		if (command.isEmpty()) {
+			return MTLScanRunner.TYPE_NONE;
+		} else if (command.isComment()) {
+			return MTLScanRunner.TYPE_COMMENT;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_MATERIAL)) {
+			return MTLScanRunner.TYPE_MATERIAL;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_AMBIENT_COLOR)) {
+			return MTLScanRunner.TYPE_AMBIENT_COLOR;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_DIFFUSE_COLOR)) {
+			return MTLScanRunner.TYPE_DIFFUSE_COLOR;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_SPECULAR_COLOR)) {
+			return MTLScanRunner.TYPE_SPECULAR_COLOR;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_TRANSMISSION_COLOR)) {
+			return MTLScanRunner.TYPE_TRANSMISSION_COLOR;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_DISSOLVE)) {
+			return MTLScanRunner.TYPE_DISSOLVE;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_SPECULAR_EXPONENT)) {
+			return MTLScanRunner.TYPE_SPECULAR_EXPONENT;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_AMBIENT_TEXTURE)) {
+			return MTLScanRunner.TYPE_AMBIENT_TEXTURE;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_DIFFUSE_TEXTURE)) {
+			return MTLScanRunner.TYPE_DIFFUSE_TEXTURE;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_SPECULAR_TEXTURE)) {
+			return MTLScanRunner.TYPE_SPECULAR_TEXTURE;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_SPECULAR_EXPONENT_TEXTURE)) {
+			return MTLScanRunner.TYPE_SPECULAR_EXPONENT_TEXTURE;
+		} else if (command.isCommand(MTLScanRunner.COMMAND_DISSOLVE_TEXTURE)) {
+			return MTLScanRunner.TYPE_DISSOLVE_TEXTURE;
+		}
+		return MTLScanRunner.TYPE_NONE;
+	}
+
+}
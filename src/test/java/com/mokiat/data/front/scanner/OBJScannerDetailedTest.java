@@ -102,6 +102,16 @@ public class OBJScannerDetailedTest {
 		handler.assertDataReference(index++, 3, 4, 5);
 	}
 	
+	@Test
+	public void testNegativeDataReferences() throws Exception {
+		fixture.scanOBJ("valid_negative_data_references.obj", handler);
+		handler.assertDataReferencesCount(4);
+		handler.assertDataReference(index++, -1, -2, -3);
+		handler.assertDataReference(index++, -4, null, -5);
+		handler.assertDataReference(index++, 6, 7, null);
+		handler.assertDataReference(index++, 8, 9, 10);
+	}
+	
 	@Test
 	public void testMaterialLibraries() throws Exception {
 		fixture.scanOBJ("valid_material_libraries.obj", handler);
@@ -132,6 +142,28 @@ public class OBJScannerDetailedTest {
 		handler.assertObject(index++, "EndsWithNewLine");
 	}
 	
+	@Test
+	public void testLogicalLineBeforeEmptyLine() throws Exception {
+		fixture.scanOBJ("valid_logical_line_empty.obj", handler);
+		handler.assertObjectCount(3);
+		handler.assertObject(index++, "Escaped\\");
+		handler.assertObject(index++, "Next");
+		handler.assertObject(index++, "Last");
+	}
+	
+	@Test
+	public void testWhiteSpace() throws Exception {
+		fixture.scanOBJ("valid_white_space.obj", handler);
+		handler.assertVertexCount(1);
+		handler.assertVertex(0, 1.0f, 2.0f, 3.0f, null);
+		handler.assertNormalCount(1);
+		handler.assertNormal(0, 0.0f, 1.0f, 0.0f);
+		handler.assertObjectCount(1);
+		handler.assertObject(0, "Tabbed");
+		handler.assertCommentCount(1);
+		handler.assertComment(0, "spaced comment");
+	}
+	
 	@Test
 	public void testUnknownCommand() throws Exception {
 		fixture.scanOBJ("valid_unknown_command.obj", handler);
@@ -20,6 +20,7 @@ import org.junit.Test;
 
 import com.mokiat.data.front.error.WFCorruptException;
 import com.mokiat.data.front.stub.OBJContentScannerHandler;
+import com.mokiat.data.front.stub.OBJSmoothingGroupEventLogScannerHandler;
 import com.mokiat.data.front.test.WFResourceFixture;
 
 public class OBJScannerErrorTest {
@@ -57,9 +58,29 @@ public class OBJScannerErrorTest {
 		fixture.scanOBJ("error_corrupt_data_reference.obj", handler);
 	}
 	
+	@Test(expected = WFCorruptException.class)
+	public void testOverflowDataReference() throws Exception {
+		fixture.scanOBJ("error_overflow_data_reference.obj", handler);
+	}
+	
+	@Test(expected = WFCorruptException.class)
+	public void testReservedDataReference() throws Exception {
+		fixture.scanOBJ("error_reserved_data_reference.obj", handler);
+	}
+	
 	@Test(expected = WFCorruptException.class)
 	public void testCorruptVertex() throws Exception {
 		fixture.scanOBJ("error_corrupt_vertex.obj", handler);
 	}
 
+	@Test(expected = WFCorruptException.class)
+	public void testMissingSmoothingGroup() throws Exception {
+		fixture.scanOBJ("error_missing_smoothing_group.obj", new OBJSmoothingGroupEventLogScannerHandler());
+	}
+	
+	@Test(expected = WFCorruptException.class)
+	public void testCorruptSmoothingGroup() throws Exception {
+		fixture.scanOBJ("error_corrupt_smoothing_group.obj", new OBJSmoothingGroupEventLogScannerHandler());
+	}
+
 }
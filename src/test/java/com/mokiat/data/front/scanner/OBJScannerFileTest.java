@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.error.WFCorruptException;
+import com.mokiat.data.front.stub.OBJContentScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJScannerFileTest {
+	
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final OBJContentScannerHandler handler = new OBJContentScannerHandler();
+	private int index = 0;
+	
+	@Test
+	public void testBasic() throws Exception {
+		fixture.scanOBJFile("valid_basic.obj", handler);
+		handler.assertCommentCount(1);
+		handler.assertComment(0, "This is the beginning of this OBJ file.");
+		handler.assertVertexCount(4);
+		handler.assertVertex(3, 1.0f, 1.0f, 1.0f, 0.7f);
+		handler.assertTexCoordCount(4);
+		handler.assertTexCoord(1, 1.0f, 1.0f, 0.5f);
+		handler.assertNormalCount(3);
+		handler.assertNormal(2, 0.0f, 0.0f, 1.0f);
+		handler.assertObjectCount(1);
+		handler.assertObject(0, "MyObject");
+		handler.assertFaceBeginCount(1);
+		handler.assertFaceEndCount(1);
+		handler.assertDataReferencesCount(3);
+		handler.assertDataReference(2, 3, 3, 2);
+		handler.assertMaterialLibraryCount(1);
+		handler.assertMaterialLibrary(0, "valid_basic.mtl");
+		handler.assertMaterialReferenceCount(1);
+		handler.assertMaterialReference(0, "BlueMaterial");
+	}
+	
+	@Test
+	public void testLogicalLine() throws Exception {
+		fixture.scanOBJFile("valid_logical_line.obj", handler);
+		handler.assertVertexCount(2);
+		handler.assertVertex(index++, -1.0f, 1.0f, -2.0f, null);
+		handler.assertVertex(index++, -1.0f, -1.0f, 1.0f, 2.0f);
+		index = 0;
+		handler.assertObjectCount(3);
+		handler.assertObject(index++, "HelloWorld");
+		handler.assertObject(index++, "NonNewLine");
+		handler.assertObject(index++, "EndsWithNewLine");
+	}
+	
+	@Test
+	public void testLogicalLineBeforeEmptyLine() throws Exception {
+		fixture.scanOBJFile("valid_logical_line_empty.obj", handler);
+		handler.assertObjectCount(3);
+		handler.assertObject(index++, "Escaped\\");
+		handler.assertObject(index++, "Next");
+		handler.assertObject(index++, "Last");
+	}
+	
+	@Test
+	public void testWhiteSpace() throws Exception {
+		fixture.scanOBJFile("valid_white_space.obj", handler);
+		handler.assertVertexCount(1);
+		handler.assertVertex(0, 1.0f, 2.0f, 3.0f, null);
+		handler.assertObjectCount(1);
+		handler.assertObject(0, "Tabbed");
+		handler.assertCommentCount(1);
+		handler.assertComment(0, "spaced comment");
+	}
+	
+	@Test
+	public void testUnicode() throws Exception {
+		fixture.scanOBJFile("valid_unicode.obj", handler);
+		handler.assertCommentCount(1);
+		handler.assertComment(0, "Ünïcödé comment");
+		handler.assertObjectCount(1);
+		handler.assertObject(0, "Würfel_立方体_😀");
+		handler.assertMaterialReferenceCount(1);
+		handler.assertMaterialReference(0, "Matériau");
+	}
+	
+	@Test(expected = WFCorruptException.class)
+	public void testCorruptDataReference() throws Exception {
+		fixture.scanOBJFile("error_corrupt_data_reference.obj", handler);
+	}
+
+}
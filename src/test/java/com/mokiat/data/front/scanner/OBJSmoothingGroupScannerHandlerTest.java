@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static com.mokiat.data.front.scanner.IOBJInterestScannerHandler.INTEREST_FACE;
+import static com.mokiat.data.front.scanner.IOBJInterestScannerHandler.INTEREST_VERTEX;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mokiat.data.front.common.OBJLimits;
+import com.mokiat.data.front.stub.OBJEventLogScannerHandler;
+import com.mokiat.data.front.stub.OBJInterestEventLogScannerHandler;
+import com.mokiat.data.front.stub.OBJSmoothingGroupEventLogScannerHandler;
+import com.mokiat.data.front.test.WFResourceFixture;
+
+public class OBJSmoothingGroupScannerHandlerTest {
+
+	private static final int PARALLEL_CHUNK_SIZE = 16;
+
+	private final WFResourceFixture fixture = new WFResourceFixture();
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSmoothingGroups() throws Exception {
+		final OBJSmoothingGroupEventLogScannerHandler handler = new OBJSmoothingGroupEventLogScannerHandler();
+		fixture.scanOBJ("valid_smoothing_groups.obj", handler);
+		assertEquals(Arrays.asList("s 1", "s 0", "s 0", "s 12"), getSmoothingGroupEvents(handler.getEvents()));
+	}
+
+	@Test
+	public void testIgnoredByPlainHandlers() throws Exception {
+		final OBJSmoothingGroupEventLogScannerHandler smoothingHandler = new OBJSmoothingGroupEventLogScannerHandler();
+		fixture.scanOBJ("valid_smoothing_groups.obj", smoothingHandler);
+		final OBJEventLogScannerHandler handler = new OBJEventLogScannerHandler();
+		fixture.scanOBJ("valid_smoothing_groups.obj", handler);
+
+		final List<String> expected = new ArrayList<String>(smoothingHandler.getEvents());
+		expected.removeAll(getSmoothingGroupEvents(expected));
+		assertEquals(expected, handler.getEvents());
+	}
+
+	@Test
+	public void testNotSkippedForInterestHandlers() throws Exception {
+		final OBJInterestEventLogScannerHandler handler = new OBJInterestEventLogScannerHandler(INTEREST_VERTEX | INTEREST_FACE);
+		fixture.scanOBJ("valid_smoothing_groups.obj", handler);
+		fixture.scanOBJFile("valid_smoothing_groups.obj", new OBJParallelScanner(pool, PARALLEL_CHUNK_SIZE), handler);
+		final OBJLimits limits = new OBJLimits();
+		fixture.scanOBJ("valid_smoothing_groups.obj", new OBJLimitingScannerHandler(handler, limits));
+		assertFalse(handler.getEvents().contains("skip " + IOBJInterestScannerHandler.INTEREST_SMOOTHING_GROUP));
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		final OBJSmoothingGroupEventLogScannerHandler expected = new OBJSmoothingGroupEventLogScannerHandler();
+		fixture.scanOBJFile("valid_smoothing_groups.obj", expected);
+		final OBJSmoothingGroupEventLogScannerHandler actual = new OBJSmoothingGroupEventLogScannerHandler();
+		fixture.scanOBJFile("valid_smoothing_groups.obj", new OBJParallelScanner(pool, PARALLEL_CHUNK_SIZE), actual);
+		assertEquals(expected.getEvents(), actual.getEvents());
+	}
+
+	@Test
+	public void testLimiting() throws Exception {
+		final OBJSmoothingGroupEventLogScannerHandler expected = new OBJSmoothingGroupEventLogScannerHandler();
+		fixture.scanOBJ("valid_smoothing_groups.obj", expected);
+		final OBJSmoothingGroupEventLogScannerHandler actual = new OBJSmoothingGroupEventLogScannerHandler();
+		fixture.scanOBJ("valid_smoothing_groups.obj", new OBJLimitingScannerHandler(actual, new OBJLimits()));
+		assertEquals(expected.getEvents(), actual.getEvents());
+	}
+
+	private List<String> getSmoothingGroupEvents(List<String> events) {
+		final List<String> result = new ArrayList<String>();
+		for (String event : events) {
+			if (event.startsWith("s ")) {
+				result.add(event);
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WFMappedScanInputTest {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String CONTENT = "v 1.0 2.0 3.0\r\no Würfel_立方体_😀\r\n# éèê\r\n";
+	
+	private File file;
+	
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("mapped", ".obj");
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(CONTENT.getBytes(UTF_8));
+		} finally {
+			out.close();
+		}
+	}
+	
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+	
+	@Test
+	public void testDefaultWindow() throws Exception {
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			assertEquals(CONTENT, readAll(new WFMappedScanInput(channel), 8192));
+		} finally {
+			channel.close();
+		}
+	}
+	
+	@Test
+	public void testSmallWindows() throws Exception {
+		for (int windowSize = 4; windowSize <= 16; ++windowSize) {
+			for (int chunkSize = 2; chunkSize <= 5; ++chunkSize) {
+				final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				try {
+					final WFScanInput input = new WFMappedScanInput(channel, 0, channel.size(), windowSize);
+					assertEquals("Window size " + windowSize, CONTENT, readAll(input, chunkSize));
+				} finally {
+					channel.close();
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testMalformedSequence() throws Exception {
+		final OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[] { 'a', (byte) 0xE7, (byte) 0xAB, 'b', (byte) 0xFF, 'c' });
+		} finally {
+			out.close();
+		}
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			assertEquals("a\uFFFDb\uFFFDc", readAll(new WFMappedScanInput(channel), 8192));
+		} finally {
+			channel.close();
+		}
+	}
+	
+	private String readAll(WFScanInput input, int chunkSize) throws IOException {
+		final StringBuilder builder = new StringBuilder();
+		final char[] chunk = new char[chunkSize];
+		int count;
+		while ((count = input.read(chunk, 0, chunkSize)) > 0) {
+			builder.append(chunk, 0, count);
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mokiat.data.front.common.IFastFloat;
+import com.mokiat.data.front.common.WFCancellationToken;
+import com.mokiat.data.front.error.WFCancelledException;
+import com.mokiat.data.front.stub.MTLContentScannerHandler;
+import com.mokiat.data.front.stub.OBJContentScannerHandler;
+
+public class WFScanCancellationTest {
+
+	private static final int LINE_COUNT = 10 * WFScanGuard.CHECK_INTERVAL;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final ForkJoinPool pool = new ForkJoinPool(2);
+	private final WFCancellationToken token = new WFCancellationToken();
+
+	@After
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Test
+	public void testToken() throws Exception {
+		assertFalse(token.isCancelled());
+		assertFalse(token.hasDeadline());
+		assertFalse(token.isExpired());
+		token.check();
+		token.cancel();
+		assertTrue(token.isCancelled());
+		try {
+			token.check();
+			fail("Expected an exception");
+		} catch (WFCancelledException ex) {
+			assertEquals("Processing was cancelled.", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		final WFCancellationToken pending = new WFCancellationToken(1, TimeUnit.HOURS);
+		assertTrue(pending.hasDeadline());
+		assertFalse(pending.isExpired());
+		pending.check();
+
+		final WFCancellationToken expired = new WFCancellationToken(0, TimeUnit.MILLISECONDS);
+		assertTrue(expired.isExpired());
+		assertFalse(expired.isCancelled());
+		try {
+			expired.check();
+			fail("Expected an exception");
+		} catch (WFCancelledException ex) {
+			assertEquals("Processing deadline has passed.", ex.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeTimeout() {
+		new WFCancellationToken(-1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testScanWithoutCancellation() throws Exception {
+		final CountingHandler handler = new CountingHandler(-1);
+		new OBJScanner(token).scan(createReader(createVertices()), handler);
+		assertEquals(LINE_COUNT, handler.vertexCount);
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testScanCancelledUpfront() throws Exception {
+		token.cancel();
+		new OBJScanner(token).scan(createReader("v 1.0 2.0 3.0\n"), new OBJContentScannerHandler());
+	}
+
+	@Test
+	public void testScanCancelledWhileScanning() throws Exception {
+		final CountingHandler handler = new CountingHandler(1);
+		try {
+			new OBJScanner(token).scan(createReader(createVertices()), handler);
+			fail("Expected an exception");
+		} catch (WFCancelledException ex) {
+			assertEquals(WFScanGuard.CHECK_INTERVAL, handler.vertexCount);
+		}
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testScanExpired() throws Exception {
+		final WFCancellationToken expired = new WFCancellationToken(0, TimeUnit.MILLISECONDS);
+		new OBJScanner(expired).scan(createReader(createVertices()), new OBJContentScannerHandler());
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testScanFileCancelled() throws Exception {
+		token.cancel();
+		new OBJScanner(token).scan(createFile(createVertices()), new OBJContentScannerHandler());
+	}
+
+	@Test
+	public void testParallelScanCancelledWhileScanning() throws Exception {
+		final Path file = createFile(createVertices());
+		final CountingHandler handler = new CountingHandler(1);
+		try {
+			new OBJParallelScanner(pool, 4096, token).scan(file, handler);
+			fail("Expected an exception");
+		} catch (WFCancelledException ex) {
+			assertTrue(handler.vertexCount < LINE_COUNT);
+		}
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testCountCancelled() throws Exception {
+		token.cancel();
+		new OBJScanCounter(token).count(createFile(createVertices()));
+	}
+
+	@Test(expected = WFCancelledException.class)
+	public void testMTLScanCancelled() throws Exception {
+		token.cancel();
+		new MTLScanner(token).scan(createReader("newmtl Red\nKd 1.0 0.0 0.0\n"), new MTLContentScannerHandler());
+	}
+
+	private static String createVertices() {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < LINE_COUNT; ++i) {
+			builder.append("v 1.0 2.0 3.0\n");
+		}
+		return builder.toString();
+	}
+
+	private static BufferedReader createReader(String content) {
+		return new BufferedReader(new StringReader(content));
+	}
+
+	private Path createFile(String content) throws Exception {
+		final Path file = folder.newFile("cancellation.obj").toPath();
+		Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+
+	/*
+	 * Counts vertices and cancels the token once the
+	 * specified number of them has been received.
+	 */
+	private class CountingHandler extends OBJContentScannerHandler {
+
+		private final int cancelCount;
+		private int vertexCount = 0;
+
+		public CountingHandler(int cancelCount) {
+			this.cancelCount = cancelCount;
+		}
+
+		@Override
+		public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) {
+			super.onVertex(x, y, z, w);
+			if (++vertexCount == cancelCount) {
+				token.cancel();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.scanner;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.mokiat.data.front.error.WFCorruptException;
+
+public class WFScanFloatTest {
+
+	private static final int RANDOM_SAMPLE_COUNT = 1000000;
+
+	private final Random random = new Random(0x5EED);
+
+	@Test
+	public void testEdgeCases() throws Exception {
+		final String[] values = {
+			"0", "-0", "+0", "0.0", "-0.0", ".5", "5.", "-.5", "1", "-1",
+			"1.0", "0.1", "0.7", "0.9", "3.14159", "-2.5e-3", "1e10", "1E-10",
+			"1e+5", "123456789", "16777216", "16777217", "16777218", "16777219",
+			"33554431", "33554433", "9007199254740991", "9007199254740993",
+			"3.4028235e38", "3.4028236e38", "3.4028237e38", "1e39", "-1e39",
+			"1.4e-45", "1.5e-45", "7e-46", "7.1e-46", "1e-46", "1.17549435e-38",
+			"1.1754942e-38", "0.000000000000000000000000000001", "1e-22", "1e22",
+			"1e23", "123e20", "0.30000001192092896", "0.1000000014901161193847656",
+			"1.00000005960464477539062", "1.00000005960464477539063",
+			"1.000000059604644775390625", "1.0000000596046448", "NaN", "-NaN",
+			"Infinity", "-Infinity", "0x1p3", "0x1.8p-1", "1f", "1.5d", "2F",
+			"00000000000000000000000000001", "1000000000000000000000000000000",
+			"0.000000000000000000000000000000000000000000001401298464324817"
+		};
+		for (String value : values) {
+			assertParsesLikeJDK(value);
+		}
+	}
+
+	@Test
+	public void testRandomDecimals() throws Exception {
+		for (int i = 0; i < RANDOM_SAMPLE_COUNT; ++i) {
+			assertParsesLikeJDK(randomDecimal());
+		}
+	}
+
+	@Test
+	public void testRandomFloats() throws Exception {
+		for (int i = 0; i < RANDOM_SAMPLE_COUNT; ++i) {
+			final float value = Float.intBitsToFloat(random.nextInt());
+			if (Float.isNaN(value)) {
+				continue;
+			}
+			assertParsesLikeJDK(Float.toString(value));
+			assertParsesLikeJDK(Double.toString(value));
+		}
+	}
+
+	@Test
+	public void testFloatMidpoints() throws Exception {
+		for (int i = 0; i < RANDOM_SAMPLE_COUNT; ++i) {
+			final float value = Float.intBitsToFloat(random.nextInt() & 0x7F7FFFFF);
+			final double midpoint = ((double) value + (double) Math.nextUp(value)) / 2.0;
+			assertParsesLikeJDK(Double.toString(midpoint));
+			assertParsesLikeJDK(Double.toString(Math.nextUp(midpoint)));
+			assertParsesLikeJDK(Double.toString(Math.nextAfter(midpoint, 0.0)));
+		}
+	}
+
+	@Test(expected = WFCorruptException.class)
+	public void testNotANumber() throws Exception {
+		parse("1.0.0");
+	}
+
+	@Test(expected = WFCorruptException.class)
+	public void testMissingExponent() throws Exception {
+		parse("1.0e");
+	}
+
+	@Test(expected = WFCorruptException.class)
+	public void testSignOnly() throws Exception {
+		parse("-");
+	}
+
+	private String randomDecimal() {
+		final StringBuilder builder = new StringBuilder();
+		if (random.nextBoolean()) {
+			builder.append('-');
+		}
+		final int digitCount = 1 + random.nextInt(20);
+		final int pointPosition = random.nextInt(digitCount + 1);
+		for (int i = 0; i < digitCount; ++i) {
+			if (i == pointPosition) {
+				builder.append('.');
+			}
+			builder.append((char) ('0' + random.nextInt(10)));
+		}
+		if (random.nextInt(4) == 0) {
+			builder.append('e');
+			builder.append(random.nextInt(90) - 45);
+		}
+		return builder.toString();
+	}
+
+	private void assertParsesLikeJDK(String value) throws WFCorruptException {
+		final int expected = Float.floatToRawIntBits(Float.parseFloat(value));
+		final int actual = Float.floatToRawIntBits(parse(value));
+		assertEquals("Wrong result for: " + value, expected, actual);
+	}
+
+	private float parse(String value) throws WFCorruptException {
+		final char[] chars = (" " + value + " ").toCharArray();
+		return WFScanFloat.parse(chars, 1, chars.length - 1);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.stub;
+
+import com.mokiat.data.front.common.IFastFloat;
+import com.mokiat.data.front.scanner.IOBJBatchScannerHandler;
+
+public class OBJBatchEventLogScannerHandler extends OBJEventLogScannerHandler implements IOBJBatchScannerHandler {
+	
+	private int batchCount = 0;
+	
+	public OBJBatchEventLogScannerHandler() {
+		super();
+	}
+	
+	public int getBatchCount() {
+		return batchCount;
+	}
+
+	@Override
+	public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) {
+		throw new IllegalStateException("Per-element callback used for batch handler.");
+	}
+
+	@Override
+	public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) {
+		throw new IllegalStateException("Per-element callback used for batch handler.");
+	}
+
+	@Override
+	public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) {
+		throw new IllegalStateException("Per-element callback used for batch handler.");
+	}
+
+	@Override
+	public void onVertexBatch(float[] data, int count) {
+		batchCount++;
+		for (int i = 0; i < count; ++i) {
+			final int offset = i * VERTEX_STRIDE;
+			addEvent("v " + format(data[offset]) + " " + format(data[offset + 1]) + " " + format(data[offset + 2]) + " " + format(data[offset + 3]));
+		}
+	}
+
+	@Override
+	public void onTextureCoordinateBatch(float[] data, int count) {
+		batchCount++;
+		for (int i = 0; i < count; ++i) {
+			final int offset = i * TEXTURE_COORDINATE_STRIDE;
+			addEvent("vt " + format(data[offset]) + " " + format(data[offset + 1]) + " " + format(data[offset + 2]));
+		}
+	}
+
+	@Override
+	public void onNormalBatch(float[] data, int count) {
+		batchCount++;
+		for (int i = 0; i < count; ++i) {
+			final int offset = i * NORMAL_STRIDE;
+			addEvent("vn " + format(data[offset]) + " " + format(data[offset + 1]) + " " + format(data[offset + 2]));
+		}
+	}
+	
+	private String format(float value) {
+		return Float.isNaN(value) ? "null" : Integer.toHexString(Float.floatToRawIntBits(value));
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mokiat.data.front.stub;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mokiat.data.front.common.IFastFloat;
+import com.mokiat.data.front.common.IFastInt;
+import com.mokiat.data.front.scanner.IOBJScannerHandler;
+
+public class OBJEventLogScannerHandler implements IOBJScannerHandler {
+	
+	private final List<String> events = new ArrayList<String>();
+	
+	public OBJEventLogScannerHandler() {
+		super();
+	}
+	
+	public List<String> getEvents() {
+		return events;
+	}
+	
+	protected void addEvent(String event) {
+		events.add(event);
+	}
+
+	@Override
+	public void onComment(String comment) {
+		events.add("comment " + comment);
+	}
+
+	@Override
+	public void onVertex(IFastFloat x, IFastFloat y, IFastFloat z, IFastFloat w) {
+		events.add("v " + format(x) + " " + format(y) + " " + format(z) + " " + format(w));
+	}
+
+	@Override
+	public void onNormal(IFastFloat x, IFastFloat y, IFastFloat z) {
+		events.add("vn " + format(x) + " " + format(y) + " " + format(z));
+	}
+
+	@Override
+	public void onTextureCoordinate(IFastFloat u, IFastFloat v, IFastFloat w) {
+		events.add("vt " + format(u) + " " + format(v) + " " + format(w));
+	}
+
+	@Override
+	public void onObject(String objectName) {
+		events.add("o " + objectName);
+	}
+
+	@Override
+	public void onFaceBegin() {
+		events.add("f begin");
+	}
+
+	@Override
+	public void onFaceEnd() {
+		events.add("f end");
+	}
+
+	@Override
+	public void onDataReference(IFastInt vertexIndex, IFastInt texCoordIndex, IFastInt normalIndex) {
+		events.add("ref " + format(vertexIndex) + " " + format(texCoordIndex) + " " + format(normalIndex));
+	}
+
+	@Override
+	public void onMaterialLibrary(String libraryFilename) {
+		events.add("mtllib " + libraryFilename);
+	}
+
+	@Override
+	public void onMaterialReference(String materialName) {
+		events.add("usemtl " + materialName);
+	}
+	
+	protected String format(IFastFloat value) {
+		return (value != null) ? Integer.toHexString(Float.floatToRawIntBits(value.get())) : "null";
+	}
+	
+	protected String format(IFastInt value) {
+		return (value != null) ? Integer.toString(value.get()) : "null";
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.stub;
+
+import com.mokiat.data.front.scanner.IOBJInterestScannerHandler;
+
+public class OBJInterestEventLogScannerHandler extends OBJEventLogScannerHandler implements IOBJInterestScannerHandler {
+	
+	private final int interestMask;
+	
+	public OBJInterestEventLogScannerHandler(int interestMask) {
+		this.interestMask = interestMask;
+	}
+
+	@Override
+	public int getInterestMask() {
+		return interestMask;
+	}
+
+	@Override
+	public void onSkipped(int interest) {
+		addEvent("skip " + interest);
+	}
+
+}
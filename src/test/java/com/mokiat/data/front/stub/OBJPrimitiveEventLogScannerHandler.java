@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) mokiat.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.mokiat.data.front.stub;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mokiat.data.front.scanner.IOBJPrimitiveScannerHandler;
+
+public class OBJPrimitiveEventLogScannerHandler implements IOBJPrimitiveScannerHandler {
+	
+	private final List<String> events = new ArrayList<String>();
+	
+	public OBJPrimitiveEventLogScannerHandler() {
+		super();
+	}
+	
+	public List<String> getEvents() {
+		return events;
+	}
+
+	@Override
+	public void onComment(String comment) {
+		events.add("comment " + comment);
+	}
+
+	@Override
+	public void onVertex(float x, float y, float z, float w, boolean hasW) {
+		events.add("v " + format(x) + " " + format(y) + " " + format(z) + " " + (hasW ? format(w) : "null"));
+	}
+
+	@Override
+	public void onNormal(float x, float y, float z) {
+		events.add("vn " + format(x) + " " + format(y) + " " + format(z));
+	}
+
+	@Override
+	public void onTextureCoordinate(float u, float v, float w, int dimensions) {
+		events.add("vt " + format(u) + " " + ((dimensions > 1) ? format(v) : "null") + " " + ((dimensions > 2) ? format(w) : "null"));
+	}
+
+	@Override
+	public void onObject(String objectName) {
+		events.add("o " + objectName);
+	}
+
+	@Override
+	public void onFaceBegin() {
+		events.add("f begin");
+	}
+
+	@Override
+	public void onFaceEnd() {
+		events.add("f end");
+	}
+
+	@Override
+	public void onDataReference(int vertexIndex, int texCoordIndex, int normalIndex) {
+		events.add("ref " + format(vertexIndex) + " " + format(texCoordIndex) + " " + format(normalIndex));
+	}
+
+	@Override
+	public void onMaterialLibrary(String libraryFilename) {
+		events.add("mtllib " + libraryFilename);
+	}
+
+	@Override
+	public void onMaterialReference(String materialName) {
+		events.add("usemtl " + materialName);
+	}
+	
+	private String format(float value) {
+		return Integer.toHexString(Float.floatToRawIntBits(value));
+	}
+	
+	private String format(int value) {
+		return (value != NO_INDEX) ? Integer.toString(value) : "null";
+	}
+
+}
@@ -18,16 +18,28 @@ package com.mokiat.data.front.test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import com.mokiat.data.front.parser.IMTLParser;
+import com.mokiat.data.front.parser.IOBJObjectHandler;
 import com.mokiat.data.front.parser.IOBJParser;
 import com.mokiat.data.front.parser.MTLLibrary;
 import com.mokiat.data.front.parser.OBJModel;
+import com.mokiat.data.front.parser.OBJParser;
+import com.mokiat.data.front.parser.OBJScene;
+import com.mokiat.data.front.parser.OBJSceneLoader;
+import com.mokiat.data.front.scanner.IMTLFileScanner;
 import com.mokiat.data.front.scanner.IMTLScanner;
 import com.mokiat.data.front.scanner.IMTLScannerHandler;
+import com.mokiat.data.front.scanner.IOBJFileScanner;
 import com.mokiat.data.front.scanner.IOBJScanner;
 import com.mokiat.data.front.scanner.IOBJScannerHandler;
 import com.mokiat.data.front.scanner.MTLScanner;
+import com.mokiat.data.front.scanner.OBJScanCounter;
+import com.mokiat.data.front.scanner.OBJScanCounts;
 import com.mokiat.data.front.scanner.OBJScanner;
 
 public class WFResourceFixture {
@@ -48,6 +60,18 @@ public class WFResourceFixture {
 		}
 	}
 
+	public void scanOBJFile(String name, IOBJScannerHandler handler) throws IOException {
+		scanOBJFile(name, new OBJScanner(), handler);
+	}
+
+	public void scanOBJFile(String name, IOBJFileScanner scanner, IOBJScannerHandler handler) throws IOException {
+		scanner.scan(getPath(RESOURCE_PACKAGE + "scanner/obj/" + name), handler);
+	}
+
+	public OBJScanCounts countOBJFile(String name) throws IOException {
+		return new OBJScanCounter().count(getPath(RESOURCE_PACKAGE + "scanner/obj/" + name));
+	}
+
 	public OBJModel parseOBJ(String name, IOBJParser parser) throws IOException {
 		final InputStream in = getOBJParserResource(name);
 		try {
@@ -57,6 +81,31 @@ public class WFResourceFixture {
 		}
 	}
 
+	public OBJModel parseOBJFile(String name, OBJParser parser) throws IOException {
+		return parser.parse(getPath(RESOURCE_PACKAGE + "parser/obj/" + name));
+	}
+
+	public OBJModel parseOBJ(String name, OBJParser parser, IOBJObjectHandler handler) throws IOException {
+		final InputStream in = getOBJParserResource(name);
+		try {
+			return parser.parse(in, handler);
+		} finally {
+			in.close();
+		}
+	}
+
+	public OBJModel parseOBJFile(String name, OBJParser parser, IOBJObjectHandler handler) throws IOException {
+		return parser.parse(getPath(RESOURCE_PACKAGE + "parser/obj/" + name), handler);
+	}
+
+	public OBJScene loadScene(String name, OBJSceneLoader loader) throws IOException {
+		return loader.load(getScenePath(name));
+	}
+
+	public Path getScenePath(String name) {
+		return getPath(RESOURCE_PACKAGE + "parser/scene/" + name);
+	}
+
 	public void scanMTL(String name, IMTLScannerHandler handler) throws IOException {
 		final InputStream in = getMTLScannerResource(name);
 		try {
@@ -67,6 +116,11 @@ public class WFResourceFixture {
 		}
 	}
 
+	public void scanMTLFile(String name, IMTLScannerHandler handler) throws IOException {
+		final IMTLFileScanner scanner = new MTLScanner();
+		scanner.scan(getPath(RESOURCE_PACKAGE + "scanner/mtl/" + name), handler);
+	}
+
 	public MTLLibrary parseMTL(String name, IMTLParser parser) throws IOException {
 		final InputStream in = getMTLParserResource(name);
 		try {
@@ -100,5 +154,17 @@ public class WFResourceFixture {
         return in;
     }
 
+    private Path getPath(String path) {
+        final URL url = getClass().getResource(path);
+        if (url == null) {
+            throw new IllegalStateException("Resource not found: " + path);
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException ex) {
+            throw new IllegalStateException("Resource not a file: " + path, ex);
+        }
+    }
+
 
 }